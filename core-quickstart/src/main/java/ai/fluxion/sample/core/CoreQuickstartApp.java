@@ -2,21 +2,35 @@ package ai.fluxion.sample.core;
 
 import ai.fluxion.core.engine.PipelineExecutor;
 import ai.fluxion.core.model.Document;
-import ai.fluxion.core.model.Stage;
 import ai.fluxion.core.util.DocumentParser;
+import ai.fluxion.sample.core.plan.CompiledPipeline;
+import ai.fluxion.sample.core.plan.PipelineCache;
+import ai.fluxion.sample.core.plan.PipelineCompiler;
+import ai.fluxion.sample.core.spill.SpillConfig;
+import ai.fluxion.sample.core.spill.SpillCursor;
+import ai.fluxion.sample.core.stream.JsonDocumentReader;
+import ai.fluxion.sample.core.stream.NdjsonDocumentWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Minimal command-line sample for the core pipeline engine. It loads a JSON
- * pipeline definition, executes it against an in-memory document list, and
- * logs the transformed documents.
+ * pipeline definition, compiles it through a {@link PipelineCache}, executes
+ * it against an in-memory document list, and logs the transformed documents.
+ *
+ * <p>Given a path to a JSON-array or NDJSON file (and optionally a pipeline
+ * file), it instead streams the file through the pipeline and writes NDJSON
+ * results to standard output. Streamable stages hold one chunk of documents
+ * at a time; {@code $group} and {@code $sort} buffer up to the spill budget.
  */
 public final class CoreQuickstartApp {
 
@@ -24,6 +38,15 @@ public final class CoreQuickstartApp {
 
     public static void main(String[] args) throws Exception {
         PipelineExecutor executor = new PipelineExecutor();
+        PipelineCache pipelines = new PipelineCache(new PipelineCompiler(executor), 256);
+
+        if (args.length > 0) {
+            String pipelineJson = args.length > 1
+                    ? Files.readString(Path.of(args[1]))
+                    : readResource("/pipelines/orders.json");
+            streamFile(Path.of(args[0]), pipelines.get(pipelineJson), System.out);
+            return;
+        }
 
         List<Document> input = DocumentParser.getDocumentsFromJsonArray("""
                 [
@@ -33,12 +56,28 @@ public final class CoreQuickstartApp {
                 ]
                 """);
 
-        List<Stage> stages = DocumentParser.getStagesFromJsonArray(readResource("/pipelines/orders.json"));
+        CompiledPipeline pipeline = pipelines.get(readResource("/pipelines/orders.json"));
+        LOGGER.info("Planned stages: {}", pipeline.plannedStages());
 
-        List<Document> results = executor.execute(input, stages, Map.of("tenantId", "demo-store"));
+        List<Document> results = pipeline.execute(input, Map.of("tenantId", "demo-store"));
         results.forEach(document -> LOGGER.info("Result: {}", document));
     }
 
+    private static void streamFile(Path input, CompiledPipeline pipeline, OutputStream output) throws IOException {
+        SpillConfig config = SpillConfig.builder()
+                .memoryBudgetBytes(16L * 1024 * 1024)
+                .chunkSize(256)
+                .build();
+        long started = System.nanoTime();
+        try (JsonDocumentReader reader = JsonDocumentReader.open(input);
+             SpillCursor results = pipeline.stream(reader, Map.of("tenantId", "demo-store"), config);
+             NdjsonDocumentWriter writer = new NdjsonDocumentWriter(output)) {
+            results.forEachRemaining(writer::write);
+            LOGGER.info("Wrote {} documents from {} in {} ms ({})", writer.written(), input,
+                    (System.nanoTime() - started) / 1_000_000, results.stats());
+        }
+    }
+
     private static String readResource(String path) throws IOException {
         try (InputStream inputStream = CoreQuickstartApp.class.getResourceAsStream(path)) {
             if (inputStream == null) {
@@ -0,0 +1,82 @@
+package ai.fluxion.sample.core.columnar;
+
+import ai.fluxion.sample.core.columnar.ColumnExpressions.Expression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code $addFields} / {@code $set}: every expression is evaluated once over
+ * the whole batch into a new column. Untouched fields share their input
+ * columns, or stay in the source documents if nothing has read them, so no
+ * per-document map is copied.
+ */
+final class AddFieldsStage implements ColumnarStage {
+
+    private final Schema output;
+    private final int[] targets;
+    private final Expression[] expressions;
+
+    private AddFieldsStage(Schema output, int[] targets, Expression[] expressions) {
+        this.output = output;
+        this.targets = targets;
+        this.expressions = expressions;
+    }
+
+    static ColumnarStage compile(Map<String, Object> specification, Schema schema) {
+        List<String> fields = new ArrayList<>(schema.fields());
+        List<ColumnType> types = new ArrayList<>();
+        for (int i = 0; i < schema.size(); i++) {
+            types.add(schema.type(i));
+        }
+        int[] targets = new int[specification.size()];
+        Expression[] expressions = new Expression[specification.size()];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : specification.entrySet()) {
+            String field = entry.getKey();
+            if (field.startsWith("$") || field.indexOf('.') >= 0) {
+                return null;
+            }
+            // Expressions see the input document, not fields set earlier in this stage.
+            Expression expression = ColumnExpressions.compile(entry.getValue(), schema);
+            if (expression == null) {
+                return null;
+            }
+            int target = fields.indexOf(field);
+            if (target < 0) {
+                fields.add(field);
+                types.add(expression.type());
+                target = fields.size() - 1;
+            } else {
+                types.set(target, expression.type());
+            }
+            targets[i] = target;
+            expressions[i] = expression;
+            i++;
+        }
+        Schema output = new Schema(fields.toArray(String[]::new), types.toArray(ColumnType[]::new));
+        return new AddFieldsStage(output, targets, expressions);
+    }
+
+    @Override
+    public Schema output() {
+        return output;
+    }
+
+    @Override
+    public ColumnarBatch apply(ColumnarBatch input) {
+        Column[] columns = new Column[output.size()];
+        Column[] computed = new Column[expressions.length];
+        for (int i = 0; i < expressions.length; i++) {
+            computed[i] = expressions[i].evaluate(input);
+        }
+        for (int i = 0; i < input.schema().size(); i++) {
+            columns[i] = input.transposed(i);
+        }
+        for (int i = 0; i < expressions.length; i++) {
+            columns[targets[i]] = computed[i];
+        }
+        return input.with(output, columns);
+    }
+}
@@ -0,0 +1,113 @@
+package ai.fluxion.sample.core.columnar;
+
+import java.util.BitSet;
+
+/**
+ * One field of a batch stored as an unboxed array of its {@link ColumnType},
+ * with a null bitmap. Columns are immutable once a stage has produced them,
+ * so stages that pass a field through share the array instead of copying it.
+ */
+final class Column {
+
+    final ColumnType type;
+    final int size;
+    final int[] ints;
+    final long[] longs;
+    final double[] doubles;
+    final String[] strings;
+    final boolean[] booleans;
+    final Object[] objects;
+    final BitSet nulls;
+
+    private Column(ColumnType type, int size) {
+        this.type = type;
+        this.size = size;
+        this.ints = type == ColumnType.INT ? new int[size] : null;
+        this.longs = type == ColumnType.LONG ? new long[size] : null;
+        this.doubles = type == ColumnType.DOUBLE ? new double[size] : null;
+        this.strings = type == ColumnType.STRING ? new String[size] : null;
+        this.booleans = type == ColumnType.BOOLEAN ? new boolean[size] : null;
+        this.objects = type == ColumnType.OBJECT ? new Object[size] : null;
+        this.nulls = new BitSet();
+    }
+
+    static Column allocate(ColumnType type, int size) {
+        return new Column(type, size);
+    }
+
+    /** A column holding the same value in every row. */
+    static Column constant(Object value, int size) {
+        Column column = allocate(value == null ? ColumnType.OBJECT : ColumnType.of(value), size);
+        for (int row = 0; row < size; row++) {
+            column.set(row, value);
+        }
+        return column;
+    }
+
+    void set(int row, Object value) {
+        if (value == null) {
+            nulls.set(row);
+            return;
+        }
+        switch (type) {
+            case INT -> ints[row] = (Integer) value;
+            case LONG -> longs[row] = (Long) value;
+            case DOUBLE -> doubles[row] = (Double) value;
+            case STRING -> strings[row] = (String) value;
+            case BOOLEAN -> booleans[row] = (Boolean) value;
+            default -> objects[row] = value;
+        }
+    }
+
+    boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    long longAt(int row) {
+        return type == ColumnType.INT ? ints[row] : longs[row];
+    }
+
+    double doubleAt(int row) {
+        return switch (type) {
+            case INT -> ints[row];
+            case LONG -> longs[row];
+            default -> doubles[row];
+        };
+    }
+
+    /** Boxed value for materializing documents; the only place a column allocates per row. */
+    Object get(int row) {
+        if (nulls.get(row)) {
+            return null;
+        }
+        return switch (type) {
+            case INT -> ints[row];
+            case LONG -> longs[row];
+            case DOUBLE -> doubles[row];
+            case STRING -> strings[row];
+            case BOOLEAN -> booleans[row];
+            default -> objects[row];
+        };
+    }
+
+    /** Gathers the given rows into a new column. */
+    Column select(int[] rows, int count) {
+        Column selected = allocate(type, count);
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            if (nulls.get(row)) {
+                selected.nulls.set(i);
+                continue;
+            }
+            switch (type) {
+                case INT -> selected.ints[i] = ints[row];
+                case LONG -> selected.longs[i] = longs[row];
+                case DOUBLE -> selected.doubles[i] = doubles[row];
+                case STRING -> selected.strings[i] = strings[row];
+                case BOOLEAN -> selected.booleans[i] = booleans[row];
+                default -> selected.objects[i] = objects[row];
+            }
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,230 @@
+package ai.fluxion.sample.core.columnar;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles the expression subset the columnar path evaluates without boxing:
+ * field references, scalar literals and {@code $add}, {@code $subtract},
+ * {@code $multiply} and {@code $divide} over numeric operands. Integer
+ * arithmetic stays integral as in the executor; a quotient is always a double.
+ */
+final class ColumnExpressions {
+
+    private static final List<String> ARITHMETIC = List.of("$add", "$subtract", "$multiply", "$divide");
+
+    private ColumnExpressions() {
+    }
+
+    interface Expression {
+
+        ColumnType type();
+
+        /** Evaluates over every row; field references return the input column itself. */
+        Column evaluate(ColumnarBatch batch);
+    }
+
+    /** Returns {@code null} when {@code specification} is outside the supported subset. */
+    static Expression compile(Object specification, Schema schema) {
+        if (specification instanceof String text && text.startsWith("$")) {
+            return fieldReference(text, schema);
+        }
+        if (isScalar(specification)) {
+            return new Literal(specification);
+        }
+        if (specification instanceof Map<?, ?> map && map.size() == 1) {
+            Map.Entry<?, ?> entry = map.entrySet().iterator().next();
+            String operator = String.valueOf(entry.getKey());
+            if ("$literal".equals(operator) && isScalar(entry.getValue())) {
+                return new Literal(entry.getValue());
+            }
+            if (ARITHMETIC.contains(operator) && entry.getValue() instanceof List<?> arguments) {
+                return arithmetic(operator, arguments, schema);
+            }
+        }
+        return null;
+    }
+
+    static boolean isScalar(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Double
+                || (value instanceof String text && !text.startsWith("$")) || value instanceof Boolean;
+    }
+
+    private static Expression fieldReference(String path, Schema schema) {
+        if (path.startsWith("$$") || path.indexOf('.') >= 0) {
+            return null;
+        }
+        int index = schema.indexOf(path.substring(1));
+        if (index < 0) {
+            return null;
+        }
+        ColumnType type = schema.type(index);
+        return new Expression() {
+            @Override
+            public ColumnType type() {
+                return type;
+            }
+
+            @Override
+            public Column evaluate(ColumnarBatch batch) {
+                return batch.column(index);
+            }
+        };
+    }
+
+    private static Expression arithmetic(String operator, List<?> arguments, Schema schema) {
+        boolean binary = "$subtract".equals(operator) || "$divide".equals(operator);
+        if (binary ? arguments.size() != 2 : arguments.isEmpty()) {
+            return null;
+        }
+        Expression[] operands = new Expression[arguments.size()];
+        boolean floating = "$divide".equals(operator);
+        boolean allInts = true;
+        for (int i = 0; i < operands.length; i++) {
+            operands[i] = compile(arguments.get(i), schema);
+            if (operands[i] == null || !operands[i].type().numeric()) {
+                return null;
+            }
+            floating |= operands[i].type() == ColumnType.DOUBLE;
+            allInts &= operands[i].type() == ColumnType.INT;
+        }
+        ColumnType type = floating ? ColumnType.DOUBLE : (allInts ? ColumnType.INT : ColumnType.LONG);
+        return new Arithmetic(operator, operands, type);
+    }
+
+    private static final class Literal implements Expression {
+        private final Object value;
+
+        private Literal(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public ColumnType type() {
+            return ColumnType.of(value);
+        }
+
+        @Override
+        public Column evaluate(ColumnarBatch batch) {
+            return Column.constant(value, batch.size());
+        }
+    }
+
+    private static final class Arithmetic implements Expression {
+        private final String operator;
+        private final Expression[] operands;
+        private final ColumnType type;
+
+        private Arithmetic(String operator, Expression[] operands, ColumnType type) {
+            this.operator = operator;
+            this.operands = operands;
+            this.type = type;
+        }
+
+        @Override
+        public ColumnType type() {
+            return type;
+        }
+
+        @Override
+        public Column evaluate(ColumnarBatch batch) {
+            int size = batch.size();
+            // Literal operands stay scalar so "$total * 1.08" reads one column.
+            Column[] columns = new Column[operands.length];
+            Number[] constants = new Number[operands.length];
+            for (int i = 0; i < operands.length; i++) {
+                if (operands[i] instanceof Literal literal) {
+                    constants[i] = (Number) literal.value;
+                } else {
+                    columns[i] = operands[i].evaluate(batch);
+                }
+            }
+            return type == ColumnType.DOUBLE
+                    ? evaluateDouble(columns, constants, size)
+                    : evaluateIntegral(columns, constants, size);
+        }
+
+        private Column evaluateDouble(Column[] columns, Number[] constants, int size) {
+            Column result = Column.allocate(ColumnType.DOUBLE, size);
+            for (int row = 0; row < size; row++) {
+                if (anyNull(columns, row)) {
+                    result.nulls.set(row);
+                    continue;
+                }
+                double value = operand(columns, constants, 0, row);
+                for (int i = 1; i < columns.length; i++) {
+                    double next = operand(columns, constants, i, row);
+                    switch (operator) {
+                        case "$add" -> value += next;
+                        case "$subtract" -> value -= next;
+                        case "$multiply" -> value *= next;
+                        default -> {
+                            if (next == 0) {
+                                throw new ColumnarFallback("division by zero");
+                            }
+                            value /= next;
+                        }
+                    }
+                }
+                result.doubles[row] = value;
+            }
+            return result;
+        }
+
+        private Column evaluateIntegral(Column[] columns, Number[] constants, int size) {
+            boolean fitsInt = true;
+            Column result = Column.allocate(ColumnType.LONG, size);
+            for (int row = 0; row < size; row++) {
+                if (anyNull(columns, row)) {
+                    result.nulls.set(row);
+                    continue;
+                }
+                long value = integralOperand(columns, constants, 0, row);
+                try {
+                    for (int i = 1; i < columns.length; i++) {
+                        long next = integralOperand(columns, constants, i, row);
+                        value = switch (operator) {
+                            case "$add" -> Math.addExact(value, next);
+                            case "$subtract" -> Math.subtractExact(value, next);
+                            default -> Math.multiplyExact(value, next);
+                        };
+                    }
+                } catch (ArithmeticException e) {
+                    throw new ColumnarFallback("long overflow");
+                }
+                result.longs[row] = value;
+                fitsInt &= value == (int) value;
+            }
+            if (type == ColumnType.INT && fitsInt) {
+                Column ints = Column.allocate(ColumnType.INT, size);
+                ints.nulls.or(result.nulls);
+                for (int row = 0; row < size; row++) {
+                    ints.ints[row] = (int) result.longs[row];
+                }
+                return ints;
+            }
+            if (type == ColumnType.INT) {
+                // Mixed int and long results per row are not representable in one column.
+                throw new ColumnarFallback("int overflow");
+            }
+            return result;
+        }
+
+        private static boolean anyNull(Column[] columns, int row) {
+            for (Column column : columns) {
+                if (column != null && column.isNull(row)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static double operand(Column[] columns, Number[] constants, int index, int row) {
+            return columns[index] != null ? columns[index].doubleAt(row) : constants[index].doubleValue();
+        }
+
+        private static long integralOperand(Column[] columns, Number[] constants, int index, int row) {
+            return columns[index] != null ? columns[index].longAt(row) : constants[index].longValue();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ai.fluxion.sample.core.columnar;
+
+/**
+ * Storage type of one column. Each primitive type maps to an unboxed array;
+ * {@link #OBJECT} carries nested documents, arrays and anything else through
+ * unchanged so wide documents can still be batched.
+ */
+public enum ColumnType {
+    INT,
+    LONG,
+    DOUBLE,
+    STRING,
+    BOOLEAN,
+    OBJECT;
+
+    static ColumnType of(Object value) {
+        if (value instanceof Integer) {
+            return INT;
+        }
+        if (value instanceof Long) {
+            return LONG;
+        }
+        if (value instanceof Double) {
+            return DOUBLE;
+        }
+        if (value instanceof String) {
+            return STRING;
+        }
+        if (value instanceof Boolean) {
+            return BOOLEAN;
+        }
+        return OBJECT;
+    }
+
+    boolean numeric() {
+        return this == INT || this == LONG || this == DOUBLE;
+    }
+
+    boolean integral() {
+        return this == INT || this == LONG;
+    }
+
+    /** Whether a non-null value can be stored in a column of this type without changing its Java type. */
+    boolean accepts(Object value) {
+        return of(value) == this;
+    }
+}
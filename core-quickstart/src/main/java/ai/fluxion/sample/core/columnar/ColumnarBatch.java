@@ -0,0 +1,175 @@
+package ai.fluxion.sample.core.columnar;
+
+import ai.fluxion.core.model.Document;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Documents that share one {@link Schema}, stored column by column. Reading a
+ * numeric field is an array access instead of a hash lookup and an unboxing,
+ * and stages that add or drop fields touch one column rather than every
+ * document's map.
+ *
+ * <p>A batch built by {@link #of} keeps its source documents and transposes a
+ * field only when a stage first reads it, so fields no stage references are
+ * never copied: filters carry a row selection instead of gathering them, and
+ * {@link #toDocuments} reads them straight from the source maps. Only the
+ * output maps themselves are allocated per row.
+ */
+public final class ColumnarBatch {
+
+    private final Schema schema;
+    // A null entry is a field not transposed yet, read from the source row on demand.
+    private final Column[] columns;
+    private final int size;
+    private final List<Document> source;
+    private final int[] rows;
+
+    ColumnarBatch(Schema schema, Column[] columns, int size) {
+        this(schema, columns, size, null, null);
+    }
+
+    private ColumnarBatch(Schema schema, Column[] columns, int size, List<Document> source, int[] rows) {
+        this.schema = schema;
+        this.columns = columns;
+        this.size = size;
+        this.source = source;
+        this.rows = rows;
+    }
+
+    /**
+     * Batches {@code documents} for column-wise reads, or returns {@code null}
+     * when they do not all share the first document's shape.
+     */
+    public static ColumnarBatch of(List<Document> documents) {
+        if (documents.isEmpty()) {
+            return null;
+        }
+        Schema schema = Schema.infer(documents.get(0).getData());
+        if (schema == null) {
+            return null;
+        }
+        return of(documents, 0, documents.size(), schema);
+    }
+
+    /**
+     * Wraps rows {@code [from, to)} without copying any field, or returns
+     * {@code null} if any of them does not fit {@code schema}.
+     */
+    static ColumnarBatch of(List<Document> documents, int from, int to, Schema schema) {
+        List<Document> rows = documents.subList(from, to);
+        for (Document document : rows) {
+            if (!schema.accepts(document.getData())) {
+                return null;
+            }
+        }
+        return new ColumnarBatch(schema, new Column[schema.size()], rows.size(), rows, null);
+    }
+
+    /**
+     * Wraps {@code documents} without checking their shape, or returns
+     * {@code null} if any of them has one of the {@code absent} fields. Fields
+     * of {@code schema} are checked as they are read, failing with a
+     * {@link ColumnarFallback}, so only stages that read nothing but those
+     * and the {@code absent} fields may run over it.
+     */
+    static ColumnarBatch of(List<Document> documents, Schema schema, List<String> absent) {
+        for (Document document : documents) {
+            for (String field : absent) {
+                if (document.getData().containsKey(field)) {
+                    return null;
+                }
+            }
+        }
+        return new ColumnarBatch(schema, new Column[schema.size()], documents.size(), documents, null);
+    }
+
+    public Schema schema() {
+        return schema;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** The column at {@code index}, transposing it from the source rows on first use. */
+    Column column(int index) {
+        Column column = columns[index];
+        if (column == null) {
+            column = Column.allocate(schema.type(index), size);
+            for (int row = 0; row < size; row++) {
+                column.set(row, sourceValue(row, index));
+            }
+            columns[index] = column;
+        }
+        return column;
+    }
+
+    /**
+     * A batch of the same rows with {@code schema}, where a {@code null}
+     * column is a field of the same name this batch has not transposed yet.
+     * Stages that pass fields through use it to keep them untouched.
+     */
+    ColumnarBatch with(Schema schema, Column[] columns) {
+        return new ColumnarBatch(schema, columns, size, source, rows);
+    }
+
+    /** The column at {@code index} if it has been transposed, else {@code null}; see {@link #with}. */
+    Column transposed(int index) {
+        return columns[index];
+    }
+
+    /**
+     * Keeps the first {@code count} of {@code selected} rows. Transposed
+     * columns are gathered; the rest stay in the source and are reached
+     * through the row selection.
+     */
+    ColumnarBatch select(int[] selected, int count) {
+        Column[] kept = new Column[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] != null) {
+                kept[i] = columns[i].select(selected, count);
+            }
+        }
+        int[] sourceRows = null;
+        if (source != null) {
+            sourceRows = new int[count];
+            for (int i = 0; i < count; i++) {
+                sourceRows[i] = rows == null ? selected[i] : rows[selected[i]];
+            }
+        }
+        return new ColumnarBatch(schema, kept, count, source, sourceRows);
+    }
+
+    private Object sourceValue(int row, int index) {
+        Map<String, Object> data = source.get(rows == null ? row : rows[row]).getData();
+        String field = schema.field(index);
+        Object value = data.get(field);
+        if (value == null ? !data.containsKey(field) : !schema.type(index).accepts(value)) {
+            throw new ColumnarFallback("field " + field + " does not fit " + schema.type(index));
+        }
+        return value;
+    }
+
+    /**
+     * Rebuilds one map-backed document per row, boxing primitive values
+     * again. Field order follows the schema and values keep their original
+     * Java types. Throws {@link ColumnarFallback} if a field not transposed
+     * yet turns out not to fit.
+     */
+    public List<Document> toDocuments() {
+        List<Document> documents = new ArrayList<>(size);
+        int width = schema.size();
+        for (int row = 0; row < size; row++) {
+            Map<String, Object> data = new LinkedHashMap<>(Math.max(4, width * 4 / 3 + 1));
+            for (int i = 0; i < width; i++) {
+                data.put(schema.field(i), columns[i] == null ? sourceValue(row, i) : columns[i].get(row));
+            }
+            documents.add(new Document(data));
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,217 @@
+package ai.fluxion.sample.core.columnar;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.sample.core.plan.CompiledPipeline;
+import ai.fluxion.sample.core.plan.StageDefinition;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs a {@link CompiledPipeline} over {@link ColumnarBatch}es when its input
+ * documents share one shape. The longest prefix of stages the columnar
+ * operators cover is specialized once per {@link Schema}; the rest of the
+ * pipeline, and any input the columnar path cannot model, goes through the
+ * pipeline's own executor, so results are the same either way.
+ *
+ * <p>Mixed-shape input is still handled column-wise when every stage is
+ * row-local ({@code $match}, {@code $addFields}, {@code $set},
+ * {@code $project}): each run of same-shape documents is processed as its
+ * own batch and the outputs are concatenated in input order.
+ *
+ * <p>Only fields a stage reads are transposed (see {@link ColumnarBatch}), so
+ * document width costs nothing beyond checking the shape. When the prefix
+ * reaches a {@code $group} or an inclusion {@code $project} that drops every
+ * other field, the shape is not checked up front either: fields are checked
+ * as they are read, and later documents may differ from the first in any
+ * field the stages do not name. Otherwise every field of every document is
+ * checked, and a pipeline with no columnar prefix goes straight to the
+ * executor without looking at the input.
+ * {@code ColumnarBenchmark} with {@code -prof gc} compares both paths.
+ */
+public final class ColumnarExecutor {
+
+    private static final Set<String> ROW_LOCAL = Set.of("$match", "$addFields", "$set", "$project");
+    private static final int MAX_PLANS = 256;
+
+    private final PipelineExecutor executor;
+    private final List<StageDefinition> definitions;
+    private final List<Stage> stages;
+    private final boolean rowLocal;
+    private final Map<Schema, Plan> plans = new ConcurrentHashMap<>();
+    private final LongAdder columnarDocuments = new LongAdder();
+    private final LongAdder fallbackDocuments = new LongAdder();
+
+    public ColumnarExecutor(CompiledPipeline pipeline) {
+        this.executor = pipeline.executor();
+        this.definitions = pipeline.plannedStages();
+        this.stages = pipeline.stages();
+        this.rowLocal = definitions.stream().allMatch(stage -> ROW_LOCAL.contains(stage.operator()));
+    }
+
+    public List<Document> execute(List<Document> input, Map<String, Object> variables) {
+        if (input.isEmpty()) {
+            return executor.execute(input, stages, variables);
+        }
+        Schema first = Schema.infer(input.get(0).getData());
+        Plan plan = first == null ? null : plan(first);
+        if (plan != null && plan.prefix.isEmpty()) {
+            return fallback(input, variables);
+        }
+        ColumnarBatch batch = plan == null ? null
+                : plan.absentFields == null
+                ? ColumnarBatch.of(input, 0, input.size(), first)
+                : ColumnarBatch.of(input, first, plan.absentFields);
+        List<Document> output = batch == null ? null : execute(batch, plan, input, variables);
+        if (output != null) {
+            return output;
+        }
+        // A batch checked field for field that still fell back would fail the same way in runs.
+        if (!rowLocal || (batch != null && plan.absentFields == null)) {
+            fallbackDocuments.add(input.size());
+            return executor.execute(input, stages, variables);
+        }
+        output = new ArrayList<>();
+        int from = 0;
+        while (from < input.size()) {
+            Schema schema = Schema.infer(input.get(from).getData());
+            int to = from + 1;
+            while (schema != null && to < input.size() && schema.accepts(input.get(to).getData())) {
+                to++;
+            }
+            List<Document> run = input.subList(from, to);
+            ColumnarBatch runBatch = schema == null ? null : ColumnarBatch.of(input, from, to, schema);
+            List<Document> runOutput = runBatch == null ? null : execute(runBatch, plan(schema), run, variables);
+            output.addAll(runOutput == null ? fallback(run, variables) : runOutput);
+            from = to;
+        }
+        return output;
+    }
+
+    /** Runs {@code batch} through the plan, or returns {@code null} if the columnar path cannot. */
+    private List<Document> execute(ColumnarBatch batch, Plan plan, List<Document> input,
+                                   Map<String, Object> variables) {
+        if (plan.prefix.isEmpty()) {
+            return null;
+        }
+        List<Document> documents;
+        try {
+            for (ColumnarStage stage : plan.prefix) {
+                batch = stage.apply(batch);
+            }
+            documents = batch.toDocuments();
+        } catch (ColumnarFallback e) {
+            return null;
+        }
+        columnarDocuments.add(input.size());
+        return plan.suffix.isEmpty() ? documents : executor.execute(documents, plan.suffix, variables);
+    }
+
+    private List<Document> fallback(List<Document> input, Map<String, Object> variables) {
+        fallbackDocuments.add(input.size());
+        return executor.execute(new ArrayList<>(input), stages, variables);
+    }
+
+    private Plan plan(Schema schema) {
+        Plan plan = plans.get(schema);
+        if (plan == null) {
+            plan = compile(schema);
+            // Inputs with endlessly varying shapes are planned per call rather than cached.
+            if (plans.size() < MAX_PLANS) {
+                plans.putIfAbsent(schema, plan);
+            }
+        }
+        return plan;
+    }
+
+    private Plan compile(Schema schema) {
+        List<ColumnarStage> prefix = new ArrayList<>();
+        List<String> absentFields = null;
+        Schema current = schema;
+        int index = 0;
+        for (; index < definitions.size(); index++) {
+            ColumnarStage stage = ColumnarStage.compile(definitions.get(index), current);
+            if (stage == null) {
+                break;
+            }
+            prefix.add(stage);
+            current = stage.output();
+            if (absentFields == null && closes(stage, schema)) {
+                absentFields = namedFields(definitions.subList(0, index + 1)).stream()
+                        .filter(field -> schema.indexOf(field) < 0)
+                        .toList();
+            }
+        }
+        return new Plan(List.copyOf(prefix), stages.subList(index, stages.size()), absentFields);
+    }
+
+    /**
+     * Whether {@code stage} drops every input field it does not name. Fields
+     * kept from the original documents come out in their order there, so at
+     * most one of them may be kept; fields added by earlier stages always
+     * come after them.
+     */
+    private static boolean closes(ColumnarStage stage, Schema schema) {
+        List<String> kept = stage.passedThrough();
+        return kept != null && kept.stream().filter(field -> schema.indexOf(field) >= 0).count() <= 1;
+    }
+
+    /**
+     * Every top-level field the stages could look up while compiling or
+     * running: the keys of {@code $match}, {@code $addFields} and
+     * {@code $project}, every {@code $field} reference, and {@code _id},
+     * which {@code $project} keeps unless told otherwise.
+     */
+    private static List<String> namedFields(List<StageDefinition> stages) {
+        Set<String> fields = new LinkedHashSet<>();
+        for (StageDefinition stage : stages) {
+            Map<String, Object> specification = stage.specificationAsMap();
+            if ("$project".equals(stage.operator())) {
+                fields.add("_id");
+            }
+            if (!"$group".equals(stage.operator())) {
+                specification.keySet().stream().filter(key -> !key.startsWith("$")).forEach(fields::add);
+            }
+            collectReferences(specification.values(), fields);
+        }
+        return List.copyOf(fields);
+    }
+
+    private static void collectReferences(Iterable<?> values, Set<String> fields) {
+        for (Object value : values) {
+            if (value instanceof String text && text.startsWith("$") && !text.startsWith("$$")) {
+                int dot = text.indexOf('.');
+                fields.add(dot < 0 ? text.substring(1) : text.substring(1, dot));
+            } else if (value instanceof Map<?, ?> map) {
+                collectReferences(map.values(), fields);
+            } else if (value instanceof Iterable<?> list) {
+                collectReferences(list, fields);
+            }
+        }
+    }
+
+    /** Documents processed by the columnar operators. */
+    public long columnarDocuments() {
+        return columnarDocuments.sum();
+    }
+
+    /** Documents that ran entirely on the map-backed executor. */
+    public long fallbackDocuments() {
+        return fallbackDocuments.sum();
+    }
+
+    /**
+     * {@code absentFields} are the fields the stages name that the planned
+     * shape lacks, which no document may have; {@code null} when documents
+     * must match the shape field for field.
+     */
+    private record Plan(List<ColumnarStage> prefix, List<Stage> suffix, List<String> absentFields) {
+    }
+}
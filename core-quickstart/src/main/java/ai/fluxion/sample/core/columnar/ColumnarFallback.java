@@ -0,0 +1,13 @@
+package ai.fluxion.sample.core.columnar;
+
+/**
+ * Raised when a batch hits a case the columnar operators do not model, such as
+ * integer overflow or division by zero. The executor then reruns the batch on
+ * the map-backed path, so semantics are always the executor's own.
+ */
+final class ColumnarFallback extends RuntimeException {
+
+    ColumnarFallback(String message) {
+        super(message, null, false, false);
+    }
+}
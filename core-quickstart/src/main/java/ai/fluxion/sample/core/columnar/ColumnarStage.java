@@ -0,0 +1,44 @@
+package ai.fluxion.sample.core.columnar;
+
+import ai.fluxion.sample.core.plan.StageDefinition;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One pipeline stage specialized for a known input {@link Schema}. Stages are
+ * compiled per shape, so every field reference is already resolved to a
+ * column position and type.
+ */
+interface ColumnarStage {
+
+    Schema output();
+
+    ColumnarBatch apply(ColumnarBatch input);
+
+    /**
+     * The input fields the output keeps, in input order, when it holds no
+     * other input field than those the stage names; {@code null} when any
+     * input field can reach later stages.
+     */
+    default List<String> passedThrough() {
+        return null;
+    }
+
+    /**
+     * Specializes {@code stage} for {@code schema}, or returns {@code null} if
+     * the stage uses anything the columnar operators do not cover.
+     */
+    static ColumnarStage compile(StageDefinition stage, Schema schema) {
+        if (!(stage.specification() instanceof Map<?, ?>)) {
+            return null;
+        }
+        return switch (stage.operator()) {
+            case "$match" -> MatchStage.compile(stage.specificationAsMap(), schema);
+            case "$addFields", "$set" -> AddFieldsStage.compile(stage.specificationAsMap(), schema);
+            case "$project" -> ProjectStage.compile(stage.specificationAsMap(), schema);
+            case "$group" -> GroupStage.compile(stage.specificationAsMap(), schema);
+            default -> null;
+        };
+    }
+}
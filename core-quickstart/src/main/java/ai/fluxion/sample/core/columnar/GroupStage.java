@@ -0,0 +1,413 @@
+package ai.fluxion.sample.core.columnar;
+
+import ai.fluxion.sample.core.columnar.ColumnExpressions.Expression;
+import ai.fluxion.sample.core.spill.SortKeyComparator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code $group} keyed by one top-level scalar field or a constant, with
+ * {@code $sum}, {@code $avg}, {@code $min}, {@code $max}, {@code $first},
+ * {@code $last} and {@code $count}. Rows are first mapped to group slots,
+ * integer keys through an open-addressing table so no key is boxed, then
+ * every accumulator runs as one pass over its column. Groups come out in the
+ * order their key was first seen.
+ */
+final class GroupStage implements ColumnarStage {
+
+    private final Schema output;
+    private final Expression key;
+    private final Object constantKey;
+    private final Aggregate[] aggregates;
+
+    private GroupStage(Schema output, Expression key, Object constantKey, Aggregate[] aggregates) {
+        this.output = output;
+        this.key = key;
+        this.constantKey = constantKey;
+        this.aggregates = aggregates;
+    }
+
+    static ColumnarStage compile(Map<String, Object> specification, Schema schema) {
+        if (!specification.containsKey("_id")) {
+            return null;
+        }
+        Object id = specification.get("_id");
+        Expression key = null;
+        ColumnType keyType;
+        if (id instanceof String text && text.startsWith("$")) {
+            key = ColumnExpressions.compile(text, schema);
+            if (key == null || key.type() == ColumnType.OBJECT) {
+                return null;
+            }
+            keyType = key.type();
+        } else if (id == null || ColumnExpressions.isScalar(id)) {
+            keyType = id == null ? ColumnType.OBJECT : ColumnType.of(id);
+        } else {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        List<ColumnType> types = new ArrayList<>();
+        List<Aggregate> aggregates = new ArrayList<>();
+        fields.add("_id");
+        types.add(keyType);
+        for (Map.Entry<String, Object> entry : specification.entrySet()) {
+            if ("_id".equals(entry.getKey())) {
+                continue;
+            }
+            if (entry.getKey().indexOf('.') >= 0 || !(entry.getValue() instanceof Map<?, ?> accumulator)
+                    || accumulator.size() != 1) {
+                return null;
+            }
+            Map.Entry<?, ?> operator = accumulator.entrySet().iterator().next();
+            Aggregate aggregate = aggregate(String.valueOf(operator.getKey()), operator.getValue(), schema);
+            if (aggregate == null) {
+                return null;
+            }
+            fields.add(entry.getKey());
+            types.add(aggregate.type());
+            aggregates.add(aggregate);
+        }
+        Schema output = new Schema(fields.toArray(String[]::new), types.toArray(ColumnType[]::new));
+        return new GroupStage(output, key, id, aggregates.toArray(Aggregate[]::new));
+    }
+
+    private static Aggregate aggregate(String operator, Object argument, Schema schema) {
+        if ("$count".equals(operator)) {
+            return argument instanceof Map<?, ?> options && options.isEmpty() ? new Count(1) : null;
+        }
+        if ("$sum".equals(operator) && (argument instanceof Integer constant)) {
+            return new Count(constant);
+        }
+        Expression expression = ColumnExpressions.compile(argument, schema);
+        if (expression == null) {
+            return null;
+        }
+        ColumnType type = expression.type();
+        return switch (operator) {
+            case "$sum" -> type.numeric() ? new Sum(expression) : null;
+            case "$avg" -> type.numeric() ? new Avg(expression) : null;
+            case "$min", "$max" -> type.numeric() || type == ColumnType.STRING
+                    ? new Extreme(expression, "$max".equals(operator))
+                    : null;
+            case "$first", "$last" -> new Pick(expression, "$last".equals(operator));
+            default -> null;
+        };
+    }
+
+    @Override
+    public List<String> passedThrough() {
+        return List.of();
+    }
+
+    @Override
+    public Schema output() {
+        return output;
+    }
+
+    @Override
+    public ColumnarBatch apply(ColumnarBatch input) {
+        Groups groups = assign(input);
+        Column[] columns = new Column[output.size()];
+        columns[0] = key == null
+                ? Column.constant(constantKey, groups.count)
+                : key.evaluate(input).select(groups.firstRows, groups.count);
+        for (int i = 0; i < aggregates.length; i++) {
+            columns[i + 1] = aggregates[i].aggregate(input, groups);
+        }
+        return new ColumnarBatch(output, columns, groups.count);
+    }
+
+    /** Maps every row to the slot of its group. */
+    private Groups assign(ColumnarBatch input) {
+        int size = input.size();
+        int[] slots = new int[size];
+        int[] firstRows = new int[Math.min(size, 16)];
+        int[] lastRows = new int[firstRows.length];
+        int count = 0;
+        if (key == null) {
+            if (size > 0) {
+                firstRows[0] = 0;
+                lastRows[0] = size - 1;
+                count = 1;
+            }
+            return new Groups(slots, firstRows, lastRows, count);
+        }
+        Column column = key.evaluate(input);
+        boolean integral = column.type.integral();
+        LongSlots longSlots = integral ? new LongSlots() : null;
+        Map<Object, Integer> objectSlots = integral ? null : new HashMap<>();
+        int nullSlot = -1;
+        for (int row = 0; row < size; row++) {
+            int slot;
+            if (column.isNull(row)) {
+                slot = nullSlot < 0 ? (nullSlot = count) : nullSlot;
+            } else if (integral) {
+                slot = longSlots.slot(column.longAt(row), count);
+            } else {
+                Integer existing = objectSlots.putIfAbsent(keyOf(column, row), count);
+                slot = existing == null ? count : existing;
+            }
+            if (slot == count) {
+                if (count == firstRows.length) {
+                    firstRows = Arrays.copyOf(firstRows, count * 2);
+                    lastRows = Arrays.copyOf(lastRows, count * 2);
+                }
+                firstRows[count++] = row;
+            }
+            lastRows[slot] = row;
+            slots[row] = slot;
+        }
+        return new Groups(slots, firstRows, lastRows, count);
+    }
+
+    private static Object keyOf(Column column, int row) {
+        return switch (column.type) {
+            // -0.0 and 0.0 are one group, as numeric equality says.
+            case DOUBLE -> column.doubles[row] == 0 ? 0.0 : column.doubles[row];
+            case STRING -> column.strings[row];
+            default -> column.booleans[row];
+        };
+    }
+
+    private record Groups(int[] slots, int[] firstRows, int[] lastRows, int count) {
+    }
+
+    /** Open-addressing map from an integral key to its slot. */
+    private static final class LongSlots {
+        private long[] keys = new long[64];
+        private int[] values = filled(64);
+        private int size;
+
+        /** Returns the key's slot, assigning {@code next} if the key is new. */
+        int slot(long key, int next) {
+            int mask = keys.length - 1;
+            int index = mix(key) & mask;
+            while (values[index] >= 0) {
+                if (keys[index] == key) {
+                    return values[index];
+                }
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = next;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return next;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = filled(keys.length);
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] >= 0) {
+                    int index = mix(oldKeys[i]) & mask;
+                    while (values[index] >= 0) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+
+        private static int mix(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32));
+        }
+
+        private static int[] filled(int length) {
+            int[] values = new int[length];
+            Arrays.fill(values, -1);
+            return values;
+        }
+    }
+
+    private interface Aggregate {
+
+        ColumnType type();
+
+        Column aggregate(ColumnarBatch input, Groups groups);
+    }
+
+    /** {@code $count} and {@code $sum} of an integer literal. */
+    private record Count(int increment) implements Aggregate {
+        @Override
+        public ColumnType type() {
+            return ColumnType.INT;
+        }
+
+        @Override
+        public Column aggregate(ColumnarBatch input, Groups groups) {
+            long[] counts = new long[groups.count];
+            for (int slot : groups.slots) {
+                counts[slot] += increment;
+            }
+            Column result = Column.allocate(ColumnType.INT, groups.count);
+            for (int slot = 0; slot < groups.count; slot++) {
+                if (counts[slot] != (int) counts[slot]) {
+                    throw new ColumnarFallback("int overflow in $sum");
+                }
+                result.ints[slot] = (int) counts[slot];
+            }
+            return result;
+        }
+    }
+
+    /**
+     * {@code $sum} of a numeric expression. Integer sums stay integers; a
+     * sum that leaves its type's range, or a non-integer group with nothing
+     * to add, falls back so the executor's own promotion rules apply.
+     */
+    private record Sum(Expression expression) implements Aggregate {
+        @Override
+        public ColumnType type() {
+            return expression.type();
+        }
+
+        @Override
+        public Column aggregate(ColumnarBatch input, Groups groups) {
+            Column values = expression.evaluate(input);
+            int[] slots = groups.slots;
+            int[] seen = new int[groups.count];
+            Column result = Column.allocate(values.type, groups.count);
+            if (values.type == ColumnType.DOUBLE) {
+                for (int row = 0; row < slots.length; row++) {
+                    if (!values.isNull(row)) {
+                        result.doubles[slots[row]] += values.doubles[row];
+                        seen[slots[row]]++;
+                    }
+                }
+            } else {
+                long[] sums = new long[groups.count];
+                try {
+                    for (int row = 0; row < slots.length; row++) {
+                        if (!values.isNull(row)) {
+                            sums[slots[row]] = Math.addExact(sums[slots[row]], values.longAt(row));
+                            seen[slots[row]]++;
+                        }
+                    }
+                } catch (ArithmeticException e) {
+                    throw new ColumnarFallback("long overflow in $sum");
+                }
+                for (int slot = 0; slot < groups.count; slot++) {
+                    if (values.type == ColumnType.INT) {
+                        if (sums[slot] != (int) sums[slot]) {
+                            throw new ColumnarFallback("int overflow in $sum");
+                        }
+                        result.ints[slot] = (int) sums[slot];
+                    } else {
+                        result.longs[slot] = sums[slot];
+                    }
+                }
+            }
+            // An empty integer sum is 0 either way; other types depend on the executor.
+            for (int count : seen) {
+                if (count == 0 && values.type != ColumnType.INT) {
+                    throw new ColumnarFallback("$sum over a group without numbers");
+                }
+            }
+            return result;
+        }
+    }
+
+    /** {@code $avg}: always a double, {@code null} for a group without numbers. */
+    private record Avg(Expression expression) implements Aggregate {
+        @Override
+        public ColumnType type() {
+            return ColumnType.DOUBLE;
+        }
+
+        @Override
+        public Column aggregate(ColumnarBatch input, Groups groups) {
+            Column values = expression.evaluate(input);
+            int[] slots = groups.slots;
+            double[] sums = new double[groups.count];
+            int[] counts = new int[groups.count];
+            for (int row = 0; row < slots.length; row++) {
+                if (!values.isNull(row)) {
+                    sums[slots[row]] += values.doubleAt(row);
+                    counts[slots[row]]++;
+                }
+            }
+            Column result = Column.allocate(ColumnType.DOUBLE, groups.count);
+            for (int slot = 0; slot < groups.count; slot++) {
+                if (counts[slot] == 0) {
+                    result.nulls.set(slot);
+                } else {
+                    result.doubles[slot] = sums[slot] / counts[slot];
+                }
+            }
+            return result;
+        }
+    }
+
+    /** {@code $min} and {@code $max}: tracks the winning row, then gathers it. */
+    private record Extreme(Expression expression, boolean max) implements Aggregate {
+        @Override
+        public ColumnType type() {
+            return expression.type();
+        }
+
+        @Override
+        public Column aggregate(ColumnarBatch input, Groups groups) {
+            Column values = expression.evaluate(input);
+            int[] slots = groups.slots;
+            int[] best = new int[groups.count];
+            Arrays.fill(best, -1);
+            for (int row = 0; row < slots.length; row++) {
+                if (values.isNull(row)) {
+                    continue;
+                }
+                int slot = slots[row];
+                if (best[slot] < 0) {
+                    best[slot] = row;
+                    continue;
+                }
+                int comparison = compare(values, row, best[slot]);
+                if (max ? comparison > 0 : comparison < 0) {
+                    best[slot] = row;
+                }
+            }
+            return gather(values, best, groups.count);
+        }
+
+        private static int compare(Column values, int left, int right) {
+            return switch (values.type) {
+                case INT, LONG -> Long.compare(values.longAt(left), values.longAt(right));
+                case DOUBLE -> Double.compare(values.doubles[left], values.doubles[right]);
+                default -> SortKeyComparator.compareValues(values.strings[left], values.strings[right]);
+            };
+        }
+    }
+
+    /** {@code $first} and {@code $last}, including {@code null} values as the executor does. */
+    private record Pick(Expression expression, boolean last) implements Aggregate {
+        @Override
+        public ColumnType type() {
+            return expression.type();
+        }
+
+        @Override
+        public Column aggregate(ColumnarBatch input, Groups groups) {
+            Column values = expression.evaluate(input);
+            return values.select(last ? groups.lastRows : groups.firstRows, groups.count);
+        }
+    }
+
+    private static Column gather(Column values, int[] rows, int count) {
+        Column result = Column.allocate(values.type, count);
+        for (int slot = 0; slot < count; slot++) {
+            result.set(slot, rows[slot] < 0 ? null : values.get(rows[slot]));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,213 @@
+package ai.fluxion.sample.core.columnar;
+
+import ai.fluxion.sample.core.plan.MatchValues;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code $match} over top-level scalar fields with literal equality or
+ * {@code $eq}, {@code $ne}, {@code $gt}, {@code $gte}, {@code $lt},
+ * {@code $lte}, {@code $in} and {@code $nin}. Conditions read the primitive
+ * arrays directly and compare by the rules in {@link MatchValues}: values of
+ * a different type never compare, except that {@code $ne} and {@code $nin}
+ * then match. A batch holding a value those rules leave open, a NaN, an
+ * integer beyond &plusmn;2<sup>53</sup> or a string with surrogate pairs
+ * being ordered, falls back to the executor. {@code ColumnarExecutorTest}
+ * checks the stage against the executor on mixed-type documents.
+ */
+final class MatchStage implements ColumnarStage {
+
+    private static final int MISMATCH = Integer.MIN_VALUE;
+
+    private enum Operator {
+        EQ, NE, GT, GTE, LT, LTE, IN, NIN
+    }
+
+    private record Condition(int column, Operator operator, Object literal, List<Object> literals) {
+    }
+
+    private final Schema schema;
+    private final Condition[] conditions;
+
+    private MatchStage(Schema schema, Condition[] conditions) {
+        this.schema = schema;
+        this.conditions = conditions;
+    }
+
+    static ColumnarStage compile(Map<String, Object> specification, Schema schema) {
+        List<Condition> conditions = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : specification.entrySet()) {
+            String field = entry.getKey();
+            if (field.startsWith("$") || field.indexOf('.') >= 0) {
+                return null;
+            }
+            int column = schema.indexOf(field);
+            if (column < 0 || schema.type(column) == ColumnType.OBJECT) {
+                return null;
+            }
+            if (!(entry.getValue() instanceof Map<?, ?> operators)) {
+                if (!isLiteral(entry.getValue()) || !MatchValues.isExact(entry.getValue())) {
+                    return null;
+                }
+                conditions.add(new Condition(column, Operator.EQ, entry.getValue(), null));
+                continue;
+            }
+            if (operators.isEmpty()) {
+                return null;
+            }
+            for (Map.Entry<?, ?> test : operators.entrySet()) {
+                Condition condition = condition(column, String.valueOf(test.getKey()), test.getValue());
+                if (condition == null) {
+                    return null;
+                }
+                conditions.add(condition);
+            }
+        }
+        return new MatchStage(schema, conditions.toArray(Condition[]::new));
+    }
+
+    private static Condition condition(int column, String operator, Object value) {
+        switch (operator) {
+            case "$eq", "$ne" -> {
+                return isLiteral(value) && MatchValues.isExact(value)
+                        ? new Condition(column, "$eq".equals(operator) ? Operator.EQ : Operator.NE, value, null)
+                        : null;
+            }
+            case "$gt", "$gte", "$lt", "$lte" -> {
+                if (value == null || value instanceof Boolean || !isLiteral(value)
+                        || !MatchValues.isExact(value) || MatchValues.hasSurrogates(value)) {
+                    return null;
+                }
+                Operator comparison = switch (operator) {
+                    case "$gt" -> Operator.GT;
+                    case "$gte" -> Operator.GTE;
+                    case "$lt" -> Operator.LT;
+                    default -> Operator.LTE;
+                };
+                return new Condition(column, comparison, value, null);
+            }
+            case "$in", "$nin" -> {
+                if (!(value instanceof List<?> list)) {
+                    return null;
+                }
+                for (Object element : list) {
+                    if (!isLiteral(element) || !MatchValues.isExact(element)) {
+                        return null;
+                    }
+                }
+                return new Condition(column, "$in".equals(operator) ? Operator.IN : Operator.NIN, null,
+                        new ArrayList<>(list));
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    private static boolean isLiteral(Object value) {
+        return value == null || value instanceof Integer || value instanceof Long || value instanceof Double
+                || value instanceof String || value instanceof Boolean;
+    }
+
+    @Override
+    public Schema output() {
+        return schema;
+    }
+
+    @Override
+    public ColumnarBatch apply(ColumnarBatch input) {
+        int size = input.size();
+        int[] rows = new int[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (matches(input, row)) {
+                rows[count++] = row;
+            }
+        }
+        return count == size ? input : input.select(rows, count);
+    }
+
+    private boolean matches(ColumnarBatch batch, int row) {
+        for (Condition condition : conditions) {
+            Column column = batch.column(condition.column());
+            boolean passed = switch (condition.operator()) {
+                case EQ -> equalsLiteral(column, row, condition.literal());
+                case NE -> !equalsLiteral(column, row, condition.literal());
+                case IN -> anyEqual(column, row, condition.literals());
+                case NIN -> !anyEqual(column, row, condition.literals());
+                default -> compares(column, row, condition);
+            };
+            if (!passed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean compares(Column column, int row, Condition condition) {
+        if (column.isNull(row)) {
+            return false;
+        }
+        int comparison = compare(column, row, condition.literal());
+        if (comparison == MISMATCH) {
+            return false;
+        }
+        return switch (condition.operator()) {
+            case GT -> comparison > 0;
+            case GTE -> comparison >= 0;
+            case LT -> comparison < 0;
+            default -> comparison <= 0;
+        };
+    }
+
+    private static boolean anyEqual(Column column, int row, List<Object> literals) {
+        for (Object literal : literals) {
+            if (equalsLiteral(column, row, literal)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean equalsLiteral(Column column, int row, Object literal) {
+        if (literal == null || column.isNull(row)) {
+            return literal == null && column.isNull(row);
+        }
+        return switch (column.type) {
+            case INT, LONG, DOUBLE -> literal instanceof Number && compare(column, row, literal) == 0;
+            case STRING -> literal.equals(column.strings[row]);
+            case BOOLEAN -> literal instanceof Boolean bool && bool == column.booleans[row];
+            default -> false;
+        };
+    }
+
+    private static int compare(Column column, int row, Object literal) {
+        if (column.type.numeric() && literal instanceof Number number) {
+            if (column.type.integral()) {
+                long value = column.longAt(row);
+                if (!MatchValues.isExact(value)) {
+                    throw new ColumnarFallback("integer beyond 2^53 in $match");
+                }
+                if (!(literal instanceof Double)) {
+                    return Long.compare(value, number.longValue());
+                }
+            }
+            double value = column.doubleAt(row);
+            if (Double.isNaN(value)) {
+                throw new ColumnarFallback("NaN in $match");
+            }
+            double other = number.doubleValue();
+            return value < other ? -1 : (value > other ? 1 : 0);
+        }
+        if (column.type == ColumnType.STRING && literal instanceof String text) {
+            String value = column.strings[row];
+            if (MatchValues.hasSurrogates(value)) {
+                throw new ColumnarFallback("surrogate pair in a $match range");
+            }
+            return value.compareTo(text);
+        }
+        return MISMATCH;
+    }
+}
@@ -0,0 +1,126 @@
+package ai.fluxion.sample.core.columnar;
+
+import ai.fluxion.sample.core.columnar.ColumnExpressions.Expression;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code $project} over top-level fields. Inclusion keeps {@code _id} first
+ * (unless {@code _id: 0}), then the included fields in document order, then
+ * computed fields in specification order; exclusion drops the listed fields.
+ * Either way the result is a selection of existing columns plus any computed
+ * ones, so nothing is copied per document.
+ */
+final class ProjectStage implements ColumnarStage {
+
+    private final Schema output;
+    private final int[] sources;
+    private final Expression[] expressions;
+    private final List<String> passedThrough;
+
+    private ProjectStage(Schema output, int[] sources, Expression[] expressions, List<String> passedThrough) {
+        this.output = output;
+        this.sources = sources;
+        this.expressions = expressions;
+        this.passedThrough = passedThrough;
+    }
+
+    static ColumnarStage compile(Map<String, Object> specification, Schema schema) {
+        Boolean includeId = null;
+        Set<String> included = new HashSet<>();
+        Set<String> excluded = new HashSet<>();
+        Map<String, Expression> computed = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : specification.entrySet()) {
+            String field = entry.getKey();
+            Object value = entry.getValue();
+            if (field.startsWith("$") || field.indexOf('.') >= 0) {
+                return null;
+            }
+            if (value instanceof Boolean || value instanceof Integer || value instanceof Long || value instanceof Double) {
+                boolean keep = value instanceof Boolean flag ? flag : ((Number) value).doubleValue() != 0;
+                if ("_id".equals(field)) {
+                    includeId = keep;
+                } else if (keep) {
+                    included.add(field);
+                } else {
+                    excluded.add(field);
+                }
+                continue;
+            }
+            Expression expression = ColumnExpressions.compile(value, schema);
+            if (expression == null || "_id".equals(field) || schema.indexOf(field) >= 0) {
+                return null;
+            }
+            computed.put(field, expression);
+        }
+        boolean inclusion = !included.isEmpty() || !computed.isEmpty() || (excluded.isEmpty() && Boolean.TRUE.equals(includeId));
+        if (inclusion && !excluded.isEmpty()) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        List<ColumnType> types = new ArrayList<>();
+        List<Integer> sources = new ArrayList<>();
+        int id = schema.indexOf("_id");
+        if (id >= 0 && !Boolean.FALSE.equals(includeId)) {
+            fields.add("_id");
+            types.add(schema.type(id));
+            sources.add(id);
+        }
+        for (int i = 0; i < schema.size(); i++) {
+            String field = schema.field(i);
+            boolean keep = inclusion ? included.contains(field) : !excluded.contains(field);
+            if (!"_id".equals(field) && keep) {
+                fields.add(field);
+                types.add(schema.type(i));
+                sources.add(i);
+            }
+        }
+        Expression[] expressions = new Expression[computed.size()];
+        int e = 0;
+        for (Map.Entry<String, Expression> entry : computed.entrySet()) {
+            fields.add(entry.getKey());
+            types.add(entry.getValue().type());
+            sources.add(-1 - e);
+            expressions[e++] = entry.getValue();
+        }
+        Schema output = new Schema(fields.toArray(String[]::new), types.toArray(ColumnType[]::new));
+        List<String> passedThrough = inclusion
+                ? fields.stream().filter(field -> !"_id".equals(field) && !computed.containsKey(field)).toList()
+                : null;
+        return new ProjectStage(output, sources.stream().mapToInt(Integer::intValue).toArray(), expressions,
+                passedThrough);
+    }
+
+    @Override
+    public List<String> passedThrough() {
+        return passedThrough;
+    }
+
+    @Override
+    public Schema output() {
+        return output;
+    }
+
+    @Override
+    public ColumnarBatch apply(ColumnarBatch input) {
+        Column[] columns = new Column[sources.length];
+        // Computed fields first, so passed-through fields they read are shared rather than transposed twice.
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] < 0) {
+                columns[i] = expressions[-1 - sources[i]].evaluate(input);
+            }
+        }
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] >= 0) {
+                columns[i] = input.transposed(sources[i]);
+            }
+        }
+        return input.with(output, columns);
+    }
+}
@@ -0,0 +1,104 @@
+package ai.fluxion.sample.core.columnar;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ordered field names and column types shared by every document of a batch.
+ * Two documents have the same shape when their fields appear in the same
+ * order with values of the same Java types; {@code null} fits any column.
+ */
+public final class Schema {
+
+    private final String[] fields;
+    private final ColumnType[] types;
+    private final Map<String, Integer> positions;
+
+    Schema(String[] fields, ColumnType[] types) {
+        this.fields = fields;
+        this.types = types;
+        this.positions = new HashMap<>(fields.length * 2);
+        for (int i = 0; i < fields.length; i++) {
+            positions.put(fields[i], i);
+        }
+    }
+
+    /** Infers a schema from one document, or returns {@code null} if it holds a {@code null} value. */
+    static Schema infer(Map<String, Object> document) {
+        String[] fields = new String[document.size()];
+        ColumnType[] types = new ColumnType[document.size()];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : document.entrySet()) {
+            if (entry.getValue() == null) {
+                return null;
+            }
+            fields[i] = entry.getKey();
+            types[i] = ColumnType.of(entry.getValue());
+            i++;
+        }
+        return new Schema(fields, types);
+    }
+
+    boolean accepts(Map<String, Object> document) {
+        if (document.size() != fields.length) {
+            return false;
+        }
+        int i = 0;
+        for (Map.Entry<String, Object> entry : document.entrySet()) {
+            if (!fields[i].equals(entry.getKey())) {
+                return false;
+            }
+            Object value = entry.getValue();
+            if (value != null && !types[i].accepts(value)) {
+                return false;
+            }
+            i++;
+        }
+        return true;
+    }
+
+    public int size() {
+        return fields.length;
+    }
+
+    public String field(int index) {
+        return fields[index];
+    }
+
+    public ColumnType type(int index) {
+        return types[index];
+    }
+
+    public List<String> fields() {
+        return List.of(fields);
+    }
+
+    /** Position of {@code field}, or {@code -1} when the shape does not have it. */
+    public int indexOf(String field) {
+        Integer position = positions.get(field);
+        return position == null ? -1 : position;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Schema schema
+                && Arrays.equals(fields, schema.fields)
+                && Arrays.equals(types, schema.types);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(fields) + Arrays.hashCode(types);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < fields.length; i++) {
+            builder.append(i == 0 ? "" : ", ").append(fields[i]).append(": ").append(types[i]);
+        }
+        return builder.append('}').toString();
+    }
+}
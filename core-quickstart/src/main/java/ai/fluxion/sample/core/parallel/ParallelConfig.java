@@ -0,0 +1,62 @@
+package ai.fluxion.sample.core.parallel;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Pool and chunking for {@link ParallelPipelineExecutor}. Input is cut into
+ * chunks of {@link #chunkSize()} documents, each executed as one fork-join
+ * leaf; several chunks per core keep the workers balanced when stages drop
+ * or expand documents unevenly.
+ */
+public final class ParallelConfig {
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    private ParallelConfig(Builder builder) {
+        this.pool = builder.pool;
+        this.chunkSize = builder.chunkSize;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public ForkJoinPool pool() {
+        return pool;
+    }
+
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    public static final class Builder {
+
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        private int chunkSize = 8_192;
+
+        private Builder() {
+        }
+
+        /** Pool the chunks run on; the common pool unless set. */
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /** Documents handed to the in-memory executor per fork-join leaf. */
+        public Builder chunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        public ParallelConfig build() {
+            Objects.requireNonNull(pool, "pool");
+            if (chunkSize < 1) {
+                throw new IllegalArgumentException("chunkSize must be >= 1");
+            }
+            return new ParallelConfig(this);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package ai.fluxion.sample.core.parallel;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.sample.core.plan.PerDocumentStages;
+import ai.fluxion.sample.core.plan.StageDefinition;
+import ai.fluxion.sample.core.spill.SortKeyComparator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a pipeline over a large in-memory input on a {@link java.util.concurrent.ForkJoinPool}.
+ * The input is cut into chunks of {@link ParallelConfig#chunkSize()}
+ * documents and every run of stages that work one document at a time is
+ * executed per chunk by {@link PipelineExecutor}, with chunk outputs kept in
+ * input order. Blocking stages are folded into the chunk work where their
+ * partial state combines:
+ *
+ * <ul>
+ *   <li>{@code $group} runs a partial group per chunk and combines the
+ *       partial results once (see {@link PartialGroup});</li>
+ *   <li>{@code $sort} sorts each chunk and merges the sorted runs with
+ *       {@link SortKeyComparator}, taking equal keys from earlier chunks
+ *       first so the merge is as stable as a single sort. A directly
+ *       following {@code $limit} is applied to every run before merging.</li>
+ * </ul>
+ *
+ * Any other stage, a {@code $group} whose accumulators do not combine and a
+ * {@code $sort} whose keys {@link SortKeyComparator} cannot model run on the
+ * calling thread over their complete input. The output holds the same
+ * documents in the same order as {@link PipelineExecutor#execute}, except
+ * that a {@code $sum} over floating-point values adds its partial sums in a
+ * different order and may differ in the last bits.
+ */
+public final class ParallelPipelineExecutor {
+
+    private final PipelineExecutor executor;
+    private final ParallelConfig config;
+
+    public ParallelPipelineExecutor(PipelineExecutor executor, ParallelConfig config) {
+        this.executor = executor;
+        this.config = config;
+    }
+
+    public List<Document> execute(List<Document> input, List<StageDefinition> stages, Map<String, Object> variables) {
+        List<Document> current = input;
+        List<StageDefinition> streamable = new ArrayList<>();
+        for (int i = 0; i < stages.size(); i++) {
+            StageDefinition stage = stages.get(i);
+            if (PerDocumentStages.contains(stage.operator())) {
+                streamable.add(stage);
+                continue;
+            }
+            switch (stage.operator()) {
+                case "$group" -> {
+                    PartialGroup group = PartialGroup.of(stage);
+                    if (group != null) {
+                        streamable.add(group.partial());
+                        current = group.combine(concat(chunks(current, streamable, variables)), executor, variables);
+                    } else {
+                        current = inMemory(concat(chunks(current, streamable, variables)), stage, variables);
+                    }
+                }
+                case "$sort" -> {
+                    SortKeyComparator comparator = comparator(stage);
+                    if (comparator == null) {
+                        current = inMemory(concat(chunks(current, streamable, variables)), stage, variables);
+                        break;
+                    }
+                    streamable.add(stage);
+                    long limit = Long.MAX_VALUE;
+                    if (i + 1 < stages.size() && "$limit".equals(stages.get(i + 1).operator())) {
+                        StageDefinition limitStage = stages.get(++i);
+                        limit = count(limitStage);
+                        streamable.add(limitStage);
+                    }
+                    current = merge(chunks(current, streamable, variables), comparator, limit);
+                }
+                default -> current = inMemory(concat(chunks(current, streamable, variables)), stage, variables);
+            }
+            streamable = new ArrayList<>();
+        }
+        List<Document> results = concat(chunks(current, streamable, variables));
+        return results == input ? new ArrayList<>(input) : results;
+    }
+
+    private List<Document> inMemory(List<Document> documents, StageDefinition stage, Map<String, Object> variables) {
+        return executor.execute(documents, List.of(stage.toStage()), variables);
+    }
+
+    /**
+     * Runs {@code stages} over each chunk of {@code documents} and returns
+     * the outputs in chunk order. Small inputs run on the calling thread.
+     */
+    private List<List<Document>> chunks(List<Document> documents, List<StageDefinition> stages,
+                                        Map<String, Object> variables) {
+        if (stages.isEmpty()) {
+            return List.of(documents);
+        }
+        List<Stage> compiled = stages.stream().map(StageDefinition::toStage).toList();
+        int chunkSize = config.chunkSize();
+        int count = Math.max(1, (documents.size() + chunkSize - 1) / chunkSize);
+        if (count == 1) {
+            return List.of(executor.execute(new ArrayList<>(documents), compiled, variables));
+        }
+        List<Document>[] outputs = newOutputs(count);
+        config.pool().invoke(new ChunkTask(documents, compiled, variables, outputs, 0, count));
+        return List.of(outputs);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Document>[] newOutputs(int count) {
+        return (List<Document>[]) new List<?>[count];
+    }
+
+    private static List<Document> concat(List<List<Document>> parts) {
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        int size = 0;
+        for (List<Document> part : parts) {
+            size += part.size();
+        }
+        List<Document> documents = new ArrayList<>(size);
+        parts.forEach(documents::addAll);
+        return documents;
+    }
+
+    /**
+     * K-way merge of sorted runs, returning at most {@code limit} documents.
+     * Runs are ordered by chunk, so ties go to the earlier chunk.
+     */
+    private static List<Document> merge(List<List<Document>> runs, Comparator<Document> comparator, long limit) {
+        if (runs.size() == 1) {
+            List<Document> run = runs.get(0);
+            return run.size() > limit ? new ArrayList<>(run.subList(0, (int) limit)) : run;
+        }
+        PriorityQueue<RunCursor> heads = new PriorityQueue<>(runs.size(), Comparator
+                .comparing(RunCursor::head, comparator)
+                .thenComparingInt(RunCursor::run));
+        int size = 0;
+        for (int run = 0; run < runs.size(); run++) {
+            List<Document> documents = runs.get(run);
+            size += documents.size();
+            if (!documents.isEmpty()) {
+                heads.add(new RunCursor(run, documents));
+            }
+        }
+        List<Document> merged = new ArrayList<>((int) Math.min(size, limit));
+        while (!heads.isEmpty() && merged.size() < limit) {
+            RunCursor cursor = heads.poll();
+            merged.add(cursor.head());
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    /** Returns the merge order for {@code stage}, or {@code null} if its keys cannot be compared outside the engine. */
+    private static SortKeyComparator comparator(StageDefinition stage) {
+        try {
+            return SortKeyComparator.fromSpecification(stage.specificationAsMap());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static long count(StageDefinition stage) {
+        if (!(stage.specification() instanceof Number number) || number.longValue() < 0) {
+            throw new IllegalArgumentException(stage.operator() + " expects a non-negative number but got "
+                    + stage.specification());
+        }
+        return number.longValue();
+    }
+
+    /** Splits a range of chunks in half until a single chunk is left, then executes it. */
+    private final class ChunkTask extends RecursiveAction {
+
+        private final List<Document> documents;
+        private final List<Stage> stages;
+        private final Map<String, Object> variables;
+        private final List<Document>[] outputs;
+        private final int from;
+        private final int to;
+
+        ChunkTask(List<Document> documents, List<Stage> stages, Map<String, Object> variables,
+                  List<Document>[] outputs, int from, int to) {
+            this.documents = documents;
+            this.stages = stages;
+            this.variables = variables;
+            this.outputs = outputs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(documents, stages, variables, outputs, from, middle),
+                        new ChunkTask(documents, stages, variables, outputs, middle, to));
+                return;
+            }
+            int chunkSize = config.chunkSize();
+            int start = from * chunkSize;
+            int end = Math.min(documents.size(), start + chunkSize);
+            outputs[from] = executor.execute(new ArrayList<>(documents.subList(start, end)), stages, variables);
+        }
+    }
+
+    private static final class RunCursor {
+
+        private final int run;
+        private final List<Document> documents;
+        private int position;
+
+        RunCursor(int run, List<Document> documents) {
+            this.run = run;
+            this.documents = documents;
+        }
+
+        int run() {
+            return run;
+        }
+
+        Document head() {
+            return documents.get(position);
+        }
+
+        boolean advance() {
+            return ++position < documents.size();
+        }
+    }
+}
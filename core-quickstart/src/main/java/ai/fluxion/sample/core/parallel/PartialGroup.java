@@ -0,0 +1,143 @@
+package ai.fluxion.sample.core.parallel;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.sample.core.plan.StageDefinition;
+import ai.fluxion.sample.core.spill.SortKeyComparator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Splits a {@code $group} into a partial stage run on every chunk and a
+ * combining stage run once over the partial results. Chunk outputs are
+ * concatenated in input order before combining, so {@code $first},
+ * {@code $last} and {@code $push} see values in the same order as a single
+ * pass and groups are emitted in the order their key was first seen.
+ *
+ * <p>Only accumulators whose partial results combine exactly are split:
+ * {@code $sum} and {@code $count} add partial sums, {@code $min},
+ * {@code $max}, {@code $first}, {@code $last} and {@code $mergeObjects}
+ * reapply themselves, and {@code $push} and {@code $addToSet} collect the
+ * partial arrays, which are flattened afterwards. Any other accumulator,
+ * such as {@code $avg}, makes the whole stage run over the complete input
+ * instead. Floating-point sums may differ from a single pass in the last
+ * bits because they are added in a different order.
+ */
+final class PartialGroup {
+
+    private final StageDefinition partial;
+    private final StageDefinition combine;
+    private final Set<String> flattened;
+    private final Set<String> distinct;
+
+    private PartialGroup(StageDefinition partial, StageDefinition combine, Set<String> flattened, Set<String> distinct) {
+        this.partial = partial;
+        this.combine = combine;
+        this.flattened = flattened;
+        this.distinct = distinct;
+    }
+
+    /** Returns the split form of {@code stage}, or {@code null} if an accumulator cannot be combined. */
+    static PartialGroup of(StageDefinition stage) {
+        Map<String, Object> specification = stage.specificationAsMap();
+        if (!specification.containsKey("_id")) {
+            return null;
+        }
+        Map<String, Object> partial = new LinkedHashMap<>();
+        Map<String, Object> combine = new LinkedHashMap<>();
+        partial.put("_id", specification.get("_id"));
+        combine.put("_id", "$_id");
+        Set<String> flattened = new HashSet<>();
+        Set<String> distinct = new HashSet<>();
+        for (Map.Entry<String, Object> entry : specification.entrySet()) {
+            String field = entry.getKey();
+            if ("_id".equals(field)) {
+                continue;
+            }
+            if (!(entry.getValue() instanceof Map<?, ?> accumulator) || accumulator.size() != 1) {
+                return null;
+            }
+            Map.Entry<?, ?> operator = accumulator.entrySet().iterator().next();
+            String name = String.valueOf(operator.getKey());
+            Object expression = operator.getValue();
+            String reference = "$" + field;
+            switch (name) {
+                case "$sum" -> {
+                    partial.put(field, Map.of("$sum", expression));
+                    combine.put(field, Map.of("$sum", reference));
+                }
+                case "$count" -> {
+                    partial.put(field, Map.of("$sum", 1));
+                    combine.put(field, Map.of("$sum", reference));
+                }
+                case "$min", "$max", "$first", "$last", "$mergeObjects" -> {
+                    partial.put(field, accumulator);
+                    combine.put(field, Map.of(name, reference));
+                }
+                case "$push" -> {
+                    partial.put(field, accumulator);
+                    combine.put(field, Map.of("$push", reference));
+                    flattened.add(field);
+                }
+                case "$addToSet" -> {
+                    partial.put(field, accumulator);
+                    combine.put(field, Map.of("$push", reference));
+                    flattened.add(field);
+                    distinct.add(field);
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+        return new PartialGroup(new StageDefinition("$group", partial), new StageDefinition("$group", combine),
+                Set.copyOf(flattened), Set.copyOf(distinct));
+    }
+
+    /** The stage each chunk runs after its streamable stages. */
+    StageDefinition partial() {
+        return partial;
+    }
+
+    /** Combines partial results, given in chunk order, into the final groups. */
+    List<Document> combine(List<Document> partials, PipelineExecutor executor, Map<String, Object> variables) {
+        List<Document> grouped = executor.execute(partials, List.of(combine.toStage()), variables);
+        if (flattened.isEmpty()) {
+            return grouped;
+        }
+        List<Document> results = new ArrayList<>(grouped.size());
+        for (Document document : grouped) {
+            Map<String, Object> data = new LinkedHashMap<>(document.getData());
+            for (String field : flattened) {
+                if (data.get(field) instanceof Collection<?> parts) {
+                    data.put(field, flatten(parts, distinct.contains(field)));
+                }
+            }
+            results.add(new Document(data));
+        }
+        return results;
+    }
+
+    private static List<Object> flatten(Collection<?> parts, boolean distinct) {
+        List<Object> values = new ArrayList<>();
+        Set<Object> seen = distinct ? new TreeSet<>(SortKeyComparator::compareValues) : null;
+        for (Object part : parts) {
+            if (!(part instanceof Collection<?> elements)) {
+                continue;
+            }
+            for (Object element : elements) {
+                if (seen == null || seen.add(element)) {
+                    values.add(element);
+                }
+            }
+        }
+        return values;
+    }
+}
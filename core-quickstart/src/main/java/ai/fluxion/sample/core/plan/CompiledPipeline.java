@@ -0,0 +1,82 @@
+package ai.fluxion.sample.core.plan;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.sample.core.parallel.ParallelConfig;
+import ai.fluxion.sample.core.parallel.ParallelPipelineExecutor;
+import ai.fluxion.sample.core.spill.SpillConfig;
+import ai.fluxion.sample.core.spill.SpillCursor;
+import ai.fluxion.sample.core.spill.SpillingPipelineExecutor;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pipeline that has been parsed and rewritten once and can be executed any
+ * number of times. Obtain instances from {@link PipelineCompiler} or, for
+ * request handlers that see the same pipelines repeatedly, {@link PipelineCache}.
+ */
+public final class CompiledPipeline {
+
+    private final PipelineExecutor executor;
+    private final List<StageDefinition> sourceStages;
+    private final List<StageDefinition> plannedStages;
+    private final List<Stage> stages;
+
+    CompiledPipeline(PipelineExecutor executor, List<StageDefinition> sourceStages, List<StageDefinition> plannedStages) {
+        this.executor = executor;
+        this.sourceStages = List.copyOf(sourceStages);
+        this.plannedStages = List.copyOf(plannedStages);
+        this.stages = plannedStages.stream().map(StageDefinition::toStage).toList();
+    }
+
+    public List<Document> execute(List<Document> input, Map<String, Object> variables) {
+        return executor.execute(input, stages, variables);
+    }
+
+    /**
+     * Executes over chunks of {@code input} in parallel on {@code config}'s
+     * fork-join pool, returning the same documents in the same order as
+     * {@link #execute}; floating-point {@code $sum} results may differ in the
+     * last bits (see {@link ParallelPipelineExecutor}).
+     */
+    public List<Document> executeParallel(List<Document> input, Map<String, Object> variables, ParallelConfig config) {
+        return new ParallelPipelineExecutor(executor, config).execute(input, plannedStages, variables);
+    }
+
+    /**
+     * Pull-based execution: documents are read from {@code input} only as
+     * the returned cursor is advanced, streamable stages run over small
+     * chunks, and blocking stages hold at most {@code config}'s memory budget
+     * before spilling. Close the cursor if it is not read to the end; that
+     * also closes {@code input} if it is closeable, such as a
+     * {@link ai.fluxion.sample.core.stream.JsonDocumentReader}.
+     */
+    public SpillCursor stream(Iterator<Document> input, Map<String, Object> variables, SpillConfig config) {
+        return new SpillingPipelineExecutor(executor, config).execute(input, plannedStages, variables);
+    }
+
+    /**
+     * Stages exactly as they were parsed.
+     */
+    public List<StageDefinition> sourceStages() {
+        return sourceStages;
+    }
+
+    /**
+     * Stages after constant folding and fusion; these are what {@link #execute} runs.
+     */
+    public List<StageDefinition> plannedStages() {
+        return plannedStages;
+    }
+
+    public List<Stage> stages() {
+        return stages;
+    }
+
+    public PipelineExecutor executor() {
+        return executor;
+    }
+}
@@ -0,0 +1,136 @@
+package ai.fluxion.sample.core.plan;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates arithmetic sub-expressions whose operands are all numeric
+ * literals, so {@code {"$multiply": ["$total", {"$add": [1, 0.08]}]}} becomes
+ * {@code {"$multiply": ["$total", 1.08]}} once at compile time instead of on
+ * every document. Only expression contexts are rewritten: {@code $addFields},
+ * {@code $set} and the {@code $expr} clause of {@code $match}; query operators
+ * and {@code $project} values (where a bare number means inclusion) are left
+ * alone, as is anything under {@code $literal}.
+ */
+final class ConstantFolding {
+
+    private ConstantFolding() {
+    }
+
+    static StageDefinition fold(StageDefinition stage) {
+        return switch (stage.operator()) {
+            case "$addFields", "$set" -> new StageDefinition(stage.operator(),
+                    foldValues(stage.specificationAsMap()));
+            case "$match" -> {
+                Map<String, Object> filter = stage.specificationAsMap();
+                if (!filter.containsKey("$expr")) {
+                    yield stage;
+                }
+                Map<String, Object> folded = new LinkedHashMap<>(filter);
+                folded.put("$expr", foldExpression(filter.get("$expr")));
+                yield new StageDefinition(stage.operator(), folded);
+            }
+            default -> stage;
+        };
+    }
+
+    private static Map<String, Object> foldValues(Map<String, Object> fields) {
+        Map<String, Object> folded = new LinkedHashMap<>();
+        fields.forEach((name, expression) -> folded.put(name, foldExpression(expression)));
+        return folded;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Object foldExpression(Object expression) {
+        if (expression instanceof List<?> list) {
+            List<Object> folded = new ArrayList<>(list.size());
+            list.forEach(element -> folded.add(foldExpression(element)));
+            return folded;
+        }
+        if (!(expression instanceof Map<?, ?> map)) {
+            return expression;
+        }
+        if (map.size() == 1) {
+            Map.Entry<String, Object> entry = ((Map<String, Object>) map).entrySet().iterator().next();
+            if ("$literal".equals(entry.getKey())) {
+                return expression;
+            }
+            Object operands = foldExpression(entry.getValue());
+            Number constant = evaluate(entry.getKey(), operands);
+            if (constant != null) {
+                return constant;
+            }
+            Map<String, Object> rewritten = new LinkedHashMap<>();
+            rewritten.put(entry.getKey(), operands);
+            return rewritten;
+        }
+        return foldValues((Map<String, Object>) map);
+    }
+
+    private static Number evaluate(String operator, Object operands) {
+        if (!(operands instanceof List<?> arguments) || arguments.isEmpty()) {
+            return null;
+        }
+        for (Object argument : arguments) {
+            if (!(argument instanceof Integer || argument instanceof Long || argument instanceof Double)) {
+                return null;
+            }
+        }
+        return switch (operator) {
+            case "$add" -> accumulate(arguments, true);
+            case "$multiply" -> accumulate(arguments, false);
+            case "$subtract" -> arguments.size() == 2 ? subtract((Number) arguments.get(0), (Number) arguments.get(1)) : null;
+            case "$divide" -> arguments.size() == 2 && ((Number) arguments.get(1)).doubleValue() != 0.0
+                    ? ((Number) arguments.get(0)).doubleValue() / ((Number) arguments.get(1)).doubleValue()
+                    : null;
+            default -> null;
+        };
+    }
+
+    private static Number accumulate(List<?> arguments, boolean add) {
+        boolean integral = arguments.stream().noneMatch(Double.class::isInstance);
+        if (!integral) {
+            double result = add ? 0.0 : 1.0;
+            for (Object argument : arguments) {
+                double value = ((Number) argument).doubleValue();
+                result = add ? result + value : result * value;
+            }
+            return result;
+        }
+        long result = add ? 0L : 1L;
+        try {
+            for (Object argument : arguments) {
+                long value = ((Number) argument).longValue();
+                result = add ? Math.addExact(result, value) : Math.multiplyExact(result, value);
+            }
+        } catch (ArithmeticException overflow) {
+            return null;
+        }
+        return narrow(result, arguments);
+    }
+
+    private static Number subtract(Number left, Number right) {
+        if (left instanceof Double || right instanceof Double) {
+            return left.doubleValue() - right.doubleValue();
+        }
+        try {
+            return narrow(Math.subtractExact(left.longValue(), right.longValue()), List.of(left, right));
+        } catch (ArithmeticException overflow) {
+            return null;
+        }
+    }
+
+    /**
+     * Keeps {@code Integer} results when every operand was an {@code Integer},
+     * matching the boxed type the engine produces for the same expression.
+     */
+    private static Number narrow(long value, List<?> arguments) {
+        boolean allInts = arguments.stream().allMatch(Integer.class::isInstance);
+        if (allInts && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            return (int) value;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,56 @@
+package ai.fluxion.sample.core.plan;
+
+/**
+ * The comparison rules the compiled {@code $match} filters of this module,
+ * such as the columnar {@code MatchStage}, share: values of
+ * different types are never equal or ordered, integers compare exactly,
+ * other numbers as doubles with {@code -0.0} equal to {@code 0.0}, and
+ * strings by UTF-16 code unit. Where those rules could differ from the
+ * executor's, for NaN, integers beyond &plusmn;2<sup>53</sup> and strings
+ * with surrogate pairs being ordered, the filters leave the document to the
+ * executor.
+ */
+public final class MatchValues {
+
+    private static final long EXACT_DOUBLE_LIMIT = 1L << 53;
+
+    private MatchValues() {
+    }
+
+    /** Whether a filter decides {@code value} itself: not NaN and no integer beyond &plusmn;2<sup>53</sup>. */
+    public static boolean isExact(Object value) {
+        if (value instanceof Double number) {
+            return !number.isNaN();
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            return isExact(((Number) value).longValue());
+        }
+        return true;
+    }
+
+    public static boolean isExact(long value) {
+        return value <= EXACT_DOUBLE_LIMIT && value >= -EXACT_DOUBLE_LIMIT;
+    }
+
+    /** Whether {@code value} is a string holding a surrogate pair, whose order a filter leaves to the executor. */
+    public static boolean hasSurrogates(Object value) {
+        if (value instanceof String text) {
+            for (int i = 0; i < text.length(); i++) {
+                if (Character.isSurrogate(text.charAt(i))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Compares two {@linkplain #isExact exact} {@code Integer}, {@code Long} or {@code Double} values. */
+    public static int compareNumbers(Number left, Number right) {
+        if (!(left instanceof Double) && !(right instanceof Double)) {
+            return Long.compare(left.longValue(), right.longValue());
+        }
+        double a = left.doubleValue();
+        double b = right.doubleValue();
+        return a < b ? -1 : (a > b ? 1 : 0);
+    }
+}
@@ -0,0 +1,23 @@
+package ai.fluxion.sample.core.plan;
+
+import java.util.Set;
+
+/**
+ * The stage operators that turn each document into zero or more documents
+ * without looking at any other. A run of them can be applied to any split of
+ * the input, part by part, and concatenating the parts gives the result of
+ * running them over the whole input. The parallel and spilling executors
+ * both split on this set.
+ */
+public final class PerDocumentStages {
+
+    private static final Set<String> OPERATORS = Set.of(
+            "$match", "$project", "$addFields", "$set", "$unset", "$unwind", "$replaceRoot", "$replaceWith");
+
+    private PerDocumentStages() {
+    }
+
+    public static boolean contains(String operator) {
+        return OPERATORS.contains(operator);
+    }
+}
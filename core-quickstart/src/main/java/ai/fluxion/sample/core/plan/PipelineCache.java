@@ -0,0 +1,75 @@
+package ai.fluxion.sample.core.plan;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of {@link CompiledPipeline}s keyed by the SHA-256 of the
+ * pipeline JSON, so handlers that run the same few hundred pipelines only pay
+ * for parsing and planning once per pipeline.
+ */
+public final class PipelineCache {
+
+    private final PipelineCompiler compiler;
+    private final Map<String, CompiledPipeline> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public PipelineCache(PipelineCompiler compiler, int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.compiler = compiler;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledPipeline> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public CompiledPipeline get(String pipelineJson) {
+        String key = fingerprint(pipelineJson);
+        synchronized (entries) {
+            CompiledPipeline cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        CompiledPipeline compiled = compiler.compile(pipelineJson);
+        synchronized (entries) {
+            CompiledPipeline raced = entries.putIfAbsent(key, compiled);
+            return raced != null ? raced : compiled;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    static String fingerprint(String pipelineJson) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(pipelineJson.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
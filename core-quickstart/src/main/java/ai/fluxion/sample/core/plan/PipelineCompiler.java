@@ -0,0 +1,42 @@
+package ai.fluxion.sample.core.plan;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses a pipeline JSON array once and rewrites it into a
+ * {@link CompiledPipeline}: arithmetic on literals is constant-folded and
+ * adjacent stages of the same operator are merged.
+ */
+public final class PipelineCompiler {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<List<Map<String, Object>>> STAGES = new TypeReference<>() {
+    };
+
+    private final PipelineExecutor executor;
+
+    public PipelineCompiler(PipelineExecutor executor) {
+        this.executor = executor;
+    }
+
+    public CompiledPipeline compile(String pipelineJson) {
+        List<Map<String, Object>> stages;
+        try {
+            stages = MAPPER.readValue(pipelineJson, STAGES);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid pipeline JSON", e);
+        }
+        return compile(stages.stream().map(StageDefinition::from).toList());
+    }
+
+    public CompiledPipeline compile(List<StageDefinition> stages) {
+        List<StageDefinition> folded = stages.stream().map(ConstantFolding::fold).toList();
+        return new CompiledPipeline(executor, stages, StageFusion.fuse(folded));
+    }
+}
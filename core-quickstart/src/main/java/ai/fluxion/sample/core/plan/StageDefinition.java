@@ -0,0 +1,36 @@
+package ai.fluxion.sample.core.plan;
+
+import ai.fluxion.core.model.Stage;
+
+import java.util.Map;
+
+/**
+ * A single pipeline stage as parsed from JSON: the operator name (for example
+ * {@code $match}) and its raw specification.
+ */
+public record StageDefinition(String operator, Object specification) {
+
+    public static StageDefinition from(Map<String, Object> stage) {
+        if (stage.size() != 1) {
+            throw new IllegalArgumentException("A stage must contain exactly one operator but got " + stage.keySet());
+        }
+        Map.Entry<String, Object> entry = stage.entrySet().iterator().next();
+        return new StageDefinition(entry.getKey(), entry.getValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> specificationAsMap() {
+        if (!(specification instanceof Map<?, ?>)) {
+            throw new IllegalArgumentException(operator + " expects a document but got " + specification);
+        }
+        return (Map<String, Object>) specification;
+    }
+
+    public Map<String, Object> toMap() {
+        return Map.of(operator, specification);
+    }
+
+    public Stage toStage() {
+        return new Stage(toMap());
+    }
+}
@@ -0,0 +1,117 @@
+package ai.fluxion.sample.core.plan;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Merges adjacent stages whose combination is equivalent to running them one
+ * after another, so the executor makes fewer passes over each batch:
+ * <ul>
+ *   <li>consecutive {@code $match} filters on disjoint fields become one filter;</li>
+ *   <li>consecutive {@code $addFields}/{@code $set} stages become one when the
+ *   second neither redefines nor reads a field the first one writes.</li>
+ * </ul>
+ * Only stages with the same operator merge, since the executor runs one
+ * operator per stage. A {@code $match} → {@code $addFields} → {@code $project}
+ * chain such as {@code pipelines/orders.json} is left as three stages here;
+ * {@link ai.fluxion.sample.core.columnar.ColumnarExecutor} is what runs such
+ * row-local chains in one pass, with field positions resolved once per input
+ * shape.
+ */
+final class StageFusion {
+
+    private StageFusion() {
+    }
+
+    static List<StageDefinition> fuse(List<StageDefinition> stages) {
+        List<StageDefinition> fused = new ArrayList<>(stages.size());
+        for (StageDefinition stage : stages) {
+            if (!fused.isEmpty()) {
+                StageDefinition merged = merge(fused.get(fused.size() - 1), stage);
+                if (merged != null) {
+                    fused.set(fused.size() - 1, merged);
+                    continue;
+                }
+            }
+            fused.add(stage);
+        }
+        return fused;
+    }
+
+    private static StageDefinition merge(StageDefinition first, StageDefinition second) {
+        if (!first.operator().equals(second.operator())) {
+            return null;
+        }
+        return switch (first.operator()) {
+            case "$match" -> mergeMatch(first.specificationAsMap(), second.specificationAsMap());
+            case "$addFields", "$set" -> mergeAddFields(first.operator(), first.specificationAsMap(),
+                    second.specificationAsMap());
+            default -> null;
+        };
+    }
+
+    private static StageDefinition mergeMatch(Map<String, Object> first, Map<String, Object> second) {
+        Set<String> firstRoots = new HashSet<>();
+        for (String key : first.keySet()) {
+            if (key.startsWith("$")) {
+                return null;
+            }
+            firstRoots.add(root(key));
+        }
+        for (String key : second.keySet()) {
+            if (key.startsWith("$") || firstRoots.contains(root(key))) {
+                return null;
+            }
+        }
+        Map<String, Object> merged = new LinkedHashMap<>(first);
+        merged.putAll(second);
+        return new StageDefinition("$match", merged);
+    }
+
+    private static StageDefinition mergeAddFields(String operator, Map<String, Object> first, Map<String, Object> second) {
+        Set<String> written = new HashSet<>();
+        first.keySet().forEach(key -> written.add(root(key)));
+        for (Map.Entry<String, Object> entry : second.entrySet()) {
+            if (written.contains(root(entry.getKey())) || readsAny(entry.getValue(), written)) {
+                return null;
+            }
+        }
+        Map<String, Object> merged = new LinkedHashMap<>(first);
+        merged.putAll(second);
+        return new StageDefinition(operator, merged);
+    }
+
+    /**
+     * Whether an expression references one of {@code fields}. Variables such
+     * as {@code $$ROOT} may observe any field and therefore always count.
+     */
+    private static boolean readsAny(Object expression, Set<String> fields) {
+        if (expression instanceof String text && text.startsWith("$")) {
+            return text.startsWith("$$") || fields.contains(root(text.substring(1)));
+        }
+        if (expression instanceof Map<?, ?> map) {
+            for (Object value : map.values()) {
+                if (readsAny(value, fields)) {
+                    return true;
+                }
+            }
+        }
+        if (expression instanceof List<?> list) {
+            for (Object value : list) {
+                if (readsAny(value, fields)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String root(String path) {
+        int dot = path.indexOf('.');
+        return dot < 0 ? path : path.substring(0, dot);
+    }
+}
@@ -0,0 +1,220 @@
+package ai.fluxion.sample.core.spill;
+
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.sample.core.plan.StageDefinition;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code $group} that stays within the memory budget. Input is buffered until
+ * the budget is reached; if it never is, the buffer is grouped by the
+ * in-memory executor exactly as without spilling.
+ *
+ * <p>Once over budget, documents are hash-partitioned by their group key into
+ * spill files, with the key itself computed by the executor through an
+ * {@code $addFields} of the {@code _id} expression. Each partition holds
+ * every document of its groups in input order, so running the original
+ * {@code $group} over one partition at a time yields exactly the in-memory
+ * result for every accumulator, including {@code $push}, {@code $first} and
+ * {@code $last}. Partitions still over budget are split again with a
+ * different hash; a single group larger than the budget is aggregated in
+ * memory. Groups are emitted in the order their key was first seen.
+ */
+final class ExternalGroup {
+
+    private static final String KEY_FIELD = "__fluxionSpillGroupKey";
+    private static final int MAX_DEPTH = 3;
+    private static final BigDecimal LONG_LIMIT = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    private final StageDefinition stage;
+    private final Stage groupStage;
+    private final Stage keyStage;
+    private final SpillSession session;
+
+    private ExternalGroup(StageDefinition stage, SpillSession session) {
+        this.stage = stage;
+        this.groupStage = stage.toStage();
+        Object idExpression = stage.specificationAsMap().get("_id");
+        this.keyStage = new StageDefinition("$addFields",
+                Collections.singletonMap(KEY_FIELD, idExpression)).toStage();
+        this.session = session;
+    }
+
+    static Iterator<Document> apply(Iterator<Document> input, StageDefinition stage, SpillSession session) {
+        return new ExternalGroup(stage, session).run(input);
+    }
+
+    private Iterator<Document> run(Iterator<Document> input) {
+        long budget = session.availableBytes();
+        List<Document> buffer = new ArrayList<>();
+        long bufferedBytes = 0;
+        while (input.hasNext()) {
+            Document document = input.next();
+            buffer.add(document);
+            bufferedBytes += MemoryEstimator.estimate(document.getData());
+            if (bufferedBytes > budget) {
+                return spill(buffer, input);
+            }
+        }
+        return session.execute(buffer, List.of(groupStage)).iterator();
+    }
+
+    private Iterator<Document> spill(List<Document> buffered, Iterator<Document> rest) {
+        SpillFile[] partitions = new SpillFile[session.config().groupPartitions()];
+        int chunkSize = session.config().chunkSize();
+        long sequence = 0;
+        for (int from = 0; from < buffered.size(); from += chunkSize) {
+            sequence = partition(buffered.subList(from, Math.min(buffered.size(), from + chunkSize)),
+                    sequence, partitions);
+        }
+        buffered.clear();
+        List<Document> chunk = new ArrayList<>(chunkSize);
+        while (rest.hasNext()) {
+            chunk.add(rest.next());
+            if (chunk.size() == chunkSize || !rest.hasNext()) {
+                sequence = partition(chunk, sequence, partitions);
+                chunk.clear();
+            }
+        }
+
+        List<SpillFile> results = new ArrayList<>();
+        for (SpillFile partition : partitions) {
+            if (partition != null) {
+                partition.finishWriting();
+                aggregate(partition, 1, results);
+            }
+        }
+        return RunMerger.merge(session, results, Comparator.comparingLong(SpillFile.Record::sequence));
+    }
+
+    private long partition(List<Document> chunk, long sequence, SpillFile[] partitions) {
+        List<Document> keyed = session.execute(new ArrayList<>(chunk), List.of(keyStage));
+        if (keyed.size() != chunk.size()) {
+            throw new IllegalStateException("Computing " + stage.operator() + " keys changed the document count");
+        }
+        long next = sequence;
+        for (int i = 0; i < chunk.size(); i++) {
+            Object key = keyed.get(i).get(KEY_FIELD);
+            route(partitions, key, 0).write(next++, key, chunk.get(i));
+        }
+        return next;
+    }
+
+    private SpillFile route(SpillFile[] partitions, Object key, int depth) {
+        Object normalized = normalize(key);
+        int hash = normalized == null ? 0 : normalized.hashCode();
+        hash = (hash ^ (depth * 0x9E3779B9)) * 0x85EBCA6B;
+        hash ^= hash >>> 15;
+        int index = Math.floorMod(hash, partitions.length);
+        if (partitions[index] == null) {
+            partitions[index] = session.newFile();
+        }
+        return partitions[index];
+    }
+
+    /**
+     * Groups one partition in memory and writes its results, ordered by the
+     * first sequence number of each key, as a run for the final merge.
+     */
+    private void aggregate(SpillFile partition, int depth, List<SpillFile> results) {
+        session.openForReading(partition);
+        long budget = session.availableBytes();
+        List<SpillFile.Record> records = new ArrayList<>();
+        long bytes = 0;
+        for (SpillFile.Record record = partition.read(); record != null; record = partition.read()) {
+            records.add(record);
+            bytes += MemoryEstimator.estimate(record.document().getData());
+            if (bytes > budget && depth < MAX_DEPTH) {
+                repartition(records, partition, depth, results);
+                return;
+            }
+        }
+        session.release(partition);
+
+        Map<Object, Long> firstSequence = new HashMap<>();
+        List<Document> documents = new ArrayList<>(records.size());
+        for (SpillFile.Record record : records) {
+            firstSequence.putIfAbsent(normalize(record.key()), record.sequence());
+            documents.add(record.document());
+        }
+        records.clear();
+        List<Document> grouped = session.execute(documents, List.of(groupStage));
+        long[] sequences = new long[grouped.size()];
+        Integer[] order = new Integer[grouped.size()];
+        for (int i = 0; i < order.length; i++) {
+            sequences[i] = firstSequence.getOrDefault(normalize(grouped.get(i).get("_id")), Long.MAX_VALUE);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> sequences[i]));
+
+        SpillFile run = session.newFile();
+        for (int i : order) {
+            run.write(sequences[i], null, grouped.get(i));
+        }
+        run.finishWriting();
+        results.add(run);
+    }
+
+    private void repartition(List<SpillFile.Record> read, SpillFile partition, int depth, List<SpillFile> results) {
+        SpillFile[] children = new SpillFile[session.config().groupPartitions()];
+        for (SpillFile.Record record : read) {
+            route(children, record.key(), depth).write(record.sequence(), record.key(), record.document());
+        }
+        read.clear();
+        for (SpillFile.Record record = partition.read(); record != null; record = partition.read()) {
+            route(children, record.key(), depth).write(record.sequence(), record.key(), record.document());
+        }
+        session.release(partition);
+        for (SpillFile child : children) {
+            if (child != null) {
+                child.finishWriting();
+                aggregate(child, depth + 1, results);
+            }
+        }
+    }
+
+    /**
+     * Canonical form for hashing and matching group keys: numbers compare by
+     * value as {@code $group} does, and binary values by content.
+     */
+    static Object normalize(Object value) {
+        if (value instanceof Number number && !(value instanceof Long)) {
+            if (number instanceof BigDecimal decimal) {
+                return decimal.stripTrailingZeros().scale() <= 0 && decimal.abs().compareTo(LONG_LIMIT) < 0
+                        ? (Object) decimal.longValue()
+                        : decimal.doubleValue();
+            }
+            double numeric = number.doubleValue();
+            if (numeric == Math.rint(numeric) && Math.abs(numeric) < 0x1p63) {
+                return (long) numeric;
+            }
+            return numeric;
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> normalized = new LinkedHashMap<>();
+            map.forEach((key, nested) -> normalized.put(key, normalize(nested)));
+            return normalized;
+        }
+        if (value instanceof Collection<?> collection) {
+            List<Object> normalized = new ArrayList<>(collection.size());
+            collection.forEach(nested -> normalized.add(normalize(nested)));
+            return normalized;
+        }
+        if (value instanceof byte[] bytes) {
+            return ByteBuffer.wrap(bytes);
+        }
+        return value;
+    }
+}
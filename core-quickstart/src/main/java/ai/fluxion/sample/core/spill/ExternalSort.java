@@ -0,0 +1,57 @@
+package ai.fluxion.sample.core.spill;
+
+import ai.fluxion.core.model.Document;
+import ai.fluxion.sample.core.plan.StageDefinition;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * {@code $sort} that stays within the memory budget. Input is buffered until
+ * the budget is reached; if it never is, the whole buffer is sorted by the
+ * in-memory executor exactly as without spilling. Otherwise every full buffer
+ * is stably sorted and written as a run, and the runs are k-way merged.
+ */
+final class ExternalSort {
+
+    private ExternalSort() {
+    }
+
+    static Iterator<Document> apply(Iterator<Document> input, StageDefinition stage, SpillSession session) {
+        SortKeyComparator comparator = SortKeyComparator.fromSpecification(stage.specificationAsMap());
+        long budget = session.availableBytes();
+        List<SpillFile> runs = new ArrayList<>();
+        List<Document> buffer = new ArrayList<>();
+        long bufferedBytes = 0;
+        while (input.hasNext()) {
+            Document document = input.next();
+            buffer.add(document);
+            bufferedBytes += MemoryEstimator.estimate(document.getData());
+            if (bufferedBytes > budget) {
+                runs.add(writeRun(buffer, comparator, session));
+                buffer = new ArrayList<>();
+                bufferedBytes = 0;
+            }
+        }
+        if (runs.isEmpty()) {
+            return session.execute(buffer, List.of(stage.toStage())).iterator();
+        }
+        if (!buffer.isEmpty()) {
+            runs.add(writeRun(buffer, comparator, session));
+        }
+        return RunMerger.merge(session, runs, Comparator.comparing(SpillFile.Record::document, comparator));
+    }
+
+    private static SpillFile writeRun(List<Document> buffer, SortKeyComparator comparator, SpillSession session) {
+        // List.sort is a stable merge sort, so equal keys keep input order.
+        buffer.sort(comparator);
+        SpillFile run = session.newFile();
+        for (Document document : buffer) {
+            run.write(0, null, document);
+        }
+        run.finishWriting();
+        return run;
+    }
+}
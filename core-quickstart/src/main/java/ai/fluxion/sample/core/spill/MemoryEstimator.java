@@ -0,0 +1,49 @@
+package ai.fluxion.sample.core.spill;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Rough retained-size estimate for document values on a 64-bit JVM with
+ * compressed oops. It only needs to be proportional to real usage so the
+ * budget trips at about the right point; it does not chase exact layouts.
+ */
+final class MemoryEstimator {
+
+    private static final long OBJECT = 16;
+    private static final long REFERENCE = 4;
+    private static final long MAP_ENTRY = 40;
+
+    private MemoryEstimator() {
+    }
+
+    static long estimate(Object value) {
+        if (value == null || value instanceof Boolean) {
+            return REFERENCE;
+        }
+        if (value instanceof String text) {
+            return OBJECT + 24 + text.length();
+        }
+        if (value instanceof Number) {
+            return OBJECT + 8;
+        }
+        if (value instanceof byte[] bytes) {
+            return OBJECT + bytes.length;
+        }
+        if (value instanceof Map<?, ?> map) {
+            long size = 64 + 4L * map.size() * REFERENCE;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                size += MAP_ENTRY + estimate(entry.getKey()) + estimate(entry.getValue());
+            }
+            return size;
+        }
+        if (value instanceof Collection<?> collection) {
+            long size = 40 + collection.size() * REFERENCE;
+            for (Object element : collection) {
+                size += estimate(element);
+            }
+            return size;
+        }
+        return OBJECT + 32;
+    }
+}
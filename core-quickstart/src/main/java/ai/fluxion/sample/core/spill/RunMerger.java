@@ -0,0 +1,104 @@
+package ai.fluxion.sample.core.spill;
+
+import ai.fluxion.core.model.Document;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * K-way merge over spill files whose records are each already ordered by
+ * {@code order}. Ties go to the earlier run, so merging stable runs of
+ * consecutive input keeps the merge stable. Each run is released as soon as
+ * it is exhausted.
+ *
+ * <p>At most {@link SpillSession#mergeFanIn()} runs are open at once. With
+ * more runs than that, consecutive groups of runs are first merged into new
+ * runs, pass after pass, until one final merge can take them all; merging
+ * consecutive runs keeps ties in run order, so the result is the same.
+ */
+final class RunMerger implements Iterator<Document> {
+
+    private final SpillSession session;
+    private final PriorityQueue<Head> heads;
+
+    private RunMerger(SpillSession session, List<SpillFile> runs, Comparator<SpillFile.Record> order) {
+        this.session = session;
+        Comparator<Head> byRecord = Comparator.comparing(head -> head.record, order);
+        this.heads = new PriorityQueue<>(Math.max(1, runs.size()), byRecord.thenComparingInt(head -> head.run));
+        for (int i = 0; i < runs.size(); i++) {
+            SpillFile run = runs.get(i);
+            session.openForReading(run);
+            advance(new Head(run, i));
+        }
+    }
+
+    static Iterator<Document> merge(SpillSession session, List<SpillFile> runs, Comparator<SpillFile.Record> order) {
+        List<SpillFile> pending = runs;
+        int fanIn = session.mergeFanIn();
+        while (pending.size() > fanIn) {
+            List<SpillFile> merged = new ArrayList<>((pending.size() + fanIn - 1) / fanIn);
+            for (int from = 0; from < pending.size(); from += fanIn) {
+                List<SpillFile> group = pending.subList(from, Math.min(pending.size(), from + fanIn));
+                merged.add(group.size() == 1 ? group.get(0) : mergeToRun(session, group, order));
+            }
+            session.stats().mergePass();
+            pending = merged;
+        }
+        return new RunMerger(session, pending, order);
+    }
+
+    private static SpillFile mergeToRun(SpillSession session, List<SpillFile> group, Comparator<SpillFile.Record> order) {
+        RunMerger merger = new RunMerger(session, group, order);
+        SpillFile run = session.newFile();
+        while (merger.hasNext()) {
+            SpillFile.Record record = merger.nextRecord();
+            run.write(record.sequence(), record.key(), record.document());
+        }
+        run.finishWriting();
+        return run;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public Document next() {
+        return nextRecord().document();
+    }
+
+    private SpillFile.Record nextRecord() {
+        Head head = heads.poll();
+        if (head == null) {
+            throw new NoSuchElementException();
+        }
+        SpillFile.Record record = head.record;
+        advance(head);
+        return record;
+    }
+
+    private void advance(Head head) {
+        head.record = head.file.read();
+        if (head.record == null) {
+            session.release(head.file);
+        } else {
+            heads.add(head);
+        }
+    }
+
+    private static final class Head {
+        private final SpillFile file;
+        private final int run;
+        private SpillFile.Record record;
+
+        private Head(SpillFile file, int run) {
+            this.file = file;
+            this.run = run;
+        }
+    }
+}
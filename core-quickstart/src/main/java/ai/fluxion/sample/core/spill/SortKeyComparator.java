@@ -0,0 +1,273 @@
+package ai.fluxion.sample.core.spill;
+
+import ai.fluxion.core.model.Document;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders documents the way {@code $sort} does so sorted runs produced in
+ * separate chunks can be merged: values of different types compare by the
+ * BSON type order (null and missing, numbers, strings, documents, arrays,
+ * binary, ObjectId, booleans, dates), numbers compare by value across Java
+ * types, strings by code point, and an array sort key uses its smallest
+ * element when ascending and its largest when descending.
+ */
+public final class SortKeyComparator implements Comparator<Document> {
+
+    private final String[][] paths;
+    private final boolean[] descending;
+
+    private SortKeyComparator(String[][] paths, boolean[] descending) {
+        this.paths = paths;
+        this.descending = descending;
+    }
+
+    /** Builds a comparator from a {@code $sort} specification such as {@code {"total": -1, "_id": 1}}. */
+    public static SortKeyComparator fromSpecification(Map<String, Object> specification) {
+        if (specification.isEmpty()) {
+            throw new IllegalArgumentException("$sort requires at least one key");
+        }
+        String[][] paths = new String[specification.size()][];
+        boolean[] descending = new boolean[specification.size()];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : specification.entrySet()) {
+            if (!(entry.getValue() instanceof Number direction)
+                    || (direction.intValue() != 1 && direction.intValue() != -1)) {
+                throw new IllegalArgumentException("Unsupported $sort direction for " + entry.getKey() + ": " + entry.getValue());
+            }
+            paths[i] = entry.getKey().split("\\.");
+            descending[i] = direction.intValue() == -1;
+            i++;
+        }
+        return new SortKeyComparator(paths, descending);
+    }
+
+    @Override
+    public int compare(Document left, Document right) {
+        for (int i = 0; i < paths.length; i++) {
+            Object a = sortKey(resolve(left, paths[i]), descending[i]);
+            Object b = sortKey(resolve(right, paths[i]), descending[i]);
+            int comparison = compareValues(a, b);
+            if (comparison != 0) {
+                return descending[i] ? -comparison : comparison;
+            }
+        }
+        return 0;
+    }
+
+    /** Total order over document values following the BSON comparison rules. */
+    public static int compareValues(Object left, Object right) {
+        int typeOrder = Integer.compare(rank(left), rank(right));
+        if (typeOrder != 0) {
+            return typeOrder;
+        }
+        if (left == null || right == null) {
+            return 0;
+        }
+        if (left instanceof Number a && right instanceof Number b) {
+            return compareNumbers(a, b);
+        }
+        if (left instanceof String a && right instanceof String b) {
+            return compareStrings(a, b);
+        }
+        if (left instanceof Map<?, ?> a && right instanceof Map<?, ?> b) {
+            return compareMaps(a, b);
+        }
+        if (left instanceof Collection<?> a && right instanceof Collection<?> b) {
+            return compareCollections(a, b);
+        }
+        if (left instanceof byte[] a && right instanceof byte[] b) {
+            int length = Integer.compare(a.length, b.length);
+            return length != 0 ? length : Arrays.compareUnsigned(a, b);
+        }
+        if (left instanceof Boolean a && right instanceof Boolean b) {
+            return Boolean.compare(a, b);
+        }
+        if (rank(left) == 9) {
+            return Long.compare(epochMillis(left), epochMillis(right));
+        }
+        return compareComparables(left, right);
+    }
+
+    private static Object sortKey(Object value, boolean descending) {
+        if (!(value instanceof Collection<?> values)) {
+            return value;
+        }
+        if (values.isEmpty()) {
+            return null;
+        }
+        Object chosen = null;
+        boolean first = true;
+        for (Object element : values) {
+            if (first || (descending ? compareValues(element, chosen) > 0 : compareValues(element, chosen) < 0)) {
+                chosen = element;
+                first = false;
+            }
+        }
+        return chosen;
+    }
+
+    private static Object resolve(Document document, String[] path) {
+        Object value = document.get(path[0]);
+        for (int i = 1; i < path.length && value != null; i++) {
+            value = step(value, path[i]);
+        }
+        return value;
+    }
+
+    private static Object step(Object value, String field) {
+        if (value instanceof Map<?, ?> map) {
+            return map.get(field);
+        }
+        if (value instanceof Collection<?> elements) {
+            List<Object> collected = new ArrayList<>();
+            for (Object element : elements) {
+                Object next = step(element, field);
+                if (next instanceof Collection<?> nested) {
+                    collected.addAll(nested);
+                } else if (next != null) {
+                    collected.add(next);
+                }
+            }
+            return collected.isEmpty() ? null : collected;
+        }
+        return null;
+    }
+
+    private static int rank(Object value) {
+        if (value == null) {
+            return 1;
+        }
+        if (value instanceof Number) {
+            return 2;
+        }
+        if (value instanceof String) {
+            return 3;
+        }
+        if (value instanceof Map<?, ?>) {
+            return 4;
+        }
+        if (value instanceof Collection<?>) {
+            return 5;
+        }
+        if (value instanceof byte[]) {
+            return 6;
+        }
+        if ("org.bson.types.ObjectId".equals(value.getClass().getName())) {
+            return 7;
+        }
+        if (value instanceof Boolean) {
+            return 8;
+        }
+        if (value instanceof Date || value instanceof Instant) {
+            return 9;
+        }
+        return 10;
+    }
+
+    private static int compareNumbers(Number a, Number b) {
+        if (isIntegral(a) && isIntegral(b)) {
+            return Long.compare(a.longValue(), b.longValue());
+        }
+        double x = a.doubleValue();
+        double y = b.doubleValue();
+        // NaN sorts before every other number.
+        if (Double.isNaN(x) || Double.isNaN(y)) {
+            return Boolean.compare(!Double.isNaN(x), !Double.isNaN(y));
+        }
+        boolean floating = (a instanceof Double || a instanceof Float) && (b instanceof Double || b instanceof Float);
+        if (floating || Double.isInfinite(x) || Double.isInfinite(y)) {
+            // Plain comparisons so -0.0 and 0.0 are equal, as in $sort.
+            return x < y ? -1 : (x > y ? 1 : 0);
+        }
+        // Mixed long, double and decimal values compare exactly.
+        return toBigDecimal(a).compareTo(toBigDecimal(b));
+    }
+
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (number instanceof BigInteger integer) {
+            return new BigDecimal(integer);
+        }
+        if (isIntegral(number)) {
+            return BigDecimal.valueOf(number.longValue());
+        }
+        return new BigDecimal(number.doubleValue());
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Long || number instanceof Integer
+                || number instanceof Short || number instanceof Byte;
+    }
+
+    private static int compareStrings(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int x = a.codePointAt(i);
+            int y = b.codePointAt(j);
+            if (x != y) {
+                return Integer.compare(x, y);
+            }
+            i += Character.charCount(x);
+            j += Character.charCount(y);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    private static int compareMaps(Map<?, ?> a, Map<?, ?> b) {
+        Iterator<? extends Map.Entry<?, ?>> left = a.entrySet().iterator();
+        Iterator<? extends Map.Entry<?, ?>> right = b.entrySet().iterator();
+        while (left.hasNext() && right.hasNext()) {
+            Map.Entry<?, ?> x = left.next();
+            Map.Entry<?, ?> y = right.next();
+            int comparison = Integer.compare(rank(x.getValue()), rank(y.getValue()));
+            if (comparison == 0) {
+                comparison = compareStrings(String.valueOf(x.getKey()), String.valueOf(y.getKey()));
+            }
+            if (comparison == 0) {
+                comparison = compareValues(x.getValue(), y.getValue());
+            }
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Boolean.compare(left.hasNext(), right.hasNext());
+    }
+
+    private static int compareCollections(Collection<?> a, Collection<?> b) {
+        Iterator<?> left = a.iterator();
+        Iterator<?> right = b.iterator();
+        while (left.hasNext() && right.hasNext()) {
+            int comparison = compareValues(left.next(), right.next());
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Boolean.compare(left.hasNext(), right.hasNext());
+    }
+
+    private static long epochMillis(Object value) {
+        return value instanceof Date date ? date.getTime() : ((Instant) value).toEpochMilli();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareComparables(Object left, Object right) {
+        if (left instanceof Comparable comparable && left.getClass() == right.getClass()) {
+            return comparable.compareTo(right);
+        }
+        return compareStrings(left.getClass().getName(), right.getClass().getName());
+    }
+}
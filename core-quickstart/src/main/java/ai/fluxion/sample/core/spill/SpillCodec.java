@@ -0,0 +1,208 @@
+package ai.fluxion.sample.core.spill;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact tagged binary encoding for spilled document values. Each value is a
+ * one-byte type tag followed by its payload; maps keep their field order and
+ * every supported type survives the round trip unchanged, so a spilled
+ * document is indistinguishable from the original when it is read back. Any
+ * other type fails the spill rather than falling back to Java serialization,
+ * which would deserialize arbitrary classes from the scratch directory.
+ */
+final class SpillCodec {
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte STRING = 6;
+    private static final byte MAP = 7;
+    private static final byte LIST = 8;
+    private static final byte BYTES = 9;
+    private static final byte DATE = 10;
+    private static final byte INSTANT = 11;
+    private static final byte DECIMAL = 12;
+    private static final byte BIG_INTEGER = 13;
+    private static final byte FLOAT = 14;
+    private static final byte SHORT = 15;
+    private static final byte BYTE = 16;
+
+    private SpillCodec() {
+    }
+
+    static void write(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean bool) {
+            out.writeByte(bool ? TRUE : FALSE);
+        } else if (value instanceof Integer number) {
+            out.writeByte(INT);
+            out.writeInt(number);
+        } else if (value instanceof Long number) {
+            out.writeByte(LONG);
+            out.writeLong(number);
+        } else if (value instanceof Double number) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(number);
+        } else if (value instanceof String text) {
+            out.writeByte(STRING);
+            writeString(out, text);
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(MAP);
+            writeLength(out, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeString(out, String.valueOf(entry.getKey()));
+                write(out, entry.getValue());
+            }
+        } else if (value instanceof List<?> list) {
+            out.writeByte(LIST);
+            writeLength(out, list.size());
+            for (Object element : list) {
+                write(out, element);
+            }
+        } else if (value instanceof byte[] bytes) {
+            out.writeByte(BYTES);
+            writeLength(out, bytes.length);
+            out.write(bytes);
+        } else if (value instanceof Date date) {
+            out.writeByte(DATE);
+            out.writeLong(date.getTime());
+        } else if (value instanceof Instant instant) {
+            out.writeByte(INSTANT);
+            out.writeLong(instant.getEpochSecond());
+            out.writeInt(instant.getNano());
+        } else if (value instanceof BigDecimal decimal) {
+            out.writeByte(DECIMAL);
+            writeString(out, decimal.toString());
+        } else if (value instanceof BigInteger integer) {
+            out.writeByte(BIG_INTEGER);
+            writeString(out, integer.toString());
+        } else if (value instanceof Float number) {
+            out.writeByte(FLOAT);
+            out.writeFloat(number);
+        } else if (value instanceof Short number) {
+            out.writeByte(SHORT);
+            out.writeShort(number);
+        } else if (value instanceof Byte number) {
+            out.writeByte(BYTE);
+            out.writeByte(number);
+        } else {
+            throw new IllegalArgumentException("Cannot spill value of type " + value.getClass().getName());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> readMap(DataInputStream in) throws IOException {
+        Object value = read(in);
+        if (!(value instanceof Map<?, ?>)) {
+            throw new IOException("Corrupt spill file: expected a document but found " + value);
+        }
+        return (Map<String, Object>) value;
+    }
+
+    static Object read(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case STRING:
+                return readString(in);
+            case MAP: {
+                int size = readLength(in);
+                Map<String, Object> map = new LinkedHashMap<>(Math.max(4, size * 4 / 3 + 1));
+                for (int i = 0; i < size; i++) {
+                    String key = readString(in);
+                    map.put(key, read(in));
+                }
+                return map;
+            }
+            case LIST: {
+                int size = readLength(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(read(in));
+                }
+                return list;
+            }
+            case BYTES: {
+                byte[] bytes = new byte[readLength(in)];
+                in.readFully(bytes);
+                return bytes;
+            }
+            case DATE:
+                return new Date(in.readLong());
+            case INSTANT:
+                return Instant.ofEpochSecond(in.readLong(), in.readInt());
+            case DECIMAL:
+                return new BigDecimal(readString(in));
+            case BIG_INTEGER:
+                return new BigInteger(readString(in));
+            case FLOAT:
+                return in.readFloat();
+            case SHORT:
+                return in.readShort();
+            case BYTE:
+                return in.readByte();
+            default:
+                throw new IOException("Corrupt spill file: unknown type tag " + tag);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeLength(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readLength(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Unsigned LEB128, so the usual short field names cost one length byte. */
+    private static void writeLength(DataOutputStream out, int length) throws IOException {
+        int remaining = length;
+        while ((remaining & ~0x7F) != 0) {
+            out.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte(remaining);
+    }
+
+    private static int readLength(DataInputStream in) throws IOException {
+        int length = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int next = in.readUnsignedByte();
+            length |= (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                return length;
+            }
+        }
+        throw new IOException("Corrupt spill file: length prefix too long");
+    }
+}
@@ -0,0 +1,112 @@
+package ai.fluxion.sample.core.spill;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Memory budget and scratch space for {@link SpillingPipelineExecutor}. The
+ * budget bounds the estimated heap held by each blocking stage; anything
+ * above it is written to temporary files under {@link #spillDirectory()}.
+ */
+public final class SpillConfig {
+
+    private final long memoryBudgetBytes;
+    private final Path spillDirectory;
+    private final int chunkSize;
+    private final int groupPartitions;
+    private final int maxMergeFanIn;
+
+    private SpillConfig(Builder builder) {
+        this.memoryBudgetBytes = builder.memoryBudgetBytes;
+        this.spillDirectory = builder.spillDirectory;
+        this.chunkSize = builder.chunkSize;
+        this.groupPartitions = builder.groupPartitions;
+        this.maxMergeFanIn = builder.maxMergeFanIn;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public long memoryBudgetBytes() {
+        return memoryBudgetBytes;
+    }
+
+    public Path spillDirectory() {
+        return spillDirectory;
+    }
+
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    public int groupPartitions() {
+        return groupPartitions;
+    }
+
+    public int maxMergeFanIn() {
+        return maxMergeFanIn;
+    }
+
+    public static final class Builder {
+
+        private long memoryBudgetBytes = 64L * 1024 * 1024;
+        private Path spillDirectory = Path.of(System.getProperty("java.io.tmpdir"));
+        private int chunkSize = 1_000;
+        private int groupPartitions = 32;
+        private int maxMergeFanIn = 64;
+
+        private Builder() {
+        }
+
+        /** Estimated bytes a single {@code $group} or {@code $sort} may buffer before spilling. */
+        public Builder memoryBudgetBytes(long memoryBudgetBytes) {
+            this.memoryBudgetBytes = memoryBudgetBytes;
+            return this;
+        }
+
+        public Builder spillDirectory(Path spillDirectory) {
+            this.spillDirectory = spillDirectory;
+            return this;
+        }
+
+        /** Documents handed to the in-memory executor at a time for streamable stages. */
+        public Builder chunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /** Hash partitions a spilling {@code $group} fans out to. */
+        public Builder groupPartitions(int groupPartitions) {
+            this.groupPartitions = groupPartitions;
+            return this;
+        }
+
+        /**
+         * Most spill runs merged at once; more runs are merged in several
+         * passes. The budget may lower it further, as every open run holds a
+         * 64 KB read buffer.
+         */
+        public Builder maxMergeFanIn(int maxMergeFanIn) {
+            this.maxMergeFanIn = maxMergeFanIn;
+            return this;
+        }
+
+        public SpillConfig build() {
+            Objects.requireNonNull(spillDirectory, "spillDirectory");
+            if (memoryBudgetBytes <= 0) {
+                throw new IllegalArgumentException("memoryBudgetBytes must be positive");
+            }
+            if (chunkSize < 1) {
+                throw new IllegalArgumentException("chunkSize must be >= 1");
+            }
+            if (groupPartitions < 2) {
+                throw new IllegalArgumentException("groupPartitions must be >= 2");
+            }
+            if (maxMergeFanIn < 2) {
+                throw new IllegalArgumentException("maxMergeFanIn must be >= 2");
+            }
+            return new SpillConfig(this);
+        }
+    }
+}
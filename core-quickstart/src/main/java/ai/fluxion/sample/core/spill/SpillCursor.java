@@ -0,0 +1,77 @@
+package ai.fluxion.sample.core.spill;
+
+import ai.fluxion.core.model.Document;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily produced pipeline output. Spill files are deleted, and a closeable
+ * input such as {@code JsonDocumentReader} is closed, once the cursor is
+ * exhausted or closed, whichever happens first; always close cursors that
+ * may be abandoned early.
+ */
+public final class SpillCursor implements Iterator<Document>, AutoCloseable {
+
+    private final Iterator<Document> results;
+    private final SpillSession session;
+    private final Iterator<Document> input;
+    private boolean closed;
+
+    SpillCursor(Iterator<Document> results, SpillSession session, Iterator<Document> input) {
+        this.results = results;
+        this.session = session;
+        this.input = input;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (results.hasNext()) {
+            return true;
+        }
+        close();
+        return false;
+    }
+
+    @Override
+    public Document next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return results.next();
+    }
+
+    /** Views the remaining results as a sequential stream that closes this cursor when closed. */
+    public Stream<Document> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+                .onClose(this::close);
+    }
+
+    public SpillStats stats() {
+        return session.stats();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (input instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot close pipeline input", e);
+        } finally {
+            session.close();
+        }
+    }
+}
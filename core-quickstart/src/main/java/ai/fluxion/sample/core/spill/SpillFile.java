@@ -0,0 +1,131 @@
+package ai.fluxion.sample.core.spill;
+
+import ai.fluxion.core.model.Document;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * One temporary file of spilled records. Records are written once, front to
+ * back, then read back sequentially; the file is deleted on {@link #close()}.
+ * Every record is prefixed with a marker byte so readers find the end
+ * without a separate count. A finished file holds no read buffer until
+ * {@link SpillSession#openForReading} opens it, so only the files being read
+ * at the moment count against the memory budget.
+ */
+final class SpillFile implements Closeable {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte RECORD = 1;
+    private static final byte END = 0;
+
+    private final Path path;
+    private final SpillStats stats;
+    private DataOutputStream out;
+    private DataInputStream in;
+    private long records;
+
+    private SpillFile(Path path, SpillStats stats) throws IOException {
+        this.path = path;
+        this.stats = stats;
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE));
+    }
+
+    static SpillFile create(Path directory, SpillStats stats) {
+        try {
+            Files.createDirectories(directory);
+            SpillFile file = new SpillFile(Files.createTempFile(directory, "fluxion-spill-", ".bin"), stats);
+            stats.fileCreated();
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create spill file in " + directory, e);
+        }
+    }
+
+    /** Writes a record of an optional sequence number, an optional key and the document. */
+    void write(long sequence, Object key, Document document) {
+        try {
+            out.writeByte(RECORD);
+            out.writeLong(sequence);
+            SpillCodec.write(out, key);
+            SpillCodec.write(out, document.getData());
+            records++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write spill file " + path, e);
+        }
+    }
+
+    long records() {
+        return records;
+    }
+
+    /** Finishes writing; the file is read once {@link #openForReading()} is called. */
+    void finishWriting() {
+        try {
+            out.writeByte(END);
+            out.close();
+            out = null;
+            stats.bytesWritten(Files.size(path), records);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot finish spill file " + path, e);
+        }
+    }
+
+    /** Allocates the read buffer; callers go through {@link SpillSession#openForReading}. */
+    void openForReading() {
+        if (out != null || in != null) {
+            throw new IllegalStateException("Spill file " + path + " is not ready for reading");
+        }
+        try {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open spill file " + path, e);
+        }
+    }
+
+    boolean reading() {
+        return in != null;
+    }
+
+    /** Reads the next record, or returns {@code null} at the end of the file. */
+    Record read() {
+        if (in == null) {
+            throw new IllegalStateException("Spill file " + path + " is not open for reading");
+        }
+        try {
+            if (in.readByte() == END) {
+                return null;
+            }
+            long sequence = in.readLong();
+            Object key = SpillCodec.read(in);
+            return new Record(sequence, key, new Document(SpillCodec.readMap(in)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read spill file " + path, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (out != null) {
+                out.close();
+            }
+            if (in != null) {
+                in.close();
+            }
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete spill file " + path, e);
+        }
+    }
+
+    record Record(long sequence, Object key, Document document) {
+    }
+}
@@ -0,0 +1,99 @@
+package ai.fluxion.sample.core.spill;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State shared by the operators of one pipeline run: the in-memory executor
+ * they delegate to, the budget, and every spill file created so far so a
+ * single {@link #close()} removes them all. The read buffers of open spill
+ * files are charged to the budget, so operators buffer that much less and a
+ * merge opens only as many runs as the budget has room for.
+ */
+final class SpillSession implements AutoCloseable {
+
+    private final PipelineExecutor executor;
+    private final SpillConfig config;
+    private final Map<String, Object> variables;
+    private final SpillStats stats = new SpillStats();
+    private final List<SpillFile> files = new ArrayList<>();
+    private long readBufferBytes;
+
+    SpillSession(PipelineExecutor executor, SpillConfig config, Map<String, Object> variables) {
+        this.executor = executor;
+        this.config = config;
+        this.variables = variables;
+    }
+
+    SpillConfig config() {
+        return config;
+    }
+
+    SpillStats stats() {
+        return stats;
+    }
+
+    List<Document> execute(List<Document> documents, List<Stage> stages) {
+        return executor.execute(documents, stages, variables);
+    }
+
+    SpillFile newFile() {
+        SpillFile file = SpillFile.create(config.spillDirectory(), stats);
+        files.add(file);
+        return file;
+    }
+
+    /** Opens a finished file for reading and charges its read buffer to the budget. */
+    void openForReading(SpillFile file) {
+        file.openForReading();
+        readBufferBytes += SpillFile.BUFFER_SIZE;
+    }
+
+    /** The budget left once the read buffers of open files are paid for. */
+    long availableBytes() {
+        return Math.max(1, config.memoryBudgetBytes() - readBufferBytes);
+    }
+
+    /**
+     * How many runs one merge pass may open: what the remaining budget holds
+     * in read buffers, capped by {@link SpillConfig#maxMergeFanIn()}, and at
+     * least two so every pass makes progress.
+     */
+    int mergeFanIn() {
+        long buffers = (config.memoryBudgetBytes() - readBufferBytes) / SpillFile.BUFFER_SIZE;
+        return (int) Math.max(2, Math.min(config.maxMergeFanIn(), buffers));
+    }
+
+    /** Deletes a file as soon as it has been consumed rather than at the end of the run. */
+    void release(SpillFile file) {
+        if (file.reading()) {
+            readBufferBytes -= SpillFile.BUFFER_SIZE;
+        }
+        files.remove(file);
+        file.close();
+    }
+
+    @Override
+    public void close() {
+        RuntimeException failure = null;
+        for (SpillFile file : files) {
+            try {
+                file.close();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        files.clear();
+        readBufferBytes = 0;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ai.fluxion.sample.core.spill;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Counters describing how much a pipeline run had to spill. */
+public final class SpillStats {
+
+    private final AtomicLong files = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong mergePasses = new AtomicLong();
+
+    void fileCreated() {
+        files.incrementAndGet();
+    }
+
+    void bytesWritten(long fileBytes, long fileRecords) {
+        bytes.addAndGet(fileBytes);
+        records.addAndGet(fileRecords);
+    }
+
+    void mergePass() {
+        mergePasses.incrementAndGet();
+    }
+
+    public long filesCreated() {
+        return files.get();
+    }
+
+    public long bytesSpilled() {
+        return bytes.get();
+    }
+
+    public long recordsSpilled() {
+        return records.get();
+    }
+
+    /** Intermediate passes needed because there were more runs than the merge fan-in. */
+    public long mergePasses() {
+        return mergePasses.get();
+    }
+
+    public boolean spilled() {
+        return files.get() > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "SpillStats{files=" + files + ", bytes=" + bytes + ", records=" + records
+                + ", mergePasses=" + mergePasses + "}";
+    }
+}
@@ -0,0 +1,190 @@
+package ai.fluxion.sample.core.spill;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.sample.core.plan.PerDocumentStages;
+import ai.fluxion.sample.core.plan.StageDefinition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Runs a pipeline over input that may not fit on the heap. Stages that work
+ * one document at a time are handed to {@link PipelineExecutor} in chunks,
+ * {@code $skip} and {@code $limit} are applied while streaming, and
+ * {@code $group} and {@code $sort} buffer up to {@link SpillConfig#memoryBudgetBytes()}
+ * before spilling to temporary files. Any other stage is executed in memory
+ * over its complete input.
+ *
+ * <p>While a blocking stage stays under the budget it is executed by the
+ * in-memory executor over its whole input, so small inputs produce exactly
+ * the same result as {@link PipelineExecutor#execute}.
+ */
+public final class SpillingPipelineExecutor {
+
+    private final PipelineExecutor executor;
+    private final SpillConfig config;
+
+    public SpillingPipelineExecutor(PipelineExecutor executor, SpillConfig config) {
+        this.executor = executor;
+        this.config = config;
+    }
+
+    /**
+     * Builds the operator chain over {@code input}. Blocking stages consume
+     * their input when the cursor is first advanced, not here. If
+     * {@code input} is {@link AutoCloseable} the cursor closes it.
+     */
+    public SpillCursor execute(Iterator<Document> input, List<StageDefinition> stages, Map<String, Object> variables) {
+        SpillSession session = new SpillSession(executor, config, variables);
+        Iterator<Document> current = input;
+        List<StageDefinition> streamable = new ArrayList<>();
+        for (StageDefinition stage : stages) {
+            if (PerDocumentStages.contains(stage.operator())) {
+                streamable.add(stage);
+                continue;
+            }
+            current = chunked(current, streamable, session);
+            streamable = new ArrayList<>();
+            current = switch (stage.operator()) {
+                case "$group" -> deferred(current, stage, session, ExternalGroup::apply);
+                case "$sort" -> deferred(current, stage, session, ExternalSort::apply);
+                case "$limit" -> limit(current, count(stage));
+                case "$skip" -> skip(current, count(stage));
+                default -> deferred(current, stage, session, SpillingPipelineExecutor::inMemory);
+            };
+        }
+        return new SpillCursor(chunked(current, streamable, session), session, input);
+    }
+
+    /** Convenience overload that collects the complete result. */
+    public List<Document> execute(List<Document> input, List<StageDefinition> stages, Map<String, Object> variables) {
+        List<Document> results = new ArrayList<>();
+        try (SpillCursor cursor = execute(input.iterator(), stages, variables)) {
+            cursor.forEachRemaining(results::add);
+        }
+        return results;
+    }
+
+    private static Iterator<Document> inMemory(Iterator<Document> input, StageDefinition stage, SpillSession session) {
+        List<Document> documents = new ArrayList<>();
+        input.forEachRemaining(documents::add);
+        return session.execute(documents, List.of(stage.toStage())).iterator();
+    }
+
+    private Iterator<Document> chunked(Iterator<Document> input, List<StageDefinition> stages, SpillSession session) {
+        if (stages.isEmpty()) {
+            return input;
+        }
+        List<Stage> compiled = stages.stream().map(StageDefinition::toStage).toList();
+        return new Iterator<>() {
+            private Iterator<Document> output = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!output.hasNext() && input.hasNext()) {
+                    List<Document> chunk = new ArrayList<>(config.chunkSize());
+                    while (chunk.size() < config.chunkSize() && input.hasNext()) {
+                        chunk.add(input.next());
+                    }
+                    output = session.execute(chunk, compiled).iterator();
+                }
+                return output.hasNext();
+            }
+
+            @Override
+            public Document next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return output.next();
+            }
+        };
+    }
+
+    private static Iterator<Document> deferred(Iterator<Document> input,
+                                               StageDefinition stage,
+                                               SpillSession session,
+                                               BlockingOperator operator) {
+        return new Iterator<>() {
+            private Iterator<Document> output;
+
+            @Override
+            public boolean hasNext() {
+                if (output == null) {
+                    output = operator.apply(input, stage, session);
+                }
+                return output.hasNext();
+            }
+
+            @Override
+            public Document next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return output.next();
+            }
+        };
+    }
+
+    private static Iterator<Document> limit(Iterator<Document> input, long limit) {
+        return new Iterator<>() {
+            private long remaining = limit;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0 && input.hasNext();
+            }
+
+            @Override
+            public Document next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                remaining--;
+                return input.next();
+            }
+        };
+    }
+
+    private static Iterator<Document> skip(Iterator<Document> input, long skip) {
+        return new Iterator<>() {
+            private long remaining = skip;
+
+            @Override
+            public boolean hasNext() {
+                while (remaining > 0 && input.hasNext()) {
+                    input.next();
+                    remaining--;
+                }
+                return input.hasNext();
+            }
+
+            @Override
+            public Document next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return input.next();
+            }
+        };
+    }
+
+    private static long count(StageDefinition stage) {
+        if (!(stage.specification() instanceof Number number) || number.longValue() < 0) {
+            throw new IllegalArgumentException(stage.operator() + " expects a non-negative number but got "
+                    + stage.specification());
+        }
+        return number.longValue();
+    }
+
+    @FunctionalInterface
+    private interface BlockingOperator {
+        Iterator<Document> apply(Iterator<Document> input, StageDefinition stage, SpillSession session);
+    }
+}
@@ -0,0 +1,102 @@
+package ai.fluxion.sample.core.stream;
+
+import ai.fluxion.core.model.Document;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+
+/**
+ * Pulls documents one at a time from a JSON array or from newline-delimited
+ * (or simply concatenated) JSON objects. Only the current document is ever
+ * materialized, so the input can be far larger than the heap.
+ */
+public final class JsonDocumentReader implements Iterator<Document>, Closeable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<LinkedHashMap<String, Object>> DOCUMENT = new TypeReference<>() {
+    };
+
+    private final JsonParser parser;
+    private final boolean array;
+    private JsonToken current;
+    private boolean closed;
+
+    private JsonDocumentReader(InputStream input) throws IOException {
+        this.parser = MAPPER.getFactory().createParser(input);
+        this.current = parser.nextToken();
+        this.array = current == JsonToken.START_ARRAY;
+        if (array) {
+            current = parser.nextToken();
+        }
+    }
+
+    public static JsonDocumentReader open(InputStream input) {
+        try {
+            return new JsonDocumentReader(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read JSON input", e);
+        }
+    }
+
+    public static JsonDocumentReader open(Path file) {
+        try {
+            return new JsonDocumentReader(new BufferedInputStream(Files.newInputStream(file), 64 * 1024));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + file, e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (current == null || (array && current == JsonToken.END_ARRAY)) {
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public Document next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (current != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Expected a JSON object at " + parser.currentLocation() + " but found " + current);
+        }
+        try {
+            LinkedHashMap<String, Object> data = MAPPER.readValue(parser, DOCUMENT);
+            current = parser.nextToken();
+            return new Document(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid JSON document at " + parser.currentLocation(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            parser.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close JSON input", e);
+        }
+    }
+}
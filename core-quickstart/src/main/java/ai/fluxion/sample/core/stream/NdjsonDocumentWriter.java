@@ -0,0 +1,53 @@
+package ai.fluxion.sample.core.stream;
+
+import ai.fluxion.core.model.Document;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes documents as newline-delimited JSON as they are produced, the
+ * output counterpart of {@link JsonDocumentReader}.
+ */
+public final class NdjsonDocumentWriter implements Closeable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectWriter WRITER = MAPPER.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    private final JsonGenerator generator;
+    private long written;
+
+    public NdjsonDocumentWriter(OutputStream output) {
+        try {
+            this.generator = MAPPER.getFactory().createGenerator(output);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write JSON output", e);
+        }
+        generator.setRootValueSeparator(null);
+    }
+
+    public void write(Document document) {
+        try {
+            WRITER.writeValue(generator, document.getData());
+            generator.writeRaw('\n');
+            written++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write JSON output", e);
+        }
+    }
+
+    public long written() {
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,369 @@
+package ai.fluxion.sample.core.columnar;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.sample.core.plan.CompiledPipeline;
+import ai.fluxion.sample.core.plan.PipelineCompiler;
+import ai.fluxion.sample.core.plan.StageDefinition;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the same pipelines through {@link ColumnarExecutor} and through the
+ * compiled pipeline's own executor and checks that the documents, their
+ * field order and their Java value types are identical, and that each case
+ * took the path it should: column-wise where the operators cover it, the
+ * executor where integer overflow or a zero divisor needs its rules.
+ */
+class ColumnarExecutorTest {
+
+    private final PipelineCompiler compiler = new PipelineCompiler(new PipelineExecutor());
+
+    @Test
+    void matchesLikeTheExecutor() {
+        List<Map<String, Object>> orders = orders(200);
+
+        for (String filter : List.of(
+                "{\"status\": \"PAID\"}",
+                "{\"total\": {\"$gt\": 250}, \"qty\": {\"$lte\": 3}}",
+                "{\"total\": {\"$gte\": 99.5, \"$lt\": 300}}",
+                "{\"qty\": {\"$in\": [1, 3.0, \"4\"]}}",
+                "{\"status\": {\"$nin\": [\"PAID\", \"VOID\"]}}",
+                "{\"status\": {\"$ne\": 7}}",
+                "{\"status\": {\"$gt\": 5}}",
+                "{\"express\": true, \"customer\": {\"$lt\": \"C-20\"}}")) {
+            ColumnarExecutor columnar = assertSameResults("[{\"$match\": " + filter + "}]", orders);
+            assertEquals(orders.size(), columnar.columnarDocuments(), filter);
+        }
+    }
+
+    @Test
+    void matchesLikeTheExecutorOnMixedTypes() {
+        List<Map<String, Object>> rows = mixedValues();
+
+        for (String filter : mixedTypeFilters()) {
+            ColumnarExecutor columnar = assertSameResults("[{\"$match\": " + filter + "}]", rows);
+            assertTrue(columnar.columnarDocuments() > 0, filter);
+        }
+    }
+
+    @Test
+    void addsFieldsWithIntegerAndDoubleArithmetic() {
+        List<Map<String, Object>> orders = orders(200);
+
+        ColumnarExecutor columnar = assertSameResults("""
+                [{"$addFields": {"gross": {"$multiply": ["$total", 1.08]},
+                                 "units": {"$add": ["$qty", 1]},
+                                 "share": {"$divide": ["$total", "$qty"]},
+                                 "net": {"$subtract": ["$total", "$qty"]}}}]
+                """, orders);
+
+        assertEquals(orders.size(), columnar.columnarDocuments());
+        assertEquals(0, columnar.fallbackDocuments());
+    }
+
+    @Test
+    void fallsBackWhenIntegerArithmeticOverflows() {
+        List<Map<String, Object>> rows = List.of(
+                row("_id", 1, "qty", 2, "big", 9_000_000_000L),
+                row("_id", 2, "qty", 3, "big", Long.MAX_VALUE));
+
+        // 3 * 1e9 leaves the int range for one row only.
+        ColumnarExecutor intOverflow = assertSameResults("""
+                [{"$addFields": {"scaled": {"$multiply": ["$qty", 1000000000]}}}]
+                """, rows);
+        assertEquals(rows.size(), intOverflow.fallbackDocuments());
+
+        ColumnarExecutor longOverflow = assertSameResults("""
+                [{"$addFields": {"doubled": {"$add": ["$big", "$big"]}}}]
+                """, rows);
+        assertEquals(rows.size(), longOverflow.fallbackDocuments());
+    }
+
+    @Test
+    void dividingByZeroFailsAsTheExecutorDoes() {
+        List<Map<String, Object>> rows = List.of(
+                row("_id", 1, "total", 10, "qty", 2),
+                row("_id", 2, "total", 10, "qty", 0));
+        CompiledPipeline pipeline = compiler.compile("""
+                [{"$addFields": {"share": {"$divide": ["$total", "$qty"]}}}]
+                """);
+        ColumnarExecutor columnar = new ColumnarExecutor(pipeline);
+
+        RuntimeException expected = assertThrows(RuntimeException.class,
+                () -> pipeline.execute(documents(rows), Map.of()));
+        RuntimeException actual = assertThrows(RuntimeException.class,
+                () -> columnar.execute(documents(rows), Map.of()));
+
+        assertEquals(expected.getClass(), actual.getClass());
+        assertEquals(expected.getMessage(), actual.getMessage());
+        assertEquals(rows.size(), columnar.fallbackDocuments());
+    }
+
+    @Test
+    void projectsLikeTheExecutor() {
+        List<Map<String, Object>> orders = orders(50);
+
+        for (String projection : List.of(
+                "{\"status\": 1, \"total\": 1}",
+                "{\"_id\": 0, \"customer\": true, \"gross\": {\"$multiply\": [\"$total\", 2]}}",
+                "{\"qty\": 0, \"express\": 0}",
+                "{\"_id\": 0}")) {
+            ColumnarExecutor columnar = assertSameResults("[{\"$project\": " + projection + "}]", orders);
+            assertEquals(orders.size(), columnar.columnarDocuments(), projection);
+        }
+    }
+
+    @Test
+    void groupsLikeTheExecutor() {
+        List<Map<String, Object>> orders = orders(500);
+
+        ColumnarExecutor columnar = assertSameResults("""
+                [{"$match": {"status": {"$ne": "VOID"}}},
+                 {"$group": {"_id": "$customer",
+                             "orders": {"$sum": 1},
+                             "count": {"$count": {}},
+                             "units": {"$sum": "$qty"},
+                             "revenue": {"$sum": "$total"},
+                             "average": {"$avg": "$total"},
+                             "smallest": {"$min": "$total"},
+                             "largest": {"$max": "$qty"},
+                             "lastStatus": {"$max": "$status"},
+                             "first": {"$first": "$_id"},
+                             "last": {"$last": "$status"}}},
+                 {"$sort": {"revenue": -1}}]
+                """, orders);
+        assertEquals(orders.size(), columnar.columnarDocuments());
+
+        assertSameResults("""
+                [{"$group": {"_id": "$qty", "revenue": {"$sum": "$total"}}}]
+                """, orders);
+        assertSameResults("""
+                [{"$group": {"_id": null, "orders": {"$sum": 1}, "average": {"$avg": "$qty"}}}]
+                """, orders);
+    }
+
+    @Test
+    void groupsNegativeAndPositiveZeroTogether() {
+        List<Map<String, Object>> rows = List.of(
+                row("_id", 1, "rate", -0.0, "qty", 1),
+                row("_id", 2, "rate", 0.0, "qty", 2),
+                row("_id", 3, "rate", 1.5, "qty", 3));
+
+        ColumnarExecutor columnar = assertSameResults("""
+                [{"$group": {"_id": "$rate", "units": {"$sum": "$qty"}}}]
+                """, rows);
+        assertEquals(rows.size(), columnar.columnarDocuments());
+    }
+
+    @Test
+    void processesRunsOfMixedShapesInInputOrder() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            // Runs of 7 orders, then a run of 5 refunds with an extra field and a long total.
+            rows.add(i % 12 < 7
+                    ? row("_id", i, "status", "PAID", "total", i * 3)
+                    : row("_id", i, "status", "REFUND", "total", (long) -i, "reason", "R-" + i));
+        }
+
+        ColumnarExecutor rowLocal = assertSameResults("""
+                [{"$match": {"total": {"$gt": -40}}},
+                 {"$addFields": {"doubled": {"$multiply": ["$total", 2]}}},
+                 {"$project": {"status": 1, "doubled": 1}}]
+                """, rows);
+        assertEquals(rows.size(), rowLocal.columnarDocuments());
+
+        // $group needs the whole input at once, so mixed shapes go to the executor.
+        ColumnarExecutor grouped = assertSameResults("""
+                [{"$group": {"_id": "$status", "total": {"$sum": "$total"}}}]
+                """, rows);
+        assertEquals(rows.size(), grouped.fallbackDocuments());
+    }
+
+    @Test
+    void ignoresFieldsNoStageNamesOnceTheOutputDropsThem() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            Map<String, Object> row = row("_id", i, "status", i % 3 == 0 ? "PAID" : "PENDING", "total", i * 2.5);
+            // Unread fields change name, type and position from row to row.
+            row.put("attr" + i % 4, i % 2 == 0 ? "value-" + i : i);
+            rows.add(i % 5 == 0 ? reversed(row) : row);
+        }
+
+        for (String pipeline : List.of(
+                """
+                [{"$group": {"_id": "$status", "revenue": {"$sum": "$total"}}}]
+                """,
+                """
+                [{"$match": {"status": "PAID"}},
+                 {"$addFields": {"gross": {"$multiply": ["$total", 1.08]}}},
+                 {"$project": {"_id": 0, "status": 1, "gross": 1}}]
+                """)) {
+            ColumnarExecutor columnar = assertSameResults(pipeline, rows);
+            assertEquals(rows.size(), columnar.columnarDocuments(), pipeline);
+        }
+    }
+
+    @Test
+    void keepsAProjectedFieldOnlyALaterDocumentHas() {
+        List<Map<String, Object>> rows = new ArrayList<>(orders(20));
+        rows.add(row("_id", 20, "customer", "C-1", "status", "PAID", "qty", 1, "total", 4.5, "express", true,
+                "note", "gift"));
+
+        ColumnarExecutor columnar = assertSameResults("""
+                [{"$project": {"status": 1, "note": 1}}]
+                """, rows);
+        // The last document cannot share the first one's plan, so it runs as its own batch.
+        assertEquals(rows.size(), columnar.columnarDocuments());
+    }
+
+    @Test
+    void transposesOnlyTheFieldsAStageReads() {
+        List<Document> documents = documents(orders(10));
+        Schema schema = Schema.infer(documents.get(0).getData());
+        ColumnarStage match = ColumnarStage.compile(
+                new StageDefinition("$match", Map.of("status", "PAID")), schema);
+
+        ColumnarBatch matched = match.apply(ColumnarBatch.of(documents));
+
+        assertEquals(3, matched.size());
+        for (int i = 0; i < schema.size(); i++) {
+            assertEquals(schema.field(i).equals("status"), matched.transposed(i) != null, schema.field(i));
+        }
+        assertEquals(documents.get(4).getData(), matched.toDocuments().get(1).getData());
+    }
+
+    @Test
+    void handlesNullValuesInAColumn() {
+        List<Map<String, Object>> rows = List.of(
+                row("_id", 1, "customer", "C-1", "total", 10, "note", "first"),
+                row("_id", 2, "customer", null, "total", null, "note", null),
+                row("_id", 3, "customer", "C-1", "total", 30, "note", "third"),
+                row("_id", 4, "customer", null, "total", 5, "note", "fourth"));
+
+        for (String pipeline : List.of(
+                "[{\"$match\": {\"customer\": null}}]",
+                "[{\"$match\": {\"total\": {\"$gte\": 5}}}]",
+                "[{\"$match\": {\"note\": {\"$ne\": null}}}]",
+                "[{\"$addFields\": {\"gross\": {\"$multiply\": [\"$total\", 1.5]}, \"next\": {\"$add\": [\"$total\", 1]}}}]",
+                """
+                [{"$group": {"_id": "$customer", "total": {"$sum": "$total"}, "average": {"$avg": "$total"},
+                             "smallest": {"$min": "$total"}, "first": {"$first": "$note"},
+                             "last": {"$last": "$total"}}}]
+                """)) {
+            ColumnarExecutor columnar = assertSameResults(pipeline, rows);
+            assertEquals(rows.size(), columnar.columnarDocuments(), pipeline);
+        }
+
+        // A null in the first document leaves no type to infer from.
+        List<Map<String, Object>> leadingNull = List.of(rows.get(1), rows.get(0));
+        ColumnarExecutor columnar = assertSameResults("[{\"$match\": {\"total\": {\"$gt\": 1}}}]", leadingNull);
+        assertEquals(1, columnar.fallbackDocuments());
+        assertEquals(1, columnar.columnarDocuments());
+    }
+
+    /** Runs {@code json} both ways over fresh copies of {@code rows} and compares the output exactly. */
+    private ColumnarExecutor assertSameResults(String json, List<Map<String, Object>> rows) {
+        CompiledPipeline pipeline = compiler.compile(json);
+        ColumnarExecutor columnar = new ColumnarExecutor(pipeline);
+
+        List<Document> expected = pipeline.execute(documents(rows), Map.of());
+        List<Document> actual = columnar.execute(documents(rows), Map.of());
+
+        assertEquals(describe(expected), describe(actual), json);
+        return columnar;
+    }
+
+    /** Field names, values and value types in order, so {@code 6} and {@code 6L} differ. */
+    private static List<List<String>> describe(List<Document> documents) {
+        List<List<String>> described = new ArrayList<>();
+        for (Document document : documents) {
+            List<String> fields = new ArrayList<>();
+            document.getData().forEach((field, value) -> fields.add(field + "=" + value
+                    + (value == null ? "" : ":" + value.getClass().getSimpleName())));
+            described.add(fields);
+        }
+        return described;
+    }
+
+    private static List<Document> documents(List<Map<String, Object>> rows) {
+        List<Document> documents = new ArrayList<>(rows.size());
+        rows.forEach(row -> documents.add(new Document(new LinkedHashMap<>(row))));
+        return documents;
+    }
+
+    /**
+     * One filter per operator on field {@code v} for each literal, ranges only
+     * for numbers and strings, and a {@code $in}/{@code $nin} over all of them.
+     */
+    private static List<String> mixedTypeFilters() {
+        List<String> literals = List.of("0", "-1", "2.5", "9007199254740992", "\"a\"", "\"b\"", "\"\"",
+                "\"～\"", "true", "false", "null");
+        List<String> filters = new ArrayList<>();
+        for (String literal : literals) {
+            filters.add("{\"v\": " + literal + "}");
+            for (String operator : List.of("$eq", "$ne", "$in", "$nin")) {
+                String operand = operator.endsWith("in") ? "[" + literal + "]" : literal;
+                filters.add("{\"v\": {\"" + operator + "\": " + operand + "}}");
+            }
+            if (!literal.equals("true") && !literal.equals("false") && !literal.equals("null")) {
+                for (String operator : List.of("$gt", "$gte", "$lt", "$lte")) {
+                    filters.add("{\"v\": {\"" + operator + "\": " + literal + "}}");
+                }
+            }
+        }
+        filters.add("{\"v\": {\"$in\": [" + String.join(", ", literals) + "]}}");
+        filters.add("{\"v\": {\"$nin\": [" + String.join(", ", literals) + "]}}");
+        return filters;
+    }
+
+    /** Documents whose {@code v} covers every type and edge the columnar match special-cases. */
+    private static List<Map<String, Object>> mixedValues() {
+        List<Object> values = Arrays.asList(0, -0.0, 0.0, -1, -1L, 2.5, 2L, Double.NaN,
+                Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 1L << 53, (1L << 53) + 1, Long.MIN_VALUE,
+                "a", "b", "", "ab", "A", "～", "😀", true, false, null, List.of(0, "a"),
+                Map.of("a", 1));
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < values.size(); i++) {
+            rows.add(row("_id", i, "v", values.get(i)));
+        }
+        rows.add(row("_id", values.size()));
+        return rows;
+    }
+
+    private static List<Map<String, Object>> orders(int count) {
+        String[] statuses = {"PAID", "PENDING", "VOID", "SHIPPED"};
+        List<Map<String, Object>> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            orders.add(row("_id", i, "customer", "C-" + (i % 37), "status", statuses[i % statuses.length],
+                    "qty", i % 5 + 1, "total", (i * 31 % 500) + 0.5 * (i % 2), "express", i % 3 == 0));
+        }
+        return orders;
+    }
+
+    private static Map<String, Object> reversed(Map<String, Object> row) {
+        List<String> fields = new ArrayList<>(row.keySet());
+        Map<String, Object> reversed = new LinkedHashMap<>();
+        for (int i = fields.size() - 1; i >= 0; i--) {
+            reversed.put(fields.get(i), row.get(fields.get(i)));
+        }
+        return reversed;
+    }
+
+    private static Map<String, Object> row(Object... fieldsAndValues) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < fieldsAndValues.length; i += 2) {
+            row.put((String) fieldsAndValues[i], fieldsAndValues[i + 1]);
+        }
+        return row;
+    }
+}
@@ -0,0 +1,109 @@
+package ai.fluxion.sample.core.parallel;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.sample.core.plan.StageDefinition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the same pipelines through the in-memory {@link PipelineExecutor} and
+ * through {@link ParallelPipelineExecutor} with chunks far smaller than the
+ * input, and checks the results are identical, including their order. The
+ * totals are integers, so partial {@code $sum}s combine exactly.
+ */
+class ParallelPipelineExecutorTest {
+
+    private static final Map<String, Object> VARIABLES = Map.of();
+
+    private final PipelineExecutor executor = new PipelineExecutor();
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void shutDownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void streamableStagesKeepInputOrder() {
+        List<StageDefinition> stages = List.of(
+                new StageDefinition("$match", Map.of("status", "PAID")),
+                new StageDefinition("$addFields", Map.of("customer", "$customerId")));
+
+        assertParallelResultMatches(orders(20_000), stages);
+    }
+
+    @Test
+    void groupCombinesPartialAccumulatorsInInputOrder() {
+        List<StageDefinition> stages = List.of(
+                new StageDefinition("$match", Map.of("status", "PAID")),
+                new StageDefinition("$group", Map.of(
+                        "_id", "$customerId",
+                        "orders", Map.of("$sum", 1),
+                        "revenue", Map.of("$sum", "$total"),
+                        "firstOrder", Map.of("$first", "$orderId"),
+                        "totals", Map.of("$push", "$total"))));
+
+        assertParallelResultMatches(orders(20_000), stages);
+    }
+
+    @Test
+    void sortMergesChunkRunsStably() {
+        List<StageDefinition> stages = List.of(
+                new StageDefinition("$match", Map.of("status", "PAID")),
+                new StageDefinition("$sort", Map.of("total", -1)));
+
+        assertParallelResultMatches(orders(20_000), stages);
+    }
+
+    @Test
+    void limitAfterSortIsAppliedToEveryRun() {
+        List<StageDefinition> stages = List.of(
+                new StageDefinition("$sort", Map.of("total", 1)),
+                new StageDefinition("$limit", 250),
+                new StageDefinition("$group", Map.of("_id", "$status", "orders", Map.of("$sum", 1))));
+
+        assertParallelResultMatches(orders(20_000), stages);
+    }
+
+    private void assertParallelResultMatches(List<Document> input, List<StageDefinition> stages) {
+        List<Stage> compiled = stages.stream().map(StageDefinition::toStage).toList();
+        List<Map<String, Object>> expected = data(executor.execute(input, compiled, VARIABLES));
+
+        ParallelPipelineExecutor parallel = new ParallelPipelineExecutor(executor, ParallelConfig.builder()
+                .pool(pool)
+                .chunkSize(512)
+                .build());
+
+        assertEquals(expected, data(parallel.execute(input, stages, VARIABLES)));
+    }
+
+    private static List<Document> orders(int count) {
+        Random random = new Random(42);
+        List<Document> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("orderId", "O-" + i);
+            data.put("customerId", "C-" + random.nextInt(2_000));
+            data.put("status", random.nextInt(4) == 0 ? "PENDING" : "PAID");
+            // Few distinct totals so equal sort keys exercise stability.
+            data.put("total", (long) random.nextInt(100));
+            orders.add(new Document(data));
+        }
+        return orders;
+    }
+
+    private static List<Map<String, Object>> data(List<Document> documents) {
+        return documents.stream().map(Document::getData).toList();
+    }
+}
@@ -0,0 +1,203 @@
+package ai.fluxion.sample.core.plan;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.sample.core.spill.SpillConfig;
+import ai.fluxion.sample.core.spill.SpillCursor;
+import ai.fluxion.sample.core.stream.JsonDocumentReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Streams generated NDJSON through {@link CompiledPipeline#stream}: the input
+ * is only read as far as the cursor needs, an early {@code $limit} stops the
+ * reader at the limit, closing the cursor closes the input, and the streamed
+ * results are the ones {@link CompiledPipeline#execute} returns.
+ */
+class CompiledPipelineStreamTest {
+
+    private static final long LARGE = 10_000_000;
+
+    private final PipelineCompiler compiler = new PipelineCompiler(new PipelineExecutor());
+
+    @Test
+    void readsOnlyAsFarAsTheLimitNeeds() {
+        CompiledPipeline pipeline = compiler.compile("""
+                [{"$match": {"status": "PAID"}},
+                 {"$limit": 5}]
+                """);
+        GeneratedOrders input = new GeneratedOrders(LARGE);
+        CountingIterator reader = new CountingIterator(JsonDocumentReader.open(input));
+
+        List<Object> ids = new ArrayList<>();
+        try (SpillCursor cursor = pipeline.stream(reader, Map.of(), config(1))) {
+            cursor.forEachRemaining(document -> ids.add(document.get("orderId")));
+        }
+
+        // Every other order is paid, so the fifth match is order 8.
+        assertEquals(List.of("O-0", "O-2", "O-4", "O-6", "O-8"), ids);
+        assertEquals(9, reader.pulled);
+        assertTrue(input.bytesRead < 64 * 1024, () -> "read " + input.bytesRead + " bytes of the input");
+    }
+
+    @Test
+    void aLeadingLimitStopsTheReaderWhateverTheChunkSize() {
+        CompiledPipeline pipeline = compiler.compile("""
+                [{"$limit": 3},
+                 {"$match": {"status": "PAID"}}]
+                """);
+        CountingIterator reader = new CountingIterator(JsonDocumentReader.open(new GeneratedOrders(LARGE)));
+
+        try (SpillCursor cursor = pipeline.stream(reader, Map.of(), config(1_000))) {
+            assertEquals(List.of("O-0", "O-2"), cursor.stream().map(document -> document.get("orderId")).toList());
+        }
+        assertEquals(3, reader.pulled);
+    }
+
+    @Test
+    void closingTheCursorEarlyClosesTheInput() {
+        CompiledPipeline pipeline = compiler.compile("""
+                [{"$match": {"status": "PAID"}}]
+                """);
+        GeneratedOrders input = new GeneratedOrders(LARGE);
+
+        SpillCursor cursor = pipeline.stream(JsonDocumentReader.open(input), Map.of(), config(16));
+        cursor.next();
+        cursor.next();
+        assertFalse(input.closed);
+        cursor.close();
+
+        assertTrue(input.closed);
+        assertFalse(cursor.hasNext());
+    }
+
+    @Test
+    void exhaustingTheCursorClosesTheInput() {
+        CompiledPipeline pipeline = compiler.compile("""
+                [{"$match": {"status": "PAID"}}]
+                """);
+        GeneratedOrders input = new GeneratedOrders(10);
+
+        try (SpillCursor cursor = pipeline.stream(JsonDocumentReader.open(input), Map.of(), config(4))) {
+            assertEquals(5, cursor.stream().count());
+            assertTrue(input.closed);
+        }
+    }
+
+    @Test
+    void streamsWhatExecuteReturns() {
+        CompiledPipeline pipeline = compiler.compile("""
+                [{"$match": {"status": "PAID"}},
+                 {"$addFields": {"customer": "$customerId"}},
+                 {"$sort": {"total": -1}},
+                 {"$limit": 100}]
+                """);
+        List<Document> orders = new ArrayList<>();
+        JsonDocumentReader.open(new GeneratedOrders(2_000)).forEachRemaining(orders::add);
+        List<Map<String, Object>> expected = pipeline.execute(new ArrayList<>(orders), Map.of()).stream()
+                .map(Document::getData)
+                .toList();
+
+        try (SpillCursor cursor = pipeline.stream(JsonDocumentReader.open(new GeneratedOrders(2_000)), Map.of(),
+                config(64))) {
+            assertEquals(expected, cursor.stream().map(Document::getData).toList());
+        }
+    }
+
+    private static SpillConfig config(int chunkSize) {
+        return SpillConfig.builder()
+                .chunkSize(chunkSize)
+                .build();
+    }
+
+    /**
+     * NDJSON orders produced on demand, so a test can hand the reader far
+     * more input than it should ever consume.
+     */
+    private static final class GeneratedOrders extends InputStream {
+
+        private final long count;
+        private long produced;
+        private byte[] line = new byte[0];
+        private int position;
+        private long bytesRead;
+        private boolean closed;
+
+        private GeneratedOrders(long count) {
+            this.count = count;
+        }
+
+        @Override
+        public int read() {
+            if (position == line.length && !nextLine()) {
+                return -1;
+            }
+            bytesRead++;
+            return line[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (position == line.length && !nextLine()) {
+                return -1;
+            }
+            int copied = Math.min(length, line.length - position);
+            System.arraycopy(line, position, buffer, offset, copied);
+            position += copied;
+            bytesRead += copied;
+            return copied;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        private boolean nextLine() {
+            if (produced == count) {
+                return false;
+            }
+            long i = produced++;
+            line = ("{\"orderId\": \"O-" + i + "\", \"customerId\": \"C-" + (i % 97) + "\", \"status\": \""
+                    + (i % 2 == 0 ? "PAID" : "PENDING") + "\", \"total\": " + (i * 31 % 500) + "}\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            return true;
+        }
+    }
+
+    /** Counts documents taken from the reader; deliberately not closeable. */
+    private static final class CountingIterator implements Iterator<Document> {
+
+        private final Iterator<Document> delegate;
+        private int pulled;
+
+        private CountingIterator(Iterator<Document> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return delegate.hasNext();
+        }
+
+        @Override
+        public Document next() {
+            pulled++;
+            return delegate.next();
+        }
+    }
+}
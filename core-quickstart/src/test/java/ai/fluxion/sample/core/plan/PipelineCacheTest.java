@@ -0,0 +1,55 @@
+package ai.fluxion.sample.core.plan;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that {@link PipelineCache} reuses plans for identical pipeline JSON
+ * and evicts the least recently used plan once it is full.
+ */
+class PipelineCacheTest {
+
+    private static final String PAID = "[{\"$match\": {\"status\": \"PAID\"}}]";
+    private static final String PENDING = "[{\"$match\": {\"status\": \"PENDING\"}}]";
+    private static final String CANCELLED = "[{\"$match\": {\"status\": \"CANCELLED\"}}]";
+
+    private final PipelineCompiler compiler = new PipelineCompiler(new PipelineExecutor());
+
+    @Test
+    void reusesThePlanForTheSameJson() {
+        PipelineCache cache = new PipelineCache(compiler, 4);
+
+        CompiledPipeline first = cache.get(PAID);
+        assertSame(first, cache.get(PAID));
+        assertNotSame(first, cache.get(PENDING));
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedPlan() {
+        PipelineCache cache = new PipelineCache(compiler, 2);
+        CompiledPipeline paid = cache.get(PAID);
+        CompiledPipeline pending = cache.get(PENDING);
+        // Touch PAID so PENDING becomes the eldest entry.
+        assertSame(paid, cache.get(PAID));
+
+        cache.get(CANCELLED);
+
+        assertEquals(2, cache.size());
+        assertSame(paid, cache.get(PAID));
+        assertNotSame(pending, cache.get(PENDING));
+        assertEquals(2, cache.hits());
+        assertEquals(4, cache.misses());
+    }
+
+    @Test
+    void rejectsANonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new PipelineCache(compiler, 0));
+    }
+}
@@ -0,0 +1,143 @@
+package ai.fluxion.sample.core.plan;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * Checks what {@link PipelineCompiler} rewrites: arithmetic on literals is
+ * folded only where it is an expression and only when the result is exact,
+ * and adjacent stages are fused only when running them together cannot
+ * change the output.
+ */
+class PipelineCompilerTest {
+
+    private final PipelineCompiler compiler = new PipelineCompiler(new PipelineExecutor());
+
+    @Test
+    void foldsLiteralArithmeticInsideExpressions() {
+        CompiledPipeline pipeline = compiler.compile("""
+                [{"$addFields": {"gross": {"$multiply": ["$total", {"$add": [1, 0.08]}]},
+                                 "units": {"$multiply": [2, 3]},
+                                 "half": {"$divide": [1, 2]}}}]
+                """);
+
+        Map<String, Object> fields = pipeline.plannedStages().get(0).specificationAsMap();
+        assertEquals(Map.of("$multiply", List.of("$total", 1.08)), fields.get("gross"));
+        assertEquals(6, fields.get("units"));
+        assertInstanceOf(Integer.class, fields.get("units"));
+        assertEquals(0.5, fields.get("half"));
+    }
+
+    @Test
+    void leavesInexactOrNonExpressionArithmeticAlone() {
+        Map<String, Object> overflow = Map.of("$multiply", List.of(Long.MAX_VALUE, 2));
+        Map<String, Object> divideByZero = Map.of("$divide", List.of(1, 0));
+        Map<String, Object> literal = Map.of("$literal", Map.of("$add", List.of(1, 2)));
+        CompiledPipeline pipeline = compiler.compile(List.of(
+                new StageDefinition("$addFields", Map.of("a", overflow, "b", divideByZero, "c", literal)),
+                new StageDefinition("$match", Map.of("total", Map.of("$gt", Map.of("$add", List.of(1, 2))))),
+                new StageDefinition("$project", Map.of("a", 1, "b", Map.of("$add", List.of(1, 2))))));
+
+        assertEquals(Map.of("a", overflow, "b", divideByZero, "c", literal),
+                pipeline.plannedStages().get(0).specificationAsMap());
+        assertEquals(pipeline.sourceStages().subList(1, 3), pipeline.plannedStages().subList(1, 3));
+    }
+
+    @Test
+    void widensIntegerResultsThatOverflowAnInt() {
+        CompiledPipeline pipeline = compiler.compile("""
+                [{"$match": {"$expr": {"$gt": ["$total", {"$add": [2147483647, 1]}]}}}]
+                """);
+
+        Map<String, Object> filter = pipeline.plannedStages().get(0).specificationAsMap();
+        assertEquals(Map.of("$gt", List.of("$total", 2_147_483_648L)), filter.get("$expr"));
+    }
+
+    @Test
+    void fusesAdjacentMatchesOnDisjointFields() {
+        CompiledPipeline pipeline = compiler.compile("""
+                [{"$match": {"status": "PAID"}},
+                 {"$match": {"region": "EU"}},
+                 {"$match": {"region": "US"}},
+                 {"$match": {"$or": [{"a": 1}]}}]
+                """);
+
+        assertEquals(List.of(
+                new StageDefinition("$match", Map.of("status", "PAID", "region", "EU")),
+                new StageDefinition("$match", Map.of("region", "US")),
+                new StageDefinition("$match", Map.of("$or", List.of(Map.of("a", 1))))), pipeline.plannedStages());
+    }
+
+    @Test
+    void fusesAddFieldsOnlyWhenTheSecondIgnoresTheFirst() {
+        CompiledPipeline pipeline = compiler.compile("""
+                [{"$addFields": {"customer": "$customerId"}},
+                 {"$set": {"channel": "web"}},
+                 {"$set": {"region": "$country"}},
+                 {"$set": {"owner": "$channel"}},
+                 {"$set": {"copy": "$$ROOT"}}]
+                """);
+
+        assertEquals(List.of("$addFields", "$set", "$set", "$set"),
+                pipeline.plannedStages().stream().map(StageDefinition::operator).toList());
+        assertEquals(Map.of("channel", "web", "region", "$country"),
+                pipeline.plannedStages().get(1).specificationAsMap());
+    }
+
+    @Test
+    void keepsMixedOperatorChainsAsSeparateStages() {
+        CompiledPipeline pipeline = compiler.compile("""
+                [{"$match": {"status": "PAID"}},
+                 {"$addFields": {"totalWithTax": {"$multiply": ["$total", 1.08]}}},
+                 {"$project": {"_id": 0, "orderId": 1, "totalWithTax": 1}}]
+                """);
+
+        assertEquals(pipeline.sourceStages(), pipeline.plannedStages());
+    }
+
+    @Test
+    void fusedPlanReturnsWhatTheSourceStagesReturn() {
+        CompiledPipeline pipeline = compiler.compile("""
+                [{"$match": {"status": "PAID"}},
+                 {"$match": {"region": "EU"}},
+                 {"$addFields": {"customer": "$customerId"}},
+                 {"$addFields": {"amount": "$total"}}]
+                """);
+        assertEquals(2, pipeline.plannedStages().size());
+
+        List<Document> orders = orders(500);
+        List<Document> expected = pipeline.executor().execute(new ArrayList<>(orders),
+                pipeline.sourceStages().stream().map(StageDefinition::toStage).toList(), Map.of());
+        List<Document> actual = pipeline.execute(new ArrayList<>(orders), Map.of());
+        assertEquals(data(expected), data(actual));
+    }
+
+    private static List<Document> orders(int count) {
+        String[] statuses = {"PAID", "PENDING", "CANCELLED"};
+        String[] regions = {"EU", "US"};
+        List<Document> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> order = new LinkedHashMap<>();
+            order.put("orderId", "A-" + i);
+            order.put("customerId", "C-" + (i % 37));
+            order.put("status", statuses[i % statuses.length]);
+            order.put("region", regions[i % regions.length]);
+            order.put("total", i % 250);
+            orders.add(new Document(order));
+        }
+        return orders;
+    }
+
+    private static List<Map<String, Object>> data(List<Document> documents) {
+        return documents.stream().map(Document::getData).toList();
+    }
+}
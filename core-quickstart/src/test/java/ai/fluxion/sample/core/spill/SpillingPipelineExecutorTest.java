@@ -0,0 +1,157 @@
+package ai.fluxion.sample.core.spill;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.sample.core.plan.StageDefinition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the same pipelines through the in-memory {@link PipelineExecutor} and
+ * through {@link SpillingPipelineExecutor} with a budget far below the input
+ * size, and checks the results are identical and the scratch files are gone.
+ */
+class SpillingPipelineExecutorTest {
+
+    private static final Map<String, Object> VARIABLES = Map.of();
+
+    private final PipelineExecutor executor = new PipelineExecutor();
+
+    @TempDir
+    Path spillDirectory;
+
+    @Test
+    void sortSpillsRunsAndMatchesTheInMemoryResult() throws IOException {
+        List<StageDefinition> stages = List.of(
+                new StageDefinition("$match", Map.of("status", "PAID")),
+                new StageDefinition("$sort", Map.of("total", -1)));
+
+        assertSpilledResultMatches(orders(20_000), stages);
+    }
+
+    @Test
+    void groupSpillsPartitionsAndMatchesTheInMemoryResult() throws IOException {
+        List<StageDefinition> stages = List.of(
+                new StageDefinition("$group", Map.of(
+                        "_id", "$customerId",
+                        "orders", Map.of("$sum", 1),
+                        "revenue", Map.of("$sum", "$total"),
+                        "firstStatus", Map.of("$first", "$status"),
+                        "totals", Map.of("$push", "$total"))),
+                new StageDefinition("$limit", 500));
+
+        assertSpilledResultMatches(orders(20_000), stages);
+    }
+
+    @Test
+    void sortMergesMoreRunsThanTheFanInInSeveralPasses() throws IOException {
+        List<StageDefinition> stages = List.of(new StageDefinition("$sort", Map.of("total", 1)));
+
+        // A 512 KB budget has room for eight read buffers; the cap allows three.
+        SpillStats stats = assertSpilledResultMatches(orders(20_000), stages,
+                config().memoryBudgetBytes(512 * 1024).maxMergeFanIn(3));
+
+        assertTrue(stats.mergePasses() > 0, "expected more runs than the fan-in: " + stats);
+    }
+
+    @Test
+    void groupMergesMoreRunsThanTheFanInInSeveralPasses() throws IOException {
+        List<StageDefinition> stages = List.of(new StageDefinition("$group", Map.of(
+                "_id", "$customerId",
+                "revenue", Map.of("$sum", "$total"),
+                "totals", Map.of("$push", "$total"))));
+
+        // 128 KB leaves room for two read buffers, so the budget alone caps the fan-in.
+        SpillStats stats = assertSpilledResultMatches(orders(20_000), stages, config());
+
+        assertTrue(stats.mergePasses() > 0, "expected more runs than the fan-in: " + stats);
+    }
+
+    @Test
+    void refusesToSpillAValueTheCodecDoesNotEncode() throws IOException {
+        List<Document> input = orders(20_000);
+        // Serializable, but not a document type: no Java serialization fallback.
+        input.forEach(order -> order.getData().put("note", new StringBuilder("gift")));
+        SpillingPipelineExecutor spilling = new SpillingPipelineExecutor(executor, config().build());
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, () -> {
+            try (SpillCursor cursor = spilling.execute(input.iterator(),
+                    List.of(new StageDefinition("$sort", Map.of("total", 1))), VARIABLES)) {
+                cursor.forEachRemaining(document -> { });
+            }
+        });
+
+        assertTrue(thrown.getMessage().contains(StringBuilder.class.getName()), thrown.getMessage());
+        try (Stream<Path> leftovers = Files.list(spillDirectory)) {
+            assertEquals(0, leftovers.count());
+        }
+    }
+
+    private SpillStats assertSpilledResultMatches(List<Document> input, List<StageDefinition> stages) throws IOException {
+        return assertSpilledResultMatches(input, stages, config());
+    }
+
+    private SpillStats assertSpilledResultMatches(List<Document> input,
+                                                  List<StageDefinition> stages,
+                                                  SpillConfig.Builder config) throws IOException {
+        List<Stage> compiled = stages.stream().map(StageDefinition::toStage).toList();
+        List<Map<String, Object>> expected = data(executor.execute(input, compiled, VARIABLES));
+
+        SpillingPipelineExecutor spilling = new SpillingPipelineExecutor(executor, config.build());
+        List<Document> actual = new ArrayList<>();
+        SpillStats stats;
+        try (SpillCursor cursor = spilling.execute(input.iterator(), stages, VARIABLES)) {
+            cursor.forEachRemaining(actual::add);
+            stats = cursor.stats();
+        }
+
+        assertTrue(stats.spilled(), "expected the budget to force a spill: " + stats);
+        assertEquals(expected, data(actual));
+        try (Stream<Path> leftovers = Files.list(spillDirectory)) {
+            assertEquals(0, leftovers.count());
+        }
+        return stats;
+    }
+
+    private SpillConfig.Builder config() {
+        return SpillConfig.builder()
+                .memoryBudgetBytes(128 * 1024)
+                .spillDirectory(spillDirectory)
+                .chunkSize(256)
+                .groupPartitions(8);
+    }
+
+    private static List<Document> orders(int count) {
+        Random random = new Random(42);
+        List<Document> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("orderId", "O-" + i);
+            data.put("customerId", "C-" + random.nextInt(2_000));
+            data.put("status", random.nextInt(4) == 0 ? "PENDING" : "PAID");
+            // Few distinct totals so equal sort keys exercise stability.
+            data.put("total", (long) random.nextInt(100));
+            orders.add(new Document(data));
+        }
+        return orders;
+    }
+
+    private static List<Map<String, Object>> data(List<Document> documents) {
+        return documents.stream().map(Document::getData).toList();
+    }
+}
@@ -0,0 +1,121 @@
+package ai.fluxion.sample.core.stream;
+
+import ai.fluxion.core.model.Document;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reads the same orders as a JSON array, as NDJSON and as concatenated
+ * objects, checks the edge cases of an empty array and a non-object element,
+ * and round-trips documents through {@link NdjsonDocumentWriter}.
+ */
+class JsonDocumentReaderTest {
+
+    private static final List<Map<String, Object>> ORDERS = List.of(
+            Map.of("orderId", "A-1", "status", "PAID", "total", 120),
+            Map.of("orderId", "A-2", "status", "PENDING", "lines", List.of(Map.of("sku", "S-1", "qty", 2))),
+            Map.of("orderId", "A-3", "status", "PAID", "total", 75.5));
+
+    @Test
+    void readsTheSameDocumentsFromAnArrayAndFromNdjson() {
+        String array = """
+                [
+                  {"orderId": "A-1", "status": "PAID", "total": 120},
+                  {"orderId": "A-2", "status": "PENDING", "lines": [{"sku": "S-1", "qty": 2}]},
+                  {"orderId": "A-3", "status": "PAID", "total": 75.5}
+                ]
+                """;
+        String ndjson = """
+                {"orderId": "A-1", "status": "PAID", "total": 120}
+                {"orderId": "A-2", "status": "PENDING", "lines": [{"sku": "S-1", "qty": 2}]}
+                {"orderId": "A-3", "status": "PAID", "total": 75.5}
+                """;
+        String concatenated = ndjson.replace("\n", " ");
+
+        assertEquals(ORDERS, readAll(array));
+        assertEquals(ORDERS, readAll(ndjson));
+        assertEquals(ORDERS, readAll(concatenated));
+    }
+
+    @Test
+    void anEmptyArrayOrInputHasNoDocuments() {
+        assertEquals(List.of(), readAll("[]"));
+        assertEquals(List.of(), readAll("  [ ]\n"));
+        assertEquals(List.of(), readAll(""));
+    }
+
+    @Test
+    void rejectsANonObjectElement() {
+        try (JsonDocumentReader reader = JsonDocumentReader.open(input("[{\"orderId\": \"A-1\"}, 42]"))) {
+            assertEquals(Map.of("orderId", "A-1"), reader.next().getData());
+            assertTrue(reader.hasNext());
+            IllegalArgumentException error = assertThrows(IllegalArgumentException.class, reader::next);
+            assertTrue(error.getMessage().contains("VALUE_NUMBER_INT"), error.getMessage());
+        }
+    }
+
+    @Test
+    void closesTheInputOnceExhausted() {
+        TrackingInputStream input = new TrackingInputStream("[{\"orderId\": \"A-1\"}]");
+        JsonDocumentReader reader = JsonDocumentReader.open(input);
+
+        reader.next();
+        assertFalse(input.closed);
+        assertFalse(reader.hasNext());
+        assertTrue(input.closed);
+    }
+
+    @Test
+    void writtenNdjsonReadsBackUnchanged() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (NdjsonDocumentWriter writer = new NdjsonDocumentWriter(output)) {
+            ORDERS.forEach(order -> writer.write(new Document(order)));
+            assertEquals(3, writer.written());
+        }
+
+        String written = output.toString(StandardCharsets.UTF_8);
+        assertEquals(3, written.lines().count());
+        assertTrue(written.endsWith("\n"));
+        assertEquals(ORDERS, readAll(written));
+    }
+
+    private static List<Map<String, Object>> readAll(String json) {
+        List<Map<String, Object>> documents = new ArrayList<>();
+        try (JsonDocumentReader reader = JsonDocumentReader.open(input(json))) {
+            reader.forEachRemaining(document -> documents.add(document.getData()));
+        }
+        return documents;
+    }
+
+    private static InputStream input(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static final class TrackingInputStream extends ByteArrayInputStream {
+
+        private boolean closed;
+
+        private TrackingInputStream(String json) {
+            super(json.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package ai.fluxion.sample.enrich;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.enrich.evaluator.operators.linked.services.HttpCallOperator;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Batch-aware companion to the {@code $httpCall} operator. Instead of one
+ * round trip per document, a batch is resolved to its distinct requests
+ * first; identical requests are coalesced (within the batch and with calls
+ * already in flight on other threads), answered from a per-call response
+ * cache when configured, and optionally folded into bulk requests. Responses
+ * are handed back in input order. With {@code maxConcurrency} above one, the
+ * remaining requests run on virtual threads, bounded overall and per host, so
+ * a batch takes roughly as long as its slowest call rather than the sum.
+ *
+ * <p>Every request that is still needed is sent by the {@code $httpCall}
+ * operator itself, run through the executor, so timeouts, retries and the
+ * rest of the operator's resilience settings in the specification apply
+ * exactly as they do inside a pipeline. Pipeline variables reach the operator
+ * as well, and parameters may read them as {@code $$name.path}.
+ *
+ * <p>The enricher is meant to be created once per call site and reused, so its
+ * cache survives across batches.
+ */
+public final class HttpCallEnricher {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([^}]+)}");
+    /** Field of the request document the operator writes its response to. */
+    private static final String RESPONSE_FIELD = "_response";
+    /** Stand-in for {@code null} responses in concurrent maps. */
+    private static final Object NULL_RESPONSE = new Object();
+    /** Variables that stand for the payload itself rather than a pipeline variable. */
+    private static final Set<String> DOCUMENT_VARIABLES = Set.of("ROOT", "CURRENT");
+    /**
+     * Per-host permits are striped over this many semaphores, so the enricher
+     * holds a fixed number of them however many hosts its URLs reach. Hosts
+     * sharing a stripe share its limit.
+     */
+    private static final int HOST_STRIPES = 64;
+
+    private final HttpCallSpec spec;
+    private final PipelineExecutor executor;
+    private final List<Stage> requestStage;
+    private final List<Stage> bulkStage;
+    // Pipeline variables the operator's own settings read; their values are part of each request key.
+    private final Set<String> operatorVariables;
+    private final HttpCallStats stats = new HttpCallStats();
+    private final HttpResponseCache cache;
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Semaphore permits;
+    private final Semaphore[] hostPermits = new Semaphore[HOST_STRIPES];
+
+    private HttpCallEnricher(PipelineExecutor executor, HttpCallSpec spec) {
+        this.spec = spec;
+        this.executor = executor;
+        this.requestStage = operatorStage(spec.operatorSpec(), spec.url(), spec.params().keySet());
+        this.bulkStage = spec.bulk() == null ? null
+                : operatorStage(spec.operatorSpec(), spec.bulk().url(), List.of(spec.bulk().param()));
+        this.cache = spec.cache() == null ? null
+                : new HttpResponseCache(spec.cache().ttl(), spec.cache().maxEntries());
+        this.permits = new Semaphore(spec.maxConcurrency());
+        for (int i = 0; i < hostPermits.length; i++) {
+            hostPermits[i] = new Semaphore(spec.maxConcurrencyPerHost());
+        }
+        Map<String, Object> settings = new LinkedHashMap<>(spec.operatorSpec());
+        settings.keySet().removeAll(Set.of("url", "params"));
+        this.operatorVariables = new TreeSet<>();
+        collectVariables(settings, operatorVariables);
+    }
+
+    /**
+     * Creates an enricher from the same map a pipeline would pass to
+     * {@code $httpCall}.
+     */
+    public static HttpCallEnricher of(Map<String, Object> httpCall) {
+        return of(new PipelineExecutor(), httpCall);
+    }
+
+    /**
+     * Creates an enricher whose requests run through {@code executor}.
+     */
+    public static HttpCallEnricher of(PipelineExecutor executor, Map<String, Object> httpCall) {
+        return new HttpCallEnricher(executor, HttpCallSpec.from(httpCall));
+    }
+
+    /** How this enricher resolved its requests so far. */
+    public HttpCallStats stats() {
+        return stats;
+    }
+
+    /**
+     * Resets the {@code $httpCall} operator's resilience state and this
+     * enricher's stats, so a test or a reconfigured call site starts from
+     * zero. Cached responses are kept.
+     */
+    public void resetResilience() {
+        HttpCallOperator.resetResilience();
+        stats.reset();
+    }
+
+    /**
+     * Returns one document per payload with the decoded response stored under
+     * {@code field}. The payload maps are copied, not modified.
+     */
+    public List<Document> enrich(List<Map<String, Object>> payloads, String field) {
+        return enrich(payloads, field, Map.of());
+    }
+
+    /**
+     * As {@link #enrich(List, String)}, with the pipeline variables the call's
+     * parameters and the operator read.
+     */
+    public List<Document> enrich(List<Map<String, Object>> payloads, String field, Map<String, Object> variables) {
+        List<Object> responses = call(payloads, variables);
+        List<Document> documents = new ArrayList<>(payloads.size());
+        for (int i = 0; i < payloads.size(); i++) {
+            Map<String, Object> enriched = new LinkedHashMap<>(payloads.get(i));
+            enriched.put(field, responses.get(i));
+            documents.add(new Document(enriched));
+        }
+        return documents;
+    }
+
+    /**
+     * Resolves the call for every payload and returns the decoded responses in
+     * input order. A payload whose parameters do not all resolve to a value
+     * gets a {@code null} response without a request.
+     */
+    public List<Object> call(List<Map<String, Object>> payloads) {
+        return call(payloads, Map.of());
+    }
+
+    /**
+     * As {@link #call(List)}, resolving {@code $$name} parameters against
+     * {@code variables} and handing them to the operator.
+     *
+     * @throws IllegalArgumentException if a parameter reads a variable that
+     *                                  is not defined
+     */
+    public List<Object> call(List<Map<String, Object>> payloads, Map<String, Object> variables) {
+        Map<String, ResolvedRequest> distinct = new LinkedHashMap<>();
+        List<String> keys = new ArrayList<>(payloads.size());
+        int unresolved = 0;
+        for (Map<String, Object> payload : payloads) {
+            ResolvedRequest request = resolve(payload, variables);
+            if (request == null) {
+                unresolved++;
+                keys.add(null);
+                continue;
+            }
+            distinct.putIfAbsent(request.key(), request);
+            keys.add(request.key());
+        }
+        stats.recordCoalesced(keys.size() - unresolved - distinct.size());
+
+        Map<String, Object> responses = new ConcurrentHashMap<>();
+        List<ResolvedRequest> pending = new ArrayList<>();
+        for (ResolvedRequest request : distinct.values()) {
+            Optional<HttpResponseCache.Entry> cached = cache == null ? Optional.empty() : cache.get(request.key());
+            if (cached.isPresent()) {
+                stats.recordCacheHit();
+                putResponse(responses, request.key(), cached.get().response());
+            } else {
+                if (cache != null) {
+                    stats.recordCacheMiss();
+                }
+                pending.add(request);
+            }
+        }
+
+        if (spec.bulk() != null) {
+            fetchBulk(pending, responses, variables);
+        } else if (spec.maxConcurrency() > 1 && pending.size() > 1) {
+            fetchConcurrently(pending, responses, variables);
+        } else {
+            for (ResolvedRequest request : pending) {
+                putResponse(responses, request.key(), fetch(request, variables));
+            }
+        }
+
+        List<Object> ordered = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Object response = key == null ? null : responses.get(key);
+            ordered.add(response == NULL_RESPONSE ? null : response);
+        }
+        return ordered;
+    }
+
+    private static void putResponse(Map<String, Object> responses, String key, Object response) {
+        responses.put(key, response == null ? NULL_RESPONSE : response);
+    }
+
+    private Object fetch(ResolvedRequest request, Map<String, Object> variables) {
+        CompletableFuture<Object> owned = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(request.key(), owned);
+        if (existing != null) {
+            stats.recordCoalesced(1);
+            return await(existing);
+        }
+        try {
+            Object response = send(requestStage, request.arguments(), variables);
+            remember(request.key(), response);
+            owned.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            owned.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(request.key(), owned);
+        }
+    }
+
+    private void fetchConcurrently(List<ResolvedRequest> pending,
+                                   Map<String, Object> responses,
+                                   Map<String, Object> variables) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(pending.size());
+            for (ResolvedRequest request : pending) {
+                futures.add(executor.submit(() -> {
+                    // Host first: a call waiting on a busy host must not hold a
+                    // global permit that calls to other hosts could use.
+                    Semaphore hostPermit = hostPermits[Math.floorMod(hostKey(request.uri()).hashCode(), HOST_STRIPES)];
+                    hostPermit.acquire();
+                    try {
+                        permits.acquire();
+                        try {
+                            putResponse(responses, request.key(), fetch(request, variables));
+                        } finally {
+                            permits.release();
+                        }
+                    } finally {
+                        hostPermit.release();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    futures.forEach(remaining -> remaining.cancel(true));
+                    if (e.getCause() instanceof RuntimeException cause) {
+                        throw cause;
+                    }
+                    throw new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    futures.forEach(remaining -> remaining.cancel(true));
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while awaiting HTTP calls", e);
+                }
+            }
+        }
+    }
+
+    private static String hostKey(URI uri) {
+        return uri.getHost() + ":" + uri.getPort();
+    }
+
+    private void fetchBulk(List<ResolvedRequest> pending, Map<String, Object> responses, Map<String, Object> variables) {
+        HttpCallSpec.BulkSpec bulk = spec.bulk();
+        Map<String, CompletableFuture<Object>> joined = new LinkedHashMap<>();
+        Map<String, ResolvedRequest> owned = new LinkedHashMap<>();
+        Map<String, CompletableFuture<Object>> ownedFutures = new LinkedHashMap<>();
+        for (ResolvedRequest request : pending) {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            CompletableFuture<Object> existing = inFlight.putIfAbsent(request.key(), future);
+            if (existing != null) {
+                stats.recordCoalesced(1);
+                joined.put(request.key(), existing);
+            } else {
+                owned.put(request.key(), request);
+                ownedFutures.put(request.key(), future);
+            }
+        }
+
+        List<ResolvedRequest> batch = new ArrayList<>(bulk.maxBatchSize());
+        try {
+            for (ResolvedRequest request : owned.values()) {
+                batch.add(request);
+                if (batch.size() == bulk.maxBatchSize()) {
+                    sendBulk(batch, responses, ownedFutures, variables);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                sendBulk(batch, responses, ownedFutures, variables);
+            }
+        } catch (RuntimeException e) {
+            ownedFutures.values().forEach(future -> future.completeExceptionally(e));
+            throw e;
+        } finally {
+            ownedFutures.forEach(inFlight::remove);
+        }
+        joined.forEach((key, future) -> putResponse(responses, key, await(future)));
+    }
+
+    private void sendBulk(List<ResolvedRequest> batch,
+                          Map<String, Object> responses,
+                          Map<String, CompletableFuture<Object>> futures,
+                          Map<String, Object> variables) {
+        HttpCallSpec.BulkSpec bulk = spec.bulk();
+        List<String> ids = batch.stream().map(request -> request.values().get(bulk.param())).toList();
+        stats.recordBulkRequest();
+        Object body = send(bulkStage, Map.of(bulk.param(), String.join(",", ids)), variables);
+        if (!(body instanceof List<?> items)) {
+            throw new IllegalStateException("Bulk response from " + bulk.url() + " for " + ids + " is not a JSON array");
+        }
+        Map<String, Object> byId = new LinkedHashMap<>();
+        for (Object item : items) {
+            if (item instanceof Map<?, ?> map && map.get(bulk.idField()) != null) {
+                byId.put(String.valueOf(map.get(bulk.idField())), item);
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            ResolvedRequest request = batch.get(i);
+            Object response = byId.get(ids.get(i));
+            // An id the bulk endpoint left out may exist on the next call, so
+            // only profiles it returned are cached.
+            if (response != null) {
+                remember(request.key(), response);
+            }
+            putResponse(responses, request.key(), response);
+            futures.get(request.key()).complete(response);
+        }
+    }
+
+    private void remember(String key, Object response) {
+        if (cache != null) {
+            cache.put(key, response);
+        }
+    }
+
+    /**
+     * Runs the {@code $httpCall} operator over one document holding the
+     * request's parameter values and returns the response it stored.
+     */
+    private Object send(List<Stage> stage, Map<String, Object> arguments, Map<String, Object> variables) {
+        stats.recordRequest();
+        List<Document> result = executor.execute(new ArrayList<>(List.of(new Document(new LinkedHashMap<>(arguments)))),
+                stage, variables);
+        return result.isEmpty() ? null : result.get(0).get(RESPONSE_FIELD);
+    }
+
+    /**
+     * The {@code $httpCall} stage that sends one request: the operator's own
+     * settings from {@code operatorSpec}, with {@code url} and with each
+     * parameter read from the request document.
+     */
+    private static List<Stage> operatorStage(Map<String, Object> operatorSpec, String url, Iterable<String> params) {
+        Map<String, Object> httpCall = new LinkedHashMap<>(operatorSpec);
+        httpCall.put("url", url);
+        Map<String, Object> references = new LinkedHashMap<>();
+        params.forEach(param -> references.put(param, "$" + param));
+        httpCall.put("params", references);
+        return List.of(new Stage(Map.of("$addFields", Map.of(RESPONSE_FIELD, Map.of("$httpCall", httpCall)))));
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns {@code null} when a parameter is missing or {@code null} in
+     * {@code payload}, rather than interpolating the text {@code "null"}.
+     */
+    private ResolvedRequest resolve(Map<String, Object> payload, Map<String, Object> variables) {
+        Map<String, Object> arguments = new LinkedHashMap<>();
+        Map<String, String> values = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> param : spec.params().entrySet()) {
+            Object value = evaluate(payload, variables, param.getValue());
+            if (value == null) {
+                return null;
+            }
+            arguments.put(param.getKey(), value);
+            values.put(param.getKey(), String.valueOf(value));
+        }
+        Matcher matcher = PLACEHOLDER.matcher(spec.url());
+        StringBuilder url = new StringBuilder();
+        while (matcher.find()) {
+            String value = values.get(matcher.group(1));
+            matcher.appendReplacement(url, Matcher.quoteReplacement(value == null ? matcher.group() : encode(value)));
+        }
+        matcher.appendTail(url);
+        URI uri = URI.create(url.toString());
+        // Every parameter goes into the key, not just those in the URL: the
+        // operator also sends the others, so they can change the response.
+        StringBuilder key = new StringBuilder(spec.method()).append(' ').append(uri);
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            key.append(' ').append(value.getKey()).append('=').append(encode(value.getValue()));
+        }
+        for (String name : operatorVariables) {
+            key.append(' ').append(name).append('=').append(variables.get(name));
+        }
+        return new ResolvedRequest(key.toString(), uri, arguments, values);
+    }
+
+    /**
+     * Parameter values are literals, {@code $field.path} references, or
+     * {@code $$name.path} references to a pipeline variable, where
+     * {@code $$ROOT} and {@code $$CURRENT} are the payload.
+     */
+    private static Object evaluate(Map<String, Object> payload, Map<String, Object> variables, Object expression) {
+        if (!(expression instanceof String text) || !text.startsWith("$")) {
+            return expression;
+        }
+        Object current = payload;
+        String path = text.substring(1);
+        if (path.startsWith("$")) {
+            int dot = path.indexOf('.');
+            String name = dot < 0 ? path.substring(1) : path.substring(1, dot);
+            if (!DOCUMENT_VARIABLES.contains(name)) {
+                if (!variables.containsKey(name)) {
+                    throw new IllegalArgumentException("$httpCall parameter reads undefined variable '$$" + name + "'");
+                }
+                current = variables.get(name);
+            }
+            if (dot < 0) {
+                return current;
+            }
+            path = path.substring(dot + 1);
+        }
+        for (String segment : path.split("\\.")) {
+            if (!(current instanceof Map<?, ?> map)) {
+                return null;
+            }
+            current = map.get(segment);
+        }
+        return current;
+    }
+
+    private static void collectVariables(Object expression, Set<String> names) {
+        if (expression instanceof String text && text.startsWith("$$")) {
+            int dot = text.indexOf('.');
+            String name = dot < 0 ? text.substring(2) : text.substring(2, dot);
+            if (!DOCUMENT_VARIABLES.contains(name)) {
+                names.add(name);
+            }
+        } else if (expression instanceof Map<?, ?> map) {
+            map.values().forEach(value -> collectVariables(value, names));
+        } else if (expression instanceof List<?> list) {
+            list.forEach(value -> collectVariables(value, names));
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    /**
+     * @param key       identifies identical requests for coalescing and caching
+     * @param arguments parameter values handed to the operator
+     * @param values    the same values as text, for bulk ids
+     */
+    private record ResolvedRequest(String key, URI uri, Map<String, Object> arguments, Map<String, String> values) {
+    }
+}
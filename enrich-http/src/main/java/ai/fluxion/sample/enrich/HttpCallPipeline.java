@@ -0,0 +1,164 @@
+package ai.fluxion.sample.enrich;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs a pipeline written against the {@code $httpCall} operator, resolving
+ * its calls a batch at a time through {@link HttpCallEnricher} rather than
+ * one document at a time inside the engine. Pipelines keep their usual shape:
+ * an {@code $addFields} or {@code $set} field whose whole value is
+ * {@code {"$httpCall": {...}}} is answered by an enricher created for that
+ * field, so its coalescing, cache, bulk and concurrency settings apply; every
+ * other stage, and {@code $httpCall} nested inside a larger expression, runs
+ * on the executor as before.
+ *
+ * <p>Compile a pipeline once and reuse it, so the enrichers' caches survive
+ * across batches.
+ */
+public final class HttpCallPipeline {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<List<Map<String, Object>>> STAGES = new TypeReference<>() {
+    };
+    private static final Set<String> ADD_FIELDS = Set.of("$addFields", "$set");
+
+    private final PipelineExecutor executor;
+    private final List<Step> steps;
+
+    private HttpCallPipeline(PipelineExecutor executor, List<Step> steps) {
+        this.executor = executor;
+        this.steps = List.copyOf(steps);
+    }
+
+    public static HttpCallPipeline compile(PipelineExecutor executor, String pipelineJson) {
+        List<Map<String, Object>> stages;
+        try {
+            stages = MAPPER.readValue(pipelineJson, STAGES);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid pipeline JSON", e);
+        }
+        return compile(executor, stages);
+    }
+
+    public static HttpCallPipeline compile(PipelineExecutor executor, List<Map<String, Object>> stages) {
+        List<Step> steps = new ArrayList<>();
+        List<Stage> pending = new ArrayList<>();
+        for (Map<String, Object> stage : stages) {
+            if (stage.size() != 1) {
+                throw new IllegalArgumentException("A stage must contain exactly one operator but got " + stage.keySet());
+            }
+            Map.Entry<String, Object> entry = stage.entrySet().iterator().next();
+            Map<String, Object> calls = ADD_FIELDS.contains(entry.getKey()) && entry.getValue() instanceof Map<?, ?> fields
+                    ? httpCalls(fields) : Map.of();
+            if (calls.isEmpty()) {
+                pending.add(new Stage(stage));
+                continue;
+            }
+            if (!pending.isEmpty()) {
+                steps.add(new EngineStages(List.copyOf(pending)));
+                pending.clear();
+            }
+            Map<String, Object> remaining = new LinkedHashMap<>(asMap(entry.getValue()));
+            remaining.keySet().removeAll(calls.keySet());
+            // The calls run before the stage's other fields, so no field of the
+            // stage may read what a call writes: in one stage they would all
+            // see the document as it entered.
+            for (Map.Entry<String, Object> field : remaining.entrySet()) {
+                requireIndependent(field.getKey(), field.getValue(), calls.keySet());
+            }
+            for (Map.Entry<String, Object> call : calls.entrySet()) {
+                Map<String, Object> httpCall = asMap(asMap(call.getValue()).get("$httpCall"));
+                requireIndependent(call.getKey(), httpCall.get("params"), calls.keySet());
+                steps.add(new HttpCallField(call.getKey(), HttpCallEnricher.of(executor, httpCall)));
+            }
+            if (!remaining.isEmpty()) {
+                pending.add(new Stage(Map.of(entry.getKey(), remaining)));
+            }
+        }
+        if (!pending.isEmpty()) {
+            steps.add(new EngineStages(List.copyOf(pending)));
+        }
+        return new HttpCallPipeline(executor, steps);
+    }
+
+    /**
+     * Runs the pipeline over {@code input}. {@code variables} reach every
+     * stage, including the {@code $httpCall} fields the enrichers answer.
+     */
+    public List<Document> execute(List<Document> input, Map<String, Object> variables) {
+        List<Document> documents = input;
+        for (Step step : steps) {
+            if (step instanceof EngineStages engine) {
+                documents = executor.execute(new ArrayList<>(documents), engine.stages(), variables);
+            } else if (step instanceof HttpCallField call) {
+                documents = call.enricher().enrich(documents.stream().map(Document::getData).toList(), call.field(),
+                        variables);
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Fields of an {@code $addFields} specification whose value is exactly one
+     * {@code $httpCall}. Dotted field names are left to the engine, which
+     * knows how to write into nested documents.
+     */
+    private static Map<String, Object> httpCalls(Map<?, ?> fields) {
+        Map<String, Object> calls = new LinkedHashMap<>();
+        fields.forEach((name, value) -> {
+            if (value instanceof Map<?, ?> expression && expression.size() == 1
+                    && expression.get("$httpCall") instanceof Map<?, ?>
+                    && !name.toString().contains(".")) {
+                calls.put(name.toString(), value);
+            }
+        });
+        return calls;
+    }
+
+    private static void requireIndependent(String field, Object expression, Set<String> written) {
+        if (reads(expression, written)) {
+            throw new IllegalArgumentException("Field '" + field + "' reads the output of a $httpCall in the same "
+                    + "stage; move it to a later stage");
+        }
+    }
+
+    private static boolean reads(Object expression, Set<String> fields) {
+        if (expression instanceof String text && text.startsWith("$") && !text.startsWith("$$")) {
+            String path = text.substring(1);
+            int dot = path.indexOf('.');
+            return fields.contains(dot < 0 ? path : path.substring(0, dot));
+        }
+        if (expression instanceof Map<?, ?> map) {
+            return map.values().stream().anyMatch(value -> reads(value, fields));
+        }
+        if (expression instanceof List<?> list) {
+            return list.stream().anyMatch(value -> reads(value, fields));
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    private sealed interface Step permits EngineStages, HttpCallField {
+    }
+
+    private record EngineStages(List<Stage> stages) implements Step {
+    }
+
+    private record HttpCallField(String field, HttpCallEnricher enricher) implements Step {
+    }
+}
@@ -0,0 +1,92 @@
+package ai.fluxion.sample.enrich;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parsed form of a {@code $httpCall} specification. The keys the operator
+ * understands ({@code url}, {@code method}, {@code params}, {@code headers},
+ * timeouts and its resilience settings) are passed to the operator unchanged,
+ * which sends every request. On top of them the enricher accepts:
+ * <ul>
+ *   <li>{@code cache}: {@code {"ttlMs": 60000, "maxEntries": 10000}} to reuse responses;</li>
+ *   <li>{@code bulk}: {@code {"url": ".../customers?ids={customerId}", "param": "customerId",
+ *   "idField": "customerId", "maxBatchSize": 100}} to fetch distinct parameter values in one request;</li>
+ *   <li>{@code maxConcurrency} and {@code maxConcurrencyPerHost} to resolve a batch's requests
+ *   concurrently on virtual threads.</li>
+ * </ul>
+ */
+record HttpCallSpec(String url,
+                    String method,
+                    Map<String, Object> params,
+                    Map<String, Object> operatorSpec,
+                    CacheSpec cache,
+                    BulkSpec bulk,
+                    int maxConcurrency,
+                    int maxConcurrencyPerHost) {
+
+    /** Keys only the enricher reads; they are not passed to the operator. */
+    private static final Set<String> ENRICHER_KEYS = Set.of("cache", "bulk", "maxConcurrency", "maxConcurrencyPerHost");
+
+    record CacheSpec(Duration ttl, int maxEntries) {
+    }
+
+    record BulkSpec(String url, String param, String idField, int maxBatchSize) {
+    }
+
+    static HttpCallSpec from(Map<String, Object> spec) {
+        String url = requiredString(spec, "url");
+        String method = String.valueOf(spec.getOrDefault("method", "GET")).toUpperCase();
+        Map<String, Object> params = new LinkedHashMap<>(map(spec.get("params"), "params"));
+        Map<String, Object> operatorSpec = new LinkedHashMap<>(spec);
+        operatorSpec.keySet().removeAll(ENRICHER_KEYS);
+
+        CacheSpec cache = null;
+        if (spec.get("cache") != null) {
+            Map<String, Object> cacheSpec = map(spec.get("cache"), "cache");
+            cache = new CacheSpec(Duration.ofMillis(number(cacheSpec.get("ttlMs"), 60_000)),
+                    (int) number(cacheSpec.get("maxEntries"), 10_000));
+        }
+
+        BulkSpec bulk = null;
+        if (spec.get("bulk") != null) {
+            Map<String, Object> bulkSpec = map(spec.get("bulk"), "bulk");
+            String param = requiredString(bulkSpec, "param");
+            if (!params.containsKey(param) || params.size() != 1) {
+                throw new IllegalArgumentException("bulk mode requires '" + param + "' to be the only request parameter");
+            }
+            bulk = new BulkSpec(requiredString(bulkSpec, "url"), param,
+                    String.valueOf(bulkSpec.getOrDefault("idField", param)),
+                    (int) number(bulkSpec.get("maxBatchSize"), 100));
+        }
+        int maxConcurrency = (int) Math.max(1, number(spec.get("maxConcurrency"), 1));
+        int maxConcurrencyPerHost = (int) Math.max(1, number(spec.get("maxConcurrencyPerHost"), maxConcurrency));
+        return new HttpCallSpec(url, method, Collections.unmodifiableMap(params),
+                Collections.unmodifiableMap(operatorSpec), cache, bulk, maxConcurrency, maxConcurrencyPerHost);
+    }
+    private static String requiredString(Map<String, Object> spec, String key) {
+        Object value = spec.get(key);
+        if (!(value instanceof String text) || text.isBlank()) {
+            throw new IllegalArgumentException("$httpCall requires a '" + key + "' string");
+        }
+        return text;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> map(Object value, String key) {
+        if (value == null) {
+            return Map.of();
+        }
+        if (!(value instanceof Map<?, ?>)) {
+            throw new IllegalArgumentException("$httpCall '" + key + "' must be an object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    private static long number(Object value, long fallback) {
+        return value instanceof Number number ? number.longValue() : fallback;
+    }
+}
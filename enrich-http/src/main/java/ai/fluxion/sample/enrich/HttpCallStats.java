@@ -0,0 +1,57 @@
+package ai.fluxion.sample.enrich;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters describing how one {@link HttpCallEnricher} resolved requests.
+ */
+public final class HttpCallStats {
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder bulkRequests = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    void recordRequest() {
+        requests.increment();
+    }
+
+    void recordBulkRequest() {
+        bulkRequests.increment();
+    }
+
+    void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    void recordCacheMiss() {
+        cacheMisses.increment();
+    }
+
+    void recordCoalesced(int count) {
+        coalesced.add(count);
+    }
+
+    void reset() {
+        requests.reset();
+        bulkRequests.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        coalesced.reset();
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(requests.sum(), bulkRequests.sum(), cacheHits.sum(), cacheMisses.sum(), coalesced.sum());
+    }
+
+    /**
+     * @param requests     requests handed to the operator, including bulk requests
+     * @param bulkRequests requests that fetched several parameter values at once
+     * @param cacheHits    distinct requests answered from the response cache
+     * @param cacheMisses  distinct requests not found in the response cache
+     * @param coalesced    document lookups served by an identical request already in flight
+     */
+    public record Snapshot(long requests, long bulkRequests, long cacheHits, long cacheMisses, long coalesced) {
+    }
+}
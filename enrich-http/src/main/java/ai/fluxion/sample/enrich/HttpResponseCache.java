@@ -0,0 +1,53 @@
+package ai.fluxion.sample.enrich;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Size-bounded LRU cache of decoded HTTP responses with a fixed time-to-live.
+ * Expired entries are dropped when they are next read.
+ */
+final class HttpResponseCache {
+
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+
+    HttpResponseCache(Duration ttl, int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached response, which may itself be {@code null}, or empty
+     * when nothing fresh is cached for the key.
+     */
+    synchronized Optional<Entry> get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (System.nanoTime() - entry.storedAt() > ttlNanos) {
+            entries.remove(key);
+            return Optional.empty();
+        }
+        return Optional.of(entry);
+    }
+
+    synchronized void put(String key, Object response) {
+        entries.put(key, new Entry(response, System.nanoTime()));
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    record Entry(Object response, long storedAt) {
+    }
+}
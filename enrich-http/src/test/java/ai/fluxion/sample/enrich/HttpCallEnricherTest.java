@@ -0,0 +1,309 @@
+package ai.fluxion.sample.enrich;
+
+import ai.fluxion.core.model.Document;
+import ai.fluxion.enrich.evaluator.operators.linked.services.HttpCallOperator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Shows how {@link HttpCallEnricher} collapses a batch of per-document
+ * {@code $httpCall} lookups into far fewer round trips, counting requests on
+ * MockWebServer. The requests themselves are sent by the operator, whose
+ * resilience state is reset between tests.
+ */
+class HttpCallEnricherTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private MockWebServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        HttpCallOperator.resetResilience();
+        server = new MockWebServer();
+        server.setDispatcher(new CustomerDispatcher());
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void coalescesDuplicateRequestsAndServesRepeatsFromCache() throws Exception {
+        HttpCallEnricher enricher = HttpCallEnricher.of(Map.of(
+                "url", server.url("/").toString() + "api/customers/{customerId}",
+                "method", "GET",
+                "params", Map.of("customerId", "$customerId"),
+                "cache", Map.of("ttlMs", 60_000, "maxEntries", 100)
+        ));
+        List<Map<String, Object>> orders = orders(10, "C-1", "C-2", "C-3");
+
+        List<Document> first = enricher.enrich(orders, "profile");
+        assertEquals(3, server.getRequestCount());
+        assertEquals("C-2", profile(first.get(1)).get("customerId"));
+
+        enricher.enrich(orders, "profile");
+        assertEquals(3, server.getRequestCount());
+
+        HttpCallStats.Snapshot stats = enricher.stats().snapshot();
+        assertEquals(3, stats.requests());
+        assertEquals(3, stats.cacheMisses());
+        assertEquals(3, stats.cacheHits());
+        assertEquals(14, stats.coalesced());
+    }
+
+    @Test
+    void keepsRequestsApartThatDifferOnlyInAParameterOutsideTheUrl() throws Exception {
+        HttpCallEnricher enricher = HttpCallEnricher.of(Map.of(
+                "url", server.url("/").toString() + "api/customers/{customerId}",
+                "params", Map.of("customerId", "$customerId", "region", "$region"),
+                "cache", Map.of("ttlMs", 60_000, "maxEntries", 100)
+        ));
+        List<Map<String, Object>> orders = List.of(
+                Map.of("orderId", "O-0", "customerId", "C-1", "region", "eu"),
+                Map.of("orderId", "O-1", "customerId", "C-1", "region", "us"),
+                Map.of("orderId", "O-2", "customerId", "C-1", "region", "eu"));
+
+        enricher.enrich(orders, "profile");
+        enricher.enrich(orders.subList(1, 2), "profile");
+
+        assertEquals(2, server.getRequestCount());
+        HttpCallStats.Snapshot stats = enricher.stats().snapshot();
+        assertEquals(1, stats.coalesced());
+        assertEquals(1, stats.cacheHits());
+    }
+
+    @Test
+    void bulkModeFetchesDistinctCustomersInOneRequest() throws Exception {
+        String baseUrl = server.url("/").toString();
+        HttpCallEnricher enricher = HttpCallEnricher.of(Map.of(
+                "url", baseUrl + "api/customers/{customerId}",
+                "params", Map.of("customerId", "$customerId"),
+                "bulk", Map.of("url", baseUrl + "api/customers?ids={customerId}", "param", "customerId")
+        ));
+        List<Document> enriched = enricher.enrich(orders(10, "C-1", "C-2", "C-3"), "profile");
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals("/api/customers?ids=C-1,C-2,C-3", path(server.takeRequest()));
+
+        assertEquals(10, enriched.size());
+        for (Document result : enriched) {
+            assertEquals(result.get("customerId"), profile(result).get("customerId"));
+            assertEquals("GOLD", profile(result).get("tier"));
+        }
+    }
+
+    @Test
+    void doesNotCacheIdsMissingFromABulkResponse() throws Exception {
+        String baseUrl = server.url("/").toString();
+        HttpCallEnricher enricher = HttpCallEnricher.of(Map.of(
+                "url", baseUrl + "api/customers/{customerId}",
+                "params", Map.of("customerId", "$customerId"),
+                "cache", Map.of("ttlMs", 60_000, "maxEntries", 100),
+                "bulk", Map.of("url", baseUrl + "api/customers?ids={customerId}", "param", "customerId")
+        ));
+
+        List<Document> first = enricher.enrich(orders(2, "C-1", "UNKNOWN-1"), "profile");
+        assertEquals("C-1", profile(first.get(0)).get("customerId"));
+        assertNull(first.get(1).get("profile"));
+
+        enricher.enrich(orders(2, "C-1", "UNKNOWN-1"), "profile");
+        assertEquals(2, server.getRequestCount());
+        server.takeRequest();
+        assertEquals("/api/customers?ids=UNKNOWN-1", path(server.takeRequest()));
+    }
+
+    @Test
+    void skipsPayloadsWithoutTheParameterValue() throws Exception {
+        HttpCallEnricher enricher = HttpCallEnricher.of(Map.of(
+                "url", server.url("/").toString() + "api/customers/{customerId}",
+                "params", Map.of("customerId", "$customerId")
+        ));
+        Map<String, Object> nullCustomer = new HashMap<>();
+        nullCustomer.put("orderId", "O-2");
+        nullCustomer.put("customerId", null);
+        List<Map<String, Object>> orders = List.of(
+                Map.of("orderId", "O-0", "customerId", "C-1"),
+                Map.of("orderId", "O-1"),
+                nullCustomer);
+
+        List<Document> enriched = enricher.enrich(orders, "profile");
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals("/api/customers/C-1", path(server.takeRequest()));
+        assertEquals("C-1", profile(enriched.get(0)).get("customerId"));
+        assertNull(enriched.get(1).get("profile"));
+        assertNull(enriched.get(2).get("profile"));
+    }
+
+    @Test
+    void resolvesDelayedCallsConcurrentlyInInputOrder() throws Exception {
+        server.setDispatcher(new CustomerDispatcher(Duration.ofMillis(200)));
+        HttpCallEnricher enricher = HttpCallEnricher.of(Map.of(
+                "url", server.url("/").toString() + "api/customers/{customerId}",
+                "params", Map.of("customerId", "$customerId"),
+                "connectTimeoutMs", 1000,
+                "readTimeoutMs", 2000,
+                "maxConcurrency", 100
+        ));
+        String[] customerIds = new String[100];
+        for (int i = 0; i < customerIds.length; i++) {
+            customerIds[i] = "C-" + i;
+        }
+
+        long started = System.nanoTime();
+        List<Document> enriched = enricher.enrich(orders(100, customerIds), "profile");
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        assertEquals(100, server.getRequestCount());
+        for (int i = 0; i < enriched.size(); i++) {
+            assertEquals("C-" + i, profile(enriched.get(i)).get("customerId"));
+        }
+        // All 100 calls overlap, so the batch takes about one 200 ms call;
+        // with only four at a time it would already take 25 x 200 ms = 5 s.
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(1)) < 0, "took " + elapsed);
+    }
+
+    @Test
+    void stopsWaitingForPermitsWhenInterrupted() throws Exception {
+        server.setDispatcher(new CustomerDispatcher(Duration.ofSeconds(1)));
+        HttpCallEnricher enricher = HttpCallEnricher.of(Map.of(
+                "url", server.url("/").toString() + "api/customers/{customerId}",
+                "params", Map.of("customerId", "$customerId"),
+                "readTimeoutMs", 5000,
+                "maxConcurrency", 2
+        ));
+        String[] customerIds = new String[20];
+        for (int i = 0; i < customerIds.length; i++) {
+            customerIds[i] = "C-" + i;
+        }
+        List<Map<String, Object>> orders = orders(20, customerIds);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread caller = Thread.ofVirtual().start(() -> {
+            try {
+                enricher.enrich(orders, "profile");
+            } catch (RuntimeException e) {
+                failure.set(e);
+            }
+        });
+        Thread.sleep(200);
+        long interrupted = System.nanoTime();
+        caller.interrupt();
+        caller.join(Duration.ofSeconds(10));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - interrupted);
+
+        assertFalse(caller.isAlive());
+        assertInstanceOf(IllegalStateException.class, failure.get());
+        // Waiting out every permit would take 10 x 1 s; only the two calls in flight finish.
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(5)) < 0, "took " + elapsed);
+        assertTrue(server.getRequestCount() <= 4, server.getRequestCount() + " requests");
+    }
+
+    @Test
+    void resetResilienceClearsTheStats() throws Exception {
+        HttpCallEnricher enricher = HttpCallEnricher.of(Map.of(
+                "url", server.url("/").toString() + "api/customers/{customerId}",
+                "params", Map.of("customerId", "$customerId")
+        ));
+        enricher.enrich(orders(4, "C-1", "C-2"), "profile");
+        assertEquals(2, enricher.stats().snapshot().requests());
+
+        enricher.resetResilience();
+
+        assertEquals(new HttpCallStats.Snapshot(0, 0, 0, 0, 0), enricher.stats().snapshot());
+    }
+
+    private static List<Map<String, Object>> orders(int count, String... customerIds) throws IOException {
+        List<Map<String, Object>> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String json = """
+                    {"orderId": "O-%d", "customerId": "%s"}
+                    """.formatted(i, customerIds[i % customerIds.length]);
+            orders.add(MAPPER.readValue(json, new TypeReference<Map<String, Object>>() {
+            }));
+        }
+        return orders;
+    }
+
+    /** The request path with escapes such as an encoded comma decoded. */
+    private static String path(RecordedRequest request) {
+        return URLDecoder.decode(request.getPath(), StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> profile(Document document) {
+        return (Map<String, Object>) document.get("profile");
+    }
+
+    private static final class CustomerDispatcher extends Dispatcher {
+
+        private final Duration delay;
+
+        CustomerDispatcher() {
+            this(Duration.ZERO);
+        }
+
+        CustomerDispatcher(Duration delay) {
+            this.delay = delay;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            String path = path(request);
+            String body;
+            if (path.startsWith("/api/customers?ids=")) {
+                List<String> ids = Arrays.asList(path.substring("/api/customers?ids=".length()).split(","));
+                body = ids.stream().map(CustomerDispatcher::customer).filter(Objects::nonNull).toList().toString();
+            } else if (path.startsWith("/api/customers/")) {
+                body = customer(path.substring("/api/customers/".length()));
+                if (body == null) {
+                    return new MockResponse().setResponseCode(404);
+                }
+            } else {
+                return new MockResponse().setResponseCode(404);
+            }
+            return new MockResponse()
+                    .setHeader("Content-Type", "application/json")
+                    .setHeadersDelay(delay.toMillis(), TimeUnit.MILLISECONDS)
+                    .setBody(body);
+        }
+
+        /** Ids starting with {@code UNKNOWN} do not exist. */
+        private static String customer(String id) {
+            if (id.startsWith("UNKNOWN")) {
+                return null;
+            }
+            return """
+                    {"customerId":"%s","tier":"GOLD"}""".formatted(id);
+        }
+    }
+}
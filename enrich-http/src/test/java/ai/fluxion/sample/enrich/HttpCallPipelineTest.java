@@ -0,0 +1,130 @@
+package ai.fluxion.sample.enrich;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.util.DocumentParser;
+import ai.fluxion.enrich.evaluator.operators.linked.services.HttpCallOperator;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs {@code $httpCall} pipelines through {@link HttpCallPipeline}: calls are
+ * answered a batch at a time, and parameters may read pipeline variables as
+ * {@code $$name} just as they would inside the engine.
+ */
+class HttpCallPipelineTest {
+
+    private MockWebServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        HttpCallOperator.resetResilience();
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String[] segments = request.getPath().split("/");
+                return new MockResponse()
+                        .setHeader("Content-Type", "application/json")
+                        .setBody("""
+                                {"tenant":"%s","customerId":"%s","tier":"GOLD"}
+                                """.formatted(segments[2], segments[segments.length - 1]));
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void hydratesDocumentsSharingACustomerWithOneRequest() {
+        HttpCallPipeline pipeline = HttpCallPipeline.compile(new PipelineExecutor(), """
+                [
+                  {"$addFields": {
+                      "profile": {"$httpCall": {
+                          "url": "%sapi/default/customers/{customerId}",
+                          "method": "GET",
+                          "params": {"customerId": "$customerId"}
+                      }}
+                  }},
+                  {"$project": {"_id": 0, "customerId": 1, "status": 1, "profile": 1}}
+                ]
+                """.formatted(server.url("/")));
+
+        List<Document> results = pipeline.execute(orders(), Map.of("traceId", "sample"));
+
+        assertEquals(2, results.size());
+        assertEquals(1, server.getRequestCount());
+        assertEquals("ACTIVE", results.get(1).get("status"));
+        assertEquals("GOLD", profile(results.get(1)).get("tier"));
+    }
+
+    @Test
+    void resolvesParametersFromPipelineVariables() throws InterruptedException {
+        HttpCallPipeline pipeline = HttpCallPipeline.compile(new PipelineExecutor(), """
+                [
+                  {"$addFields": {
+                      "profile": {"$httpCall": {
+                          "url": "%sapi/{tenant}/customers/{customerId}",
+                          "params": {"tenant": "$$context.tenant", "customerId": "$$ROOT.customerId"}
+                      }}
+                  }}
+                ]
+                """.formatted(server.url("/")));
+
+        List<Document> results = pipeline.execute(orders(), Map.of("context", Map.of("tenant", "acme")));
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals("/api/acme/customers/C-1", server.takeRequest().getPath());
+        assertEquals("acme", profile(results.get(0)).get("tenant"));
+
+        pipeline.execute(orders(), Map.of("context", Map.of("tenant", "globex")));
+        assertEquals("/api/globex/customers/C-1", server.takeRequest().getPath());
+    }
+
+    @Test
+    void rejectsParametersReadingAnUndefinedVariable() {
+        HttpCallPipeline pipeline = HttpCallPipeline.compile(new PipelineExecutor(), """
+                [
+                  {"$addFields": {
+                      "profile": {"$httpCall": {
+                          "url": "%sapi/{tenant}/customers/{customerId}",
+                          "params": {"tenant": "$$tenant", "customerId": "$customerId"}
+                      }}
+                  }}
+                ]
+                """.formatted(server.url("/")));
+
+        assertThrows(IllegalArgumentException.class, () -> pipeline.execute(orders(), Map.of()));
+        assertEquals(0, server.getRequestCount());
+    }
+
+    private static List<Document> orders() {
+        return DocumentParser.getDocumentsFromJsonArray("""
+                [
+                  {"customerId": "C-1", "status": "ACTIVE"},
+                  {"customerId": "C-1", "status": "ACTIVE"}
+                ]
+                """);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> profile(Document document) {
+        return (Map<String, Object>) document.get("profile");
+    }
+}
@@ -0,0 +1,67 @@
+package ai.fluxion.sample.benchmarks;
+
+import ai.fluxion.core.model.Document;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic input generator shared by the benchmark suites. Documents carry
+ * the fields read by the sample pipelines and rule sets, padded with
+ * {@code width} extra attributes to model wider production payloads.
+ */
+final class BenchmarkDocuments {
+
+    private static final String[] STATUSES = {"PAID", "PAID", "PENDING", "REFUNDED"};
+    private static final String[] CUSTOMER_STATUSES = {"new", "active", "active", "dormant"};
+
+    private BenchmarkDocuments() {
+    }
+
+    static List<Map<String, Object>> payloads(int count, int width) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<Map<String, Object>> payloads = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> customer = new LinkedHashMap<>();
+            customer.put("status", CUSTOMER_STATUSES[random.nextInt(CUSTOMER_STATUSES.length)]);
+            customer.put("flags", random.nextInt(20) == 0 ? List.of("fraud_watch") : List.of());
+
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("orderId", "A-" + i);
+            payload.put("status", STATUSES[random.nextInt(STATUSES.length)]);
+            payload.put("tenant", "tenant-" + random.nextInt(8));
+            payload.put("total", Math.round(random.nextDouble(5.0, 2500.0) * 100.0) / 100.0);
+            payload.put("customer", customer);
+            payload.put("refundAmount", random.nextInt(1000));
+            payload.put("daysSincePurchase", random.nextInt(90));
+            payload.put("lifetimeSpend", random.nextInt(10_000));
+            payload.put("ordersInLast90Days", random.nextInt(10));
+            payload.put("lastPurchaseDaysAgo", random.nextInt(365));
+            payload.put("emailOptIn", random.nextBoolean());
+            for (int field = 0; field < width; field++) {
+                payload.put("attr" + field, "value-" + random.nextInt(1_000));
+            }
+            payloads.add(payload);
+        }
+        return payloads;
+    }
+
+    static List<Document> documents(int count, int width) {
+        return payloads(count, width).stream().map(Document::new).toList();
+    }
+
+    static String resource(String path) throws IOException {
+        try (InputStream inputStream = BenchmarkDocuments.class.getResourceAsStream(path)) {
+            if (inputStream == null) {
+                throw new IOException("Missing resource: " + path);
+            }
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
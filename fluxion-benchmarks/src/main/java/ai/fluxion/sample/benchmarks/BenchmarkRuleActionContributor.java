@@ -0,0 +1,21 @@
+package ai.fluxion.sample.benchmarks;
+
+import ai.fluxion.rules.domain.RuleAction;
+import ai.fluxion.rules.spi.RuleActionContributor;
+
+import java.util.Map;
+
+/**
+ * Registers the actions referenced by the sample rule sets so they load
+ * outside the rules starter sample application.
+ */
+public final class BenchmarkRuleActionContributor implements RuleActionContributor {
+
+    @Override
+    public Map<String, RuleAction> ruleActions() {
+        return Map.of(
+                "flag-order", context -> context.putAttribute("flagged", true),
+                "flag-return", context -> context.putAttribute("returnFlagged", true)
+        );
+    }
+}
@@ -0,0 +1,86 @@
+package ai.fluxion.sample.benchmarks;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.sample.core.columnar.ColumnarExecutor;
+import ai.fluxion.sample.core.plan.CompiledPipeline;
+import ai.fluxion.sample.core.plan.PipelineCompiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the map-backed executor with {@link ColumnarExecutor} on the same
+ * compiled pipeline: the core quickstart's projection pipeline and a
+ * per-tenant revenue {@code $group}. Run with {@code -prof gc} to compare
+ * allocation per operation; the columnar figure includes transposing the
+ * fields the stages read and rebuilding the output maps.
+ * {@code documentWidth} adds fields no stage reads, which the columnar path
+ * should not pay for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColumnarBenchmark {
+
+    private static final String GROUP_PIPELINE = """
+            [
+              {"$match": {"status": {"$in": ["PAID", "REFUNDED"]}}},
+              {"$group": {
+                "_id": "$tenant",
+                "orders": {"$sum": 1},
+                "revenue": {"$sum": "$total"},
+                "avgRefund": {"$avg": "$refundAmount"},
+                "maxSpend": {"$max": "$lifetimeSpend"}
+              }}
+            ]
+            """;
+
+    @Param({"1000", "100000"})
+    public int documentCount;
+
+    @Param({"4", "32"})
+    public int documentWidth;
+
+    @Param({"orders", "group"})
+    public String pipeline;
+
+    private CompiledPipeline compiled;
+    private ColumnarExecutor columnar;
+    private List<Document> input;
+
+    @Setup
+    public void setUp() throws Exception {
+        String json = "orders".equals(pipeline)
+                ? BenchmarkDocuments.resource("/pipelines/orders.json")
+                : GROUP_PIPELINE;
+        compiled = new PipelineCompiler(new PipelineExecutor()).compile(json);
+        columnar = new ColumnarExecutor(compiled);
+        input = BenchmarkDocuments.documents(documentCount, documentWidth);
+    }
+
+    @Benchmark
+    public List<Document> mapBacked() {
+        return compiled.execute(input, Map.of("tenantId", "bench"));
+    }
+
+    @Benchmark
+    public List<Document> columnar() {
+        return columnar.execute(input, Map.of("tenantId", "bench"));
+    }
+}
@@ -0,0 +1,111 @@
+package ai.fluxion.sample.benchmarks;
+
+import ai.fluxion.core.engine.streaming.StreamingContext;
+import ai.fluxion.core.engine.streaming.StreamingErrorPolicy;
+import ai.fluxion.core.engine.streaming.StreamingPipelineExecutor;
+import ai.fluxion.core.engine.streaming.StreamingRuntimeConfig;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.core.util.DocumentParser;
+import ai.fluxion.sample.streaming.telemetry.InstrumentedStreamingRunner;
+import ai.fluxion.sample.streaming.telemetry.PipelineTelemetry;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what {@link InstrumentedStreamingRunner} adds on top of
+ * {@link StreamingPipelineExecutor#processStream} for the streaming
+ * quickstart pipeline. {@code executor} calls the executor directly,
+ * {@code disabled} goes through the runner with
+ * {@link PipelineTelemetry#disabled()}, which should cost nothing since the
+ * runner then makes the same single call, and {@code enabled} records into an
+ * SDK meter with no reader attached. All three run the same single
+ * {@code processStream} call, so {@code enabled} against {@code executor} is
+ * the cost of the source and sink wrappers alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstrumentedStreamingBenchmark {
+
+    private static final String STAGES = """
+            [
+              {"$match": {"status": "PAID"}},
+              {"$group": {
+                  "_id": "$status",
+                  "count": {"$sum": 1},
+                  "totalRevenue": {"$sum": "$total"}
+              }}
+            ]
+            """;
+
+    @Param({"executor", "disabled", "enabled"})
+    public String mode;
+
+    @Param({"100000"})
+    public int documentCount;
+
+    @Param({"16", "256"})
+    public int microBatchSize;
+
+    private StreamingPipelineExecutor executor;
+    private InstrumentedStreamingRunner runner;
+    private Map<String, Object> variables;
+    private SdkMeterProvider meterProvider;
+    private List<Stage> stages;
+    private List<Document> events;
+
+    @Setup
+    public void setUp() {
+        StreamingRuntimeConfig config = StreamingRuntimeConfig.builder()
+                .microBatchSize(microBatchSize)
+                .queueCapacity(Math.max(64, microBatchSize * 4))
+                .sourceQueueCapacity(16)
+                .directHandoff(true)
+                .build();
+        executor = new StreamingPipelineExecutor(microBatchSize, config, StreamingErrorPolicy.failFast());
+        meterProvider = SdkMeterProvider.builder().build();
+        PipelineTelemetry telemetry = mode.equals("enabled")
+                ? PipelineTelemetry.create(meterProvider.get("bench"), "bench-stream")
+                : PipelineTelemetry.disabled();
+        runner = new InstrumentedStreamingRunner(microBatchSize, config, StreamingErrorPolicy.failFast(), telemetry);
+        variables = Map.of("tenantId", "bench");
+        stages = DocumentParser.getStagesFromJsonArray(STAGES);
+        events = BenchmarkDocuments.documents(documentCount, 4);
+    }
+
+    @TearDown
+    public void tearDown() {
+        runner.telemetry().close();
+        meterProvider.close();
+    }
+
+    @Benchmark
+    public void processStream(Blackhole blackhole) {
+        if (mode.equals("executor")) {
+            StreamingContext context = new StreamingContext(null, variables, "bench-stream");
+            executor.processStream(events, stages, blackhole::consume, context);
+        } else {
+            runner.processStream(events, stages, blackhole::consume, variables, "bench-stream");
+        }
+    }
+}
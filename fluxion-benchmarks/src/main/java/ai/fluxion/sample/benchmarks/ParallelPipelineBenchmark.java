@@ -0,0 +1,91 @@
+package ai.fluxion.sample.benchmarks;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.sample.core.parallel.ParallelConfig;
+import ai.fluxion.sample.core.plan.CompiledPipeline;
+import ai.fluxion.sample.core.plan.PipelineCompiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link CompiledPipeline#execute} on the calling thread with
+ * {@link CompiledPipeline#executeParallel} on a pool of {@code parallelism}
+ * workers, over the core quickstart's projection pipeline and a per-tenant
+ * {@code $group} whose accumulators combine from per-chunk partials.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ParallelPipelineBenchmark {
+
+    private static final String GROUP_PIPELINE = """
+            [
+              {"$match": {"status": {"$in": ["PAID", "REFUNDED"]}}},
+              {"$group": {
+                "_id": "$tenant",
+                "orders": {"$sum": 1},
+                "revenue": {"$sum": "$total"},
+                "maxSpend": {"$max": "$lifetimeSpend"}
+              }}
+            ]
+            """;
+
+    @Param({"2000000"})
+    public int documentCount;
+
+    @Param({"1", "4", "16"})
+    public int parallelism;
+
+    @Param({"orders", "group"})
+    public String pipeline;
+
+    private CompiledPipeline compiled;
+    private ForkJoinPool pool;
+    private ParallelConfig config;
+    private List<Document> input;
+
+    @Setup
+    public void setUp() throws Exception {
+        String json = "orders".equals(pipeline)
+                ? BenchmarkDocuments.resource("/pipelines/orders.json")
+                : GROUP_PIPELINE;
+        compiled = new PipelineCompiler(new PipelineExecutor()).compile(json);
+        pool = new ForkJoinPool(parallelism);
+        config = ParallelConfig.builder().pool(pool).build();
+        input = BenchmarkDocuments.documents(documentCount, 4);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<Document> sequential() {
+        return compiled.execute(input, Map.of("tenantId", "bench"));
+    }
+
+    @Benchmark
+    public List<Document> parallel() {
+        return compiled.executeParallel(input, Map.of("tenantId", "bench"), config);
+    }
+}
@@ -0,0 +1,56 @@
+package ai.fluxion.sample.benchmarks;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.core.util.DocumentParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link PipelineExecutor#execute} over the core quickstart's
+ * {@code $match}/{@code $addFields}/{@code $project} pipeline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineExecutorBenchmark {
+
+    @Param({"1000", "100000"})
+    public int documentCount;
+
+    @Param({"4", "32"})
+    public int documentWidth;
+
+    private PipelineExecutor executor;
+    private List<Stage> stages;
+    private List<Document> input;
+
+    @Setup
+    public void setUp() throws Exception {
+        executor = new PipelineExecutor();
+        stages = DocumentParser.getStagesFromJsonArray(BenchmarkDocuments.resource("/pipelines/orders.json"));
+        input = BenchmarkDocuments.documents(documentCount, documentWidth);
+    }
+
+    @Benchmark
+    public List<Document> execute() {
+        return executor.execute(input, stages, Map.of("tenantId", "bench"));
+    }
+}
@@ -0,0 +1,81 @@
+package ai.fluxion.sample.benchmarks;
+
+import ai.fluxion.core.model.Document;
+import ai.fluxion.rules.spring.boot.RuleEvaluationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link RuleEvaluationService#evaluate} over the three rule sets
+ * shipped with the rules starter sample. The service is obtained from a
+ * non-web Spring context so it is wired exactly as the starter wires it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RuleEvaluationBenchmark {
+
+    @Param({"orders", "customers", "returns"})
+    public String ruleSetId;
+
+    @Param({"1000", "10000"})
+    public int documentCount;
+
+    @Param({"4", "32"})
+    public int documentWidth;
+
+    private ConfigurableApplicationContext applicationContext;
+    private RuleEvaluationService ruleEvaluationService;
+    private List<Document> documents;
+
+    @Setup
+    public void setUp() {
+        applicationContext = new SpringApplicationBuilder(RulesConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .properties("fluxion.rules.locations=classpath:rules/*.json",
+                        "fluxion.rules.evaluation-service-enabled=true",
+                        "spring.main.banner-mode=off")
+                .run();
+        ruleEvaluationService = applicationContext.getBean(RuleEvaluationService.class);
+        documents = BenchmarkDocuments.documents(documentCount, documentWidth);
+    }
+
+    @TearDown
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public void evaluate(Blackhole blackhole) {
+        for (Document document : documents) {
+            blackhole.consume(ruleEvaluationService.evaluate(document, ruleSetId));
+        }
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    static class RulesConfiguration {
+    }
+}
@@ -0,0 +1,86 @@
+package ai.fluxion.sample.benchmarks;
+
+import ai.fluxion.core.engine.streaming.StreamingContext;
+import ai.fluxion.core.engine.streaming.StreamingErrorPolicy;
+import ai.fluxion.core.engine.streaming.StreamingPipelineExecutor;
+import ai.fluxion.core.engine.streaming.StreamingRuntimeConfig;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.core.util.DocumentParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link StreamingPipelineExecutor#processStream} over the
+ * {@code $match} + {@code $group} pipeline from the streaming quickstart,
+ * using the in-memory iterable source.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamingPipelineBenchmark {
+
+    private static final String STAGES = """
+            [
+              {"$match": {"status": "PAID"}},
+              {"$group": {
+                  "_id": "$status",
+                  "count": {"$sum": 1},
+                  "totalRevenue": {"$sum": "$total"}
+              }}
+            ]
+            """;
+
+    @Param({"1000", "100000"})
+    public int documentCount;
+
+    @Param({"4", "32"})
+    public int documentWidth;
+
+    @Param({"16", "256"})
+    public int microBatchSize;
+
+    @Param({"1", "4"})
+    public int workerThreadPoolSize;
+
+    private StreamingPipelineExecutor executor;
+    private List<Stage> stages;
+    private List<Document> events;
+
+    @Setup
+    public void setUp() {
+        StreamingRuntimeConfig config = StreamingRuntimeConfig.builder()
+                .microBatchSize(microBatchSize)
+                .queueCapacity(Math.max(64, microBatchSize * 4))
+                .sourceQueueCapacity(16)
+                .directHandoff(workerThreadPoolSize == 1)
+                .workerThreadPoolSize(workerThreadPoolSize)
+                .build();
+        executor = new StreamingPipelineExecutor(microBatchSize, config, StreamingErrorPolicy.failFast());
+        stages = DocumentParser.getStagesFromJsonArray(STAGES);
+        events = BenchmarkDocuments.documents(documentCount, documentWidth);
+    }
+
+    @Benchmark
+    public void processStream(Blackhole blackhole) {
+        StreamingContext context = new StreamingContext(null, Map.of("tenantId", "bench"), "bench-stream");
+        executor.processStream(events, stages, blackhole::consume, context);
+    }
+}
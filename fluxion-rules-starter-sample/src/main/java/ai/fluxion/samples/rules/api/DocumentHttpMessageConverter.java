@@ -0,0 +1,119 @@
+package ai.fluxion.samples.rules.api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ai.fluxion.core.model.Document;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads a JSON request body directly into a Fluxion {@link Document}. The
+ * body is walked token by token into the map the document wraps, so there is
+ * no data-binding pass over a generic {@code Map} and no second wrapping step
+ * in the controller. Numbers are typed as Jackson types untyped values:
+ * {@code Integer}, {@code Long} or {@code BigInteger} for integers and
+ * {@code Double} for decimals. Spring Boot registers the converter ahead of
+ * the Jackson one because it is a bean.
+ *
+ * <p>With {@code sample.rules.api.direct-decoding=false} the body is bound to
+ * a {@code Map} by the {@link ObjectMapper} and then wrapped, as requests
+ * were decoded before this converter existed, so the two can be compared
+ * under load.
+ */
+@Component
+public class DocumentHttpMessageConverter extends AbstractHttpMessageConverter<Document> {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+    private final boolean directDecoding;
+
+    public DocumentHttpMessageConverter(ObjectMapper objectMapper,
+                                        @Value("${sample.rules.api.direct-decoding:true}") boolean directDecoding) {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+        this.directDecoding = directDecoding;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Document.class == clazz;
+    }
+
+    @Override
+    protected boolean canWrite(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Document readInternal(Class<? extends Document> clazz, HttpInputMessage inputMessage)
+            throws IOException {
+        if (!directDecoding) {
+            return new Document(objectMapper.readValue(inputMessage.getBody(), MAP_TYPE));
+        }
+        try (JsonParser parser = jsonFactory.createParser(inputMessage.getBody())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new HttpMessageNotReadableException("Expected a JSON object", inputMessage);
+            }
+            Map<String, Object> data = readObject(parser);
+            if (parser.nextToken() != null) {
+                throw new HttpMessageNotReadableException("Unexpected content after the JSON object", inputMessage);
+            }
+            return new Document(data);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Document document, HttpOutputMessage outputMessage) {
+        throw new HttpMessageNotWritableException("Documents are only read by this converter");
+    }
+
+    private static Map<String, Object> readObject(JsonParser parser) throws IOException {
+        Map<String, Object> object = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            object.put(name, readValue(parser, parser.nextToken()));
+        }
+        return object;
+    }
+
+    private static List<Object> readArray(JsonParser parser) throws IOException {
+        List<Object> array = new ArrayList<>();
+        for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            array.add(readValue(parser, token));
+        }
+        return array;
+    }
+
+    private static Object readValue(JsonParser parser, JsonToken token) throws IOException {
+        return switch (token) {
+            case START_OBJECT -> readObject(parser);
+            case START_ARRAY -> readArray(parser);
+            case VALUE_STRING -> parser.getText();
+            case VALUE_NUMBER_INT -> parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            case VALUE_NULL -> null;
+            default -> throw new IOException("Unexpected JSON token " + token);
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package ai.fluxion.samples.rules.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import ai.fluxion.samples.rules.api.RuleEvaluationController.EvaluationResponse;
+import ai.fluxion.samples.rules.evaluation.RuleEvaluator;
+import ai.fluxion.samples.rules.evaluation.RuleMatch;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evaluates a stream of payloads against one rule set in a single pass. Input
+ * is read incrementally so a bulk backfill never has to be buffered in full,
+ * and each result is written as one NDJSON line in input order. The rule set
+ * is resolved once per request and payloads go through its compiled network
+ * when there is one (see {@link RuleEvaluator#batch(String)}).
+ */
+@Component
+public class RuleBatchEvaluator {
+
+    private static final int FLUSH_INTERVAL = 64;
+
+    private final RuleEvaluator ruleEvaluator;
+    private final ObjectReader payloadReader;
+    private final ObjectWriter responseWriter;
+
+    public RuleBatchEvaluator(RuleEvaluator ruleEvaluator, ObjectMapper objectMapper) {
+        this.ruleEvaluator = ruleEvaluator;
+        this.payloadReader = objectMapper.readerFor(LinkedHashMap.class);
+        this.responseWriter = objectMapper.writerFor(EvaluationResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Reads either a JSON array or whitespace-separated (NDJSON) objects from
+     * {@code input} and writes one {@link EvaluationResponse} line per payload.
+     *
+     * @return number of payloads evaluated
+     */
+    public long evaluate(String ruleSetId, InputStream input, OutputStream output) throws IOException {
+        long count = 0;
+        Function<Map<String, Object>, List<RuleMatch>> evaluation = ruleEvaluator.batch(ruleSetId);
+        // MappingIterator unwraps a root-level array, so both request shapes
+        // are consumed element by element without materializing the body.
+        try (MappingIterator<Map<String, Object>> payloads = payloadReader.readValues(input);
+             JsonGenerator generator = responseWriter.createGenerator(output)) {
+            generator.setRootValueSeparator(null);
+            while (payloads.hasNextValue()) {
+                Map<String, Object> payload = payloads.nextValue();
+                EvaluationResponse response = EvaluationResponse.from(ruleSetId, evaluation.apply(payload));
+                responseWriter.writeValue(generator, response);
+                generator.writeRaw('\n');
+                if (++count % FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+            generator.flush();
+        }
+        return count;
+    }
+}
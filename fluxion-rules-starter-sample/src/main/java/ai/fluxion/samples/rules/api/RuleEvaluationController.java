@@ -1,48 +1,92 @@
 package ai.fluxion.samples.rules.api;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
 import ai.fluxion.core.model.Document;
-import ai.fluxion.rules.engine.RuleEvaluationResult;
-import ai.fluxion.rules.engine.RulePass;
 import ai.fluxion.rules.spring.boot.RuleEvaluationService;
+import ai.fluxion.samples.rules.evaluation.RuleEvaluator;
+import ai.fluxion.samples.rules.evaluation.RuleMatch;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Simple REST controller exposing the auto-configured {@link RuleEvaluationService}
- * so the sample can execute rule sets over HTTP payloads.
+ * so the sample can execute rule sets over HTTP payloads. Requests go through
+ * {@link RuleEvaluator}, which can also serve compiled rule sets. Single
+ * payloads are decoded straight into a {@link Document} by
+ * {@link DocumentHttpMessageConverter}.
  */
 @RestController
 @RequestMapping("/rules")
 public class RuleEvaluationController {
 
-    private final RuleEvaluationService ruleEvaluationService;
+    private final RuleEvaluator ruleEvaluator;
+    private final RuleBatchEvaluator batchEvaluator;
 
-    public RuleEvaluationController(RuleEvaluationService ruleEvaluationService) {
-        this.ruleEvaluationService = ruleEvaluationService;
+    public RuleEvaluationController(RuleEvaluator ruleEvaluator, RuleBatchEvaluator batchEvaluator) {
+        this.ruleEvaluator = ruleEvaluator;
+        this.batchEvaluator = batchEvaluator;
     }
 
     @PostMapping("{ruleSetId}/evaluate")
     @ResponseStatus(HttpStatus.OK)
     public EvaluationResponse evaluate(@PathVariable String ruleSetId,
-                                       @RequestBody Map<String, Object> payload) {
-        RuleEvaluationResult result = ruleEvaluationService.evaluate(new Document(payload), ruleSetId);
-        List<RulePass> passes = result.passes();
-        return new EvaluationResponse(ruleSetId, passes.stream().map(pass ->
-                new RulePassSummary(pass.rule().id(), pass.rule().name(), pass.rule().salience(),
-                        pass.context().attributes())).toList());
+                                       @RequestBody Document payload) {
+        return EvaluationResponse.from(ruleSetId, ruleEvaluator.evaluate(ruleSetId, payload));
+    }
+
+    /**
+     * Same evaluation with {@code ?view=ids}: only the ids of passing rules
+     * are returned, so no per-rule summaries or attribute maps are built or
+     * serialized.
+     */
+    @PostMapping(value = "{ruleSetId}/evaluate", params = "view=ids")
+    @ResponseStatus(HttpStatus.OK)
+    public RuleIdsResponse evaluateIds(@PathVariable String ruleSetId,
+                                       @RequestBody Document payload) {
+        return new RuleIdsResponse(ruleSetId,
+                ruleEvaluator.evaluate(ruleSetId, payload).stream().map(RuleMatch::id).toList());
+    }
+
+    /**
+     * Evaluates a JSON array or NDJSON stream of payloads and streams one
+     * {@link EvaluationResponse} per line back in input order.
+     */
+    @PostMapping(value = "{ruleSetId}/evaluate:batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> evaluateBatch(@PathVariable String ruleSetId,
+                                                               HttpServletRequest request) throws IOException {
+        InputStream body = request.getInputStream();
+        StreamingResponseBody stream = output -> batchEvaluator.evaluate(ruleSetId, body, output);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(stream);
     }
 
     public record EvaluationResponse(String ruleSetId, List<RulePassSummary> passes) {
+
+        static EvaluationResponse from(String ruleSetId, List<RuleMatch> matches) {
+            return new EvaluationResponse(ruleSetId, matches.stream().map(match ->
+                    new RulePassSummary(match.id(), match.name(), match.salience(), match.attributes())).toList());
+        }
     }
 
     public record RulePassSummary(String id, String name, int salience, Map<String, Object> attributes) {
     }
+
+    public record RuleIdsResponse(String ruleSetId, List<String> passes) {
+    }
 }
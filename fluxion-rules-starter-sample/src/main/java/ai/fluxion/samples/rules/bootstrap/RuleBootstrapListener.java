@@ -1,19 +1,82 @@
 package ai.fluxion.samples.rules.bootstrap;
 
 import ai.fluxion.rules.spring.boot.RuleSetsLoadedEvent;
+import ai.fluxion.samples.rules.evaluation.CompiledRuleSet;
+import ai.fluxion.samples.rules.evaluation.CompiledRuleSetRegistry;
+import ai.fluxion.samples.rules.evaluation.LoadedRuleSet;
+import ai.fluxion.samples.rules.evaluation.RuleActions;
+import ai.fluxion.samples.rules.evaluation.RuleSetCompiler;
+import ai.fluxion.samples.rules.evaluation.RuleSetDefinition;
+import ai.fluxion.samples.rules.evaluation.RuleSetLoader;
+import ai.fluxion.samples.rules.profiling.RuleProfiler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * Demonstrates reacting to {@link RuleSetsLoadedEvent} by registering runtime
  * rule actions. Applications can extend this pattern to add custom actions or
- * hooks once the starter finishes loading definitions.
+ * hooks once the starter finishes loading definitions. The sample uses the
+ * hook to put the startup version of every rule set into the
+ * {@link CompiledRuleSetRegistry}, compiled into a decision network where
+ * possible, and to start profiling it.
+ *
+ * <p>The event fires again after every hot reload. The reload has already put
+ * its version in the registry by then, so only the first event does any work;
+ * later ones leave the registry and the profiles as they are.
  */
 @Component
 public class RuleBootstrapListener {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(RuleBootstrapListener.class);
+
+    private final RuleSetLoader loader;
+    private final CompiledRuleSetRegistry registry;
+    private final RuleProfiler profiler;
+    private final RuleActions actions;
+    private final RuleSetCompiler compiler;
+    private final AtomicBoolean bootstrapped = new AtomicBoolean();
+
+    public RuleBootstrapListener(RuleSetLoader loader,
+                                 CompiledRuleSetRegistry registry,
+                                 RuleProfiler profiler,
+                                 RuleActions actions) {
+        this.loader = loader;
+        this.registry = registry;
+        this.profiler = profiler;
+        this.actions = actions;
+        this.compiler = new RuleSetCompiler(actions);
+    }
+
     @EventListener
     public void onRulesLoaded(RuleSetsLoadedEvent event) {
-        // Additional hooks could run here once rules are loaded.
+        if (!bootstrapped.compareAndSet(false, true)) {
+            LOGGER.debug("Rule sets already bootstrapped; the reload published its version to the registry");
+            return;
+        }
+        List<LoadedRuleSet> startup = new ArrayList<>();
+        for (RuleSetDefinition definition : loader.load()) {
+            CompiledRuleSet compiled = null;
+            try {
+                compiled = compiler.compile(definition);
+                LOGGER.info("Compiled rule set '{}' ({} rules, field order {})",
+                        compiled.id(), compiled.ruleCount(), compiled.fieldOrder());
+            } catch (IllegalArgumentException ex) {
+                LOGGER.info("{}; the interpreter will serve it", ex.getMessage());
+            }
+            try {
+                startup.add(new LoadedRuleSet(definition, 0, compiled, actions));
+            } catch (IllegalArgumentException ex) {
+                LOGGER.warn("{}; the starter's interpreter serves rule set '{}' unprofiled",
+                        ex.getMessage(), definition.id());
+            }
+        }
+        registry.publishStartup(startup);
+        profiler.register(startup);
     }
 }
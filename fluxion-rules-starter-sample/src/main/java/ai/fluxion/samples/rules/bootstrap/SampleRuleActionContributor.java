@@ -2,19 +2,29 @@ package ai.fluxion.samples.rules.bootstrap;
 
 import ai.fluxion.rules.domain.RuleAction;
 import ai.fluxion.rules.spi.RuleActionContributor;
+import ai.fluxion.samples.rules.profiling.ActionTimings;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
- * Registers custom rule actions required by the sample DSL payloads.
+ * Registers custom rule actions required by the sample DSL payloads. Each is
+ * wrapped by {@link ActionTimings#timed}, so the profile times it wherever it
+ * runs, including in the starter's interpreter.
  */
 public final class SampleRuleActionContributor implements RuleActionContributor {
 
+    /** Attributes each sample action writes to the rule context. */
+    private static final Map<String, Map<String, Object>> ACTION_ATTRIBUTES = Map.of(
+            "flag-order", Map.of("flagged", true),
+            "flag-return", Map.of("returnFlagged", true)
+    );
+
     @Override
     public Map<String, RuleAction> ruleActions() {
-        return Map.of(
-                "flag-order", context -> context.putAttribute("flagged", true),
-                "flag-return", context -> context.putAttribute("returnFlagged", true)
-        );
+        Map<String, RuleAction> actions = new LinkedHashMap<>();
+        ACTION_ATTRIBUTES.forEach((name, attributes) ->
+                actions.put(name, ActionTimings.timed(name, context -> attributes.forEach(context::putAttribute))));
+        return actions;
     }
 }
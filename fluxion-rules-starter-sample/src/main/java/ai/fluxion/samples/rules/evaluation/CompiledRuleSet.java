@@ -0,0 +1,157 @@
+package ai.fluxion.samples.rules.evaluation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import ai.fluxion.samples.rules.evaluation.RuleSetDefinition.RuleDefinition;
+
+/**
+ * Rule set compiled into a shared discrimination network. Each payload walks
+ * the field nodes in selectivity order, clearing rules as their tests fail,
+ * and stops as soon as no rule is left alive. Matched rules run their actions
+ * through {@link RuleActions}, as they would under the interpreter.
+ *
+ * <p>The order is measured, not guessed: one evaluation in
+ * {@value #OBSERVE_EVERY} also applies every node to the full set of rules
+ * and counts the rules each clears on its own, and about every
+ * {@value #REORDER_EVERY} evaluations the nodes are re-sorted by the rules
+ * they cleared per observation, so the fields that fail most for the traffic
+ * actually seen are tested first. The order never changes a result, since a
+ * rule passes only when all of its tests do.
+ */
+public final class CompiledRuleSet {
+
+    static final int OBSERVE_EVERY = 16;
+    static final int REORDER_EVERY = 1024;
+
+    private final RuleSetDefinition definition;
+    private volatile FieldNode[] fields;
+    private final int[] salienceOrder;
+    private final RuleActions actions;
+
+    CompiledRuleSet(RuleSetDefinition definition,
+                    FieldNode[] fields,
+                    int[] salienceOrder,
+                    RuleActions actions) {
+        this.definition = definition;
+        this.fields = fields;
+        this.salienceOrder = salienceOrder;
+        this.actions = actions;
+    }
+
+    public String id() {
+        return definition.id();
+    }
+
+    public RuleSetDefinition definition() {
+        return definition;
+    }
+
+    public int ruleCount() {
+        return definition.rules().size();
+    }
+
+    /**
+     * Field paths in the order they are currently tested.
+     */
+    public List<String> fieldOrder() {
+        FieldNode[] order = fields;
+        List<String> paths = new ArrayList<>(order.length);
+        for (FieldNode field : order) {
+            paths.add(field.path());
+        }
+        return paths;
+    }
+
+    /**
+     * Counts the rules each node clears for {@code payload} when applied to
+     * all of them, so a node's count does not depend on the nodes tested
+     * before it.
+     */
+    private void observe(Map<String, Object> payload, int ruleCount) {
+        BitSet all = new BitSet(ruleCount);
+        for (FieldNode field : fields) {
+            Object value = field.resolve(payload);
+            if (value == FieldValues.INDETERMINATE) {
+                continue;
+            }
+            all.set(0, ruleCount);
+            field.apply(value, all);
+            field.observe(ruleCount - all.cardinality());
+        }
+    }
+
+    /**
+     * Re-sorts the nodes by their {@linkplain FieldNode#eliminationRate
+     * elimination rate}. Concurrent evaluations keep the order they started
+     * with; two concurrent re-sorts publish equivalent orders.
+     */
+    void reorder() {
+        FieldNode[] order = fields.clone();
+        Arrays.sort(order, Comparator.comparingDouble(FieldNode::eliminationRate).reversed());
+        fields = order;
+    }
+
+    /**
+     * Returns the rules that pass for {@code payload} ordered by salience,
+     * with the attributes their actions wrote, or {@code null} when a tested
+     * field holds a value the network does not model and the caller should
+     * fall back to the interpreter.
+     */
+    public List<RuleMatch> evaluate(Map<String, Object> payload) {
+        List<RuleDefinition> matched = match(payload);
+        if (matched == null) {
+            return null;
+        }
+        List<RuleMatch> matches = new ArrayList<>(matched.size());
+        for (RuleDefinition rule : matched) {
+            matches.add(new RuleMatch(rule.id(), rule.name(), rule.salience(), actions.run(id(), rule.actions())));
+        }
+        return matches;
+    }
+
+    /**
+     * Like {@link #evaluate} but without running any action, for checks and
+     * warm-up that must not have side effects.
+     */
+    public List<RuleDefinition> match(Map<String, Object> payload) {
+        int ruleCount = ruleCount();
+        BitSet alive = new BitSet(ruleCount);
+        alive.set(0, ruleCount);
+        int draw = ThreadLocalRandom.current().nextInt(REORDER_EVERY);
+        if (draw % OBSERVE_EVERY == 0) {
+            observe(payload, ruleCount);
+        }
+        if (draw == 0) {
+            reorder();
+        }
+        for (FieldNode field : fields) {
+            if (alive.isEmpty()) {
+                return List.of();
+            }
+            if (!field.constrainsAny(alive)) {
+                continue;
+            }
+            Object value = field.resolve(payload);
+            if (value == FieldValues.INDETERMINATE) {
+                return null;
+            }
+            field.apply(value, alive);
+        }
+        if (alive.isEmpty()) {
+            return List.of();
+        }
+        List<RuleDefinition> matched = new ArrayList<>(alive.cardinality());
+        for (int index : salienceOrder) {
+            if (alive.get(index)) {
+                matched.add(definition.rules().get(index));
+            }
+        }
+        return matched;
+    }
+}
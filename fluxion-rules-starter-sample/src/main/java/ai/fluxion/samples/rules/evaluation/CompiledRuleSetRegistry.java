@@ -0,0 +1,62 @@
+package ai.fluxion.samples.rules.evaluation;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the version of every rule set currently in service, with its stage
+ * pipeline and, when it compiled, its decision network. It is the one place
+ * the sample looks up a rule set: evaluation, profiling and the reload
+ * endpoint all read it, so a reload reaches each of them by being published
+ * here. Readers see an immutable snapshot, so evaluation never takes a lock;
+ * a reload swaps a rule set's stages and network in one atomic update and
+ * calls already holding the previous version finish on the one they started
+ * with.
+ */
+@Component
+public class CompiledRuleSetRegistry {
+
+    private final AtomicReference<Map<String, LoadedRuleSet>> ruleSets = new AtomicReference<>(Map.of());
+
+    /**
+     * Returns the version of {@code ruleSetId} in service, whose stages and
+     * network always belong together.
+     */
+    public Optional<LoadedRuleSet> find(String ruleSetId) {
+        return Optional.ofNullable(ruleSets.get().get(ruleSetId));
+    }
+
+    public Map<String, LoadedRuleSet> snapshot() {
+        return ruleSets.get();
+    }
+
+    /**
+     * Publishes the rule sets the starter loaded at startup. Rule sets already
+     * reloaded keep the version the reload put in service.
+     */
+    public void publishStartup(Collection<LoadedRuleSet> startup) {
+        ruleSets.updateAndGet(current -> {
+            Map<String, LoadedRuleSet> next = new HashMap<>(current);
+            startup.forEach(ruleSet -> next.putIfAbsent(ruleSet.id(), ruleSet));
+            return Map.copyOf(next);
+        });
+    }
+
+    /**
+     * Puts {@code ruleSet} in service in place of any earlier version with the
+     * same id. Its stages and its network replace the previous ones together;
+     * when it did not compile, the previous network is dropped with them.
+     */
+    public void publish(LoadedRuleSet ruleSet) {
+        ruleSets.updateAndGet(current -> {
+            Map<String, LoadedRuleSet> next = new HashMap<>(current);
+            next.put(ruleSet.id(), ruleSet);
+            return Map.copyOf(next);
+        });
+    }
+}
@@ -0,0 +1,287 @@
+package ai.fluxion.samples.rules.evaluation;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * One level of the decision network: every test any rule places on a single
+ * field path. The field is resolved once per payload and all tests are applied
+ * together, so cost depends on the number of distinct fields rather than rules.
+ * Equality tests share a hash index and range tests share sorted bound arrays
+ * with precomputed prefix sets, turning N threshold checks into a binary search.
+ *
+ * <p>A node also counts, over the evaluations it is {@linkplain #observe
+ * observed} in, how many rules its tests clear out of all of them;
+ * {@link CompiledRuleSet} tests the nodes that clear the most first. Until a node has been observed
+ * {@value #MIN_OBSERVATIONS} times its {@linkplain #estimatedEliminations
+ * static estimate} stands in.
+ */
+final class FieldNode {
+
+    private static final Pattern PATH_SEPARATOR = Pattern.compile("\\.");
+    static final int MIN_OBSERVATIONS = 64;
+
+    private final String path;
+    private final String[] segments;
+    private final BitSet constrained;
+    private final double estimatedEliminations;
+    private final boolean ordersStrings;
+    private final LongAdder observations = new LongAdder();
+    private final LongAdder eliminations = new LongAdder();
+
+    private final BitSet eqRules;
+    private final Map<Object, BitSet> eqIndex;
+
+    private final double[] lowerBounds;
+    private final boolean[] lowerInclusive;
+    private final BitSet[] lowerPrefix;
+
+    private final double[] upperBounds;
+    private final boolean[] upperInclusive;
+    private final BitSet[] upperPrefix;
+
+    private final int[] genericRules;
+    private final MatchTest[] genericTests;
+
+    private FieldNode(Builder builder) {
+        this.path = builder.path;
+        this.segments = PATH_SEPARATOR.split(builder.path);
+        this.constrained = builder.constrained;
+        this.estimatedEliminations = builder.estimatedEliminations;
+        this.ordersStrings = builder.ordersStrings;
+        this.eqRules = builder.eqRules;
+        this.eqIndex = builder.eqIndex;
+
+        List<Bound> lower = new ArrayList<>(builder.lower);
+        lower.sort(Comparator.comparingDouble(Bound::value).thenComparing(Bound::inclusive, Comparator.reverseOrder()));
+        this.lowerBounds = lower.stream().mapToDouble(Bound::value).toArray();
+        this.lowerInclusive = inclusiveFlags(lower);
+        this.lowerPrefix = prefixSets(lower);
+
+        List<Bound> upper = new ArrayList<>(builder.upper);
+        upper.sort(Comparator.comparingDouble(Bound::value).reversed()
+                .thenComparing(Bound::inclusive, Comparator.reverseOrder()));
+        this.upperBounds = upper.stream().mapToDouble(Bound::value).toArray();
+        this.upperInclusive = inclusiveFlags(upper);
+        this.upperPrefix = prefixSets(upper);
+
+        this.genericRules = builder.genericRules.stream().mapToInt(Integer::intValue).toArray();
+        this.genericTests = builder.genericTests.toArray(MatchTest[]::new);
+    }
+
+    String path() {
+        return path;
+    }
+
+    /**
+     * Rules expected to be cleared per test of this node, from fixed guesses
+     * per operator; only used until the node has been observed.
+     */
+    double estimatedEliminations() {
+        return estimatedEliminations;
+    }
+
+    /** Rules cleared per observed test of this node, or the static estimate while too few were observed. */
+    double eliminationRate() {
+        long observed = observations.sum();
+        return observed < MIN_OBSERVATIONS ? estimatedEliminations : (double) eliminations.sum() / observed;
+    }
+
+    /** Records that one test of this node, against every rule, cleared {@code cleared} of them. */
+    void observe(int cleared) {
+        observations.increment();
+        eliminations.add(cleared);
+    }
+
+    boolean constrainsAny(BitSet alive) {
+        return constrained.intersects(alive);
+    }
+
+    /**
+     * Resolves the field, or returns {@link FieldValues#INDETERMINATE} when
+     * the network cannot decide its value, including strings with surrogate
+     * pairs when the node orders strings.
+     */
+    Object resolve(Map<String, Object> payload) {
+        Object value = FieldValues.resolve(payload, segments);
+        if (ordersStrings && FieldValues.hasSurrogates(value)) {
+            return FieldValues.INDETERMINATE;
+        }
+        return value;
+    }
+
+    /**
+     * Clears every rule in {@code alive} whose test on this field fails for
+     * {@code value}. The value must already be resolved and determinate.
+     */
+    void apply(Object value, BitSet alive) {
+        if (!eqRules.isEmpty()) {
+            BitSet failed = (BitSet) eqRules.clone();
+            if (value instanceof List<?> list) {
+                for (Object element : list) {
+                    clearMatched(failed, element);
+                }
+            } else {
+                clearMatched(failed, value);
+            }
+            alive.andNot(failed);
+        }
+        if (lowerBounds.length > 0) {
+            int satisfied = satisfiedPrefix(value, lowerBounds, lowerInclusive, 1);
+            BitSet failed = (BitSet) lowerPrefix[lowerBounds.length].clone();
+            failed.andNot(lowerPrefix[satisfied]);
+            alive.andNot(failed);
+        }
+        if (upperBounds.length > 0) {
+            int satisfied = satisfiedPrefix(value, upperBounds, upperInclusive, -1);
+            BitSet failed = (BitSet) upperPrefix[upperBounds.length].clone();
+            failed.andNot(upperPrefix[satisfied]);
+            alive.andNot(failed);
+        }
+        for (int i = 0; i < genericRules.length; i++) {
+            int rule = genericRules[i];
+            if (alive.get(rule) && !genericTests[i].matches(value)) {
+                alive.clear(rule);
+            }
+        }
+    }
+
+    private void clearMatched(BitSet failed, Object scalar) {
+        Object key = FieldValues.indexKey(scalar);
+        BitSet matched = key == null ? null : eqIndex.get(key);
+        if (matched != null) {
+            failed.andNot(matched);
+        }
+    }
+
+    /**
+     * Number of leading bounds satisfied by the value. Bounds are ordered so
+     * that the satisfied ones always form a prefix; for arrays the best element
+     * wins.
+     */
+    private static int satisfiedPrefix(Object value, double[] bounds, boolean[] inclusive, int sign) {
+        if (value instanceof List<?> list) {
+            int best = 0;
+            for (Object element : list) {
+                best = Math.max(best, satisfiedPrefix(element, bounds, inclusive, sign));
+            }
+            return best;
+        }
+        if (!(value instanceof Number number)) {
+            return 0;
+        }
+        // Adding zero turns -0.0 into 0.0, so the two compare equal.
+        double x = number.doubleValue() + 0.0;
+        int low = 0;
+        int high = bounds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int comparison = Double.compare(x, bounds[mid]) * sign;
+            boolean satisfied = comparison > 0 || (comparison == 0 && inclusive[mid]);
+            if (satisfied) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean[] inclusiveFlags(List<Bound> bounds) {
+        boolean[] flags = new boolean[bounds.size()];
+        for (int i = 0; i < flags.length; i++) {
+            flags[i] = bounds.get(i).inclusive();
+        }
+        return flags;
+    }
+
+    private static BitSet[] prefixSets(List<Bound> bounds) {
+        BitSet[] prefix = new BitSet[bounds.size() + 1];
+        prefix[0] = new BitSet();
+        for (int i = 0; i < bounds.size(); i++) {
+            prefix[i + 1] = (BitSet) prefix[i].clone();
+            prefix[i + 1].set(bounds.get(i).rule());
+        }
+        return prefix;
+    }
+
+    static Builder builder(String path) {
+        return new Builder(path);
+    }
+
+    /**
+     * Predicate used for tests that do not fit the equality index or the bound
+     * arrays, such as {@code $in}, {@code $ne} or string ranges.
+     */
+    @FunctionalInterface
+    interface MatchTest {
+        boolean matches(Object value);
+    }
+
+    private record Bound(int rule, double value, boolean inclusive) {
+    }
+
+    static final class Builder {
+
+        private final String path;
+        private final BitSet constrained = new BitSet();
+        private final BitSet eqRules = new BitSet();
+        private final Map<Object, BitSet> eqIndex = new HashMap<>();
+        private final List<Bound> lower = new ArrayList<>();
+        private final BitSet lowerRules = new BitSet();
+        private final List<Bound> upper = new ArrayList<>();
+        private final BitSet upperRules = new BitSet();
+        private final List<Integer> genericRules = new ArrayList<>();
+        private final List<MatchTest> genericTests = new ArrayList<>();
+        private double estimatedEliminations;
+        private boolean ordersStrings;
+
+        private Builder(String path) {
+            this.path = path;
+        }
+
+        Builder equalTo(int rule, Object literal) {
+            Object key = FieldValues.indexKey(literal);
+            if (key == null || eqRules.get(rule)) {
+                return generic(rule, value -> FieldValues.equalsLiteral(value, literal), 0.9);
+            }
+            constrained.set(rule);
+            eqRules.set(rule);
+            eqIndex.computeIfAbsent(key, ignored -> new BitSet()).set(rule);
+            estimatedEliminations += 0.9;
+            return this;
+        }
+
+        Builder range(int rule, Object bound, int sign, boolean inclusive) {
+            BitSet ruleSet = sign > 0 ? lowerRules : upperRules;
+            ordersStrings |= bound instanceof String;
+            if (!(bound instanceof Number) || ruleSet.get(rule)) {
+                return generic(rule, value -> FieldValues.satisfiesRange(value, bound, sign, inclusive), 0.5);
+            }
+            constrained.set(rule);
+            ruleSet.set(rule);
+            Bound entry = new Bound(rule, ((Number) bound).doubleValue() + 0.0, inclusive);
+            (sign > 0 ? lower : upper).add(entry);
+            estimatedEliminations += 0.5;
+            return this;
+        }
+
+        Builder generic(int rule, MatchTest test, double eliminationEstimate) {
+            constrained.set(rule);
+            genericRules.add(rule);
+            genericTests.add(test);
+            estimatedEliminations += eliminationEstimate;
+            return this;
+        }
+
+        FieldNode build() {
+            return new FieldNode(this);
+        }
+    }
+}
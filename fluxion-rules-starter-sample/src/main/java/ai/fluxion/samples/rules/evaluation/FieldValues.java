@@ -0,0 +1,203 @@
+package ai.fluxion.samples.rules.evaluation;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Field resolution and comparison helpers shared by the compiled network. The
+ * semantics follow {@code $match}: dotted paths walk nested objects, arrays
+ * match when any element matches, values of different types never compare
+ * equal or ordered, and numbers compare by value regardless of their boxed
+ * type, {@code -0.0} equal to {@code 0.0}. The network only decides what it
+ * can decide exactly: NaN, integers beyond &plusmn;2<sup>53</sup>, which a
+ * double cannot hold, and numbers other than {@code Integer}, {@code Long},
+ * {@code Short}, {@code Byte} and {@code Double} resolve as
+ * {@link #INDETERMINATE}, so the interpreter decides them, as it does string
+ * ordering involving surrogate pairs (see {@link FieldNode}).
+ * {@code CompiledRuleSetEquivalenceTest} checks these rules against
+ * {@code PipelineExecutor} on mixed-type payloads.
+ */
+final class FieldValues {
+
+    /** Marker for a path that does not exist in the payload. */
+    static final Object MISSING = new Object();
+
+    /** Marker for a value the network does not model (nested objects, arrays of objects). */
+    static final Object INDETERMINATE = new Object();
+
+    /** Equality-index key standing in for {@code null} and missing fields. */
+    static final Object NULL_KEY = new Object();
+
+    private static final long EXACT_DOUBLE_LIMIT = 1L << 53;
+
+    private FieldValues() {
+    }
+
+    static Object resolve(Map<String, Object> payload, String[] segments) {
+        Object current = payload;
+        for (String segment : segments) {
+            if (current instanceof Map<?, ?> map) {
+                if (!map.containsKey(segment)) {
+                    return MISSING;
+                }
+                current = map.get(segment);
+            } else if (current instanceof List<?>) {
+                return INDETERMINATE;
+            } else {
+                return MISSING;
+            }
+        }
+        if (current instanceof Map<?, ?> || isInexact(current)) {
+            return INDETERMINATE;
+        }
+        if (current instanceof List<?> list) {
+            for (Object element : list) {
+                if (element instanceof Map<?, ?> || element instanceof List<?> || isInexact(element)) {
+                    return INDETERMINATE;
+                }
+            }
+        }
+        return current;
+    }
+
+    static boolean isScalarLiteral(Object literal) {
+        return literal == null || literal instanceof String || literal instanceof Boolean
+                || (literal instanceof Number && !isInexact(literal));
+    }
+
+    /** Whether a string, or any string in a list, holds a surrogate pair, which may order differently by code point. */
+    static boolean hasSurrogates(Object value) {
+        if (value instanceof List<?> list) {
+            for (Object element : list) {
+                if (hasSurrogates(element)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (value instanceof String text) {
+            for (int i = 0; i < text.length(); i++) {
+                if (Character.isSurrogate(text.charAt(i))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Numbers the network does not compare itself; see the class comment. */
+    private static boolean isInexact(Object value) {
+        if (!(value instanceof Number number)) {
+            return false;
+        }
+        if (number instanceof Double d) {
+            return d.isNaN();
+        }
+        if (isIntegral(number)) {
+            long integral = number.longValue();
+            return integral > EXACT_DOUBLE_LIMIT || integral < -EXACT_DOUBLE_LIMIT;
+        }
+        return true;
+    }
+
+    /**
+     * Key under which a scalar is stored in an equality index, or {@code null}
+     * when the value cannot be indexed (NaN and infinities).
+     */
+    static Object indexKey(Object scalar) {
+        if (scalar == null || scalar == MISSING) {
+            return NULL_KEY;
+        }
+        if (scalar instanceof Number number) {
+            if (isIntegral(number)) {
+                return BigDecimal.valueOf(number.longValue()).stripTrailingZeros();
+            }
+            double value = number.doubleValue();
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                return null;
+            }
+            return BigDecimal.valueOf(value).stripTrailingZeros();
+        }
+        return scalar;
+    }
+
+    static boolean equalsLiteral(Object value, Object literal) {
+        if (value == MISSING) {
+            return literal == null;
+        }
+        if (value instanceof List<?> list) {
+            for (Object element : list) {
+                if (scalarEquals(element, literal)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return scalarEquals(value, literal);
+    }
+
+    static boolean inLiterals(Object value, List<?> literals) {
+        for (Object literal : literals) {
+            if (equalsLiteral(value, literal)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evaluates a range operator. {@code sign} is the required sign of
+     * {@code compare(value, bound)}: positive for {@code $gt/$gte}, negative for
+     * {@code $lt/$lte}; {@code inclusive} also accepts equality.
+     */
+    static boolean satisfiesRange(Object value, Object bound, int sign, boolean inclusive) {
+        if (value instanceof List<?> list) {
+            for (Object element : list) {
+                if (scalarSatisfiesRange(element, bound, sign, inclusive)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return scalarSatisfiesRange(value, bound, sign, inclusive);
+    }
+
+    private static boolean scalarSatisfiesRange(Object value, Object bound, int sign, boolean inclusive) {
+        int comparison;
+        if (value instanceof Number number && bound instanceof Number limit) {
+            comparison = compareNumbers(number, limit);
+        } else if (value instanceof String text && bound instanceof String limit) {
+            comparison = text.compareTo(limit);
+        } else {
+            return false;
+        }
+        return comparison == 0 ? inclusive : Integer.signum(comparison) == sign;
+    }
+
+    private static boolean scalarEquals(Object value, Object literal) {
+        if (literal == null) {
+            return value == null;
+        }
+        if (value instanceof Number number && literal instanceof Number expected) {
+            return compareNumbers(number, expected) == 0;
+        }
+        return literal.equals(value);
+    }
+
+    /** Compares two numbers that are not {@linkplain #isInexact inexact}. */
+    static int compareNumbers(Number left, Number right) {
+        if (isIntegral(left) && isIntegral(right)) {
+            return Long.compare(left.longValue(), right.longValue());
+        }
+        // Plain comparisons so -0.0 and 0.0 are equal.
+        double a = left.doubleValue();
+        double b = right.doubleValue();
+        return a < b ? -1 : (a > b ? 1 : 0);
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Integer || number instanceof Long || number instanceof Short
+                || number instanceof Byte;
+    }
+}
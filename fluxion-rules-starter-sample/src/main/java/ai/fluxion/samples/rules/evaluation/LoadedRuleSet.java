@@ -0,0 +1,186 @@
+package ai.fluxion.samples.rules.evaluation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.samples.rules.evaluation.RuleSetDefinition.RuleDefinition;
+
+/**
+ * One version of a rule set as held by {@link CompiledRuleSetRegistry}:
+ * generation {@code 0} is the version the starter loaded at startup, later
+ * generations come from reloads. It carries the compiled network when the
+ * definition compiles, and can interpret the rule set itself by running each
+ * rule's stages through {@link PipelineExecutor} in one call, a rule passing
+ * when the document survives them all. Only reloaded versions need that,
+ * since the starter's interpreter holds the startup ones.
+ * {@link #evaluate} prefers the network where it can decide. Either way the
+ * result matches the interpreter's: rules ordered by salience, with the
+ * attributes their actions write when run through {@link RuleActions}.
+ *
+ * <p>Given a {@link StageObserver}, the stage pipeline runs one stage at a
+ * time instead, with the same result, and reports how long each stage took
+ * and whether the document survived it.
+ */
+public final class LoadedRuleSet {
+
+    private static final PipelineExecutor EXECUTOR = new PipelineExecutor();
+
+    private final RuleSetDefinition definition;
+    private final long generation;
+    private final CompiledRuleSet compiled;
+    private final RuleActions actions;
+    private final List<StagedRule> rules;
+
+    /**
+     * @param compiled the compiled network for {@code definition}, or
+     *                 {@code null} when it uses operators the network does not support
+     */
+    public LoadedRuleSet(RuleSetDefinition definition,
+                         long generation,
+                         CompiledRuleSet compiled,
+                         RuleActions actions) {
+        this.definition = definition;
+        this.generation = generation;
+        this.compiled = compiled;
+        this.actions = actions;
+        List<StagedRule> staged = new ArrayList<>(definition.rules().size());
+        for (RuleDefinition rule : definition.rules()) {
+            for (String action : rule.actions()) {
+                if (!actions.contains(action)) {
+                    throw new IllegalArgumentException("Rule '" + rule.id() + "' in rule set '" + definition.id()
+                            + "' uses unknown action " + action);
+                }
+            }
+            List<Stage> stages = rule.stages().stream().map(Stage::new).toList();
+            staged.add(new StagedRule(rule, stages, stages.stream().map(List::of).toList()));
+        }
+        staged.sort(Comparator.comparingInt((StagedRule rule) -> rule.definition().salience()).reversed());
+        this.rules = List.copyOf(staged);
+    }
+
+    public String id() {
+        return definition.id();
+    }
+
+    public RuleSetDefinition definition() {
+        return definition;
+    }
+
+    /** Monotonic number of the reload that produced this rule set, {@code 0} for startup. */
+    public long generation() {
+        return generation;
+    }
+
+    /** Whether this is the version loaded at startup, which the starter's interpreter also holds. */
+    public boolean isStartup() {
+        return generation == 0;
+    }
+
+    public boolean isCompiled() {
+        return compiled != null;
+    }
+
+    /** The compiled network, or {@code null} when the definition did not compile. */
+    CompiledRuleSet compiled() {
+        return compiled;
+    }
+
+    public List<RuleMatch> evaluate(Map<String, Object> payload) {
+        if (compiled != null) {
+            List<RuleMatch> matches = compiled.evaluate(payload);
+            if (matches != null) {
+                return matches;
+            }
+        }
+        return evaluateStages(payload);
+    }
+
+    /** Evaluates through the stage pipeline only, bypassing the compiled network. */
+    public List<RuleMatch> evaluateStages(Map<String, Object> payload) {
+        return evaluateStages(payload, null);
+    }
+
+    /**
+     * Evaluates through the stage pipeline only, reporting every stage run to
+     * {@code observer} unless it is {@code null}.
+     */
+    public List<RuleMatch> evaluateStages(Map<String, Object> payload, StageObserver observer) {
+        List<RuleMatch> matches = new ArrayList<>();
+        for (RuleDefinition rule : matchStages(payload, observer)) {
+            matches.add(new RuleMatch(rule.id(), rule.name(), rule.salience(), actions.run(id(), rule.actions())));
+        }
+        return matches;
+    }
+
+    /**
+     * Rules whose stages pass for {@code payload}, ordered by salience, without
+     * running their actions.
+     */
+    public List<RuleDefinition> matchStages(Map<String, Object> payload) {
+        return matchStages(payload, null);
+    }
+
+    private List<RuleDefinition> matchStages(Map<String, Object> payload, StageObserver observer) {
+        List<RuleDefinition> matched = new ArrayList<>();
+        for (StagedRule rule : rules) {
+            List<Document> documents = new ArrayList<>(1);
+            documents.add(new Document(payload));
+            boolean passed = observer == null
+                    ? !EXECUTOR.execute(documents, rule.stages(), Map.of()).isEmpty()
+                    : passesObserved(rule, documents, observer);
+            if (passed) {
+                matched.add(rule.definition());
+            }
+        }
+        return matched;
+    }
+
+    private static boolean passesObserved(StagedRule rule, List<Document> documents, StageObserver observer) {
+        String ruleId = rule.definition().id();
+        for (int i = 0; i < rule.single().size(); i++) {
+            long started = System.nanoTime();
+            documents = EXECUTOR.execute(documents, rule.single().get(i), Map.of());
+            boolean survived = !documents.isEmpty();
+            observer.stage(ruleId, i, System.nanoTime() - started, survived);
+            if (!survived) {
+                return false;
+            }
+            documents = new ArrayList<>(documents);
+        }
+        return true;
+    }
+
+    /**
+     * Rules that pass for {@code payload} through the same path as
+     * {@link #evaluate}, without running their actions.
+     */
+    public List<RuleDefinition> match(Map<String, Object> payload) {
+        if (compiled != null) {
+            List<RuleDefinition> matched = compiled.match(payload);
+            if (matched != null) {
+                return matched;
+            }
+        }
+        return matchStages(payload);
+    }
+
+    /** Receives the stage timings of an observed evaluation. */
+    @FunctionalInterface
+    public interface StageObserver {
+
+        /**
+         * Stage {@code index} of rule {@code ruleId} ran for {@code nanos} and
+         * the document did or did not survive it.
+         */
+        void stage(String ruleId, int index, long nanos, boolean passed);
+    }
+
+    /** {@code single} holds each stage on its own, for observed evaluations. */
+    private record StagedRule(RuleDefinition definition, List<Stage> stages, List<List<Stage>> single) {
+    }
+}
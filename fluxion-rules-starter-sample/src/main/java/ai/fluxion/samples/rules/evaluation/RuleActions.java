@@ -0,0 +1,81 @@
+package ai.fluxion.samples.rules.evaluation;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+import ai.fluxion.rules.domain.RuleAction;
+import ai.fluxion.rules.domain.RuleContext;
+import ai.fluxion.rules.spi.RuleActionContributor;
+import ai.fluxion.samples.rules.profiling.ActionTimings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * The rule actions registered through {@link RuleActionContributor}, discovered
+ * with {@code ServiceLoader} the same way the starter discovers them. The
+ * compiled network and reloaded rule sets run a matched rule's actions here
+ * rather than replaying their effects, so side effects are the same whichever
+ * path evaluated the rule. Every action is wrapped by
+ * {@link ActionTimings#timed} and timed against the rule set it runs for.
+ */
+@Component
+public class RuleActions {
+
+    private final Map<String, RuleAction> actions;
+    private final ActionTimings timings;
+
+    @Autowired
+    public RuleActions(ActionTimings timings) {
+        this(discover(), timings);
+    }
+
+    private RuleActions(Map<String, RuleAction> actions, ActionTimings timings) {
+        Map<String, RuleAction> timed = new LinkedHashMap<>();
+        actions.forEach((name, action) -> timed.put(name, ActionTimings.timed(name, action)));
+        this.actions = Map.copyOf(timed);
+        this.timings = timings;
+    }
+
+    /** Uses {@code actions} instead of the contributors on the class path. */
+    public static RuleActions of(Map<String, RuleAction> actions) {
+        return of(actions, new ActionTimings());
+    }
+
+    public static RuleActions of(Map<String, RuleAction> actions, ActionTimings timings) {
+        return new RuleActions(actions, timings);
+    }
+
+    public boolean contains(String name) {
+        return actions.containsKey(name);
+    }
+
+    /**
+     * Executes {@code names} in order on a fresh {@link RuleContext}, as the
+     * interpreter does for each passing rule of {@code ruleSetId}, and returns
+     * the attributes they wrote. Timing costs two clock reads and two adder
+     * increments per action.
+     */
+    public Map<String, Object> run(String ruleSetId, List<String> names) {
+        return timings.attribute(ruleSetId, () -> {
+            RuleContext context = new RuleContext();
+            for (String name : names) {
+                RuleAction action = actions.get(name);
+                if (action == null) {
+                    throw new IllegalStateException("Unknown rule action " + name);
+                }
+                action.execute(context);
+            }
+            return new LinkedHashMap<>(context.attributes());
+        });
+    }
+
+    private static Map<String, RuleAction> discover() {
+        Map<String, RuleAction> discovered = new LinkedHashMap<>();
+        for (RuleActionContributor contributor : ServiceLoader.load(RuleActionContributor.class)) {
+            discovered.putAll(contributor.ruleActions());
+        }
+        return discovered;
+    }
+}
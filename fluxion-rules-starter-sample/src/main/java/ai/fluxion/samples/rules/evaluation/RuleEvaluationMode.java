@@ -0,0 +1,19 @@
+package ai.fluxion.samples.rules.evaluation;
+
+/**
+ * Selects how {@link RuleEvaluator} executes rule sets.
+ */
+public enum RuleEvaluationMode {
+
+    /** Delegate every payload to the starter's {@code RuleEvaluationService}. */
+    INTERPRETER,
+
+    /** Use the compiled decision network, falling back to the interpreter when it cannot decide. */
+    COMPILED,
+
+    /**
+     * Serve interpreter results but also match through the compiled network,
+     * without running actions, and log any disagreement.
+     */
+    SHADOW
+}
@@ -0,0 +1,163 @@
+package ai.fluxion.samples.rules.evaluation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import ai.fluxion.core.model.Document;
+import ai.fluxion.rules.spring.boot.RuleEvaluationService;
+import ai.fluxion.samples.rules.evaluation.LoadedRuleSet.StageObserver;
+import ai.fluxion.samples.rules.evaluation.RuleSetDefinition.RuleDefinition;
+import ai.fluxion.samples.rules.profiling.RuleProfiler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Entry point used by the REST layer. Depending on
+ * {@code sample.rules.evaluation-mode} it interprets the rule set, walks the
+ * compiled decision network, or runs both and reports any disagreement.
+ * Every evaluation resolves the rule set in {@link CompiledRuleSetRegistry}
+ * first and uses that one {@link LoadedRuleSet} throughout, so a reload never
+ * mixes versions within an evaluation. Interpreting the startup version goes
+ * to the starter's {@link RuleEvaluationService}, which holds that version;
+ * a version reloaded since startup is interpreted by its own stage pipeline,
+ * since it may come from the watched directory, which the starter does not
+ * read. Batches are the exception to the mode: they go through the compiled
+ * network whenever there is one (see {@link #batch(String)}). Every
+ * evaluation is reported to the {@link RuleProfiler} with the version that
+ * served it. A sampled evaluation that would be interpreted runs on the
+ * version's own stage pipeline one stage at a time, so the profile times the
+ * stages of the evaluation that is served; its result is the interpreter's
+ * either way.
+ */
+@Component
+public class RuleEvaluator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RuleEvaluator.class);
+
+    private final RuleEvaluationService ruleEvaluationService;
+    private final CompiledRuleSetRegistry registry;
+    private final RuleEvaluationMode mode;
+    private final RuleProfiler profiler;
+
+    public RuleEvaluator(RuleEvaluationService ruleEvaluationService,
+                         CompiledRuleSetRegistry registry,
+                         @Value("${sample.rules.evaluation-mode:interpreter}") RuleEvaluationMode mode,
+                         RuleProfiler profiler) {
+        this.ruleEvaluationService = ruleEvaluationService;
+        this.registry = registry;
+        this.mode = mode;
+        this.profiler = profiler;
+    }
+
+    public RuleEvaluationMode mode() {
+        return mode;
+    }
+
+    public List<RuleMatch> evaluate(String ruleSetId, Map<String, Object> payload) {
+        return evaluate(ruleSetId, new Document(payload));
+    }
+
+    /**
+     * Evaluates an already built {@link Document}, so callers that decode
+     * request bodies straight into one hand it to the interpreter as is.
+     */
+    public List<RuleMatch> evaluate(String ruleSetId, Document document) {
+        return evaluate(ruleSetId, document, registry.find(ruleSetId).orElse(null));
+    }
+
+    /**
+     * Returns the evaluation to apply to a batch of payloads for
+     * {@code ruleSetId}. The rule set is resolved once, so the whole batch
+     * runs on one version even if a reload lands part way through. When that
+     * version compiled, every payload walks the shared network whatever the
+     * mode, since a batch is where shared predicates save the most. Payloads
+     * the network cannot decide, and rule sets that did not compile, take the
+     * same path as {@link #evaluate(String, Map)}.
+     */
+    public Function<Map<String, Object>, List<RuleMatch>> batch(String ruleSetId) {
+        LoadedRuleSet ruleSet = registry.find(ruleSetId).orElse(null);
+        CompiledRuleSet network = ruleSet != null ? ruleSet.compiled() : null;
+        if (network == null) {
+            return payload -> evaluate(ruleSetId, new Document(payload), ruleSet);
+        }
+        return payload -> {
+            boolean sampled = profiler.shouldSample();
+            long started = sampled ? System.nanoTime() : 0;
+            List<RuleMatch> matches = network.evaluate(payload);
+            if (matches == null) {
+                return evaluate(ruleSetId, new Document(payload), ruleSet);
+            }
+            profiler.record(ruleSet, matches, sampled ? System.nanoTime() - started : -1);
+            return matches;
+        };
+    }
+
+    private List<RuleMatch> evaluate(String ruleSetId, Document document, LoadedRuleSet ruleSet) {
+        Map<String, Object> payload = document.getData();
+        boolean sampled = ruleSet != null && profiler.shouldSample();
+        StageObserver observer = sampled ? profiler.observer(ruleSet) : null;
+        long started = sampled ? System.nanoTime() : 0;
+        List<RuleMatch> matches = switch (mode) {
+            case INTERPRETER -> interpret(ruleSetId, document, ruleSet, observer);
+            case COMPILED -> compiled(ruleSet, payload)
+                    .orElseGet(() -> interpret(ruleSetId, document, ruleSet, observer));
+            case SHADOW -> shadow(ruleSetId, document, ruleSet, observer);
+        };
+        if (ruleSet != null) {
+            profiler.record(ruleSet, matches, sampled ? System.nanoTime() - started : -1);
+        }
+        return matches;
+    }
+
+    /**
+     * Interprets {@code document}; with an {@code observer} the version's own
+     * stage pipeline serves it, one stage at a time.
+     */
+    private List<RuleMatch> interpret(String ruleSetId, Document document, LoadedRuleSet ruleSet,
+                                      StageObserver observer) {
+        if (ruleSet != null && (observer != null || !ruleSet.isStartup())) {
+            return ruleSet.evaluateStages(document.getData(), observer);
+        }
+        // The starter runs the actions itself; they are timed where they run.
+        return profiler.attributeActions(ruleSetId, () -> ruleEvaluationService.evaluate(document, ruleSetId))
+                .passes().stream()
+                .map(pass -> new RuleMatch(pass.rule().id(), pass.rule().name(), pass.rule().salience(),
+                        pass.context().attributes()))
+                .toList();
+    }
+
+    /** Empty when the rule set has no network or the network cannot decide {@code payload}. */
+    private static Optional<List<RuleMatch>> compiled(LoadedRuleSet ruleSet, Map<String, Object> payload) {
+        if (ruleSet == null || ruleSet.compiled() == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(ruleSet.compiled().evaluate(payload));
+    }
+
+    /**
+     * Interprets {@code document} and checks the network against it. The
+     * network only matches, without running actions, so each matching rule's
+     * actions run once, in the interpretation that is served.
+     */
+    private List<RuleMatch> shadow(String ruleSetId, Document document, LoadedRuleSet ruleSet,
+                                   StageObserver observer) {
+        Map<String, Object> payload = document.getData();
+        List<RuleMatch> interpreted = interpret(ruleSetId, document, ruleSet, observer);
+        List<RuleDefinition> matched = ruleSet != null && ruleSet.compiled() != null
+                ? ruleSet.compiled().match(payload)
+                : null;
+        if (matched != null) {
+            List<String> expected = interpreted.stream().map(RuleMatch::id).toList();
+            List<String> actual = matched.stream().map(RuleDefinition::id).toList();
+            if (!expected.equals(actual)) {
+                LOGGER.warn("Compiled rule set '{}' disagrees with the interpreter: expected {} but got {} for {}",
+                        ruleSetId, expected, actual, payload);
+            }
+        }
+        return interpreted;
+    }
+}
@@ -0,0 +1,10 @@
+package ai.fluxion.samples.rules.evaluation;
+
+import java.util.Map;
+
+/**
+ * A rule that passed for one payload, independent of whether it was produced
+ * by the starter's interpreter or by a {@link CompiledRuleSet}.
+ */
+public record RuleMatch(String id, String name, int salience, Map<String, Object> attributes) {
+}
@@ -0,0 +1,149 @@
+package ai.fluxion.samples.rules.evaluation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import ai.fluxion.samples.rules.evaluation.RuleSetDefinition.RuleDefinition;
+
+/**
+ * Compiles rule definitions whose stages are plain {@code $match} filters into
+ * a {@link CompiledRuleSet}. Every {@code $match} in a rule is a conjunction,
+ * so a rule is the AND of all field tests across its stages. Definitions using
+ * operators the network cannot reproduce exactly, or actions no contributor
+ * registers, are rejected with an {@link IllegalArgumentException} and stay on
+ * the interpreter. Fields start out ordered by a fixed guess of how many rules
+ * each test clears; {@link CompiledRuleSet} replaces it with measured counts
+ * once traffic arrives.
+ */
+public final class RuleSetCompiler {
+
+    private final RuleActions actions;
+
+    /**
+     * @param actions the actions matched rules run; a rule naming any other
+     *                action is rejected
+     */
+    public RuleSetCompiler(RuleActions actions) {
+        this.actions = actions;
+    }
+
+    public CompiledRuleSet compile(RuleSetDefinition definition) {
+        Map<String, FieldNode.Builder> builders = new LinkedHashMap<>();
+        List<RuleDefinition> rules = definition.rules();
+        for (int index = 0; index < rules.size(); index++) {
+            RuleDefinition rule = rules.get(index);
+            for (Map<String, Object> stage : rule.stages()) {
+                Object match = stage.get("$match");
+                if (stage.size() != 1 || !(match instanceof Map<?, ?> filter)) {
+                    throw unsupported(definition, rule, "only $match stages can be compiled");
+                }
+                for (Map.Entry<?, ?> condition : filter.entrySet()) {
+                    String path = condition.getKey().toString();
+                    if (path.startsWith("$")) {
+                        throw unsupported(definition, rule, "top-level operator " + path);
+                    }
+                    addCondition(path, builders.computeIfAbsent(path, FieldNode::builder), index,
+                            condition.getValue(), definition, rule);
+                }
+            }
+            for (String action : rule.actions()) {
+                if (!actions.contains(action)) {
+                    throw unsupported(definition, rule, "unknown action " + action);
+                }
+            }
+        }
+
+        FieldNode[] fields = builders.values().stream()
+                .map(FieldNode.Builder::build)
+                .sorted(Comparator.comparingDouble(FieldNode::estimatedEliminations).reversed())
+                .toArray(FieldNode[]::new);
+        int[] salienceOrder = IntStream.range(0, rules.size()).boxed()
+                .sorted(Comparator.comparingInt((Integer i) -> rules.get(i).salience()).reversed())
+                .mapToInt(Integer::intValue)
+                .toArray();
+        return new CompiledRuleSet(definition, fields, salienceOrder, actions);
+    }
+
+    private void addCondition(String path, FieldNode.Builder field, int rule, Object condition,
+                              RuleSetDefinition definition, RuleDefinition ruleDefinition) {
+        if (!(condition instanceof Map<?, ?> operators)) {
+            if (!FieldValues.isScalarLiteral(condition)) {
+                throw unsupported(definition, ruleDefinition, "non-scalar equality on " + path);
+            }
+            field.equalTo(rule, condition);
+            return;
+        }
+        if (operators.isEmpty()) {
+            throw unsupported(definition, ruleDefinition, "empty document equality");
+        }
+        for (Map.Entry<?, ?> entry : operators.entrySet()) {
+            String operator = entry.getKey().toString();
+            Object operand = entry.getValue();
+            switch (operator) {
+                case "$eq" -> field.equalTo(rule, scalar(operand, definition, ruleDefinition));
+                case "$ne" -> {
+                    Object literal = scalar(operand, definition, ruleDefinition);
+                    field.generic(rule, value -> !FieldValues.equalsLiteral(value, literal), 0.1);
+                }
+                case "$gt" -> field.range(rule, bound(operand, definition, ruleDefinition), 1, false);
+                case "$gte" -> field.range(rule, bound(operand, definition, ruleDefinition), 1, true);
+                case "$lt" -> field.range(rule, bound(operand, definition, ruleDefinition), -1, false);
+                case "$lte" -> field.range(rule, bound(operand, definition, ruleDefinition), -1, true);
+                case "$in" -> {
+                    List<?> literals = scalars(operand, definition, ruleDefinition);
+                    field.generic(rule, value -> FieldValues.inLiterals(value, literals),
+                            Math.max(0.5, 1.0 - 0.1 * literals.size()));
+                }
+                case "$nin" -> {
+                    List<?> literals = scalars(operand, definition, ruleDefinition);
+                    field.generic(rule, value -> !FieldValues.inLiterals(value, literals), 0.1);
+                }
+                case "$exists" -> {
+                    if (!(operand instanceof Boolean expected)) {
+                        throw unsupported(definition, ruleDefinition, "non-boolean $exists");
+                    }
+                    field.generic(rule, value -> (value != FieldValues.MISSING) == expected, 0.5);
+                }
+                default -> throw unsupported(definition, ruleDefinition, "operator " + operator);
+            }
+        }
+    }
+
+    private static Object scalar(Object operand, RuleSetDefinition definition, RuleDefinition rule) {
+        if (!FieldValues.isScalarLiteral(operand)) {
+            throw unsupported(definition, rule, "non-scalar operand " + operand);
+        }
+        return operand;
+    }
+
+    /** Range bounds are numbers or strings without surrogate pairs; anything else stays on the interpreter. */
+    private static Object bound(Object operand, RuleSetDefinition definition, RuleDefinition rule) {
+        Object bound = scalar(operand, definition, rule);
+        if (!(bound instanceof Number || bound instanceof String) || FieldValues.hasSurrogates(bound)) {
+            throw unsupported(definition, rule, "range bound " + operand);
+        }
+        return bound;
+    }
+
+    private static List<?> scalars(Object operand, RuleSetDefinition definition, RuleDefinition rule) {
+        if (!(operand instanceof List<?> literals)) {
+            throw unsupported(definition, rule, "expected an array operand but got " + operand);
+        }
+        for (Object literal : literals) {
+            scalar(literal, definition, rule);
+        }
+        return Collections.unmodifiableList(new ArrayList<>(literals));
+    }
+
+    private static IllegalArgumentException unsupported(RuleSetDefinition definition,
+                                                        RuleDefinition rule,
+                                                        String reason) {
+        return new IllegalArgumentException("Rule '" + rule.id() + "' in rule set '" + definition.id()
+                + "' cannot be compiled: " + reason);
+    }
+}
@@ -0,0 +1,31 @@
+package ai.fluxion.samples.rules.evaluation;
+
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Raw shape of a rule-set JSON file, read independently of the starter so the
+ * sample can compile definitions into a {@link CompiledRuleSet}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record RuleSetDefinition(String id, String name, String version, List<RuleDefinition> rules) {
+
+    public RuleSetDefinition {
+        rules = rules == null ? List.of() : List.copyOf(rules);
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record RuleDefinition(String id,
+                                 String name,
+                                 int salience,
+                                 List<Map<String, Object>> stages,
+                                 List<String> actions) {
+
+        public RuleDefinition {
+            stages = stages == null ? List.of() : List.copyOf(stages);
+            actions = actions == null ? List.of() : List.copyOf(actions);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ai.fluxion.samples.rules.evaluation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads the rule-set JSON files configured under {@code fluxion.rules.locations}
+ * so the sample can compile the same definitions the starter loaded.
+ */
+@Component
+public class RuleSetLoader {
+
+    static final String LOCATIONS_PROPERTY = "fluxion.rules.locations";
+
+    private final Environment environment;
+    private final ResourcePatternResolver resolver;
+    private final ObjectMapper objectMapper;
+
+    public RuleSetLoader(Environment environment, ResourceLoader resourceLoader, ObjectMapper objectMapper) {
+        this.environment = environment;
+        this.resolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
+        this.objectMapper = objectMapper;
+    }
+
+    public List<RuleSetDefinition> load() {
+        List<String> locations = Binder.get(environment)
+                .bind(LOCATIONS_PROPERTY, Bindable.listOf(String.class))
+                .orElse(List.of());
+        List<RuleSetDefinition> definitions = new ArrayList<>();
+        for (String location : locations) {
+            try {
+                for (Resource resource : resolver.getResources(location)) {
+                    definitions.add(read(resource));
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Failed to resolve rule location " + location, ex);
+            }
+        }
+        return definitions;
+    }
+
+    public RuleSetDefinition read(Resource resource) throws IOException {
+        try (InputStream inputStream = resource.getInputStream()) {
+            return objectMapper.readValue(inputStream, RuleSetDefinition.class);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ai.fluxion.samples.rules.profiling;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import ai.fluxion.rules.domain.RuleAction;
+import ai.fluxion.rules.domain.RuleContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Execution counts and time of rule actions, per rule set and action name,
+ * read by the {@link RuleProfiler} when it reports.
+ *
+ * <p>Actions are timed where they run. The sample's contributor hands the
+ * starter its actions wrapped by {@link #timed}, and
+ * {@link ai.fluxion.samples.rules.evaluation.RuleActions} wraps the same way,
+ * so an action is timed whether the starter's interpreter or the sample runs
+ * it. A wrapped action records against the rule set of the innermost
+ * {@link #attribute} call on its thread; run outside one it is not timed,
+ * which costs a thread-local read.
+ */
+@Component
+public class ActionTimings {
+
+    private static final ThreadLocal<Scope> SCOPE = new ThreadLocal<>();
+
+    private final Map<String, Map<String, Timing>> timings = new ConcurrentHashMap<>();
+
+    /**
+     * {@code action}, timed into the {@link ActionTimings} of the enclosing
+     * {@link #attribute} call each time it runs. Wrapping is idempotent.
+     */
+    public static RuleAction timed(String name, RuleAction action) {
+        return action instanceof TimedAction ? action : new TimedAction(name, action);
+    }
+
+    /**
+     * Calls {@code call}, recording every wrapped action it runs on this
+     * thread against {@code ruleSetId}.
+     */
+    public <T> T attribute(String ruleSetId, Supplier<T> call) {
+        Scope previous = SCOPE.get();
+        SCOPE.set(new Scope(this, ruleSetId));
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                SCOPE.remove();
+            } else {
+                SCOPE.set(previous);
+            }
+        }
+    }
+
+    /** Adds one execution of {@code action} for {@code ruleSetId} that took {@code elapsedNanos}. */
+    public void record(String ruleSetId, String action, long elapsedNanos) {
+        timing(ruleSetId, action).record(elapsedNanos);
+    }
+
+    /** The timing of {@code action} for {@code ruleSetId}, created empty if none was recorded yet. */
+    Timing timing(String ruleSetId, String action) {
+        Map<String, Timing> actions = timings.get(ruleSetId);
+        if (actions == null) {
+            actions = timings.computeIfAbsent(ruleSetId, ignored -> new ConcurrentHashMap<>());
+        }
+        Timing timing = actions.get(action);
+        return timing != null ? timing : actions.computeIfAbsent(action, ignored -> new Timing());
+    }
+
+    /** The timing of {@code action} for {@code ruleSetId}, or {@code null} when it has none. */
+    Timing find(String ruleSetId, String action) {
+        Map<String, Timing> actions = timings.get(ruleSetId);
+        return actions == null ? null : actions.get(action);
+    }
+
+    /** Starts the timings of {@code ruleSetId} again, as a new version of it does. */
+    void reset(String ruleSetId) {
+        timings.remove(ruleSetId);
+    }
+
+    private record Scope(ActionTimings timings, String ruleSetId) {
+    }
+
+    private record TimedAction(String name, RuleAction action) implements RuleAction {
+
+        @Override
+        public void execute(RuleContext context) {
+            Scope scope = SCOPE.get();
+            if (scope == null) {
+                action.execute(context);
+                return;
+            }
+            long started = System.nanoTime();
+            try {
+                action.execute(context);
+            } finally {
+                scope.timings().record(scope.ruleSetId(), name, System.nanoTime() - started);
+            }
+        }
+    }
+
+    static final class Timing {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        private void record(long elapsedNanos) {
+            count.increment();
+            nanos.add(elapsedNanos);
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        long totalNanos() {
+            return nanos.sum();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ai.fluxion.samples.rules.profiling;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ai.fluxion.samples.rules.profiling.RuleProfiler.RuleSetReport;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint serving {@link RuleProfiler} reports. The starter owns the
+ * {@code fluxionRules} endpoint, so the profile lives next to it:
+ * {@code /actuator/fluxionRulesProfile} summarizes every rule set and
+ * {@code /actuator/fluxionRulesProfile/{id}} lists one rule set's rules,
+ * slowest first.
+ */
+@Component
+@Endpoint(id = "fluxionRulesProfile")
+public class RuleProfileEndpoint {
+
+    private final RuleProfiler profiler;
+
+    public RuleProfileEndpoint(RuleProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @ReadOperation
+    public Map<String, Summary> ruleSets() {
+        Map<String, Summary> summaries = new LinkedHashMap<>();
+        for (String ruleSetId : profiler.ruleSetIds()) {
+            profiler.report(ruleSetId).ifPresent(report -> summaries.put(ruleSetId, Summary.of(report)));
+        }
+        return summaries;
+    }
+
+    /** Returns {@code null}, which Actuator maps to 404, for unknown rule sets. */
+    @ReadOperation
+    public RuleSetReport ruleSet(@Selector String id) {
+        return profiler.report(id).orElse(null);
+    }
+
+    public record Summary(long evaluations, long sampledEvaluations, double meanSampledEvaluationMicros,
+                          String slowestRule) {
+
+        static Summary of(RuleSetReport report) {
+            String slowest = report.rules().isEmpty() ? null : report.rules().get(0).id();
+            return new Summary(report.evaluations(), report.sampledEvaluations(),
+                    report.meanSampledEvaluationMicros(), slowest);
+        }
+    }
+}
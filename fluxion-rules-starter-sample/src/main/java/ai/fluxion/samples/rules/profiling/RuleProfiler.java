@@ -0,0 +1,299 @@
+package ai.fluxion.samples.rules.profiling;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import ai.fluxion.samples.rules.evaluation.LoadedRuleSet;
+import ai.fluxion.samples.rules.evaluation.LoadedRuleSet.StageObserver;
+import ai.fluxion.samples.rules.evaluation.RuleMatch;
+import ai.fluxion.samples.rules.profiling.RuleSetProfile.RuleProfile;
+import ai.fluxion.samples.rules.profiling.RuleSetProfile.StageProfile;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per rule set and per rule evaluation profile, published to Micrometer and
+ * to the {@code fluxionRulesProfile} Actuator endpoint.
+ *
+ * <p>Every evaluation counts towards the rule set's evaluation count and each
+ * returned rule's pass count, which is two adder increments plus one per
+ * passing rule. A fraction {@code sample.rules.profiling.sample-rate} of
+ * payloads is also timed as a whole and, when it is served by the stage
+ * pipeline, stage by stage: the evaluator runs such a payload one stage at a
+ * time with the {@link StageObserver} from {@link #observer}, so the timings
+ * are those of the evaluation that produced the response. Payloads the
+ * compiled network decides have no stages and only add to the evaluation
+ * time.
+ *
+ * <p>Per-rule pass rates are measured over every payload, which is what a
+ * selectivity-ordering optimizer needs in place of static estimates. Only
+ * rule set, rule and action level numbers are published to Micrometer; stage
+ * timings are in the endpoint report, so meter tags stay bounded by the rules
+ * rather than by their stages. Action timings come from
+ * {@link ActionTimings}, which times each action where it runs, in the
+ * starter's interpreter as in the sample.
+ *
+ * <p>Each evaluation is recorded against the {@link LoadedRuleSet} that
+ * served it, so a reload is picked up from the first evaluation of the new
+ * version without any notification, and evaluations still finishing on the
+ * previous version are not counted against the new one.
+ */
+@Component
+public class RuleProfiler {
+
+    private final MeterRegistry meterRegistry;
+    private final ActionTimings actionTimings;
+    private final double sampleRate;
+    private final AtomicReference<Map<String, RuleSetProfile>> profiles = new AtomicReference<>(Map.of());
+    private final Map<String, List<Meter>> meters = new HashMap<>();
+
+    public RuleProfiler(MeterRegistry meterRegistry,
+                        ActionTimings actionTimings,
+                        @Value("${sample.rules.profiling.sample-rate:0.01}") double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sample.rules.profiling.sample-rate must be within [0, 1]");
+        }
+        this.meterRegistry = meterRegistry;
+        this.actionTimings = actionTimings;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Starts profiling {@code ruleSets}, replacing any rule sets registered
+     * before together with their meters, so their meters exist before the
+     * first evaluation.
+     */
+    public synchronized void register(Collection<LoadedRuleSet> ruleSets) {
+        meters.values().forEach(bound -> bound.forEach(meterRegistry::remove));
+        meters.clear();
+        profiles.get().keySet().forEach(actionTimings::reset);
+        Map<String, RuleSetProfile> registered = new LinkedHashMap<>();
+        for (LoadedRuleSet ruleSet : ruleSets) {
+            actionTimings.reset(ruleSet.id());
+            RuleSetProfile profile = new RuleSetProfile(ruleSet.definition(), ruleSet.generation());
+            registered.put(ruleSet.id(), profile);
+            bind(profile);
+        }
+        profiles.set(Map.copyOf(registered));
+    }
+
+    /**
+     * Calls {@code call}, timing the rule actions it runs on this thread
+     * against {@code ruleSetId}; used around the starter's interpreter, which
+     * runs actions itself.
+     */
+    public <T> T attributeActions(String ruleSetId, Supplier<T> call) {
+        return actionTimings.attribute(ruleSetId, call);
+    }
+
+    /** Decides whether the next evaluation is timed. */
+    public boolean shouldSample() {
+        return sampleRate > 0 && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    /**
+     * The observer to run a sampled evaluation of {@code ruleSet} with, so its
+     * stage timings land in the rule set's profile, or {@code null} for a
+     * version older than the one profiled.
+     */
+    public StageObserver observer(LoadedRuleSet ruleSet) {
+        RuleSetProfile profile = profile(ruleSet);
+        if (profile == null) {
+            return null;
+        }
+        return (ruleId, index, nanos, passed) -> {
+            RuleProfile rule = profile.rule(ruleId);
+            if (rule != null && index < rule.stages.length) {
+                rule.stages[index].record(nanos, passed);
+            }
+        };
+    }
+
+    /**
+     * Records one evaluation served by {@code ruleSet}. {@code sampledNanos}
+     * is the evaluation time when {@link #shouldSample()} selected this
+     * payload, or {@code -1} otherwise.
+     */
+    public void record(LoadedRuleSet ruleSet, List<RuleMatch> matches, long sampledNanos) {
+        RuleSetProfile profile = profile(ruleSet);
+        if (profile == null) {
+            return;
+        }
+        profile.evaluations.increment();
+        for (RuleMatch match : matches) {
+            RuleProfile rule = profile.rule(match.id());
+            if (rule != null) {
+                rule.passes.increment();
+            }
+        }
+        if (sampledNanos >= 0) {
+            profile.sampled.increment();
+            profile.sampledNanos.add(sampledNanos);
+        }
+    }
+
+    /**
+     * The profile of {@code ruleSet}'s version, started afresh the first time
+     * a newer version than the one profiled is evaluated, or {@code null} for
+     * an evaluation of a version older than the one profiled.
+     */
+    private RuleSetProfile profile(LoadedRuleSet ruleSet) {
+        RuleSetProfile profile = profiles.get().get(ruleSet.id());
+        if (profile != null && profile.generation >= ruleSet.generation()) {
+            return profile.generation == ruleSet.generation() ? profile : null;
+        }
+        return replace(ruleSet);
+    }
+
+    /**
+     * Starts a fresh profile for a new version of one rule set, leaving the
+     * others untouched. The counters and action timings restart because rule
+     * ids, stages, actions and pass rates may all have changed.
+     */
+    private synchronized RuleSetProfile replace(LoadedRuleSet ruleSet) {
+        RuleSetProfile current = profiles.get().get(ruleSet.id());
+        if (current != null && current.generation >= ruleSet.generation()) {
+            return current.generation == ruleSet.generation() ? current : null;
+        }
+        List<Meter> previous = meters.remove(ruleSet.id());
+        if (previous != null) {
+            previous.forEach(meterRegistry::remove);
+        }
+        actionTimings.reset(ruleSet.id());
+        RuleSetProfile profile = new RuleSetProfile(ruleSet.definition(), ruleSet.generation());
+        bind(profile);
+        Map<String, RuleSetProfile> updated = new LinkedHashMap<>(profiles.get());
+        updated.put(ruleSet.id(), profile);
+        profiles.set(Map.copyOf(updated));
+        return profile;
+    }
+
+    public Set<String> ruleSetIds() {
+        return profiles.get().keySet();
+    }
+
+    public Optional<RuleSetReport> report(String ruleSetId) {
+        return Optional.ofNullable(profiles.get().get(ruleSetId)).map(this::report);
+    }
+
+    private void bind(RuleSetProfile profile) {
+        List<Meter> bound = new ArrayList<>();
+        Set<String> actions = new LinkedHashSet<>();
+        bound.add(FunctionCounter.builder("fluxion.rules.evaluations", profile.evaluations, adder -> adder.sum())
+                .tag("ruleSet", profile.id)
+                .description("Payloads evaluated against the rule set")
+                .register(meterRegistry));
+        bound.add(FunctionCounter.builder("fluxion.rules.sampled", profile.sampled, adder -> adder.sum())
+                .tag("ruleSet", profile.id)
+                .description("Payloads whose evaluation was timed")
+                .register(meterRegistry));
+        for (RuleProfile rule : profile.rules) {
+            bound.add(FunctionCounter.builder("fluxion.rules.passes", rule.passes, adder -> adder.sum())
+                    .tags("ruleSet", profile.id, "rule", rule.id)
+                    .description("Payloads for which the rule passed")
+                    .register(meterRegistry));
+            actions.addAll(rule.actions);
+        }
+        for (String action : actions) {
+            bound.add(FunctionTimer.builder("fluxion.rules.action", actionTimings.timing(profile.id, action),
+                            ActionTimings.Timing::count,
+                            ActionTimings.Timing::totalNanos,
+                            TimeUnit.NANOSECONDS)
+                    .tags("ruleSet", profile.id, "action", action)
+                    .description("Rule action executions")
+                    .register(meterRegistry));
+        }
+        meters.put(profile.id, bound);
+    }
+
+    private RuleSetReport report(RuleSetProfile profile) {
+        long evaluations = profile.evaluations.sum();
+        long sampled = profile.sampled.sum();
+        Map<String, ActionReport> actions = new LinkedHashMap<>();
+        List<RuleReport> rules = new ArrayList<>(profile.rules.length);
+        for (RuleProfile rule : profile.rules) {
+            List<StageReport> stages = new ArrayList<>(rule.stages.length);
+            for (int i = 0; i < rule.stages.length; i++) {
+                StageProfile stage = rule.stages[i];
+                long invocations = stage.invocations.sum();
+                stages.add(new StageReport(i, stage.operator, invocations,
+                        ratio(stage.passes.sum(), invocations), micros(stage.nanos.sum(), invocations)));
+            }
+            long passes = rule.passes.sum();
+            rules.add(new RuleReport(rule.id, rule.name, passes, ratio(passes, evaluations),
+                    TimeUnit.NANOSECONDS.toMicros(rule.stageNanos()), stages, rule.actions));
+            for (String action : rule.actions) {
+                actions.computeIfAbsent(action, name -> actionReport(profile.id, name));
+            }
+        }
+        // Slowest first: this ordering is the point of the report.
+        rules.sort(Comparator.comparingLong(RuleReport::sampledStageMicros).reversed());
+        return new RuleSetReport(profile.id, evaluations, sampled, sampleRate,
+                micros(profile.sampledNanos.sum(), sampled), rules, List.copyOf(actions.values()));
+    }
+
+    /** Reads an action's timing without creating one, so reporting leaves no trace. */
+    private ActionReport actionReport(String ruleSetId, String action) {
+        ActionTimings.Timing timing = actionTimings.find(ruleSetId, action);
+        if (timing == null) {
+            return new ActionReport(action, 0, 0);
+        }
+        return new ActionReport(action, timing.count(), micros(timing.totalNanos(), timing.count()));
+    }
+
+    private static double ratio(long numerator, long denominator) {
+        return denominator == 0 ? 0 : (double) numerator / denominator;
+    }
+
+    private static double micros(long nanos, long count) {
+        return count == 0 ? 0 : nanos / 1_000.0 / count;
+    }
+
+    /**
+     * {@code meanSampledEvaluationMicros} covers every sampled evaluation;
+     * stage numbers only those the stage pipeline served.
+     */
+    public record RuleSetReport(String ruleSetId,
+                                long evaluations,
+                                long sampledEvaluations,
+                                double sampleRate,
+                                double meanSampledEvaluationMicros,
+                                List<RuleReport> rules,
+                                List<ActionReport> actions) {
+    }
+
+    /**
+     * {@code passRate} covers every evaluation; {@code sampledStageMicros} is
+     * the total stage time over sampled payloads only.
+     */
+    public record RuleReport(String id,
+                             String name,
+                             long passes,
+                             double passRate,
+                             long sampledStageMicros,
+                             List<StageReport> stages,
+                             List<String> actions) {
+    }
+
+    public record StageReport(int index, String operator, long invocations, double passRate, double meanMicros) {
+    }
+
+    public record ActionReport(String action, long executions, double meanMicros) {
+    }
+}
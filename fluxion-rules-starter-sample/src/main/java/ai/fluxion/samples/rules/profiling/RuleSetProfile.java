@@ -0,0 +1,87 @@
+package ai.fluxion.samples.rules.profiling;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import ai.fluxion.samples.rules.evaluation.RuleSetDefinition;
+import ai.fluxion.samples.rules.evaluation.RuleSetDefinition.RuleDefinition;
+
+/**
+ * Counters for one rule set. Evaluation and pass counts are kept for every
+ * payload; stage timings only for sampled payloads the stage pipeline served.
+ * All fields are {@link LongAdder}s, so concurrent requests never contend on a
+ * lock.
+ */
+final class RuleSetProfile {
+
+    final String id;
+    final long generation;
+    final LongAdder evaluations = new LongAdder();
+    final LongAdder sampled = new LongAdder();
+    final LongAdder sampledNanos = new LongAdder();
+    final RuleProfile[] rules;
+    private final Map<String, RuleProfile> rulesById;
+
+    RuleSetProfile(RuleSetDefinition definition, long generation) {
+        this.id = definition.id();
+        this.generation = generation;
+        List<RuleDefinition> definitions = definition.rules();
+        this.rules = new RuleProfile[definitions.size()];
+        this.rulesById = new HashMap<>(definitions.size() * 2);
+        for (int i = 0; i < rules.length; i++) {
+            rules[i] = new RuleProfile(definitions.get(i));
+            rulesById.put(rules[i].id, rules[i]);
+        }
+    }
+
+    RuleProfile rule(String ruleId) {
+        return rulesById.get(ruleId);
+    }
+
+    static final class RuleProfile {
+        final String id;
+        final String name;
+        final List<String> actions;
+        final LongAdder passes = new LongAdder();
+        final StageProfile[] stages;
+
+        private RuleProfile(RuleDefinition definition) {
+            this.id = definition.id();
+            this.name = definition.name();
+            this.actions = definition.actions();
+            this.stages = new StageProfile[definition.stages().size()];
+            for (int i = 0; i < stages.length; i++) {
+                stages[i] = new StageProfile(definition.stages().get(i));
+            }
+        }
+
+        long stageNanos() {
+            long total = 0;
+            for (StageProfile stage : stages) {
+                total += stage.nanos.sum();
+            }
+            return total;
+        }
+    }
+
+    static final class StageProfile {
+        final String operator;
+        final LongAdder invocations = new LongAdder();
+        final LongAdder passes = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+
+        private StageProfile(Map<String, Object> specification) {
+            this.operator = specification.size() == 1 ? specification.keySet().iterator().next() : "?";
+        }
+
+        void record(long elapsedNanos, boolean passed) {
+            invocations.increment();
+            nanos.add(elapsedNanos);
+            if (passed) {
+                passes.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ai.fluxion.samples.rules.reload;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ai.fluxion.samples.rules.evaluation.CompiledRuleSetRegistry;
+import ai.fluxion.samples.rules.evaluation.LoadedRuleSet;
+import ai.fluxion.samples.rules.reload.RuleSetReloader.ReloadOutcome;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Admin endpoint for hot reload: {@code GET /actuator/fluxionRulesReload}
+ * lists the version of every rule set in service, generation {@code 0} being
+ * the one loaded at startup, and
+ * {@code POST /actuator/fluxionRulesReload} reloads every configured rule set.
+ */
+@Component
+@Endpoint(id = "fluxionRulesReload")
+public class RuleReloadEndpoint {
+
+    private final RuleSetReloader reloader;
+    private final CompiledRuleSetRegistry registry;
+
+    public RuleReloadEndpoint(RuleSetReloader reloader, CompiledRuleSetRegistry registry) {
+        this.reloader = reloader;
+        this.registry = registry;
+    }
+
+    @ReadOperation
+    public Map<String, LoadedVersion> loaded() {
+        Map<String, LoadedVersion> versions = new LinkedHashMap<>();
+        for (LoadedRuleSet ruleSet : registry.snapshot().values()) {
+            versions.put(ruleSet.id(), new LoadedVersion(ruleSet.definition().version(), ruleSet.generation(),
+                    ruleSet.isCompiled()));
+        }
+        return versions;
+    }
+
+    @WriteOperation
+    public List<ReloadOutcome> reload() {
+        return reloader.reloadAll();
+    }
+
+    public record LoadedVersion(String version, long generation, boolean compiled) {
+    }
+}
@@ -0,0 +1,301 @@
+package ai.fluxion.samples.rules.reload;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ai.fluxion.rules.spring.boot.RuleSetsLoadedEvent;
+import ai.fluxion.samples.rules.evaluation.CompiledRuleSet;
+import ai.fluxion.samples.rules.evaluation.CompiledRuleSetRegistry;
+import ai.fluxion.samples.rules.evaluation.LoadedRuleSet;
+import ai.fluxion.samples.rules.evaluation.RuleActions;
+import ai.fluxion.samples.rules.evaluation.RuleSetCompiler;
+import ai.fluxion.samples.rules.evaluation.RuleSetDefinition;
+import ai.fluxion.samples.rules.evaluation.RuleSetDefinition.RuleDefinition;
+import ai.fluxion.samples.rules.evaluation.RuleSetLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Replaces rule sets while the service runs. A changed definition is parsed,
+ * validated, compiled where possible and warmed up on the thread that
+ * triggered the reload, then published to the {@link CompiledRuleSetRegistry}
+ * with one atomic swap and announced through the starter's
+ * {@link RuleSetsLoadedEvent}, so listeners that react to loaded rule sets see
+ * reloads too. Evaluation, profiling and the reload endpoint read the
+ * registry. Evaluations never wait for a reload: those that started before
+ * the swap finish on the previous version, later ones see the new one. A
+ * definition that fails any step is rejected, the version in service stays
+ * and no event is published.
+ *
+ * <p>Reloads are triggered by {@code fluxionRulesReload} Actuator writes or,
+ * when {@code sample.rules.reload.directory} is set, by changes to
+ * {@code *.json} files in that directory. An Actuator write does the work on
+ * its request thread and returns once every outcome is known; file changes
+ * are handled on the watcher thread.
+ */
+@Component
+public class RuleSetReloader implements SmartLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RuleSetReloader.class);
+    private static final long SETTLE_MILLIS = 200;
+
+    private final RuleSetLoader loader;
+    private final CompiledRuleSetRegistry registry;
+    private final ApplicationEventPublisher events;
+    private final RuleActions actions;
+    private final RuleSetCompiler compiler;
+    private final AtomicLong generations = new AtomicLong();
+    private final Path directory;
+    private final int warmupIterations;
+
+    private volatile WatchService watchService;
+    private volatile Thread watcher;
+
+    public RuleSetReloader(RuleSetLoader loader,
+                           CompiledRuleSetRegistry registry,
+                           ApplicationEventPublisher events,
+                           RuleActions actions,
+                           @Value("${sample.rules.reload.directory:}") String directory,
+                           @Value("${sample.rules.reload.warmup-iterations:2000}") int warmupIterations) {
+        if (warmupIterations < 0) {
+            throw new IllegalArgumentException("sample.rules.reload.warmup-iterations must be >= 0");
+        }
+        this.loader = loader;
+        this.registry = registry;
+        this.events = events;
+        this.actions = actions;
+        this.compiler = new RuleSetCompiler(actions);
+        this.directory = directory.isBlank() ? null : Path.of(directory);
+        this.warmupIterations = warmupIterations;
+    }
+
+    /**
+     * Reloads every rule set under {@code fluxion.rules.locations} and, if
+     * configured, the watched directory. Each rule set succeeds or fails on
+     * its own.
+     */
+    public List<ReloadOutcome> reloadAll() {
+        List<ReloadOutcome> outcomes = new ArrayList<>();
+        for (RuleSetDefinition definition : loader.load()) {
+            outcomes.add(reload(definition, "fluxion.rules.locations"));
+        }
+        if (directory != null) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.json")) {
+                for (Path file : files) {
+                    outcomes.add(reload(file));
+                }
+            } catch (IOException ex) {
+                outcomes.add(ReloadOutcome.failed(null, directory.toString(), ex));
+            }
+        }
+        return outcomes;
+    }
+
+    public ReloadOutcome reload(Path file) {
+        RuleSetDefinition definition;
+        try {
+            definition = loader.read(new FileSystemResource(file));
+        } catch (IOException | RuntimeException ex) {
+            return log(ReloadOutcome.failed(null, file.toString(), ex));
+        }
+        return reload(definition, file.toString());
+    }
+
+    /**
+     * Validates, warms up and publishes {@code definition}. Reloads are
+     * serialized so two versions of one rule set never race to publish.
+     */
+    public synchronized ReloadOutcome reload(RuleSetDefinition definition, String source) {
+        Prepared prepared;
+        try {
+            validate(definition);
+            prepared = prepare(definition);
+        } catch (RuntimeException ex) {
+            return log(ReloadOutcome.failed(definition.id(), source, ex));
+        }
+        LoadedRuleSet ruleSet = prepared.ruleSet();
+        // Stages and network go into service together, in one registry swap.
+        registry.publish(ruleSet);
+        events.publishEvent(new RuleSetsLoadedEvent(this));
+        return log(new ReloadOutcome(ruleSet.id(), source, ruleSet.generation(), ruleSet.isCompiled(),
+                prepared.warmupEvaluations(), null));
+    }
+
+    private Prepared prepare(RuleSetDefinition definition) {
+        long generation = generations.incrementAndGet();
+        CompiledRuleSet compiled = null;
+        try {
+            compiled = compiler.compile(definition);
+        } catch (IllegalArgumentException ex) {
+            LOGGER.info("{}; the stage pipeline will serve it", ex.getMessage());
+        }
+        LoadedRuleSet ruleSet = new LoadedRuleSet(definition, generation, compiled, actions);
+        List<Map<String, Object>> payloads = WarmupPayloads.from(definition);
+        if (compiled != null && !agrees(ruleSet, payloads)) {
+            ruleSet = new LoadedRuleSet(definition, generation, null, actions);
+        }
+        // Run both paths, passing and failing payloads alike, until the JIT
+        // has compiled them, so the first requests after the swap do not pay
+        // for interpretation. Matching runs no actions, so warm-up has no
+        // side effects.
+        long evaluations = 0;
+        for (int i = 0; i < warmupIterations; i++) {
+            for (Map<String, Object> payload : payloads) {
+                ruleSet.match(payload);
+                if (i % 16 == 0) {
+                    ruleSet.matchStages(payload);
+                }
+                evaluations++;
+            }
+        }
+        return new Prepared(ruleSet, evaluations);
+    }
+
+    private static boolean agrees(LoadedRuleSet ruleSet, List<Map<String, Object>> payloads) {
+        for (Map<String, Object> payload : payloads) {
+            List<String> expected = ruleSet.matchStages(payload).stream().map(RuleDefinition::id).toList();
+            List<String> actual = ruleSet.match(payload).stream().map(RuleDefinition::id).toList();
+            if (!expected.equals(actual)) {
+                LOGGER.warn("Compiled rule set '{}' disagrees with its stages for {}: expected {} but got {}; "
+                        + "serving it from the stage pipeline", ruleSet.id(), payload, expected, actual);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void validate(RuleSetDefinition definition) {
+        if (definition.id() == null || definition.id().isBlank()) {
+            throw new IllegalArgumentException("Rule set has no id");
+        }
+        if (definition.rules().isEmpty()) {
+            throw new IllegalArgumentException("Rule set '" + definition.id() + "' has no rules");
+        }
+        Set<String> ids = new HashSet<>();
+        for (RuleDefinition rule : definition.rules()) {
+            if (rule.id() == null || rule.id().isBlank() || !ids.add(rule.id())) {
+                throw new IllegalArgumentException("Rule set '" + definition.id()
+                        + "' has a missing or duplicate rule id: " + rule.id());
+            }
+            for (Map<String, Object> stage : rule.stages()) {
+                if (stage.size() != 1 || !stage.keySet().iterator().next().startsWith("$")) {
+                    throw new IllegalArgumentException("Rule '" + rule.id() + "' in rule set '" + definition.id()
+                            + "' has a stage without exactly one operator: " + stage.keySet());
+                }
+            }
+        }
+    }
+
+    private static ReloadOutcome log(ReloadOutcome outcome) {
+        if (outcome.error() == null) {
+            LOGGER.info("Reloaded rule set '{}' from {} as generation {} ({})", outcome.ruleSetId(), outcome.source(),
+                    outcome.generation(), outcome.compiled() ? "compiled" : "stage pipeline");
+        } else {
+            LOGGER.warn("Rejected rule set '{}' from {}: {}", outcome.ruleSetId(), outcome.source(), outcome.error());
+        }
+        return outcome;
+    }
+
+    @Override
+    public void start() {
+        if (directory == null) {
+            return;
+        }
+        try {
+            WatchService service = FileSystems.getDefault().newWatchService();
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watchService = service;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot watch rule directory " + directory, ex);
+        }
+        watcher = Thread.ofPlatform().daemon().name("rule-set-watcher").start(this::watch);
+        LOGGER.info("Watching {} for rule set changes", directory);
+    }
+
+    @Override
+    public void stop() {
+        Thread thread = watcher;
+        watcher = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        WatchService service = watchService;
+        watchService = null;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException ex) {
+                LOGGER.debug("Failed to close the rule directory watch", ex);
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return watcher != null;
+    }
+
+    private void watch() {
+        WatchService service = watchService;
+        while (service != null) {
+            WatchKey key;
+            try {
+                key = service.take();
+                // Editors and deploy tools often write a file in several
+                // steps; let them settle and collapse the events.
+                Thread.sleep(SETTLE_MILLIS);
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                return;
+            }
+            Set<Path> changed = new LinkedHashSet<>();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.context() instanceof Path name && name.toString().endsWith(".json")) {
+                    changed.add(directory.resolve(name));
+                }
+            }
+            key.reset();
+            for (Path file : changed) {
+                if (Files.isRegularFile(file)) {
+                    reload(file);
+                }
+            }
+        }
+    }
+
+    private record Prepared(LoadedRuleSet ruleSet, long warmupEvaluations) {
+    }
+
+    /**
+     * Result of one reload; {@code warmupEvaluations} counts the payloads
+     * matched before the swap and {@code error} is {@code null} on success.
+     */
+    public record ReloadOutcome(String ruleSetId, String source, long generation, boolean compiled,
+                                long warmupEvaluations, String error) {
+
+        static ReloadOutcome failed(String ruleSetId, String source, Exception cause) {
+            return new ReloadOutcome(ruleSetId, source, 0, false, 0,
+                    Objects.requireNonNullElse(cause.getMessage(), cause.getClass().getSimpleName()));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package ai.fluxion.samples.rules.reload;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ai.fluxion.samples.rules.evaluation.RuleSetDefinition;
+import ai.fluxion.samples.rules.evaluation.RuleSetDefinition.RuleDefinition;
+
+/**
+ * Builds payloads that exercise a rule set before it is put in service. Each
+ * rule contributes one payload carrying the literals of its {@code $match}
+ * conditions, which walks its passing path. For each of those conditions it
+ * also contributes that payload with the condition's field set to a value
+ * that fails it and to a value of another type, so warm-up walks the path
+ * where each predicate fails and the type checks on the way, and the
+ * cross-check between network and stages covers them. The empty payload,
+ * which fails every rule on a missing field, comes first.
+ */
+final class WarmupPayloads {
+
+    private WarmupPayloads() {
+    }
+
+    static List<Map<String, Object>> from(RuleSetDefinition definition) {
+        List<Map<String, Object>> payloads = new ArrayList<>();
+        payloads.add(Map.of());
+        for (RuleDefinition rule : definition.rules()) {
+            Map<String, Object> passing = new LinkedHashMap<>();
+            Map<String[], Object> conditions = new LinkedHashMap<>();
+            for (Map<String, Object> stage : rule.stages()) {
+                if (stage.get("$match") instanceof Map<?, ?> filter) {
+                    filter.forEach((path, condition) -> {
+                        Object value = sampleValue(condition);
+                        if (!path.toString().startsWith("$") && value != null) {
+                            String[] segments = path.toString().split("\\.");
+                            put(passing, segments, value);
+                            conditions.put(segments, condition);
+                        }
+                    });
+                }
+            }
+            payloads.add(passing);
+            conditions.forEach((segments, condition) -> {
+                Object failing = failingValue(condition);
+                if (failing != null) {
+                    payloads.add(with(passing, segments, failing));
+                }
+                payloads.add(with(passing, segments, otherType(sampleValue(condition))));
+            });
+        }
+        return payloads;
+    }
+
+    /** A value satisfying {@code condition} for the common operators, or {@code null}. */
+    private static Object sampleValue(Object condition) {
+        if (!(condition instanceof Map<?, ?> operators)) {
+            return condition;
+        }
+        for (Map.Entry<?, ?> entry : operators.entrySet()) {
+            Object operand = entry.getValue();
+            switch (entry.getKey().toString()) {
+                case "$eq", "$gte", "$lte" -> {
+                    return operand;
+                }
+                case "$gt" -> {
+                    return operand instanceof Number number ? number.doubleValue() + 1 : operand;
+                }
+                case "$lt" -> {
+                    return operand instanceof Number number ? number.doubleValue() - 1 : operand;
+                }
+                case "$in" -> {
+                    if (operand instanceof List<?> values && !values.isEmpty()) {
+                        return values.get(0);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return null;
+    }
+
+    /** A value failing {@code condition} for the common operators, or {@code null}. */
+    private static Object failingValue(Object condition) {
+        if (!(condition instanceof Map<?, ?> operators)) {
+            return differentFrom(condition);
+        }
+        for (Map.Entry<?, ?> entry : operators.entrySet()) {
+            Object operand = entry.getValue();
+            switch (entry.getKey().toString()) {
+                case "$eq" -> {
+                    return differentFrom(operand);
+                }
+                case "$gt", "$lt", "$ne" -> {
+                    return operand;
+                }
+                case "$gte" -> {
+                    return operand instanceof Number number ? number.doubleValue() - 1 : null;
+                }
+                case "$lte" -> {
+                    return operand instanceof Number number ? number.doubleValue() + 1 : null;
+                }
+                case "$in" -> {
+                    if (operand instanceof List<?> values && !values.isEmpty()) {
+                        Object outside = differentFrom(values.get(0));
+                        return values.contains(outside) ? null : outside;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Object differentFrom(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue() + 1;
+        }
+        if (value instanceof String string) {
+            return string + "~";
+        }
+        if (value instanceof Boolean bool) {
+            return !bool;
+        }
+        return null;
+    }
+
+    /** A value of a different JSON type than {@code value}, to take the type-mismatch branches. */
+    private static Object otherType(Object value) {
+        return value instanceof String ? 0 : String.valueOf(value);
+    }
+
+    private static Map<String, Object> with(Map<String, Object> payload, String[] segments, Object value) {
+        Map<String, Object> copy = deepCopy(payload);
+        put(copy, segments, value);
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> deepCopy(Map<String, Object> payload) {
+        Map<String, Object> copy = new LinkedHashMap<>(payload);
+        copy.replaceAll((key, value) -> value instanceof Map<?, ?> nested
+                ? deepCopy((Map<String, Object>) nested)
+                : value);
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void put(Map<String, Object> payload, String[] segments, Object value) {
+        Map<String, Object> current = payload;
+        for (int i = 0; i < segments.length - 1; i++) {
+            Object next = current.get(segments[i]);
+            if (!(next instanceof Map<?, ?>)) {
+                next = new LinkedHashMap<String, Object>();
+                current.put(segments[i], next);
+            }
+            current = (Map<String, Object>) next;
+        }
+        current.put(segments[segments.length - 1], value);
+    }
+}
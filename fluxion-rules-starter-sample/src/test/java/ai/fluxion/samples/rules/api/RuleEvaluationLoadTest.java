@@ -0,0 +1,154 @@
+package ai.fluxion.samples.rules.api;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import ai.fluxion.samples.rules.RulesSampleApplication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load harness for the rules REST API. It first starts the embedded server as
+ * it served before: platform request threads, bodies bound to a {@code Map}
+ * by Jackson ({@code sample.rules.api.direct-decoding=false}) and the full
+ * response. It then starts it once per combination of request threads
+ * (platform or virtual) and response view (full or {@code ?view=ids}), all
+ * with direct decoding, so the effect of each change can be told apart from
+ * the others. Every mode is driven by the same closed-loop generator, and the
+ * test logs p50, p99 and requests per second for each. It takes about a
+ * minute and a half, so it only runs with {@code -DloadTest=true}:
+ *
+ * <pre>mvn test -Dtest=RuleEvaluationLoadTest -DloadTest=true</pre>
+ */
+@EnabledIfSystemProperty(named = "loadTest", matches = "true")
+class RuleEvaluationLoadTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RuleEvaluationLoadTest.class);
+    private static final int CLIENTS = Integer.getInteger("loadTest.clients", 64);
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("loadTest.warmupSeconds", 5));
+    private static final Duration MEASUREMENT = Duration.ofSeconds(Long.getLong("loadTest.seconds", 10));
+    private static final String[] PAYLOADS = {
+            "{\"total\":1500,\"customer\":{\"status\":\"new\"}}",
+            "{\"total\":20,\"customer\":{\"status\":\"active\"}}",
+            "{\"total\":999,\"customer\":{\"status\":\"new\"},\"items\":[1,2,3]}"
+    };
+
+    @Test
+    void comparesServingModes() throws Exception {
+        List<Result> results = List.of(
+                run("before: platform threads, map binding, full view", false, false, ""),
+                run("platform threads, full view", false, true, ""),
+                run("platform threads, ids view", false, true, "?view=ids"),
+                run("virtual threads, full view", true, true, ""),
+                run("virtual threads, ids view", true, true, "?view=ids"));
+
+        double before = results.get(0).requestsPerSecond();
+        for (Result result : results) {
+            LOGGER.info("{}: p50 {} us, p99 {} us, {} req/s ({}x before)", result.mode(), result.p50Micros(),
+                    result.p99Micros(), Math.round(result.requestsPerSecond()),
+                    String.format("%.2f", result.requestsPerSecond() / before));
+        }
+        for (Result result : results) {
+            assertEquals(0, result.failures(), result.mode());
+            assertTrue(result.requests() > 0, result.mode());
+        }
+    }
+
+    private static Result run(String mode, boolean virtualThreads, boolean directDecoding, String query)
+            throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(RulesSampleApplication.class)
+                .properties("server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "sample.rules.api.direct-decoding=" + directDecoding,
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=warn",
+                        "logging.level." + RuleEvaluationLoadTest.class.getName() + "=info")
+                .run()) {
+            URI uri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                    + "/rules/orders/evaluate" + query);
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+            drive(client, uri, WARMUP);
+            return summarize(mode, drive(client, uri, MEASUREMENT), MEASUREMENT);
+        }
+    }
+
+    /** Runs {@link #CLIENTS} closed-loop clients for {@code duration} and returns their latencies. */
+    private static Samples drive(HttpClient client, URI uri, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        LongAdder failures = new LongAdder();
+        List<Future<long[]>> clients = new ArrayList<>(CLIENTS);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CLIENTS; c++) {
+                int offset = c;
+                clients.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = HttpRequest.newBuilder(uri)
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString(PAYLOADS[(offset + count) % PAYLOADS.length]))
+                                .build();
+                        long started = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        long elapsed = System.nanoTime() - started;
+                        if (response.statusCode() != 200) {
+                            failures.increment();
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = elapsed;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+        }
+        List<long[]> perClient = new ArrayList<>(CLIENTS);
+        for (Future<long[]> future : clients) {
+            perClient.add(future.get());
+        }
+        long[] all = perClient.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Samples(all, failures.sum());
+    }
+
+    private static Result summarize(String mode, Samples samples, Duration duration) {
+        long[] sorted = samples.latencies();
+        return new Result(mode, sorted.length, samples.failures(),
+                percentile(sorted, 0.50) / 1_000, percentile(sorted, 0.99) / 1_000,
+                sorted.length / (duration.toNanos() / 1e9));
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private record Samples(long[] latencies, long failures) {
+    }
+
+    private record Result(String mode, long requests, long failures, long p50Micros, long p99Micros,
+                          double requestsPerSecond) {
+    }
+}
@@ -0,0 +1,353 @@
+package ai.fluxion.samples.rules.evaluation;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ai.fluxion.rules.domain.RuleAction;
+import ai.fluxion.samples.rules.evaluation.RuleSetDefinition.RuleDefinition;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the compiled network decides exactly what the rules' stages
+ * decide when run through the pipeline executor, for the sample rule sets and
+ * for payloads aimed at the network's shortcuts: shared bound arrays, the
+ * numeric equality index, every operator against values of every type, and
+ * the fallback for values it does not model. Also checks that fields are
+ * reordered by the eliminations measured for the traffic seen.
+ */
+class CompiledRuleSetEquivalenceTest {
+
+    private static final RuleActions ACTIONS = RuleActions.of(Map.of(
+            "flag-order", context -> context.putAttribute("flagged", true),
+            "flag-return", context -> context.putAttribute("returnFlagged", true)));
+
+    private final RuleSetCompiler compiler = new RuleSetCompiler(ACTIONS);
+
+    @Test
+    void sampleRuleSetsMatchTheirStages() throws IOException {
+        List<RuleSetDefinition> definitions = sampleRuleSets();
+        assertFalse(definitions.isEmpty());
+        for (RuleSetDefinition definition : definitions) {
+            CompiledRuleSet compiled = compiler.compile(definition);
+            Map<String, List<Object>> candidates = candidateValues(definition);
+            Random random = new Random(definition.id().hashCode());
+            for (int i = 0; i < 2_000; i++) {
+                Map<String, Object> payload = new LinkedHashMap<>();
+                candidates.forEach((path, values) -> {
+                    Object value = values.get(random.nextInt(values.size()));
+                    if (value != Absent.INSTANCE) {
+                        put(payload, path, value);
+                    }
+                });
+                assertEquivalent(definition, compiled, payload);
+            }
+        }
+    }
+
+    @Test
+    void arraysAgainstSharedBoundsMatchTheirStages() {
+        RuleSetDefinition definition = ruleSet("tiers",
+                rule("over-100", 1, Map.of("amount", Map.of("$gt", 100))),
+                rule("from-500", 2, Map.of("amount", Map.of("$gte", 500))),
+                rule("from-500-double", 3, Map.of("amount", Map.of("$gte", 500.0))),
+                rule("over-1000", 4, Map.of("amount", Map.of("$gt", 1000))),
+                rule("under-50", 5, Map.of("amount", Map.of("$lt", 50))),
+                rule("to-500", 6, Map.of("amount", Map.of("$lte", 500))),
+                rule("band", 7, Map.of("amount", Map.of("$gte", 100, "$lt", 1000))));
+        CompiledRuleSet compiled = compiler.compile(definition);
+        List<Object> amounts = List.of(
+                List.of(), List.of(20), List.of(20, 2000), List.of(100, 1000), List.of(500),
+                List.of(499.99, 500.01), List.of("700", 700), List.of(Double.NaN, 700),
+                List.of(BigDecimal.valueOf(1000.5)), List.of(Long.MAX_VALUE), List.of(-1, 100.5));
+        for (Object amount : amounts) {
+            assertEquivalent(definition, compiled, Map.of("amount", amount));
+        }
+    }
+
+    @Test
+    void numericEqualityKeysMatchTheirStages() {
+        RuleSetDefinition definition = ruleSet("codes",
+                rule("ten", 1, Map.of("code", 10)),
+                rule("ten-and-a-half", 2, Map.of("code", 10.5)),
+                rule("no-code", 4, Map.of("code", Collections.singletonMap("$eq", null))));
+        CompiledRuleSet compiled = compiler.compile(definition);
+        List<Object> codes = List.of(10, 10L, (short) 10, 10.0, 10.0f, new BigDecimal("10"), new BigDecimal("10.000"),
+                new BigDecimal("1E+1"), 10.5, 10.5f, new BigDecimal("10.50"), 11, "10", Double.NaN,
+                Double.POSITIVE_INFINITY, List.of(1, 10), List.of(new BigDecimal("10.5")));
+        for (Object code : codes) {
+            assertEquivalent(definition, compiled, Map.of("code", code));
+        }
+        Map<String, Object> nullCode = new HashMap<>();
+        nullCode.put("code", null);
+        assertEquivalent(definition, compiled, nullCode);
+        assertEquivalent(definition, compiled, Map.of());
+
+        // A literal the network would not compare exactly stays on the interpreter.
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(ruleSet("big",
+                rule("big-ten", 1, Map.of("code", new BigDecimal("10.00"))))));
+    }
+
+    @Test
+    void everyOperatorMatchesItsStagesOnMixedTypes() {
+        List<Object> literals = new ArrayList<>(List.of(0, -1, 2.5, 1L << 53, "a", "b", "", "\uFF5E", true, false));
+        literals.add(null);
+        List<RuleDefinition> rules = new ArrayList<>();
+        for (Object literal : literals) {
+            String name = String.valueOf(literal);
+            rules.add(rule("is " + name, 0, Collections.singletonMap("v", literal)));
+            for (String operator : List.of("$eq", "$ne")) {
+                rules.add(rule(operator + " " + name, 0, Map.of("v", Collections.singletonMap(operator, literal))));
+            }
+            List<Object> list = new ArrayList<>(List.of("x"));
+            list.add(literal);
+            for (String operator : List.of("$in", "$nin")) {
+                rules.add(rule(operator + " " + name, 0, Map.of("v", Map.of(operator, list))));
+            }
+            if (literal instanceof Number || literal instanceof String) {
+                for (String operator : List.of("$gt", "$gte", "$lt", "$lte")) {
+                    rules.add(rule(operator + " " + name, 0, Map.of("v", Map.of(operator, literal))));
+                }
+            }
+        }
+        RuleSetDefinition definition = new RuleSetDefinition("mixed", "mixed", "1", rules);
+        CompiledRuleSet compiled = compiler.compile(definition);
+
+        List<Object> values = new ArrayList<>(List.of(0, 0L, (short) 0, 0.0, -0.0, -1, -1.0, 2.5, 2.5f, 3,
+                (1L << 53), (1L << 53) + 1, (double) (1L << 53), Double.NaN, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, new BigDecimal("2.5"), BigInteger.ONE, "a", "b", "ab", "", "A", "0",
+                "\uFF5E", "\uD83D\uDE00", true, false, List.of(), List.of(-1, "b"), List.of(2.5, true),
+                List.of("\uD83D\uDE00")));
+        values.add(null);
+        for (Object value : values) {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("v", value);
+            assertEquivalent(definition, compiled, payload);
+        }
+        assertEquivalent(definition, compiled, Map.of());
+    }
+
+    @Test
+    void ordersFieldsByMeasuredEliminations() {
+        // Equality tests are guessed to clear more rules than $ne tests...
+        RuleSetDefinition definition = ruleSet("measured",
+                rule("one", 1, Map.of("code", 1, "state", Map.of("$ne", "closed"))),
+                rule("two", 2, Map.of("code", 2, "state", Map.of("$ne", "closed"))));
+        CompiledRuleSet compiled = compiler.compile(definition);
+        assertEquals(List.of("code", "state"), compiled.fieldOrder());
+
+        // ...but here every payload is closed, which clears both rules, while
+        // its code only ever clears one.
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(List.of(), compiled.match(Map.of("code", 1 + i % 2, "state", "closed")));
+        }
+        compiled.reorder();
+
+        assertEquals(List.of("state", "code"), compiled.fieldOrder());
+        assertEquivalent(definition, compiled, Map.of("code", 2, "state", "open"));
+    }
+
+    @Test
+    void indeterminateValuesFallBackToTheStages() {
+        RuleSetDefinition definition = ruleSet("nested",
+                rule("new-customer", 1, Map.of("customer.status", "new")),
+                rule("tagged", 2, Map.of("tags", Map.of("$in", List.of("vip")))));
+        CompiledRuleSet compiled = compiler.compile(definition);
+        LoadedRuleSet loaded = new LoadedRuleSet(definition, 1, compiled, ACTIONS);
+        List<Map<String, Object>> payloads = List.of(
+                Map.of("customer", List.of(Map.of("status", "new"))),
+                Map.of("customer", Map.of("status", Map.of("code", "new"))),
+                Map.of("tags", List.of(List.of("vip"))),
+                Map.of("tags", List.of(Map.of("name", "vip"))));
+        for (Map<String, Object> payload : payloads) {
+            assertNull(compiled.match(payload), () -> "network should not decide " + payload);
+            assertNull(compiled.evaluate(payload));
+            assertEquals(ids(loaded.matchStages(payload)), ids(loaded.match(payload)));
+            assertEquals(ids(loaded.matchStages(payload)), loaded.evaluate(payload).stream().map(RuleMatch::id).toList());
+        }
+    }
+
+    @Test
+    void matchedRulesRunTheirContributedActions() {
+        AtomicInteger executions = new AtomicInteger();
+        RuleAction counting = context -> context.putAttribute("count", executions.incrementAndGet());
+        RuleActions actions = RuleActions.of(Map.of("count", counting,
+                "flag", context -> context.putAttribute("flagged", true)));
+        RuleSetDefinition definition = new RuleSetDefinition("counted", "counted", "1", List.of(
+                new RuleDefinition("high", "high", 2, List.of(Map.of("$match", Map.of("total", Map.of("$gte", 10)))),
+                        List.of("count", "flag")),
+                new RuleDefinition("any", "any", 1, List.of(Map.of("$match", Map.of("total", Map.of("$gte", 0)))),
+                        List.of("count"))));
+        CompiledRuleSet compiled = new RuleSetCompiler(actions).compile(definition);
+
+        assertEquals(List.of("high", "any"), ids(compiled.match(Map.of("total", 20))));
+        assertEquals(0, executions.get(), "matching must not run actions");
+
+        List<RuleMatch> matches = compiled.evaluate(Map.of("total", 20));
+        assertNotNull(matches);
+        assertEquals(2, executions.get());
+        assertEquals(Map.of("count", 1, "flagged", true), matches.get(0).attributes());
+        assertEquals(Map.of("count", 2), matches.get(1).attributes());
+    }
+
+    @Test
+    void unknownActionsAreNotCompiled() {
+        RuleSetDefinition definition = new RuleSetDefinition("unknown", "unknown", "1", List.of(
+                new RuleDefinition("r", "r", 1, List.of(Map.of("$match", Map.of("a", 1))), List.of("missing"))));
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> compiler.compile(definition));
+        assertTrue(error.getMessage().contains("unknown action missing"), error.getMessage());
+    }
+
+    private static void assertEquivalent(RuleSetDefinition definition, CompiledRuleSet compiled,
+                                         Map<String, Object> payload) {
+        LoadedRuleSet reference = new LoadedRuleSet(definition, 1, null, ACTIONS);
+        List<RuleMatch> expected = reference.evaluateStages(payload);
+        List<RuleMatch> actual = compiled.evaluate(payload);
+        if (actual == null) {
+            assertTrue(inexact(payload), () -> definition.id() + " network could not decide " + payload);
+            actual = new LoadedRuleSet(definition, 1, compiled, ACTIONS).evaluate(payload);
+        }
+        assertEquals(expected, actual, () -> definition.id() + " disagrees with its stages for " + payload);
+    }
+
+    /**
+     * Whether {@code value} holds something the network leaves to the
+     * interpreter: NaN, an integer beyond 2^53, a number of another class or
+     * a string with surrogate pairs.
+     */
+    private static boolean inexact(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            return map.values().stream().anyMatch(CompiledRuleSetEquivalenceTest::inexact);
+        }
+        if (value instanceof List<?> list) {
+            return list.stream().anyMatch(CompiledRuleSetEquivalenceTest::inexact);
+        }
+        if (value instanceof String text) {
+            return text.chars().anyMatch(c -> Character.isSurrogate((char) c));
+        }
+        if (value instanceof Double number) {
+            return number.isNaN();
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return Math.abs(((Number) value).longValue()) > 1L << 53;
+        }
+        return value instanceof Number;
+    }
+
+    private static List<String> ids(List<RuleDefinition> rules) {
+        return rules.stream().map(RuleDefinition::id).toList();
+    }
+
+    private static List<RuleSetDefinition> sampleRuleSets() throws IOException {
+        RuleSetLoader loader = new RuleSetLoader(new StandardEnvironment(), new DefaultResourceLoader(),
+                Jackson2ObjectMapperBuilder.json().build());
+        List<RuleSetDefinition> definitions = new ArrayList<>();
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources("classpath:rules/*.json")) {
+            definitions.add(loader.read(resource));
+        }
+        return definitions;
+    }
+
+    /**
+     * Values worth trying for every field a rule set tests: each literal, its
+     * neighbours and other numeric types, arrays straddling it, {@code null},
+     * a string and the field being absent.
+     */
+    private static Map<String, List<Object>> candidateValues(RuleSetDefinition definition) {
+        Map<String, Set<Object>> values = new LinkedHashMap<>();
+        for (RuleDefinition rule : definition.rules()) {
+            for (Map<String, Object> stage : rule.stages()) {
+                if (!(stage.get("$match") instanceof Map<?, ?> filter)) {
+                    continue;
+                }
+                filter.forEach((path, condition) -> {
+                    Set<Object> candidates = values.computeIfAbsent(path.toString(), ignored -> new LinkedHashSet<>());
+                    List<Object> literals = new ArrayList<>();
+                    if (condition instanceof Map<?, ?> operators) {
+                        operators.values().forEach(operand -> {
+                            if (operand instanceof List<?> list) {
+                                literals.addAll(list);
+                            } else {
+                                literals.add(operand);
+                            }
+                        });
+                    } else {
+                        literals.add(condition);
+                    }
+                    for (Object literal : literals) {
+                        candidates.addAll(variants(literal));
+                    }
+                });
+            }
+        }
+        Map<String, List<Object>> candidates = new LinkedHashMap<>();
+        values.forEach((path, set) -> {
+            List<Object> list = new ArrayList<>(set);
+            list.add(null);
+            list.add("other");
+            list.add(Absent.INSTANCE);
+            candidates.put(path, list);
+        });
+        return candidates;
+    }
+
+    private static List<Object> variants(Object literal) {
+        if (literal instanceof Number number) {
+            long whole = number.longValue();
+            double value = number.doubleValue();
+            return List.of(number, whole, (int) whole, value, BigDecimal.valueOf(value), value - 1, value + 1,
+                    value - 0.5, value + 0.5, List.of(value - 1, value + 1), List.of(value - 1), List.of(whole));
+        }
+        if (literal instanceof String text) {
+            return List.of(text, text.toUpperCase(), List.of(text), List.of("other", text), List.of("other"),
+                    List.of());
+        }
+        return List.of(literal, List.of(literal));
+    }
+
+    private static RuleSetDefinition ruleSet(String id, RuleDefinition... rules) {
+        return new RuleSetDefinition(id, id, "1", List.of(rules));
+    }
+
+    private static RuleDefinition rule(String id, int salience, Map<String, Object> filter) {
+        return new RuleDefinition(id, id, salience, List.of(Map.of("$match", filter)), List.of("flag-order"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void put(Map<String, Object> payload, String path, Object value) {
+        String[] segments = path.split("\\.");
+        Map<String, Object> current = payload;
+        for (int i = 0; i < segments.length - 1; i++) {
+            current = (Map<String, Object>) current.computeIfAbsent(segments[i], ignored -> new LinkedHashMap<>());
+        }
+        current.put(segments[segments.length - 1], value);
+    }
+
+    /** Candidate meaning the field is left out of the payload. */
+    private enum Absent {
+        INSTANCE
+    }
+}
@@ -0,0 +1,53 @@
+package ai.fluxion.samples.rules.evaluation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ai.fluxion.samples.rules.evaluation.RuleSetDefinition.RuleDefinition;
+import ai.fluxion.samples.rules.profiling.ActionTimings;
+import ai.fluxion.samples.rules.profiling.RuleProfiler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that each evaluation mode runs a matching rule's actions exactly
+ * once, including shadow mode, which also consults the compiled network.
+ */
+class RuleEvaluatorTest {
+
+    private final AtomicInteger actionRuns = new AtomicInteger();
+    private final RuleActions actions = RuleActions.of(Map.of(
+            "flag-order", context -> context.putAttribute("flagged", actionRuns.incrementAndGet())));
+
+    @Test
+    void everyModeRunsEachActionOnce() {
+        for (RuleEvaluationMode mode : RuleEvaluationMode.values()) {
+            actionRuns.set(0);
+            RuleEvaluator evaluator = evaluator(mode);
+
+            List<RuleMatch> matches = evaluator.evaluate("orders", Map.of("amount", 250));
+
+            assertEquals(List.of("large"), matches.stream().map(RuleMatch::id).toList(), mode::name);
+            assertEquals(1, actionRuns.get(), mode::name);
+            assertEquals(Map.of("flagged", 1), matches.get(0).attributes(), mode::name);
+        }
+    }
+
+    private RuleEvaluator evaluator(RuleEvaluationMode mode) {
+        RuleSetDefinition definition = new RuleSetDefinition("orders", "orders", "1", List.of(
+                new RuleDefinition("large", "Large order", 1,
+                        List.of(Map.of("$match", Map.of("amount", Map.of("$gt", 100)))),
+                        List.of("flag-order"))));
+        // A reloaded version, so interpreting it runs its own stages rather
+        // than the starter's interpreter.
+        LoadedRuleSet ruleSet = new LoadedRuleSet(definition, 1,
+                new RuleSetCompiler(actions).compile(definition), actions);
+        CompiledRuleSetRegistry registry = new CompiledRuleSetRegistry();
+        registry.publish(ruleSet);
+        RuleProfiler profiler = new RuleProfiler(new SimpleMeterRegistry(), new ActionTimings(), 0.0);
+        return new RuleEvaluator(null, registry, mode, profiler);
+    }
+}
@@ -0,0 +1,160 @@
+package ai.fluxion.samples.rules.profiling;
+
+import java.util.List;
+import java.util.Map;
+
+import ai.fluxion.rules.domain.RuleAction;
+import ai.fluxion.rules.domain.RuleContext;
+import ai.fluxion.samples.rules.bootstrap.SampleRuleActionContributor;
+import ai.fluxion.samples.rules.evaluation.LoadedRuleSet;
+import ai.fluxion.samples.rules.evaluation.RuleActions;
+import ai.fluxion.samples.rules.evaluation.RuleMatch;
+import ai.fluxion.samples.rules.evaluation.RuleSetDefinition;
+import ai.fluxion.samples.rules.evaluation.RuleSetDefinition.RuleDefinition;
+import ai.fluxion.samples.rules.profiling.RuleProfiler.RuleSetReport;
+import ai.fluxion.samples.rules.profiling.RuleProfiler.StageReport;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that stage timings come from the evaluation that is served, that
+ * action timings are kept per rule set, restart with a new version and cover
+ * the actions the starter's interpreter runs, that
+ * reporting leaves the timings untouched, and that no meter is tagged per
+ * stage.
+ */
+class RuleProfilerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ActionTimings actionTimings = new ActionTimings();
+
+    @Test
+    void timesTheStagesOfTheServedEvaluation() {
+        RuleProfiler profiler = new RuleProfiler(meterRegistry, actionTimings, 1.0);
+        LoadedRuleSet timed = orders("timed", 0);
+        profiler.register(List.of(timed));
+
+        Map<String, Object> large = Map.of("amount", 250, "status", "open");
+        List<RuleMatch> served = timed.evaluateStages(large, profiler.observer(timed));
+        profiler.record(timed, served, 1_000);
+        timed.evaluateStages(Map.of("amount", 50, "status", "open"), profiler.observer(timed));
+
+        assertEquals(timed.evaluateStages(large).stream().map(RuleMatch::id).toList(),
+                served.stream().map(RuleMatch::id).toList());
+        RuleSetReport report = profiler.report("timed").orElseThrow();
+        assertEquals(1, report.sampledEvaluations());
+        assertEquals(2, stage(report, "large", 0).invocations());
+        assertEquals(0.5, stage(report, "large", 0).passRate());
+        // The second stage only runs for the document that survived the first.
+        assertEquals(1, stage(report, "large", 1).invocations());
+        assertEquals(1.0, stage(report, "large", 1).passRate());
+
+        // An evaluation still running on a replaced version is not observed.
+        profiler.record(orders("timed", 1), List.of(), -1);
+        assertNull(profiler.observer(timed));
+    }
+
+    @Test
+    void timesActionsPerRuleSet() {
+        RuleProfiler profiler = new RuleProfiler(meterRegistry, actionTimings, 0.0);
+        LoadedRuleSet startup = orders("web-orders", 0);
+        profiler.register(List.of(startup, orders("store-orders", 0)));
+
+        Map<String, Object> large = Map.of("amount", 250, "status", "open");
+        for (int i = 0; i < 3; i++) {
+            startup.evaluateStages(large);
+        }
+        orders("store-orders", 0).evaluateStages(large);
+
+        assertEquals(3, profiler.report("web-orders").orElseThrow().actions().get(0).executions());
+        assertEquals(1, profiler.report("store-orders").orElseThrow().actions().get(0).executions());
+        assertEquals(3, meterRegistry.get("fluxion.rules.action")
+                .tags("ruleSet", "web-orders", "action", "flag-order").functionTimer().count());
+
+        // The first evaluation of a new version restarts the timings of its
+        // rule set only.
+        profiler.record(orders("web-orders", 1), List.of(), -1);
+        assertEquals(0, profiler.report("web-orders").orElseThrow().actions().get(0).executions());
+        assertEquals(1, profiler.report("store-orders").orElseThrow().actions().get(0).executions());
+        assertEquals(1, profiler.report("web-orders").orElseThrow().evaluations());
+
+        // An evaluation still finishing on the previous version is not counted.
+        profiler.record(startup, List.of(), -1);
+        assertEquals(1, profiler.report("web-orders").orElseThrow().evaluations());
+    }
+
+    @Test
+    void timesActionsTheStartersInterpreterRuns() {
+        RuleProfiler profiler = new RuleProfiler(meterRegistry, actionTimings, 0.0);
+        profiler.register(List.of(orders("web-orders", 0)));
+        // The actions the starter loads through ServiceLoader, run the way
+        // its interpreter runs them for a passing rule.
+        RuleAction flagOrder = new SampleRuleActionContributor().ruleActions().get("flag-order");
+
+        for (int i = 0; i < 5; i++) {
+            profiler.attributeActions("web-orders", () -> {
+                flagOrder.execute(new RuleContext());
+                return null;
+            });
+        }
+        // Outside an evaluation nothing is attributed, so nothing is counted.
+        flagOrder.execute(new RuleContext());
+
+        assertEquals(5, profiler.report("web-orders").orElseThrow().actions().get(0).executions());
+        assertEquals(5, meterRegistry.get("fluxion.rules.action")
+                .tags("ruleSet", "web-orders", "action", "flag-order").functionTimer().count());
+    }
+
+    @Test
+    void reportingCreatesNoTimings() {
+        RuleProfiler profiler = new RuleProfiler(meterRegistry, actionTimings, 0.0);
+        profiler.register(List.of(orders("quiet", 0)));
+        actionTimings.reset("quiet");
+
+        RuleSetReport report = profiler.report("quiet").orElseThrow();
+
+        assertEquals(0, report.actions().get(0).executions());
+        assertNull(actionTimings.find("quiet", "flag-order"));
+    }
+
+    @Test
+    void tagsNoMeterByStage() {
+        RuleProfiler profiler = new RuleProfiler(meterRegistry, actionTimings, 1.0);
+        LoadedRuleSet untagged = orders("untagged", 0);
+        profiler.register(List.of(untagged));
+        profiler.record(untagged, untagged.evaluateStages(Map.of("amount", 250, "status", "open"),
+                profiler.observer(untagged)), 1_000);
+
+        assertTrue(meterRegistry.find("fluxion.rules.stage").meters().isEmpty());
+        for (Meter meter : meterRegistry.getMeters()) {
+            assertNull(meter.getId().getTag("stage"), meter.getId()::toString);
+        }
+        // Stage detail stays in the report.
+        assertEquals(1, stage(profiler.report("untagged").orElseThrow(), "large", 0).invocations());
+    }
+
+    private static StageReport stage(RuleSetReport report, String ruleId, int index) {
+        return report.rules().stream()
+                .filter(rule -> rule.id().equals(ruleId))
+                .findFirst()
+                .orElseThrow()
+                .stages()
+                .get(index);
+    }
+
+    private LoadedRuleSet orders(String id, long generation) {
+        RuleSetDefinition definition = new RuleSetDefinition(id, id, "1", List.of(
+                new RuleDefinition("large", "Large order", 1,
+                        List.of(Map.of("$match", Map.of("amount", Map.of("$gt", 100))),
+                                Map.of("$match", Map.of("status", "open"))),
+                        List.of("flag-order"))));
+        return new LoadedRuleSet(definition, generation, null,
+                RuleActions.of(Map.of("flag-order", context -> context.putAttribute("flagged", true)),
+                        actionTimings));
+    }
+}
@@ -0,0 +1,164 @@
+package ai.fluxion.samples.rules.reload;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ai.fluxion.rules.spring.boot.RuleSetsLoadedEvent;
+import ai.fluxion.samples.rules.evaluation.CompiledRuleSetRegistry;
+import ai.fluxion.samples.rules.evaluation.LoadedRuleSet;
+import ai.fluxion.samples.rules.evaluation.RuleActions;
+import ai.fluxion.samples.rules.evaluation.RuleSetDefinition;
+import ai.fluxion.samples.rules.evaluation.RuleSetDefinition.RuleDefinition;
+import ai.fluxion.samples.rules.evaluation.RuleSetLoader;
+import ai.fluxion.samples.rules.reload.RuleSetReloader.ReloadOutcome;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a reload puts a rule set's stages and compiled network into
+ * service together, that a definition failing validation leaves the version
+ * in service untouched and unannounced, and that warm-up matches passing and
+ * failing payloads without running any rule action.
+ */
+class RuleSetReloaderTest {
+
+    private final CompiledRuleSetRegistry registry = new CompiledRuleSetRegistry();
+    private final List<Object> events = new CopyOnWriteArrayList<>();
+    private final AtomicInteger actionRuns = new AtomicInteger();
+    private final RuleActions actions = RuleActions.of(Map.of(
+            "flag-order", context -> actionRuns.incrementAndGet()));
+
+    @Test
+    void swapsStagesAndNetworkTogetherUnderConcurrentReaders() throws InterruptedException {
+        RuleSetReloader reloader = reloader(0);
+        reloader.reload(orders("1", Map.of("amount", Map.of("$gt", 100))), "test");
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> torn = new AtomicReference<>();
+        CountDownLatch readersStarted = new CountDownLatch(4);
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            readers.add(Thread.ofPlatform().start(() -> {
+                readersStarted.countDown();
+                while (!done.get()) {
+                    LoadedRuleSet ruleSet = registry.find("orders").orElseThrow();
+                    String version = ruleSet.definition().version();
+                    // Matching through the network where there is one.
+                    boolean matched = !ruleSet.match(Map.of("amount", 300)).isEmpty();
+                    boolean consistent = switch (version) {
+                        case "1" -> ruleSet.isCompiled() && matched;
+                        case "2" -> ruleSet.isCompiled() && !matched;
+                        default -> !ruleSet.isCompiled() && !matched;
+                    };
+                    if (!consistent) {
+                        torn.compareAndSet(null, "version " + version + (ruleSet.isCompiled() ? " compiled" : "")
+                                + (matched ? " matched" : " did not match"));
+                    }
+                }
+            }));
+        }
+        readersStarted.await();
+        for (int i = 0; i < 300; i++) {
+            ReloadOutcome outcome = switch (i % 3) {
+                case 0 -> reloader.reload(orders("2", Map.of("amount", Map.of("$gt", 500))), "test");
+                case 1 -> reloader.reload(orders("uncompiled", Map.of("note", Map.of("$regex", "rush"))), "test");
+                default -> reloader.reload(orders("1", Map.of("amount", Map.of("$gt", 100))), "test");
+            };
+            assertNull(outcome.error());
+            assertEquals(i % 3 != 1, outcome.compiled());
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(torn.get(), torn::get);
+        LoadedRuleSet ruleSet = registry.find("orders").orElseThrow();
+        assertEquals("1", ruleSet.definition().version());
+        assertTrue(ruleSet.isCompiled());
+        assertEquals(301, ruleSet.generation());
+    }
+
+    @Test
+    void rejectsAnInvalidVersionAndKeepsTheOneInService() {
+        RuleSetReloader reloader = reloader(0);
+        ReloadOutcome accepted = reloader.reload(orders("1", Map.of("amount", Map.of("$gt", 100))), "test");
+        LoadedRuleSet before = registry.find("orders").orElseThrow();
+        assertEquals(1, events.size());
+        assertTrue(events.get(0) instanceof RuleSetsLoadedEvent);
+
+        RuleSetDefinition duplicateIds = new RuleSetDefinition("orders", "orders", "2", List.of(
+                rule("large", Map.of("amount", Map.of("$gt", 100)), "flag-order"),
+                rule("large", Map.of("amount", Map.of("$gt", 500)), "flag-order")));
+        RuleSetDefinition unknownAction = new RuleSetDefinition("orders", "orders", "3", List.of(
+                rule("large", Map.of("amount", Map.of("$gt", 100)), "page-on-call")));
+
+        for (RuleSetDefinition invalid : List.of(duplicateIds, unknownAction)) {
+            ReloadOutcome rejected = reloader.reload(invalid, "test");
+            assertNotNull(rejected.error());
+            assertFalse(rejected.compiled());
+        }
+
+        LoadedRuleSet after = registry.find("orders").orElseThrow();
+        assertSame(before, after);
+        assertEquals(accepted.generation(), after.generation());
+        assertEquals(1, events.size(), "a rejected version must not be announced");
+    }
+
+    @Test
+    void warmsUpPassingAndFailingPathsWithoutRunningActions() {
+        RuleSetDefinition definition = new RuleSetDefinition("orders", "orders", "1", List.of(
+                rule("large", Map.of("amount", Map.of("$gt", 100), "status", "open"), "flag-order")));
+        RuleSetReloader reloader = reloader(50);
+
+        ReloadOutcome outcome = reloader.reload(definition, "test");
+
+        assertNull(outcome.error());
+        List<Map<String, Object>> payloads = WarmupPayloads.from(definition);
+        assertEquals(50L * payloads.size(), outcome.warmupEvaluations());
+        assertEquals(0, actionRuns.get());
+
+        // The empty payload, the passing one, and for each of the two
+        // conditions one value outside it followed by one of another type.
+        LoadedRuleSet ruleSet = registry.find("orders").orElseThrow();
+        assertEquals(6, payloads.size());
+        List<Boolean> passed = payloads.stream().map(payload -> !ruleSet.matchStages(payload).isEmpty()).toList();
+        assertFalse(passed.get(0));
+        assertTrue(passed.get(1));
+        assertFalse(passed.get(2));
+        assertFalse(passed.get(4));
+
+        // The same rule set runs its actions once it serves a payload.
+        assertEquals(1, ruleSet.evaluateStages(Map.of("amount", 250, "status", "open")).size());
+        assertEquals(1, actionRuns.get());
+    }
+
+    private RuleSetReloader reloader(int warmupIterations) {
+        RuleSetLoader loader = new RuleSetLoader(new StandardEnvironment(), new DefaultResourceLoader(),
+                new ObjectMapper());
+        return new RuleSetReloader(loader, registry, events::add, actions, "", warmupIterations);
+    }
+
+    private static RuleSetDefinition orders(String version, Map<String, Object> filter) {
+        return new RuleSetDefinition("orders", "orders", version, List.of(rule("large", filter, "flag-order")));
+    }
+
+    private static RuleDefinition rule(String id, Map<String, Object> filter, String action) {
+        return new RuleDefinition(id, id, 1, List.of(Map.of("$match", filter)), List.of(action));
+    }
+}
@@ -0,0 +1,314 @@
+package ai.fluxion.sample.streaming.kafka;
+
+import ai.fluxion.core.model.Document;
+import ai.fluxion.sample.streaming.kafka.codec.DocumentCodec;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Kafka sink that never waits for acknowledgements on the write path.
+ * Records are handed to the producer as they arrive and complete through
+ * callbacks, so many batches are in flight at once. Only when the encoded
+ * bytes awaiting acknowledgement exceed {@code maxInFlightBytes} does
+ * {@link #send} block, which pushes back into the pipeline that called it.
+ *
+ * <p>By default delivery is at-least-once: a failed send is reported by the
+ * next {@link #send} or {@link #flush}. With a {@code transactionalId},
+ * output is written inside producer transactions and {@link #commit} makes it
+ * visible together with the consumer offsets that produced it, as
+ * {@link TransactionalKafkaPipeline} does; failures then surface from
+ * {@code commit} or {@link #flush}. Methods other than the counters must be called from one
+ * thread.
+ */
+public final class AsyncKafkaSink implements AutoCloseable {
+
+    private final Producer<byte[], byte[]> producer;
+    private final String topic;
+    private final DocumentCodec codec;
+    private final String keyField;
+    private final int maxInFlightBytes;
+    private final Duration closeTimeout;
+    private final boolean transactional;
+    private final Semaphore budget;
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private final LongAdder acknowledged = new LongAdder();
+    private final LongAdder blockedNanos = new LongAdder();
+    private boolean inTransaction;
+
+    private AsyncKafkaSink(Builder builder, Producer<byte[], byte[]> producer) {
+        this.producer = producer;
+        this.topic = builder.topic;
+        this.codec = builder.codec;
+        this.keyField = builder.keyField;
+        this.maxInFlightBytes = builder.maxInFlightBytes;
+        this.closeTimeout = builder.closeTimeout;
+        this.transactional = builder.transactionalId != null;
+        this.budget = new Semaphore(maxInFlightBytes);
+        if (transactional) {
+            producer.initTransactions();
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Encodes and sends {@code documents}, blocking only while the in-flight
+     * byte budget is exhausted.
+     */
+    public void send(List<Document> documents) {
+        begin();
+        for (Document document : documents) {
+            send(new ProducerRecord<>(topic, key(document), codec.encode(document)));
+        }
+    }
+
+    /**
+     * Sends an already encoded record to {@code topic} instead of the sink's
+     * own topic, within the open transaction in transactional mode. Used to
+     * dead-letter input records as they were consumed.
+     */
+    public void send(String topic, byte[] key, byte[] value) {
+        begin();
+        send(new ProducerRecord<>(topic, key, value));
+    }
+
+    /**
+     * Waits until every record sent so far is acknowledged and throws if any
+     * of them failed, in transactional mode too, so a caller sending one
+     * record at a time learns which record failed before it commits.
+     */
+    public void flush() {
+        producer.flush();
+        Exception failed = failure.get();
+        if (failed != null) {
+            throw new IllegalStateException("Failed to send to " + topic, failed);
+        }
+    }
+
+    /**
+     * Commits the open transaction together with {@code offsets} for the
+     * consumer group described by {@code group}. Throws the producer's
+     * {@link org.apache.kafka.common.KafkaException} if any record of the
+     * transaction failed; call {@link #abort} and rewind the consumer then.
+     */
+    public void commit(Map<TopicPartition, OffsetAndMetadata> offsets, ConsumerGroupMetadata group) {
+        if (!transactional) {
+            throw new IllegalStateException("commit requires a transactionalId");
+        }
+        if (!inTransaction) {
+            if (offsets.isEmpty()) {
+                return;
+            }
+            producer.beginTransaction();
+            inTransaction = true;
+        }
+        if (!offsets.isEmpty()) {
+            producer.sendOffsetsToTransaction(offsets, group);
+        }
+        producer.commitTransaction();
+        inTransaction = false;
+    }
+
+    /** Discards the open transaction and any recorded send failure. */
+    public void abort() {
+        if (inTransaction) {
+            producer.abortTransaction();
+            inTransaction = false;
+        }
+        failure.set(null);
+    }
+
+    /** Bytes sent but not yet acknowledged. */
+    public long inFlightBytes() {
+        return maxInFlightBytes - budget.availablePermits();
+    }
+
+    public long acknowledged() {
+        return acknowledged.sum();
+    }
+
+    /** Time {@link #send} spent blocked on the in-flight budget. */
+    public Duration backpressureTime() {
+        return Duration.ofNanos(blockedNanos.sum());
+    }
+
+    /**
+     * Flushes outstanding records and closes the producer. An uncommitted
+     * transaction is aborted, since its offsets were never committed.
+     */
+    @Override
+    public void close() {
+        try {
+            if (inTransaction) {
+                abort();
+            } else {
+                producer.flush();
+            }
+        } finally {
+            producer.close(closeTimeout);
+        }
+    }
+
+    private void begin() {
+        throwIfFailed();
+        if (transactional && !inTransaction) {
+            producer.beginTransaction();
+            inTransaction = true;
+        }
+    }
+
+    private void send(ProducerRecord<byte[], byte[]> record) {
+        // A record larger than the whole budget still goes out, alone.
+        int permits = Math.min(record.value() == null ? 0 : record.value().length, maxInFlightBytes);
+        acquire(permits);
+        // The producer either throws or calls back, but release at most once whatever it does.
+        AtomicBoolean released = new AtomicBoolean();
+        try {
+            producer.send(record, (metadata, exception) -> {
+                release(permits, released);
+                if (exception != null) {
+                    failure.compareAndSet(null, exception);
+                } else {
+                    acknowledged.increment();
+                }
+            });
+        } catch (RuntimeException e) {
+            release(permits, released);
+            throw e;
+        }
+    }
+
+    private void acquire(int permits) {
+        if (budget.tryAcquire(permits)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            budget.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for in-flight records to " + topic, e);
+        } finally {
+            blockedNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private void release(int permits, AtomicBoolean released) {
+        if (released.compareAndSet(false, true)) {
+            budget.release(permits);
+        }
+    }
+
+    private void throwIfFailed() {
+        // Inside a transaction the failure makes commitTransaction throw instead.
+        Exception failed = transactional ? null : failure.get();
+        if (failed != null) {
+            throw new IllegalStateException("Failed to send to " + topic, failed);
+        }
+    }
+
+    private byte[] key(Document document) {
+        if (keyField == null) {
+            return null;
+        }
+        Object key = document.get(keyField);
+        return key == null ? null : key.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static final class Builder {
+        private Properties producerProperties;
+        private String topic;
+        private DocumentCodec codec;
+        private String keyField;
+        private int maxInFlightBytes = 16 * 1024 * 1024;
+        private Duration closeTimeout = Duration.ofSeconds(30);
+        private String transactionalId;
+
+        private Builder() {
+        }
+
+        public Builder producerProperties(Properties producerProperties) {
+            this.producerProperties = producerProperties;
+            return this;
+        }
+
+        public Builder topic(String topic) {
+            this.topic = topic;
+            return this;
+        }
+
+        public Builder codec(DocumentCodec codec) {
+            this.codec = codec;
+            return this;
+        }
+
+        /** Top-level field used as the record key; records are unkeyed if unset. */
+        public Builder keyField(String keyField) {
+            this.keyField = keyField;
+            return this;
+        }
+
+        public Builder maxInFlightBytes(int maxInFlightBytes) {
+            this.maxInFlightBytes = maxInFlightBytes;
+            return this;
+        }
+
+        public Builder closeTimeout(Duration closeTimeout) {
+            this.closeTimeout = closeTimeout;
+            return this;
+        }
+
+        /** Enables transactional mode; must be stable across restarts of the same instance. */
+        public Builder transactionalId(String transactionalId) {
+            this.transactionalId = transactionalId;
+            return this;
+        }
+
+        public AsyncKafkaSink build() {
+            return build(KafkaProducer::new);
+        }
+
+        /** Builds the sink around the producer {@code producers} creates from the final properties. */
+        AsyncKafkaSink build(Function<Properties, Producer<byte[], byte[]>> producers) {
+            if (producerProperties == null || topic == null || codec == null) {
+                throw new IllegalArgumentException("producerProperties, topic and codec are required");
+            }
+            if (maxInFlightBytes <= 0) {
+                throw new IllegalArgumentException("maxInFlightBytes must be positive");
+            }
+            if (closeTimeout == null || closeTimeout.isNegative()) {
+                throw new IllegalArgumentException("closeTimeout must not be negative");
+            }
+            Properties properties = new Properties();
+            properties.putAll(producerProperties);
+            properties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+            properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+            properties.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, "true");
+            // A few milliseconds of linger lets the producer batch records the pipeline hands over one by one.
+            properties.putIfAbsent(ProducerConfig.LINGER_MS_CONFIG, "5");
+            if (transactionalId != null) {
+                properties.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, transactionalId);
+            }
+            return new AsyncKafkaSink(this, producers.apply(properties));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ai.fluxion.sample.streaming.kafka;
+
+import ai.fluxion.core.model.Document;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Kafka source that hands raw record values to a decoder from a
+ * {@link ai.fluxion.sample.streaming.kafka.codec.DocumentCodec}, so no JSON
+ * string is built per record. Records the decoder maps to {@code null}, such
+ * as those rejected by a pushed-down {@code $match}, are counted and skipped.
+ *
+ * <p>The source is an {@link Iterable} that blocks until records arrive and
+ * ends after {@link #cancel()}. It can be iterated once.
+ */
+public final class CodecKafkaSource implements Iterable<Document> {
+
+    private final Properties properties;
+    private final String topic;
+    private final Duration pollTimeout;
+    private final Function<byte[], Document> decoder;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private volatile KafkaConsumer<byte[], byte[]> consumer;
+
+    public CodecKafkaSource(Properties consumerProperties,
+                            String topic,
+                            Duration pollTimeout,
+                            Function<byte[], Document> decoder) {
+        this.properties = new Properties();
+        this.properties.putAll(consumerProperties);
+        this.properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        this.properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        this.topic = topic;
+        this.pollTimeout = pollTimeout;
+        this.decoder = decoder;
+    }
+
+    @Override
+    public Iterator<Document> iterator() {
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException("CodecKafkaSource can only be iterated once");
+        }
+        KafkaConsumer<byte[], byte[]> created = new KafkaConsumer<>(properties);
+        created.subscribe(Collections.singleton(topic));
+        consumer = created;
+        return new Iterator<>() {
+            private final ArrayDeque<Document> pending = new ArrayDeque<>();
+            private boolean closed;
+
+            @Override
+            public boolean hasNext() {
+                while (pending.isEmpty() && !closed) {
+                    if (cancelled.get()) {
+                        close();
+                        break;
+                    }
+                    try {
+                        for (ConsumerRecord<byte[], byte[]> record : created.poll(pollTimeout)) {
+                            received.increment();
+                            Document document = record.value() == null ? null : decoder.apply(record.value());
+                            if (document == null) {
+                                skipped.increment();
+                            } else {
+                                pending.add(document);
+                            }
+                        }
+                    } catch (WakeupException e) {
+                        if (!cancelled.get()) {
+                            throw e;
+                        }
+                    }
+                }
+                return !pending.isEmpty();
+            }
+
+            @Override
+            public Document next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return pending.poll();
+            }
+
+            private void close() {
+                closed = true;
+                created.close();
+            }
+        };
+    }
+
+    /** Ends iteration; safe to call from any thread. */
+    public void cancel() {
+        cancelled.set(true);
+        KafkaConsumer<byte[], byte[]> current = consumer;
+        if (current != null) {
+            current.wakeup();
+        }
+    }
+
+    /** Records polled from the topic. */
+    public long received() {
+        return received.sum();
+    }
+
+    /** Records dropped by the decoder without reaching the pipeline. */
+    public long skipped() {
+        return skipped.sum();
+    }
+}
@@ -1,22 +1,23 @@
 package ai.fluxion.sample.streaming.kafka;
 
-import ai.fluxion.connect.connectors.KafkaProducerSink;
-import ai.fluxion.connect.streaming.sources.KafkaStreamingSource;
+import ai.fluxion.core.engine.PipelineExecutor;
 import ai.fluxion.core.engine.streaming.StreamingContext;
 import ai.fluxion.core.engine.streaming.StreamingErrorPolicy;
 import ai.fluxion.core.engine.streaming.StreamingPipelineExecutor;
 import ai.fluxion.core.engine.streaming.StreamingRuntimeConfig;
 import ai.fluxion.core.model.Document;
 import ai.fluxion.core.model.Stage;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import ai.fluxion.sample.streaming.kafka.codec.BinaryDocumentCodec;
+import ai.fluxion.sample.streaming.kafka.codec.DocumentCodec;
+import ai.fluxion.sample.streaming.kafka.codec.JsonDocumentCodec;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.ByteArraySerializer;
-import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,7 +27,6 @@ import org.testcontainers.utility.DockerImageName;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -35,17 +35,29 @@ import java.util.UUID;
 /**
  * Spins up a Kafka Testcontainer, streams messages through a Fluxion pipeline,
  * and verifies that the enriched payloads reach an output topic.
+ *
+ * <p>Record values use the binary {@link DocumentCodec} by default; pass
+ * {@code json} as the first argument for JSON values. With the binary codec
+ * the pipeline's leading {@code $match} is checked on the encoded bytes, so
+ * the filtered tenant is never decoded.
+ *
+ * <p>Output is written by {@link AsyncKafkaSink} without waiting on each
+ * batch. Pass {@code --transactional} to run the exactly-once
+ * {@link TransactionalKafkaPipeline} instead, which commits input offsets in
+ * the same transaction as the output.
  */
 public final class KafkaStreamingSample {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(KafkaStreamingSample.class);
-    private static final ObjectMapper MAPPER = new ObjectMapper();
 
     private KafkaStreamingSample() {
     }
 
     public static void main(String[] args) throws Exception {
         System.setProperty("otel.sdk.disabled", "true");
+        List<String> options = List.of(args);
+        DocumentCodec codec = options.contains("json") ? new JsonDocumentCodec() : new BinaryDocumentCodec();
+        boolean transactional = options.contains("--transactional");
         DockerImageName image = DockerImageName.parse("confluentinc/cp-kafka:7.5.3");
         try (KafkaContainer kafka = new KafkaContainer(image)) {
             kafka.start();
@@ -54,96 +66,148 @@ public final class KafkaStreamingSample {
             String inputTopic = "fluxion.sample.input";
             String outputTopic = "fluxion.sample.output";
 
-            produceSampleMessages(bootstrap, inputTopic);
-            LOGGER.info("Seeded sample messages into {}", inputTopic);
+            produceSampleMessages(bootstrap, inputTopic, codec);
+            LOGGER.info("Seeded sample messages into {} using {}", inputTopic, codec.getClass().getSimpleName());
 
             Properties consumerProps = new Properties();
             consumerProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrap);
-            consumerProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
-            consumerProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
             consumerProps.put(ConsumerConfig.GROUP_ID_CONFIG, "fluxion-sample" + UUID.randomUUID());
             consumerProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+            consumerProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 32);
 
-            KafkaStreamingSource source = new KafkaStreamingSource(consumerProps, inputTopic, Duration.ofMillis(500), 32);
+            List<Map<String, Object>> pipeline = List.of(
+                    Map.of("$match", Map.of("tenant", Map.of("$in", List.of("alpha", "beta")))),
+                    Map.of("$set", Map.of("processed", true)));
+            List<Stage> stages = pipeline.stream().map(Stage::new).toList();
 
             Properties producerProps = new Properties();
             producerProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrap);
-            producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
-            producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
-
-            KafkaProducerSink sink = new KafkaProducerSink(producerProps, outputTopic, 32, Duration.ofSeconds(5));
-
-            StreamingRuntimeConfig runtimeConfig = StreamingRuntimeConfig.builder()
-                    .directHandoff(false)
-                    .queueCapacity(64)
-                    .sourceQueueCapacity(16)
-                    .workerThreadPoolSize(4)
-                    .build();
-
-            StreamingPipelineExecutor executor = new StreamingPipelineExecutor(32, runtimeConfig, StreamingErrorPolicy.failFast());
-            StreamingContext context = new StreamingContext();
-
-            List<Stage> stages = List.of(new Stage(Map.of("$set", Map.of("processed", true))));
-
-            Thread worker = Thread.ofVirtual().start(() -> executor.processStream(source, stages, sink, context));
-
-            try {
-                List<Map<String, Object>> output = drainOutput(bootstrap, outputTopic, 2, Duration.ofSeconds(20));
-                LOGGER.info("Received {} processed records", output.size());
-                for (Map<String, Object> doc : output) {
-                    LOGGER.info("Processed record: {}", doc);
-                }
-            } finally {
-                source.cancel();
-                sink.close();
-                worker.join(Duration.ofSeconds(5));
+
+            AsyncKafkaSink.Builder sinkBuilder = AsyncKafkaSink.builder()
+                    .producerProperties(producerProps)
+                    .topic(outputTopic)
+                    .codec(codec)
+                    .keyField("orderId")
+                    .maxInFlightBytes(1024 * 1024);
+            if (transactional) {
+                runTransactional(bootstrap, consumerProps, inputTopic, outputTopic, codec, pipeline, stages,
+                        sinkBuilder.transactionalId("fluxion-sample-tx").build());
+            } else {
+                runStreaming(bootstrap, consumerProps, inputTopic, outputTopic, codec, pipeline, stages,
+                        sinkBuilder.build());
             }
         }
         System.exit(0);
     }
 
-    private static void produceSampleMessages(String bootstrap, String topic) throws Exception {
+    private static void runStreaming(String bootstrap,
+                                     Properties consumerProps,
+                                     String inputTopic,
+                                     String outputTopic,
+                                     DocumentCodec codec,
+                                     List<Map<String, Object>> pipeline,
+                                     List<Stage> stages,
+                                     AsyncKafkaSink sink) throws Exception {
+        CodecKafkaSource source = new CodecKafkaSource(consumerProps, inputTopic, Duration.ofMillis(500),
+                codec.decoderFor(pipeline));
+
+        StreamingRuntimeConfig runtimeConfig = StreamingRuntimeConfig.builder()
+                .directHandoff(false)
+                .queueCapacity(64)
+                .sourceQueueCapacity(16)
+                .workerThreadPoolSize(4)
+                .build();
+
+        StreamingPipelineExecutor executor = new StreamingPipelineExecutor(32, runtimeConfig, StreamingErrorPolicy.failFast());
+        StreamingContext context = new StreamingContext();
+
+        Thread worker = Thread.ofVirtual().start(() -> executor.processStream(source, stages, sink::send, context));
+
+        try {
+            List<Map<String, Object>> output = drainOutput(bootstrap, outputTopic, codec, 2, Duration.ofSeconds(20));
+            LOGGER.info("Received {} processed records; {} of {} input records skipped before decoding, "
+                            + "{} ms spent waiting on the in-flight budget",
+                    output.size(), source.skipped(), source.received(), sink.backpressureTime().toMillis());
+            for (Map<String, Object> doc : output) {
+                LOGGER.info("Processed record: {}", doc);
+            }
+        } finally {
+            source.cancel();
+            worker.join(Duration.ofSeconds(5));
+            sink.close();
+        }
+    }
+
+    private static void runTransactional(String bootstrap,
+                                         Properties consumerProps,
+                                         String inputTopic,
+                                         String outputTopic,
+                                         DocumentCodec codec,
+                                         List<Map<String, Object>> pipeline,
+                                         List<Stage> stages,
+                                         AsyncKafkaSink sink) throws Exception {
+        TransactionalKafkaPipeline transactionalPipeline = TransactionalKafkaPipeline.builder()
+                .consumerProperties(consumerProps)
+                .topic(inputTopic)
+                .decoder(codec.decoderFor(pipeline))
+                .executor(new PipelineExecutor())
+                .stages(stages)
+                .sink(sink)
+                .build();
+        Thread worker = Thread.ofVirtual().start(transactionalPipeline::run);
+        try {
+            List<Map<String, Object>> output = drainOutput(bootstrap, outputTopic, codec, 2, Duration.ofSeconds(20));
+            LOGGER.info("Received {} records from {} committed transactions", output.size(),
+                    transactionalPipeline.committedTransactions());
+            for (Map<String, Object> doc : output) {
+                LOGGER.info("Processed record: {}", doc);
+            }
+        } finally {
+            transactionalPipeline.cancel();
+            worker.join(Duration.ofSeconds(5));
+            sink.close();
+        }
+    }
+
+    private static void produceSampleMessages(String bootstrap, String topic, DocumentCodec codec) throws Exception {
         Properties props = new Properties();
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrap);
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
 
-        try (KafkaProducer<String, String> producer = new KafkaProducer<>(props)) {
+        try (KafkaProducer<String, byte[]> producer = new KafkaProducer<>(props)) {
             List<Map<String, Object>> payloads = List.of(
                     Map.of("orderId", "A-100", "total", 42, "tenant", "alpha"),
-                    Map.of("orderId", "A-101", "total", 13, "tenant", "beta")
+                    Map.of("orderId", "A-101", "total", 13, "tenant", "beta"),
+                    Map.of("orderId", "A-102", "total", 7, "tenant", "gamma")
             );
             for (Map<String, Object> payload : payloads) {
-                producer.send(new ProducerRecord<>(topic, payload.get("orderId").toString(), MAPPER.writeValueAsString(payload))).get();
+                byte[] value = codec.encode(new Document(payload));
+                producer.send(new ProducerRecord<>(topic, payload.get("orderId").toString(), value)).get();
             }
         }
     }
 
     private static List<Map<String, Object>> drainOutput(String bootstrap,
                                                           String topic,
+                                                          DocumentCodec codec,
                                                           int expected,
                                                           Duration timeout) throws Exception {
         Properties props = new Properties();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrap);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
         props.put(ConsumerConfig.GROUP_ID_CONFIG, "fluxion-sample-consumer" + UUID.randomUUID());
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
 
         List<Map<String, Object>> collected = new ArrayList<>();
-        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props)) {
+        try (KafkaConsumer<byte[], byte[]> consumer = new KafkaConsumer<>(props)) {
             consumer.subscribe(Collections.singleton(topic));
             long deadline = System.nanoTime() + timeout.toNanos();
             while (System.nanoTime() < deadline && collected.size() < expected) {
-                ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(250));
-                records.forEach(record -> {
-                    try {
-                        Map<String, Object> decoded = MAPPER.readValue(record.value(), LinkedHashMap.class);
-                        collected.add(decoded);
-                    } catch (Exception e) {
-                        throw new RuntimeException(e);
-                    }
-                });
+                ConsumerRecords<byte[], byte[]> records = consumer.poll(Duration.ofMillis(250));
+                records.forEach(record -> collected.add(codec.decode(record.value()).getData()));
             }
         }
         return collected;
@@ -0,0 +1,460 @@
+package ai.fluxion.sample.streaming.kafka;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.AuthorizationException;
+import org.apache.kafka.common.errors.OutOfOrderSequenceException;
+import org.apache.kafka.common.errors.ProducerFencedException;
+import org.apache.kafka.common.errors.RetriableException;
+import org.apache.kafka.common.errors.UnsupportedVersionException;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Exactly-once consume-transform-produce loop. Each poll is decoded, run
+ * through the stages and handed to a transactional {@link AsyncKafkaSink}
+ * without waiting for acknowledgements; every {@code maxRecordsPerTransaction}
+ * records or {@code maxTransactionInterval}, the sink commits the output
+ * together with the consumed offsets. A failed transaction is aborted and the
+ * consumer rewound to the last committed offsets, so every input record is
+ * reflected in the output exactly once for {@code read_committed} readers.
+ *
+ * <p>A poll whose records fail to decode, to run through the stages or to be
+ * sent is aborted and rewound the same way, and so is a transaction whose
+ * commit fails. The records up to the end of that poll or transaction are
+ * then processed one at a time, each one's output sent and flushed on its
+ * own so a failure is pinned on the record that caused it. A record that
+ * still fails to decode or transform, or whose output the producer rejects
+ * with an error a retry cannot clear, such as a
+ * {@link org.apache.kafka.common.errors.RecordTooLargeException}, is a
+ * poison record: it is written unchanged to the {@code deadLetterTopic}
+ * inside the same transaction, or skipped when no dead-letter topic is set
+ * or the dead-letter topic rejects it too. Since a failed send dooms the
+ * whole transaction, a record whose output was rejected is dead-lettered on
+ * the next replay. Either way its offset is committed, so one bad record
+ * never stalls its partition. Retriable failures are only rewound and
+ * retried; fatal ones, such as a fenced producer, end the run.
+ */
+public final class TransactionalKafkaPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionalKafkaPipeline.class);
+
+    private final Properties properties;
+    private final String topic;
+    private final Function<byte[], Document> decoder;
+    private final PipelineExecutor executor;
+    private final List<Stage> stages;
+    private final Map<String, Object> variables;
+    private final Function<Properties, Consumer<byte[], byte[]>> consumers;
+    private final AsyncKafkaSink sink;
+    private final Duration pollTimeout;
+    private final int maxRecordsPerTransaction;
+    private final Duration maxTransactionInterval;
+    private final String deadLetterTopic;
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder aborted = new LongAdder();
+    private final LongAdder poisonRecords = new LongAdder();
+    private final Map<TopicPartition, OffsetAndMetadata> pending = new HashMap<>();
+    // Last offset, per partition, of a poll that failed; records up to it are processed one at a time.
+    private final Map<TopicPartition, Long> isolateUntil = new HashMap<>();
+    // Records whose output, or whose dead letter, the producer rejected; replays skip that step.
+    private final Map<RecordId, Verdict> poisoned = new HashMap<>();
+    private volatile Consumer<byte[], byte[]> consumer;
+    private int pendingRecords;
+    private long transactionStart;
+
+    private TransactionalKafkaPipeline(Builder builder) {
+        this.properties = new Properties();
+        this.properties.putAll(builder.consumerProperties);
+        this.properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        this.properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        this.properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        this.properties.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        this.topic = builder.topic;
+        this.decoder = builder.decoder;
+        this.executor = builder.executor;
+        this.stages = List.copyOf(builder.stages);
+        this.variables = Map.copyOf(builder.variables);
+        this.consumers = builder.consumers;
+        this.sink = builder.sink;
+        this.pollTimeout = builder.pollTimeout;
+        this.maxRecordsPerTransaction = builder.maxRecordsPerTransaction;
+        this.maxTransactionInterval = builder.maxTransactionInterval;
+        this.deadLetterTopic = builder.deadLetterTopic;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Runs until {@link #cancel()}, then commits what has been processed. */
+    public void run() {
+        try (Consumer<byte[], byte[]> created = consumers.apply(properties)) {
+            consumer = created;
+            created.subscribe(Collections.singleton(topic), new ConsumerRebalanceListener() {
+                @Override
+                public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                    // Offsets of revoked partitions can only be committed by the current generation.
+                    commit(created);
+                    isolateUntil.keySet().removeAll(partitions);
+                    poisoned.keySet().removeIf(id -> partitions.contains(id.partition()));
+                }
+
+                @Override
+                public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                }
+            });
+            while (!cancelled.get()) {
+                ConsumerRecords<byte[], byte[]> records;
+                try {
+                    records = created.poll(pollTimeout);
+                } catch (WakeupException e) {
+                    if (cancelled.get()) {
+                        break;
+                    }
+                    throw e;
+                }
+                process(created, records);
+                if (pendingRecords >= maxRecordsPerTransaction
+                        || (pendingRecords > 0 && System.nanoTime() - transactionStart >= maxTransactionInterval.toNanos())) {
+                    commit(created);
+                }
+            }
+            commit(created);
+        }
+    }
+
+    public void cancel() {
+        cancelled.set(true);
+        Consumer<byte[], byte[]> current = consumer;
+        if (current != null) {
+            current.wakeup();
+        }
+    }
+
+    public long committedTransactions() {
+        return committed.sum();
+    }
+
+    public long abortedTransactions() {
+        return aborted.sum();
+    }
+
+    /** Records that failed on their own and were dead-lettered or skipped. */
+    public long poisonRecords() {
+        return poisonRecords.sum();
+    }
+
+    private void process(Consumer<byte[], byte[]> consumer, ConsumerRecords<byte[], byte[]> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        if (pendingRecords == 0) {
+            transactionStart = System.nanoTime();
+        }
+        List<ConsumerRecord<byte[], byte[]>> batch = new ArrayList<>(records.count());
+        try {
+            // Within a partition the isolated records come first, so output keeps partition order.
+            for (ConsumerRecord<byte[], byte[]> record : records) {
+                if (isolated(record)) {
+                    processAlone(record);
+                } else {
+                    batch.add(record);
+                }
+            }
+            List<Document> output = transform(batch);
+            if (!output.isEmpty()) {
+                sink.send(output);
+            }
+        } catch (RuntimeException e) {
+            if (fatal(e)) {
+                throw e;
+            }
+            for (ConsumerRecord<byte[], byte[]> record : records) {
+                isolateUntil.merge(partition(record), record.offset(), Math::max);
+            }
+            abort(consumer, e);
+            return;
+        }
+        for (ConsumerRecord<byte[], byte[]> record : records) {
+            pending.put(partition(record), new OffsetAndMetadata(record.offset() + 1));
+        }
+        pendingRecords += records.count();
+    }
+
+    private List<Document> transform(List<ConsumerRecord<byte[], byte[]>> records) {
+        List<Document> input = new ArrayList<>(records.size());
+        for (ConsumerRecord<byte[], byte[]> record : records) {
+            Document document = record.value() == null ? null : decoder.apply(record.value());
+            if (document != null) {
+                input.add(document);
+            }
+        }
+        return input.isEmpty() ? List.of() : executor.execute(input, stages, variables);
+    }
+
+    /** Whether {@code record} belongs to a failed poll being replayed. */
+    private boolean isolated(ConsumerRecord<byte[], byte[]> record) {
+        TopicPartition partition = partition(record);
+        Long last = isolateUntil.get(partition);
+        if (last == null) {
+            return false;
+        }
+        if (record.offset() >= last) {
+            isolateUntil.remove(partition);
+        }
+        return record.offset() <= last;
+    }
+
+    private void processAlone(ConsumerRecord<byte[], byte[]> record) {
+        RecordId id = new RecordId(partition(record), record.offset());
+        Verdict verdict = poisoned.get(id);
+        if (verdict == Verdict.SKIP) {
+            poisonRecords.increment();
+            LOGGER.warn("Skipping poison record {}@{}: the dead-letter topic rejected it", id.partition(), id.offset());
+            return;
+        }
+        if (verdict == Verdict.DEAD_LETTER) {
+            deadLetter(record, id, "its output was rejected");
+            return;
+        }
+        List<Document> output;
+        try {
+            output = transform(List.of(record));
+        } catch (RuntimeException e) {
+            deadLetter(record, id, e.toString());
+            return;
+        }
+        if (!output.isEmpty()) {
+            sendAlone(id, Verdict.DEAD_LETTER, () -> sink.send(output));
+        }
+    }
+
+    private void deadLetter(ConsumerRecord<byte[], byte[]> record, RecordId id, String reason) {
+        poisonRecords.increment();
+        if (deadLetterTopic == null) {
+            LOGGER.warn("Skipping poison record {}@{}: {}", id.partition(), id.offset(), reason);
+            return;
+        }
+        LOGGER.warn("Dead-lettering poison record {}@{} to {}: {}", id.partition(), id.offset(), deadLetterTopic, reason);
+        sendAlone(id, Verdict.SKIP, () -> sink.send(deadLetterTopic, record.key(), record.value()));
+    }
+
+    /**
+     * Sends one record's output and waits for it. When the producer rejects
+     * it for good, the record is marked so the replay after the abort does
+     * {@code onRejected} with it instead.
+     */
+    private void sendAlone(RecordId id, Verdict onRejected, Runnable send) {
+        try {
+            send.run();
+            sink.flush();
+        } catch (RuntimeException e) {
+            if (!fatal(e) && !retriable(e)) {
+                poisoned.put(id, onRejected);
+            }
+            throw e;
+        }
+    }
+
+    private static boolean fatal(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ProducerFencedException
+                    || cause instanceof OutOfOrderSequenceException
+                    || cause instanceof AuthorizationException
+                    || cause instanceof UnsupportedVersionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean retriable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static TopicPartition partition(ConsumerRecord<byte[], byte[]> record) {
+        return new TopicPartition(record.topic(), record.partition());
+    }
+
+    private void commit(Consumer<byte[], byte[]> consumer) {
+        if (pendingRecords == 0) {
+            return;
+        }
+        try {
+            sink.commit(pending, consumer.groupMetadata());
+            committed.increment();
+            poisoned.keySet().removeIf(id -> pending.containsKey(id.partition())
+                    && id.offset() < pending.get(id.partition()).offset());
+            pending.clear();
+            pendingRecords = 0;
+        } catch (KafkaException e) {
+            if (fatal(e)) {
+                throw e;
+            }
+            // Replay the transaction one record at a time to find a record that failed it.
+            pending.forEach((partition, offset) -> isolateUntil.merge(partition, offset.offset() - 1, Math::max));
+            abort(consumer, e);
+        }
+    }
+
+    private void abort(Consumer<byte[], byte[]> consumer, RuntimeException cause) {
+        LOGGER.warn("Aborting transaction over {} records and rewinding: {}", pendingRecords, cause.toString());
+        sink.abort();
+        aborted.increment();
+        pending.clear();
+        pendingRecords = 0;
+        Set<TopicPartition> assignment = consumer.assignment();
+        Map<TopicPartition, OffsetAndMetadata> offsets = consumer.committed(assignment);
+        for (TopicPartition partition : assignment) {
+            OffsetAndMetadata offset = offsets.get(partition);
+            if (offset != null) {
+                consumer.seek(partition, offset.offset());
+            } else {
+                consumer.seekToBeginning(Collections.singleton(partition));
+            }
+        }
+    }
+
+    private record RecordId(TopicPartition partition, long offset) {
+    }
+
+    /** What a replay does with a record the producer rejected. */
+    private enum Verdict {
+        DEAD_LETTER,
+        SKIP
+    }
+
+    public static final class Builder {
+        private Properties consumerProperties;
+        private String topic;
+        private Function<byte[], Document> decoder;
+        private PipelineExecutor executor = new PipelineExecutor();
+        private List<Stage> stages = List.of();
+        private Map<String, Object> variables = Map.of();
+        private Function<Properties, Consumer<byte[], byte[]>> consumers = KafkaConsumer::new;
+        private AsyncKafkaSink sink;
+        private Duration pollTimeout = Duration.ofMillis(500);
+        private int maxRecordsPerTransaction = 1_000;
+        private Duration maxTransactionInterval = Duration.ofMillis(200);
+        private String deadLetterTopic;
+
+        private Builder() {
+        }
+
+        public Builder consumerProperties(Properties consumerProperties) {
+            this.consumerProperties = consumerProperties;
+            return this;
+        }
+
+        public Builder topic(String topic) {
+            this.topic = topic;
+            return this;
+        }
+
+        /** Decodes record values; records mapped to {@code null} are consumed without output. */
+        public Builder decoder(Function<byte[], Document> decoder) {
+            this.decoder = decoder;
+            return this;
+        }
+
+        public Builder executor(PipelineExecutor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public Builder stages(List<Stage> stages) {
+            this.stages = stages;
+            return this;
+        }
+
+        public Builder variables(Map<String, Object> variables) {
+            this.variables = variables;
+            return this;
+        }
+
+        /** Creates the consumer from the final properties; tests substitute a mock. */
+        Builder consumers(Function<Properties, Consumer<byte[], byte[]>> consumers) {
+            this.consumers = consumers;
+            return this;
+        }
+
+        /** A sink built with a {@code transactionalId}. */
+        public Builder sink(AsyncKafkaSink sink) {
+            this.sink = sink;
+            return this;
+        }
+
+        public Builder pollTimeout(Duration pollTimeout) {
+            this.pollTimeout = pollTimeout;
+            return this;
+        }
+
+        public Builder maxRecordsPerTransaction(int maxRecordsPerTransaction) {
+            this.maxRecordsPerTransaction = maxRecordsPerTransaction;
+            return this;
+        }
+
+        public Builder maxTransactionInterval(Duration maxTransactionInterval) {
+            this.maxTransactionInterval = maxTransactionInterval;
+            return this;
+        }
+
+        /**
+         * Topic that receives poison records as they were consumed; when
+         * unset they are logged and skipped.
+         */
+        public Builder deadLetterTopic(String deadLetterTopic) {
+            this.deadLetterTopic = deadLetterTopic;
+            return this;
+        }
+
+        public TransactionalKafkaPipeline build() {
+            if (consumerProperties == null || topic == null || decoder == null || sink == null) {
+                throw new IllegalArgumentException("consumerProperties, topic, decoder and sink are required");
+            }
+            if (executor == null || stages == null || variables == null) {
+                throw new IllegalArgumentException("executor, stages and variables must not be null");
+            }
+            if (maxRecordsPerTransaction <= 0) {
+                throw new IllegalArgumentException("maxRecordsPerTransaction must be positive");
+            }
+            if (pollTimeout == null || pollTimeout.isNegative()
+                    || maxTransactionInterval == null || maxTransactionInterval.isNegative()) {
+                throw new IllegalArgumentException("pollTimeout and maxTransactionInterval must not be negative");
+            }
+            return new TransactionalKafkaPipeline(this);
+        }
+    }
+}
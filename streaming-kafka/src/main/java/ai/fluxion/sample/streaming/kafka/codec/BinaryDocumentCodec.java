@@ -0,0 +1,224 @@
+package ai.fluxion.sample.streaming.kafka.codec;
+
+import ai.fluxion.core.model.Document;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Compact binary values with lazy decoding. A record is a magic byte followed
+ * by its fields, each written as a length-prefixed UTF-8 name and a
+ * length-prefixed, type-tagged value; integers are zig-zag varints and
+ * doubles are 8 raw bytes.
+ *
+ * <p>Decoding only indexes the record: field names are interned through a
+ * shared table so repeated names are not reallocated, and a value is decoded
+ * the first time a stage reads it. Filtering decoders test a leading
+ * {@code $match} against the raw value bytes and drop most records without
+ * building a single value. The test is conservative, keeping any record it
+ * cannot decide, so the {@code $match} stays in the pipeline and has the last
+ * word on the records that pass.
+ */
+public final class BinaryDocumentCodec implements DocumentCodec {
+
+    static final byte MAGIC = (byte) 0xF1;
+
+    static final byte NULL = 0;
+    static final byte FALSE = 1;
+    static final byte TRUE = 2;
+    static final byte INT = 3;
+    static final byte LONG = 4;
+    static final byte DOUBLE = 5;
+    static final byte STRING = 6;
+    static final byte BYTES = 7;
+    static final byte LIST = 8;
+    static final byte MAP = 9;
+    static final byte DECIMAL = 10;
+
+    private static final int MAX_CACHED_NAMES = 4096;
+
+    private final Map<String, byte[]> encodedNames = new ConcurrentHashMap<>();
+    private final FieldNames fieldNames = new FieldNames(1024);
+
+    @Override
+    public byte[] encode(Document document) {
+        Output output = new Output(256);
+        output.write(MAGIC);
+        writeFields(output, document.getData());
+        return output.toByteArray();
+    }
+
+    @Override
+    public Document decode(byte[] bytes) {
+        return new Document(new LazyDocumentMap(BinaryRecord.parse(bytes, fieldNames)));
+    }
+
+    @Override
+    public Function<byte[], Document> filteringDecoder(Map<String, Object> match) {
+        EncodedMatch compiled = EncodedMatch.compile(match);
+        if (compiled == null) {
+            return null;
+        }
+        return bytes -> {
+            BinaryRecord record = BinaryRecord.parse(bytes, fieldNames);
+            return compiled.test(record) ? new Document(new LazyDocumentMap(record)) : null;
+        };
+    }
+
+    private void writeFields(Output output, Map<?, ?> fields) {
+        output.writeVarint(fields.size());
+        for (Map.Entry<?, ?> entry : fields.entrySet()) {
+            if (!(entry.getKey() instanceof String name)) {
+                throw new IllegalArgumentException("Field names must be strings: " + entry.getKey());
+            }
+            byte[] encoded = nameBytes(name);
+            output.writeVarint(encoded.length);
+            output.write(encoded);
+            int mark = output.beginLength();
+            writeValue(output, entry.getValue());
+            output.endLength(mark);
+        }
+    }
+
+    private void writeValue(Output output, Object value) {
+        if (value == null) {
+            output.write(NULL);
+        } else if (value instanceof Boolean flag) {
+            output.write(flag ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            output.write(INT);
+            output.writeVarint(zigZag(((Number) value).intValue()));
+        } else if (value instanceof Long number) {
+            output.write(LONG);
+            output.writeVarint(zigZag(number));
+        } else if (value instanceof Double || value instanceof Float) {
+            output.write(DOUBLE);
+            output.writeLong(Double.doubleToRawLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof String text) {
+            output.write(STRING);
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            output.writeVarint(utf8.length);
+            output.write(utf8);
+        } else if (value instanceof byte[] binary) {
+            output.write(BYTES);
+            output.writeVarint(binary.length);
+            output.write(binary);
+        } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+            output.write(DECIMAL);
+            byte[] digits = value.toString().getBytes(StandardCharsets.US_ASCII);
+            output.writeVarint(digits.length);
+            output.write(digits);
+        } else if (value instanceof Collection<?> list) {
+            output.write(LIST);
+            output.writeVarint(list.size());
+            for (Object element : list) {
+                writeValue(output, element);
+            }
+        } else if (value instanceof Map<?, ?> nested) {
+            output.write(MAP);
+            writeFields(output, nested);
+        } else {
+            throw new IllegalArgumentException("Unsupported value type " + value.getClass().getName());
+        }
+    }
+
+    private byte[] nameBytes(String name) {
+        byte[] cached = encodedNames.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        if (encodedNames.size() < MAX_CACHED_NAMES) {
+            encodedNames.putIfAbsent(name, encoded);
+        }
+        return encoded;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static final class Output {
+        private byte[] buffer;
+        private int position;
+
+        private Output(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void write(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void write(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeVarint(long value) {
+            ensure(10);
+            position = putVarint(buffer, position, value);
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        /** Reserves one byte for a length written once the value is known. */
+        int beginLength() {
+            ensure(1);
+            return position++;
+        }
+
+        /** Fills in the reserved length, shifting the value right when it needs more than one byte. */
+        void endLength(int mark) {
+            int length = position - mark - 1;
+            int size = varintSize(length);
+            if (size > 1) {
+                ensure(size - 1);
+                System.arraycopy(buffer, mark + 1, buffer, mark + size, length);
+                position += size - 1;
+            }
+            putVarint(buffer, mark, length);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+
+        private static int putVarint(byte[] buffer, int position, long value) {
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+            return position;
+        }
+
+        private static int varintSize(int value) {
+            int size = 1;
+            while ((value & ~0x7F) != 0) {
+                value >>>= 7;
+                size++;
+            }
+            return size;
+        }
+    }
+}
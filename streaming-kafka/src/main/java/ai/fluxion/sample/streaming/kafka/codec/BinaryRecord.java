@@ -0,0 +1,197 @@
+package ai.fluxion.sample.streaming.kafka.codec;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static ai.fluxion.sample.streaming.kafka.codec.BinaryDocumentCodec.BYTES;
+import static ai.fluxion.sample.streaming.kafka.codec.BinaryDocumentCodec.DECIMAL;
+import static ai.fluxion.sample.streaming.kafka.codec.BinaryDocumentCodec.DOUBLE;
+import static ai.fluxion.sample.streaming.kafka.codec.BinaryDocumentCodec.FALSE;
+import static ai.fluxion.sample.streaming.kafka.codec.BinaryDocumentCodec.INT;
+import static ai.fluxion.sample.streaming.kafka.codec.BinaryDocumentCodec.LIST;
+import static ai.fluxion.sample.streaming.kafka.codec.BinaryDocumentCodec.LONG;
+import static ai.fluxion.sample.streaming.kafka.codec.BinaryDocumentCodec.MAGIC;
+import static ai.fluxion.sample.streaming.kafka.codec.BinaryDocumentCodec.MAP;
+import static ai.fluxion.sample.streaming.kafka.codec.BinaryDocumentCodec.NULL;
+import static ai.fluxion.sample.streaming.kafka.codec.BinaryDocumentCodec.STRING;
+import static ai.fluxion.sample.streaming.kafka.codec.BinaryDocumentCodec.TRUE;
+
+/**
+ * Index over one encoded record: the top-level field names and where each
+ * value's bytes start and end. Values are decoded on request only.
+ */
+final class BinaryRecord {
+
+    private final byte[] bytes;
+    private final FieldNames fieldNames;
+    private final String[] names;
+    private final int[] offsets;
+    private final int[] lengths;
+
+    private BinaryRecord(byte[] bytes, FieldNames fieldNames, String[] names, int[] offsets, int[] lengths) {
+        this.bytes = bytes;
+        this.fieldNames = fieldNames;
+        this.names = names;
+        this.offsets = offsets;
+        this.lengths = lengths;
+    }
+
+    static BinaryRecord parse(byte[] bytes, FieldNames fieldNames) {
+        if (bytes.length == 0 || bytes[0] != MAGIC) {
+            throw new IllegalArgumentException("Record value is not a binary-encoded document");
+        }
+        Input input = new Input(bytes, 1, fieldNames);
+        int count = input.readLength();
+        String[] names = new String[count];
+        int[] offsets = new int[count];
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = input.readName();
+            lengths[i] = input.readLength();
+            offsets[i] = input.position;
+            input.skip(lengths[i]);
+        }
+        return new BinaryRecord(bytes, fieldNames, names, offsets, lengths);
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    String name(int index) {
+        return names[index];
+    }
+
+    int indexOf(Object name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    byte tag(int index) {
+        return bytes[offsets[index]];
+    }
+
+    Object value(int index) {
+        return new Input(bytes, offsets[index], fieldNames).readValue();
+    }
+
+    /** Whether the value's bytes, tag included, are exactly {@code encoded}. */
+    boolean valueEquals(int index, byte[] encoded) {
+        int from = offsets[index];
+        return lengths[index] == encoded.length
+                && Arrays.equals(bytes, from, from + lengths[index], encoded, 0, encoded.length);
+    }
+
+    private static final class Input {
+        private final byte[] bytes;
+        private final FieldNames fieldNames;
+        private int position;
+
+        private Input(byte[] bytes, int position, FieldNames fieldNames) {
+            this.bytes = bytes;
+            this.position = position;
+            this.fieldNames = fieldNames;
+        }
+
+        Object readValue() {
+            byte tag = bytes[position++];
+            return switch (tag) {
+                case NULL -> null;
+                case FALSE -> Boolean.FALSE;
+                case TRUE -> Boolean.TRUE;
+                case INT -> (int) unZigZag(readVarint());
+                case LONG -> unZigZag(readVarint());
+                case DOUBLE -> Double.longBitsToDouble(readLong());
+                case STRING -> {
+                    int length = readLength();
+                    String text = new String(bytes, position, length, StandardCharsets.UTF_8);
+                    position += length;
+                    yield text;
+                }
+                case BYTES -> {
+                    int length = readLength();
+                    byte[] binary = Arrays.copyOfRange(bytes, position, position + length);
+                    position += length;
+                    yield binary;
+                }
+                case DECIMAL -> {
+                    int length = readLength();
+                    BigDecimal decimal = new BigDecimal(new String(bytes, position, length, StandardCharsets.US_ASCII));
+                    position += length;
+                    yield decimal;
+                }
+                case LIST -> {
+                    int count = readLength();
+                    List<Object> list = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        list.add(readValue());
+                    }
+                    yield list;
+                }
+                case MAP -> {
+                    int count = readLength();
+                    Map<String, Object> map = new LinkedHashMap<>(Math.max(4, count * 4 / 3 + 1));
+                    for (int i = 0; i < count; i++) {
+                        String name = readName();
+                        readLength();
+                        map.put(name, readValue());
+                    }
+                    yield map;
+                }
+                default -> throw new IllegalArgumentException("Unknown value tag " + tag + " at offset " + (position - 1));
+            };
+        }
+
+        String readName() {
+            int length = readLength();
+            String name = fieldNames.intern(bytes, position, length);
+            position += length;
+            return name;
+        }
+
+        int readLength() {
+            long length = readVarint();
+            if (length < 0 || length > bytes.length - position) {
+                throw new IllegalArgumentException("Corrupt length " + length + " at offset " + position);
+            }
+            return (int) length;
+        }
+
+        void skip(int length) {
+            position += length;
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte next = bytes[position++];
+                value |= (long) (next & 0x7F) << shift;
+                if (next >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint at offset " + position);
+        }
+
+        private long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (bytes[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        private static long unZigZag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ai.fluxion.sample.streaming.kafka.codec;
+
+import ai.fluxion.core.model.Document;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Converts documents to and from Kafka record values. Implementations must be
+ * thread-safe; one instance is shared by every consumer and producer thread.
+ */
+public interface DocumentCodec {
+
+    byte[] encode(Document document);
+
+    Document decode(byte[] bytes);
+
+    /**
+     * Returns a decoder that evaluates the {@code $match} specification
+     * {@code match} on the encoded bytes and yields {@code null} for records it
+     * rejects, or {@code null} if this codec can only evaluate it after a
+     * full decode.
+     */
+    default Function<byte[], Document> filteringDecoder(Map<String, Object> match) {
+        return null;
+    }
+
+    /**
+     * Decoder for a source feeding {@code pipeline}: filtering on its leading
+     * {@code $match} where this codec supports that, plain {@link #decode}
+     * otherwise. The pipeline itself is unchanged and still runs the match.
+     */
+    @SuppressWarnings("unchecked")
+    default Function<byte[], Document> decoderFor(List<Map<String, Object>> pipeline) {
+        if (!pipeline.isEmpty() && pipeline.get(0).size() == 1
+                && pipeline.get(0).get("$match") instanceof Map<?, ?> match) {
+            Function<byte[], Document> filtering = filteringDecoder((Map<String, Object>) match);
+            if (filtering != null) {
+                return filtering;
+            }
+        }
+        return this::decode;
+    }
+}
@@ -0,0 +1,266 @@
+package ai.fluxion.sample.streaming.kafka.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static ai.fluxion.sample.streaming.kafka.codec.BinaryDocumentCodec.LIST;
+import static ai.fluxion.sample.streaming.kafka.codec.BinaryDocumentCodec.MAP;
+import static ai.fluxion.sample.streaming.kafka.codec.BinaryDocumentCodec.NULL;
+import static ai.fluxion.sample.streaming.kafka.codec.BinaryDocumentCodec.STRING;
+
+/**
+ * A {@code $match} over top-level fields evaluated against a
+ * {@link BinaryRecord}: equality, {@code $eq}, {@code $ne}, {@code $in},
+ * {@code $nin}, {@code $gt}, {@code $gte}, {@code $lt}, {@code $lte} and
+ * {@code $exists} with scalar literals. String equality compares encoded
+ * bytes; other conditions decode just the field they name.
+ *
+ * <p>The test only rejects records that certainly fail. Values of different
+ * types never compare, integers compare exactly, other numbers as doubles
+ * with {@code -0.0} equal to {@code 0.0}, and strings by UTF-16 code unit,
+ * the rules the compiled matchers of the other samples follow. Where those
+ * could differ from the executor's the record is kept: arrays and embedded
+ * documents, NaN, integers beyond &plusmn;2<sup>53</sup>, decimals, and
+ * strings with surrogate pairs in a range. {@code BinaryDocumentCodecTest}
+ * checks the filter against the executor on mixed-type records.
+ */
+final class EncodedMatch {
+
+    private static final long EXACT_DOUBLE_LIMIT = 1L << 53;
+
+    private interface Condition {
+        boolean mayMatch(BinaryRecord record);
+    }
+
+    /** A literal together with its encoded form when it is a string. */
+    private record Literal(Object value, byte[] encoded) {
+    }
+
+    private enum Equality {
+        YES, NO, UNKNOWN
+    }
+
+    private final Condition[] conditions;
+
+    private EncodedMatch(Condition[] conditions) {
+        this.conditions = conditions;
+    }
+
+    /** Returns {@code null} when {@code specification} uses anything outside the supported subset. */
+    static EncodedMatch compile(Map<String, Object> specification) {
+        List<Condition> conditions = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : specification.entrySet()) {
+            String field = entry.getKey();
+            if (field.startsWith("$") || field.indexOf('.') >= 0) {
+                return null;
+            }
+            if (!(entry.getValue() instanceof Map<?, ?> operators)) {
+                Literal literal = literal(entry.getValue());
+                if (literal == null) {
+                    return null;
+                }
+                conditions.add(record -> equality(record, field, literal) != Equality.NO);
+                continue;
+            }
+            if (operators.isEmpty()) {
+                return null;
+            }
+            for (Map.Entry<?, ?> operator : operators.entrySet()) {
+                Condition condition = condition(field, String.valueOf(operator.getKey()), operator.getValue());
+                if (condition == null) {
+                    return null;
+                }
+                conditions.add(condition);
+            }
+        }
+        return new EncodedMatch(conditions.toArray(Condition[]::new));
+    }
+
+    boolean test(BinaryRecord record) {
+        for (Condition condition : conditions) {
+            if (!condition.mayMatch(record)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Condition condition(String field, String operator, Object operand) {
+        switch (operator) {
+            case "$eq", "$ne" -> {
+                Literal literal = literal(operand);
+                if (literal == null) {
+                    return null;
+                }
+                return "$eq".equals(operator)
+                        ? record -> equality(record, field, literal) != Equality.NO
+                        : record -> equality(record, field, literal) != Equality.YES;
+            }
+            case "$in", "$nin" -> {
+                if (!(operand instanceof List<?> values)) {
+                    return null;
+                }
+                List<Literal> literals = new ArrayList<>(values.size());
+                for (Object value : values) {
+                    Literal literal = literal(value);
+                    if (literal == null) {
+                        return null;
+                    }
+                    literals.add(literal);
+                }
+                boolean in = "$in".equals(operator);
+                return record -> {
+                    boolean unknown = false;
+                    for (Literal literal : literals) {
+                        Equality equality = equality(record, field, literal);
+                        if (equality == Equality.YES) {
+                            return in;
+                        }
+                        unknown |= equality == Equality.UNKNOWN;
+                    }
+                    return unknown || !in;
+                };
+            }
+            case "$gt", "$gte", "$lt", "$lte" -> {
+                if (!(operand instanceof Number || operand instanceof String)) {
+                    return null;
+                }
+                return record -> range(record, field, operator, operand);
+            }
+            case "$exists" -> {
+                if (!(operand instanceof Boolean exists)) {
+                    return null;
+                }
+                return record -> (record.indexOf(field) >= 0) == exists;
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    private static Literal literal(Object value) {
+        if (value instanceof String text) {
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            // Tag, then the length as a varint, then the bytes: the same layout the codec writes.
+            byte[] encoded = new byte[1 + varintSize(utf8.length) + utf8.length];
+            encoded[0] = STRING;
+            int position = 1;
+            long length = utf8.length;
+            while ((length & ~0x7FL) != 0) {
+                encoded[position++] = (byte) ((length & 0x7F) | 0x80);
+                length >>>= 7;
+            }
+            encoded[position++] = (byte) length;
+            System.arraycopy(utf8, 0, encoded, position, utf8.length);
+            return new Literal(text, encoded);
+        }
+        if (value == null || value instanceof Boolean || value instanceof Integer
+                || value instanceof Long || value instanceof Double) {
+            return new Literal(value, null);
+        }
+        return null;
+    }
+
+    private static Equality equality(BinaryRecord record, String field, Literal literal) {
+        int index = record.indexOf(field);
+        if (index < 0) {
+            // A missing field equals only null.
+            return literal.value() == null ? Equality.YES : Equality.NO;
+        }
+        byte tag = record.tag(index);
+        if (tag == LIST || tag == MAP) {
+            return Equality.UNKNOWN;
+        }
+        if (literal.value() == null) {
+            return tag == NULL ? Equality.YES : Equality.NO;
+        }
+        if (literal.encoded() != null) {
+            return record.valueEquals(index, literal.encoded()) ? Equality.YES : Equality.NO;
+        }
+        Object value = record.value(index);
+        if (literal.value() instanceof Number expected && value instanceof Number actual) {
+            Integer comparison = compareNumbers(actual, expected);
+            return comparison == null ? Equality.UNKNOWN : comparison == 0 ? Equality.YES : Equality.NO;
+        }
+        return literal.value().equals(value) ? Equality.YES : Equality.NO;
+    }
+
+    private static boolean range(BinaryRecord record, String field, String operator, Object operand) {
+        int index = record.indexOf(field);
+        if (index < 0) {
+            return false;
+        }
+        byte tag = record.tag(index);
+        if (tag == LIST || tag == MAP) {
+            return true;
+        }
+        Object value = record.value(index);
+        Integer comparison;
+        if (operand instanceof Number expected && value instanceof Number actual) {
+            comparison = compareNumbers(actual, expected);
+        } else if (operand instanceof String expected && value instanceof String actual) {
+            comparison = hasSurrogates(actual) || hasSurrogates(expected) ? null : actual.compareTo(expected);
+        } else {
+            return false;
+        }
+        if (comparison == null) {
+            return true;
+        }
+        return switch (operator) {
+            case "$gt" -> comparison > 0;
+            case "$gte" -> comparison >= 0;
+            case "$lt" -> comparison < 0;
+            default -> comparison <= 0;
+        };
+    }
+
+    /**
+     * Compares integral and double values, or returns {@code null} for NaN,
+     * decimals and integers beyond 2<sup>53</sup>, which are left to the
+     * executor.
+     */
+    private static Integer compareNumbers(Number left, Number right) {
+        boolean leftIntegral = left instanceof Integer || left instanceof Long;
+        boolean rightIntegral = right instanceof Integer || right instanceof Long;
+        if (!(leftIntegral || left instanceof Double) || !(rightIntegral || right instanceof Double)) {
+            return null;
+        }
+        if ((leftIntegral && !isExact(left.longValue())) || (rightIntegral && !isExact(right.longValue()))) {
+            return null;
+        }
+        if (leftIntegral && rightIntegral) {
+            return Long.compare(left.longValue(), right.longValue());
+        }
+        double a = left.doubleValue();
+        double b = right.doubleValue();
+        if (Double.isNaN(a) || Double.isNaN(b)) {
+            return null;
+        }
+        return a < b ? -1 : a > b ? 1 : 0;
+    }
+
+    private static boolean isExact(long value) {
+        return value <= EXACT_DOUBLE_LIMIT && value >= -EXACT_DOUBLE_LIMIT;
+    }
+
+    private static boolean hasSurrogates(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isSurrogate(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,52 @@
+package ai.fluxion.sample.streaming.kafka.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-size table of decoded field names indexed by a hash of their bytes,
+ * so the handful of names a topic repeats in every record are materialized
+ * once. Entries are immutable strings, so racing writers only ever replace
+ * one valid entry with another.
+ */
+final class FieldNames {
+
+    private final String[] table;
+    private final int mask;
+
+    FieldNames(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        this.table = new String[capacity];
+        this.mask = capacity - 1;
+    }
+
+    String intern(byte[] bytes, int offset, int length) {
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        String cached = table[slot];
+        if (cached != null && matches(cached, bytes, offset, length)) {
+            return cached;
+        }
+        String name = new String(bytes, offset, length, StandardCharsets.UTF_8);
+        table[slot] = name;
+        return name;
+    }
+
+    /** ASCII comparison; names with other characters are simply not reused. */
+    private static boolean matches(String name, byte[] bytes, int offset, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (c >= 0x80 || c != bytes[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,48 @@
+package ai.fluxion.sample.streaming.kafka.codec;
+
+import ai.fluxion.core.model.Document;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+
+/**
+ * JSON values, as produced by the existing producers and tooling. Every record
+ * is decoded in full, so {@code $match} stages cannot be pushed into it.
+ */
+public final class JsonDocumentCodec implements DocumentCodec {
+
+    private static final TypeReference<LinkedHashMap<String, Object>> MAP = new TypeReference<>() {
+    };
+
+    private final ObjectMapper mapper;
+
+    public JsonDocumentCodec() {
+        this(new ObjectMapper());
+    }
+
+    public JsonDocumentCodec(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    @Override
+    public byte[] encode(Document document) {
+        try {
+            return mapper.writeValueAsBytes(document.getData());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Document cannot be written as JSON", e);
+        }
+    }
+
+    @Override
+    public Document decode(byte[] bytes) {
+        try {
+            return new Document(mapper.readValue(bytes, MAP));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Record value is not a JSON object", e);
+        }
+    }
+}
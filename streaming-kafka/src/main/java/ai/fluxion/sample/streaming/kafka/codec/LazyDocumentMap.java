@@ -0,0 +1,79 @@
+package ai.fluxion.sample.streaming.kafka.codec;
+
+import java.util.AbstractMap;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Document data backed by a {@link BinaryRecord}. Lookups decode and cache a
+ * single value; iterating or modifying the map decodes the rest once into an
+ * ordinary {@link LinkedHashMap} that then takes over.
+ */
+final class LazyDocumentMap extends AbstractMap<String, Object> {
+
+    private final BinaryRecord record;
+    private final Object[] values;
+    private final BitSet decoded;
+    private Map<String, Object> materialized;
+
+    LazyDocumentMap(BinaryRecord record) {
+        this.record = record;
+        this.values = new Object[record.size()];
+        this.decoded = new BitSet(record.size());
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (materialized != null) {
+            return materialized.get(key);
+        }
+        int index = record.indexOf(key);
+        return index < 0 ? null : value(index);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return materialized != null ? materialized.containsKey(key) : record.indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return materialized != null ? materialized.size() : record.size();
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        return materialize().put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return materialize().remove(key);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return materialize().entrySet();
+    }
+
+    private Object value(int index) {
+        if (!decoded.get(index)) {
+            values[index] = record.value(index);
+            decoded.set(index);
+        }
+        return values[index];
+    }
+
+    private Map<String, Object> materialize() {
+        if (materialized == null) {
+            Map<String, Object> data = new LinkedHashMap<>(Math.max(4, record.size() * 4 / 3 + 1));
+            for (int i = 0; i < record.size(); i++) {
+                data.put(record.name(i), value(i));
+            }
+            materialized = data;
+        }
+        return materialized;
+    }
+}
@@ -0,0 +1,146 @@
+package ai.fluxion.sample.streaming.kafka;
+
+import ai.fluxion.core.model.Document;
+import ai.fluxion.sample.streaming.kafka.codec.JsonDocumentCodec;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives {@link AsyncKafkaSink} against a {@link MockProducer} that completes
+ * sends only when told to: {@code send} blocks once the unacknowledged bytes
+ * reach the budget and resumes as acknowledgements arrive, a send the
+ * producer rejects outright returns its bytes to the budget, and committed
+ * transactions carry their offsets while aborted ones publish nothing.
+ */
+class AsyncKafkaSinkTest {
+
+    private static final String TOPIC = "orders-out";
+
+    private final JsonDocumentCodec codec = new JsonDocumentCodec();
+    private final MockProducer<byte[], byte[]> producer =
+            new MockProducer<>(false, new ByteArraySerializer(), new ByteArraySerializer());
+
+    @Test
+    void blocksWhileTheInFlightBudgetIsExhausted() throws Exception {
+        Document order = order(1);
+        int size = codec.encode(order).length;
+        AsyncKafkaSink sink = sink(2 * size, null);
+
+        sink.send(List.of(order, order(2)));
+        assertEquals(2L * size, sink.inFlightBytes());
+
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> sink.send(List.of(order(3))));
+        Thread.sleep(100);
+        assertFalse(blocked.isDone(), "send should wait for an acknowledgement");
+
+        assertTrue(producer.completeNext());
+        blocked.get(5, TimeUnit.SECONDS);
+        assertEquals(2L * size, sink.inFlightBytes());
+        assertTrue(sink.backpressureTime().compareTo(Duration.ofMillis(50)) >= 0, sink.backpressureTime()::toString);
+
+        sink.flush();
+        assertEquals(0, sink.inFlightBytes());
+        assertEquals(3, sink.acknowledged());
+        assertEquals(List.of("A-1", "A-2", "A-3"), producer.history().stream()
+                .map(record -> new String(record.key(), StandardCharsets.UTF_8))
+                .toList());
+    }
+
+    @Test
+    void returnsTheBytesOfASendTheProducerRejects() {
+        AsyncKafkaSink sink = sink(1024, null);
+        KafkaException rejected = new KafkaException("buffer exhausted");
+        producer.sendException = rejected;
+
+        assertSame(rejected, assertThrows(KafkaException.class, () -> sink.send(List.of(order(1)))));
+        assertEquals(0, sink.inFlightBytes());
+
+        producer.sendException = null;
+        sink.send(List.of(order(2)));
+        sink.flush();
+        assertEquals(0, sink.inFlightBytes());
+        assertEquals(1, sink.acknowledged());
+    }
+
+    @Test
+    void reportsAFailedAcknowledgementOnTheNextCall() {
+        AsyncKafkaSink sink = sink(1024, null);
+        sink.send(List.of(order(1)));
+
+        assertTrue(producer.errorNext(new KafkaException("leader not available")));
+
+        assertEquals(0, sink.inFlightBytes());
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> sink.send(List.of(order(2))));
+        assertEquals("leader not available", failure.getCause().getMessage());
+    }
+
+    @Test
+    void commitsOutputTogetherWithOffsets() {
+        AsyncKafkaSink sink = sink(1024, "orders-tx");
+        Map<TopicPartition, OffsetAndMetadata> offsets =
+                Map.of(new TopicPartition("orders-in", 0), new OffsetAndMetadata(2));
+
+        sink.send(List.of(order(1), order(2)));
+        sink.commit(offsets, new ConsumerGroupMetadata("orders"));
+
+        assertTrue(producer.transactionCommitted());
+        assertEquals(2, producer.history().size());
+        assertEquals(List.of(Map.of("orders", offsets)), producer.consumerGroupOffsetsHistory());
+        assertEquals(0, sink.inFlightBytes());
+    }
+
+    @Test
+    void abortsAFailedCommitWithoutPublishing() {
+        AsyncKafkaSink sink = sink(1024, "orders-tx");
+        Map<TopicPartition, OffsetAndMetadata> offsets =
+                Map.of(new TopicPartition("orders-in", 0), new OffsetAndMetadata(1));
+        sink.send(List.of(order(1)));
+        producer.commitTransactionException = new KafkaException("transaction timed out");
+
+        assertThrows(KafkaException.class, () -> sink.commit(offsets, new ConsumerGroupMetadata("orders")));
+        sink.abort();
+
+        assertTrue(producer.transactionAborted());
+        assertEquals(List.of(), producer.history());
+        assertEquals(List.of(), producer.consumerGroupOffsetsHistory());
+
+        producer.commitTransactionException = null;
+        sink.send(List.of(order(1)));
+        sink.commit(offsets, new ConsumerGroupMetadata("orders"));
+        assertEquals(1, producer.history().size());
+    }
+
+    private AsyncKafkaSink sink(int maxInFlightBytes, String transactionalId) {
+        return AsyncKafkaSink.builder()
+                .producerProperties(new Properties())
+                .topic(TOPIC)
+                .codec(codec)
+                .keyField("orderId")
+                .maxInFlightBytes(maxInFlightBytes)
+                .transactionalId(transactionalId)
+                .build(properties -> producer);
+    }
+
+    private static Document order(int id) {
+        return new Document(Map.of("orderId", "A-" + id, "total", id * 10));
+    }
+}
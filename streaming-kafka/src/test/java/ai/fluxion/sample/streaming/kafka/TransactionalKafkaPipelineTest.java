@@ -0,0 +1,273 @@
+package ai.fluxion.sample.streaming.kafka;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.sample.streaming.kafka.codec.JsonDocumentCodec;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs {@link TransactionalKafkaPipeline} between a {@link MockConsumer} and a
+ * transactional {@link MockProducer}: when a commit fails the transaction is
+ * aborted and the consumer rewound to its last committed offset, and the
+ * redelivered records then commit exactly once together with their offsets.
+ * A record that cannot be decoded or transformed, or whose output the
+ * producer rejects, is isolated after the rewind and dead-lettered or
+ * skipped, and its offset committed with the rest.
+ */
+class TransactionalKafkaPipelineTest {
+
+    private static final TopicPartition INPUT = new TopicPartition("orders-in", 0);
+
+    private final JsonDocumentCodec codec = new JsonDocumentCodec();
+    private final MockConsumer<byte[], byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private final RejectingProducer producer = new RejectingProducer();
+
+    @Test
+    void abortsAndRewindsAFailedTransactionThenCommitsItOnce() {
+        TransactionalKafkaPipeline pipeline = pipeline();
+        long[] rewoundTo = new long[1];
+        consumer.updateBeginningOffsets(Map.of(INPUT, 0L));
+        consumer.schedulePollTask(() -> {
+            consumer.rebalance(List.of(INPUT));
+            deliver(0, 3);
+            producer.commitTransactionException = new KafkaException("transaction timed out");
+        });
+        consumer.schedulePollTask(() -> {
+            rewoundTo[0] = consumer.position(INPUT);
+            producer.commitTransactionException = null;
+            // The broker redelivers from the rewound position.
+            deliver(0, 3);
+        });
+        consumer.schedulePollTask(pipeline::cancel);
+
+        pipeline.run();
+
+        assertEquals(0, rewoundTo[0]);
+        assertEquals(1, pipeline.abortedTransactions());
+        assertEquals(1, pipeline.committedTransactions());
+        assertEquals(List.of("A-0", "A-1", "A-2"), producer.history().stream()
+                .map(ProducerRecord::value)
+                .map(value -> codec.decode(value).get("orderId"))
+                .toList());
+        List<Map<String, Map<TopicPartition, OffsetAndMetadata>>> offsets = producer.consumerGroupOffsetsHistory();
+        assertEquals(1, offsets.size());
+        assertEquals(Map.of(INPUT, new OffsetAndMetadata(3)), offsets.get(0).values().iterator().next());
+    }
+
+    @Test
+    void rewindsToTheLastCommittedOffset() {
+        TransactionalKafkaPipeline pipeline = pipeline();
+        long[] rewoundTo = new long[1];
+        consumer.updateBeginningOffsets(Map.of(INPUT, 0L));
+        consumer.schedulePollTask(() -> {
+            consumer.rebalance(List.of(INPUT));
+            deliver(0, 3);
+        });
+        consumer.schedulePollTask(() -> {
+            // Offsets commit through the producer; record them where the consumer reads them back.
+            consumer.commitSync(Map.of(INPUT, new OffsetAndMetadata(3)));
+            deliver(3, 6);
+            producer.commitTransactionException = new KafkaException("transaction timed out");
+        });
+        consumer.schedulePollTask(() -> rewoundTo[0] = consumer.position(INPUT));
+        consumer.schedulePollTask(pipeline::cancel);
+
+        pipeline.run();
+
+        assertEquals(3, rewoundTo[0]);
+        assertEquals(1, pipeline.committedTransactions());
+        assertEquals(1, pipeline.abortedTransactions());
+        assertEquals(3, producer.history().size());
+    }
+
+    @Test
+    void deadLettersARecordThatFailsToDecodeAndCommitsTheRest() {
+        TransactionalKafkaPipeline pipeline = pipeline(builder -> builder
+                .decoder(value -> {
+                    if (new String(value, StandardCharsets.UTF_8).equals("not json")) {
+                        throw new IllegalArgumentException("not a document");
+                    }
+                    return codec.decode(value);
+                })
+                .deadLetterTopic("orders-dlq"));
+        consumer.updateBeginningOffsets(Map.of(INPUT, 0L));
+        consumer.schedulePollTask(() -> {
+            consumer.rebalance(List.of(INPUT));
+            deliverWithPoison();
+        });
+        // The broker redelivers from the rewound position.
+        consumer.schedulePollTask(this::deliverWithPoison);
+        consumer.schedulePollTask(pipeline::cancel);
+
+        pipeline.run();
+
+        assertEquals(1, pipeline.abortedTransactions());
+        assertEquals(1, pipeline.committedTransactions());
+        assertEquals(1, pipeline.poisonRecords());
+        List<ProducerRecord<byte[], byte[]>> history = producer.history();
+        assertEquals(List.of("orders-out", "orders-dlq", "orders-out"),
+                history.stream().map(ProducerRecord::topic).toList());
+        assertEquals("not json", new String(history.get(1).value(), StandardCharsets.UTF_8));
+        assertEquals(Map.of(INPUT, new OffsetAndMetadata(3)),
+                producer.consumerGroupOffsetsHistory().get(0).values().iterator().next());
+    }
+
+    @Test
+    void skipsARecordTheStagesRejectWithoutADeadLetterTopic() {
+        PipelineExecutor rejectsA1 = new PipelineExecutor() {
+            @Override
+            public List<Document> execute(List<Document> input, List<Stage> stages, Map<String, Object> variables) {
+                if (input.stream().anyMatch(document -> "A-1".equals(document.get("orderId")))) {
+                    throw new IllegalStateException("cannot price A-1");
+                }
+                return input;
+            }
+        };
+        TransactionalKafkaPipeline pipeline = pipeline(builder -> builder.executor(rejectsA1));
+        consumer.updateBeginningOffsets(Map.of(INPUT, 0L));
+        consumer.schedulePollTask(() -> {
+            consumer.rebalance(List.of(INPUT));
+            deliver(0, 3);
+        });
+        consumer.schedulePollTask(() -> deliver(0, 3));
+        consumer.schedulePollTask(pipeline::cancel);
+
+        pipeline.run();
+
+        assertEquals(1, pipeline.poisonRecords());
+        assertEquals(List.of("A-0", "A-2"), producer.history().stream()
+                .map(ProducerRecord::value)
+                .map(value -> codec.decode(value).get("orderId"))
+                .toList());
+        assertEquals(Map.of(INPUT, new OffsetAndMetadata(3)),
+                producer.consumerGroupOffsetsHistory().get(0).values().iterator().next());
+    }
+
+    @Test
+    void deadLettersARecordWhoseOutputTheProducerRejects() {
+        TransactionalKafkaPipeline pipeline = pipeline(builder -> builder.deadLetterTopic("orders-dlq"));
+        producer.tooLarge = record -> record.topic().equals("orders-out")
+                && "A-1".equals(codec.decode(record.value()).get("orderId"));
+        consumer.updateBeginningOffsets(Map.of(INPUT, 0L));
+        consumer.schedulePollTask(() -> {
+            consumer.rebalance(List.of(INPUT));
+            deliver(0, 3);
+        });
+        // The commit failed: the replay sends A-1's output alone and finds it rejected.
+        consumer.schedulePollTask(() -> deliver(0, 3));
+        // The second replay dead-letters A-1 instead of retrying it forever.
+        consumer.schedulePollTask(() -> deliver(0, 3));
+        consumer.schedulePollTask(pipeline::cancel);
+
+        pipeline.run();
+
+        assertEquals(2, pipeline.abortedTransactions());
+        assertEquals(1, pipeline.committedTransactions());
+        assertEquals(1, pipeline.poisonRecords());
+        List<ProducerRecord<byte[], byte[]>> history = producer.history();
+        assertEquals(List.of("orders-out", "orders-dlq", "orders-out"),
+                history.stream().map(ProducerRecord::topic).toList());
+        assertEquals("A-1", codec.decode(history.get(1).value()).get("orderId"));
+        assertEquals(Map.of(INPUT, new OffsetAndMetadata(3)),
+                producer.consumerGroupOffsetsHistory().get(0).values().iterator().next());
+    }
+
+    private TransactionalKafkaPipeline pipeline() {
+        return pipeline(builder -> builder);
+    }
+
+    private TransactionalKafkaPipeline pipeline(UnaryOperator<TransactionalKafkaPipeline.Builder> customizer) {
+        AsyncKafkaSink sink = AsyncKafkaSink.builder()
+                .producerProperties(new Properties())
+                .topic("orders-out")
+                .codec(codec)
+                .transactionalId("orders-tx")
+                .build(properties -> producer);
+        return customizer.apply(TransactionalKafkaPipeline.builder()
+                        .consumerProperties(new Properties())
+                        .topic(INPUT.topic())
+                        .decoder(codec::decode)
+                        .sink(sink)
+                        .maxRecordsPerTransaction(3)
+                        .consumers(properties -> consumer))
+                .build();
+    }
+
+    private void deliverWithPoison() {
+        deliver(0, 1);
+        byte[] poison = "not json".getBytes(StandardCharsets.UTF_8);
+        consumer.addRecord(new ConsumerRecord<>(INPUT.topic(), INPUT.partition(), 1, null, poison));
+        deliver(2, 3);
+    }
+
+    private void deliver(int from, int to) {
+        for (int offset = from; offset < to; offset++) {
+            byte[] value = codec.encode(new Document(Map.of("orderId", "A-" + offset)));
+            consumer.addRecord(new ConsumerRecord<>(INPUT.topic(), INPUT.partition(), offset, null, value));
+        }
+    }
+
+    /**
+     * A transactional mock producer that fails the callback of records
+     * {@link #tooLarge} matches, as the broker does for an oversized record,
+     * and then refuses to commit the transaction until it is aborted.
+     */
+    private static final class RejectingProducer extends MockProducer<byte[], byte[]> {
+
+        private Predicate<ProducerRecord<byte[], byte[]>> tooLarge = record -> false;
+        private RuntimeException sendFailure;
+
+        RejectingProducer() {
+            super(true, new ByteArraySerializer(), new ByteArraySerializer());
+        }
+
+        @Override
+        public synchronized Future<RecordMetadata> send(ProducerRecord<byte[], byte[]> record, Callback callback) {
+            if (!tooLarge.test(record)) {
+                return super.send(record, callback);
+            }
+            RecordTooLargeException rejected = new RecordTooLargeException("record of " + record.value().length + " bytes");
+            sendFailure = rejected;
+            callback.onCompletion(null, rejected);
+            return CompletableFuture.failedFuture(rejected);
+        }
+
+        @Override
+        public synchronized void commitTransaction() {
+            if (sendFailure != null) {
+                throw new KafkaException("Cannot commit a transaction with a failed send", sendFailure);
+            }
+            super.commitTransaction();
+        }
+
+        @Override
+        public synchronized void abortTransaction() {
+            sendFailure = null;
+            super.abortTransaction();
+        }
+    }
+}
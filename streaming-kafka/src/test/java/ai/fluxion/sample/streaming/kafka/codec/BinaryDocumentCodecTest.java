@@ -0,0 +1,155 @@
+package ai.fluxion.sample.streaming.kafka.codec;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Round-trips documents through the binary codec and checks that filtering
+ * decoders reject records on the encoded bytes alone, while never dropping a
+ * record the {@code $match} might still accept: on mixed-type records every
+ * record the executor matches must get through the filter.
+ */
+class BinaryDocumentCodecTest {
+
+    private final BinaryDocumentCodec codec = new BinaryDocumentCodec();
+
+    @Test
+    void roundTripsEveryValueTypeInFieldOrder() {
+        Map<String, Object> customer = new LinkedHashMap<>();
+        customer.put("name", "Zoë");
+        customer.put("flags", List.of("vip", 3L));
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("orderId", "A-100");
+        data.put("total", 42);
+        data.put("refund", -7);
+        data.put("sequence", Long.MAX_VALUE);
+        data.put("ratio", 0.25);
+        data.put("paid", true);
+        data.put("note", null);
+        data.put("amount", new BigDecimal("12.50"));
+        data.put("customer", customer);
+        data.put("comment", "x".repeat(300));
+
+        Document decoded = codec.decode(codec.encode(new Document(data)));
+
+        assertEquals(data, decoded.getData());
+        assertEquals(List.copyOf(data.keySet()), new ArrayList<>(decoded.getData().keySet()));
+        byte[] binary = {1, 2, 3};
+        Document withBytes = codec.decode(codec.encode(new Document(Map.of("blob", binary))));
+        assertArrayEquals(binary, (byte[]) withBytes.get("blob"));
+    }
+
+    @Test
+    void decodesOnlyTheFieldsThatAreRead() {
+        byte[] bytes = codec.encode(new Document(orderedMap("status", "PAID", "total", 42)));
+        // Corrupt the tag of "total"; reading "status" must not touch it.
+        bytes[bytes.length - 2] = 99;
+
+        Document document = codec.decode(bytes);
+
+        assertEquals("PAID", document.get("status"));
+        assertThrows(IllegalArgumentException.class, () -> document.get("total"));
+    }
+
+    @Test
+    void filteringDecoderDropsRecordsThatCannotMatch() {
+        Function<byte[], Document> decoder = codec.decoderFor(List.of(
+                Map.of("$match", Map.of(
+                        "status", "PAID",
+                        "total", Map.of("$gte", 10),
+                        "tenant", Map.of("$in", List.of("alpha", "beta")))),
+                Map.of("$set", Map.of("processed", true))));
+
+        assertNotNull(decoder.apply(encode("PAID", 10.5, "alpha")));
+        assertNull(decoder.apply(encode("PENDING", 50, "alpha")));
+        assertNull(decoder.apply(encode("PAID", 9, "alpha")));
+        assertNull(decoder.apply(encode("PAID", 50, "gamma")));
+        assertNull(decoder.apply(encode("PAID", "50", "alpha")));
+        // Arrays follow the executor's own matching rules, so they are kept.
+        assertNotNull(decoder.apply(encode(List.of("PENDING", "PAID"), 50, "beta")));
+    }
+
+    @Test
+    void filteringDecoderNeverDropsWhatTheExecutorMatchesOnMixedTypes() {
+        PipelineExecutor executor = new PipelineExecutor();
+        List<Object> literals = Arrays.asList(0, -1, 2.5, 1L << 53, "a", "b", "", "～", true, false, null);
+        List<Object> values = Arrays.asList(0, -0.0, 0.0, -1, -1L, 2.5, 2L, Double.NaN,
+                Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 1L << 53, (1L << 53) + 1, Long.MIN_VALUE,
+                new BigDecimal("2.5"), "a", "b", "", "ab", "A", "～", "😀", true, false, null,
+                List.of(0, "a"), Map.of("a", 1));
+        List<Map<String, Object>> filters = new ArrayList<>();
+        for (Object literal : literals) {
+            filters.add(Collections.singletonMap("v", literal));
+            for (String operator : List.of("$eq", "$ne", "$in", "$nin")) {
+                Object operand = operator.endsWith("in") ? Collections.singletonList(literal) : literal;
+                filters.add(Map.of("v", Collections.singletonMap(operator, operand)));
+            }
+            if (literal instanceof Number || literal instanceof String) {
+                for (String operator : List.of("$gt", "$gte", "$lt", "$lte")) {
+                    filters.add(Map.of("v", Map.of(operator, literal)));
+                }
+            }
+        }
+        filters.add(Map.of("v", Map.of("$exists", true)));
+        filters.add(Map.of("v", Map.of("$exists", false)));
+
+        for (Map<String, Object> filter : filters) {
+            Function<byte[], Document> decoder = codec.filteringDecoder(filter);
+            assertNotNull(decoder, filter.toString());
+            for (Object value : values) {
+                byte[] bytes = codec.encode(new Document(orderedMap("_id", 1, "v", value)));
+                assertRecordKept(executor, filter, bytes, decoder);
+            }
+            assertRecordKept(executor, filter, codec.encode(new Document(orderedMap("_id", 1))), decoder);
+        }
+    }
+
+    @Test
+    void unsupportedMatchesFallBackToFullDecoding() {
+        Function<byte[], Document> decoder = codec.decoderFor(List.of(
+                Map.of("$match", Map.of("customer.tier", "gold"))));
+
+        assertNotNull(decoder.apply(encode("PENDING", 1, "alpha")));
+        assertNull(new JsonDocumentCodec().filteringDecoder(Map.of("status", "PAID")));
+    }
+
+    /** Fails if the executor keeps the record's document but {@code decoder} drops it. */
+    private static void assertRecordKept(PipelineExecutor executor, Map<String, Object> filter, byte[] bytes,
+                                         Function<byte[], Document> decoder) {
+        Document document = new BinaryDocumentCodec().decode(bytes);
+        boolean matches = !executor.execute(List.of(document), List.of(new Stage(Map.of("$match", filter))),
+                Map.of()).isEmpty();
+        if (matches) {
+            assertNotNull(decoder.apply(bytes), filter + " on " + document.getData());
+        }
+    }
+
+    private byte[] encode(Object status, Object total, String tenant) {
+        return codec.encode(new Document(orderedMap("status", status, "total", total, "tenant", tenant)));
+    }
+
+    private static Map<String, Object> orderedMap(Object... keysAndValues) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,83 @@
+package ai.fluxion.sample.streaming.mongo;
+
+import ai.fluxion.core.engine.streaming.StreamingContext;
+import ai.fluxion.core.engine.streaming.StreamingPipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Runs a {@link ChangeStreamSource} through a pipeline into a
+ * {@link MongoBulkSink} one batch at a time, so the source's checkpoint keeps
+ * moving whatever the stages do to the documents.
+ *
+ * <p>Tokens of documents that leave the stages with their
+ * {@link ChangeStreamSource#RESUME_TOKEN_FIELD} are acknowledged by the sink
+ * once written, as usual. Every other token of the batch is settled here once
+ * the executor has finished the batch: at once when the stages only dropped
+ * documents, as a {@code $match} does, and after a flush of the sink when the
+ * output also holds documents without a token, as a {@code $group} or a
+ * {@code $project} produces, so the checkpoint never passes output that is
+ * still buffered.
+ *
+ * <p>Each batch is a separate run of the stages, so a stateful stage such as
+ * {@code $group} folds the events of one batch, not of the whole stream.
+ */
+public final class ChangeStreamPipeline {
+
+    private final ChangeStreamSource source;
+    private final StreamingPipelineExecutor executor;
+    private final List<Stage> stages;
+    private final MongoBulkSink sink;
+
+    public ChangeStreamPipeline(ChangeStreamSource source,
+                                StreamingPipelineExecutor executor,
+                                List<Stage> stages,
+                                MongoBulkSink sink) {
+        this.source = Objects.requireNonNull(source, "source");
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.stages = List.copyOf(stages);
+        this.sink = Objects.requireNonNull(sink, "sink");
+        sink.onAcknowledged(source::acknowledge);
+    }
+
+    /** Processes batches until the source is cancelled. */
+    public void run(StreamingContext context) {
+        for (List<Document> batch : source.batches()) {
+            process(batch, context);
+        }
+    }
+
+    /** Runs one batch of the source's documents and settles its dropped tokens. */
+    void process(List<Document> batch, StreamingContext context) {
+        List<Document> output = new ArrayList<>();
+        executor.processStream(batch, stages, output::addAll, context);
+
+        Set<String> carried = new HashSet<>();
+        boolean untracked = false;
+        for (Document document : output) {
+            if (document.get(ChangeStreamSource.RESUME_TOKEN_FIELD) instanceof String token) {
+                carried.add(token);
+            } else {
+                untracked = true;
+            }
+        }
+        if (!output.isEmpty()) {
+            sink.write(output);
+        }
+        if (untracked) {
+            sink.flush();
+        }
+        for (Document document : batch) {
+            if (document.get(ChangeStreamSource.RESUME_TOKEN_FIELD) instanceof String token
+                    && !carried.contains(token)) {
+                source.acknowledge(token);
+            }
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package ai.fluxion.sample.streaming.mongo;
+
+import ai.fluxion.core.model.Document;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Change-stream source that resumes where it left off. Every document it
+ * emits carries its event's resume token in {@link #RESUME_TOKEN_FIELD}; a
+ * sink that strips the field and reports each token it has durably written
+ * through {@link #acknowledge}, as {@link MongoBulkSink} does, lets the
+ * source save its position to a {@link CheckpointStore} every
+ * {@code checkpointEvery} advances. On start it resumes after the stored
+ * token instead of re-reading.
+ *
+ * <p>The source keeps the tokens it has emitted in stream order until they
+ * are acknowledged, and its position is the last token before the first one
+ * still in flight. With several workers, batches reach the sink out of
+ * order; a written event is not saved while an earlier one is still inside
+ * the streaming executor, so no event is skipped on restart. Events after
+ * the saved token are replayed, which an upsert sink absorbs. Events without
+ * a full document, such as deletes, are counted and skipped; they count as
+ * written as soon as they are read.
+ *
+ * <p>An event whose document never reaches the sink with its token, because a
+ * {@code $match} dropped it or a {@code $group} or {@code $project} reshaped
+ * it, is never acknowledged by the sink and would hold the position back for
+ * good. Iterating the source directly is therefore only right for stages that
+ * keep every document and its token. Run other pipelines through
+ * {@link ChangeStreamPipeline}, which reads {@link #batches()} and settles the
+ * tokens a batch dropped once the batch is done.
+ *
+ * <p>The source is an {@link Iterable} that blocks for new events and ends
+ * after {@link #cancel()}. It can be iterated once.
+ */
+public final class ChangeStreamSource implements Iterable<Document> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeStreamSource.class);
+
+    /** Field holding the {@code _data} string of the event's resume token. */
+    public static final String RESUME_TOKEN_FIELD = "_resumeToken";
+
+    private final MongoCollection<org.bson.Document> collection;
+    private final MongoClient ownedClient;
+    private final CheckpointStore checkpointStore;
+    private final String checkpointId;
+    private final int maxBatchSize;
+    private final FullDocument fullDocument;
+    private final int checkpointEvery;
+    private final Duration maxAwaitTime;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder checkpoints = new LongAdder();
+    // Emitted tokens in stream order, mapped to whether they are written.
+    private final Map<String, Boolean> inFlight = new LinkedHashMap<>();
+    private int unsavedAdvances;
+
+    private ChangeStreamSource(Builder builder) {
+        this.collection = builder.collection;
+        this.ownedClient = builder.ownedClient;
+        this.checkpointStore = builder.checkpointStore;
+        this.checkpointId = builder.checkpointId != null
+                ? builder.checkpointId
+                : collection.getNamespace().getFullName();
+        this.maxBatchSize = builder.maxBatchSize;
+        this.fullDocument = builder.fullDocument;
+        this.checkpointEvery = builder.checkpointEvery;
+        this.maxAwaitTime = builder.maxAwaitTime;
+    }
+
+    public static Builder builder(MongoCollection<org.bson.Document> collection) {
+        return new Builder(collection, null);
+    }
+
+    /**
+     * Starts a builder from {@code mongodb} source connector options:
+     * {@code connectionString}, {@code database}, {@code collection},
+     * {@code maxBatchSize} (default 64), {@code fullDocument} (default
+     * {@code update_lookup}), {@code checkpointEvery} (default 1
+     * advance), {@code checkpointId} (default the namespace) and
+     * {@code checkpointDirectory} for a {@link FileCheckpointStore} (default
+     * {@code checkpoints}). The source owns and closes its client.
+     */
+    public static Builder fromOptions(Map<String, Object> options) {
+        String database = ConnectorOptions.required(options, "database");
+        String name = ConnectorOptions.required(options, "collection");
+        MongoClient client = MongoClients.create(ConnectorOptions.required(options, "connectionString"));
+        String fullDocument = ConnectorOptions.string(options, "fullDocument", "update_lookup");
+        return new Builder(client.getDatabase(database).getCollection(name), client)
+                .maxBatchSize(ConnectorOptions.positiveInt(options, "maxBatchSize", 64))
+                .fullDocument(FullDocument.valueOf(fullDocument.toUpperCase(Locale.ROOT)))
+                .checkpointEvery(ConnectorOptions.positiveInt(options, "checkpointEvery", 1))
+                .checkpointId(ConnectorOptions.string(options, "checkpointId", null))
+                .checkpointStore(new FileCheckpointStore(
+                        Path.of(ConnectorOptions.string(options, "checkpointDirectory", "checkpoints"))));
+    }
+
+    @Override
+    public Iterator<Document> iterator() {
+        Events stream = open();
+        return new Iterator<>() {
+            private Document pending;
+
+            @Override
+            public boolean hasNext() {
+                while (pending == null && !stream.closed) {
+                    pending = stream.poll();
+                }
+                return pending != null;
+            }
+
+            @Override
+            public Document next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Document next = pending;
+                pending = null;
+                return next;
+            }
+        };
+    }
+
+    /**
+     * Iterates the stream in batches of up to {@code maxBatchSize} documents.
+     * A batch also closes when a poll of the cursor comes back empty, so a
+     * quiet stream hands over what it has within {@code maxAwaitTime}. Shares
+     * the single iteration with {@link #iterator()}.
+     */
+    public Iterable<List<Document>> batches() {
+        return () -> {
+            Events stream = open();
+            return new Iterator<>() {
+                private List<Document> batch = new ArrayList<>(maxBatchSize);
+                private List<Document> pending;
+
+                @Override
+                public boolean hasNext() {
+                    while (pending == null && !stream.closed) {
+                        Document document = stream.poll();
+                        if (document != null) {
+                            batch.add(document);
+                            if (batch.size() < maxBatchSize) {
+                                continue;
+                            }
+                        }
+                        cut();
+                    }
+                    if (pending == null) {
+                        cut();
+                    }
+                    return pending != null;
+                }
+
+                @Override
+                public List<Document> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    List<Document> next = pending;
+                    pending = null;
+                    return next;
+                }
+
+                private void cut() {
+                    if (!batch.isEmpty()) {
+                        pending = batch;
+                        batch = new ArrayList<>(maxBatchSize);
+                    }
+                }
+            };
+        };
+    }
+
+    private Events open() {
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException("ChangeStreamSource can only be iterated once");
+        }
+        ChangeStreamIterable<org.bson.Document> watch = collection.watch()
+                .batchSize(maxBatchSize)
+                .fullDocument(fullDocument)
+                .maxAwaitTime(maxAwaitTime.toMillis(), TimeUnit.MILLISECONDS);
+        Optional<String> stored = checkpointStore.load(checkpointId);
+        if (stored.isPresent()) {
+            LOGGER.info("Resuming change stream {} from checkpoint", checkpointId);
+            BsonDocument token = BsonDocument.parse(stored.get());
+            watch = watch.resumeAfter(token);
+        }
+        return new Events(watch.cursor());
+    }
+
+    /** The open cursor, read by whichever iterator {@link #open} was called for. */
+    private final class Events {
+
+        private final MongoChangeStreamCursor<ChangeStreamDocument<org.bson.Document>> cursor;
+        private boolean closed;
+
+        Events(MongoChangeStreamCursor<ChangeStreamDocument<org.bson.Document>> cursor) {
+            this.cursor = cursor;
+        }
+
+        /**
+         * Returns the next document to emit, or {@code null} when a poll came
+         * back empty or the stream has been closed. Skipped events are read
+         * past.
+         */
+        Document poll() {
+            while (!closed) {
+                if (cancelled.get()) {
+                    close();
+                    break;
+                }
+                ChangeStreamDocument<org.bson.Document> event = cursor.tryNext();
+                if (event == null) {
+                    return null;
+                }
+                events.increment();
+                Document document = track(event.getResumeToken().getString("_data").getValue(), event.getFullDocument());
+                if (document != null) {
+                    return document;
+                }
+            }
+            return null;
+        }
+
+        private void close() {
+            closed = true;
+            try {
+                cursor.close();
+            } finally {
+                if (ownedClient != null) {
+                    ownedClient.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers the event carrying {@code token} as in flight and returns the
+     * document to emit for it, or {@code null} when the event has no full
+     * document and is skipped.
+     */
+    Document track(String token, org.bson.Document fullDocument) {
+        if (fullDocument == null) {
+            skipped.increment();
+            synchronized (this) {
+                inFlight.put(token, Boolean.TRUE);
+                advance();
+            }
+            return null;
+        }
+        synchronized (this) {
+            inFlight.put(token, Boolean.FALSE);
+        }
+        Map<String, Object> data = new LinkedHashMap<>(fullDocument);
+        data.put(RESUME_TOKEN_FIELD, token);
+        return new Document(data);
+    }
+
+    /**
+     * Records that the event carrying {@code token} has been written, or that
+     * nothing is left to write for it because the pipeline dropped it. Sinks
+     * may report tokens in any order and from any thread; tokens this source
+     * did not emit, or already acknowledged, are ignored. Safe to call after
+     * the source has ended.
+     */
+    public synchronized void acknowledge(String token) {
+        if (token != null && inFlight.replace(token, Boolean.FALSE, Boolean.TRUE)) {
+            advance();
+        }
+    }
+
+    /**
+     * Drops the written tokens at the head of the stream order and, every
+     * {@code checkpointEvery} advances, saves the last of them.
+     */
+    private void advance() {
+        String position = null;
+        for (Iterator<Map.Entry<String, Boolean>> tokens = inFlight.entrySet().iterator(); tokens.hasNext(); ) {
+            Map.Entry<String, Boolean> head = tokens.next();
+            if (!head.getValue()) {
+                break;
+            }
+            position = head.getKey();
+            tokens.remove();
+        }
+        if (position == null || ++unsavedAdvances < checkpointEvery) {
+            return;
+        }
+        unsavedAdvances = 0;
+        checkpointStore.save(checkpointId, new BsonDocument("_data", new BsonString(position)).toJson());
+        checkpoints.increment();
+    }
+
+    /** Ends iteration within {@code maxAwaitTime}; safe to call from any thread. */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    /** Change events read from the stream. */
+    public long events() {
+        return events.sum();
+    }
+
+    /** Events without a full document. */
+    public long skipped() {
+        return skipped.sum();
+    }
+
+    /** Resume tokens saved to the checkpoint store. */
+    public long checkpoints() {
+        return checkpoints.sum();
+    }
+
+    public static final class Builder {
+        private final MongoCollection<org.bson.Document> collection;
+        private final MongoClient ownedClient;
+        private CheckpointStore checkpointStore;
+        private String checkpointId;
+        private int maxBatchSize = 64;
+        private FullDocument fullDocument = FullDocument.UPDATE_LOOKUP;
+        private int checkpointEvery = 1;
+        private Duration maxAwaitTime = Duration.ofMillis(500);
+
+        private Builder(MongoCollection<org.bson.Document> collection, MongoClient ownedClient) {
+            this.collection = collection;
+            this.ownedClient = ownedClient;
+        }
+
+        public Builder checkpointStore(CheckpointStore checkpointStore) {
+            this.checkpointStore = checkpointStore;
+            return this;
+        }
+
+        /** Key for this stream's token in the store; defaults to the collection namespace. */
+        public Builder checkpointId(String checkpointId) {
+            this.checkpointId = checkpointId;
+            return this;
+        }
+
+        public Builder maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        public Builder fullDocument(FullDocument fullDocument) {
+            this.fullDocument = fullDocument;
+            return this;
+        }
+
+        /** Advances of the written position between two saved tokens. */
+        public Builder checkpointEvery(int checkpointEvery) {
+            this.checkpointEvery = checkpointEvery;
+            return this;
+        }
+
+        public Builder maxAwaitTime(Duration maxAwaitTime) {
+            this.maxAwaitTime = maxAwaitTime;
+            return this;
+        }
+
+        public ChangeStreamSource build() {
+            if (collection == null || checkpointStore == null) {
+                throw new IllegalArgumentException("collection and checkpointStore are required");
+            }
+            if (maxBatchSize <= 0 || checkpointEvery <= 0) {
+                throw new IllegalArgumentException("maxBatchSize and checkpointEvery must be positive");
+            }
+            if (fullDocument == null) {
+                throw new IllegalArgumentException("fullDocument must not be null");
+            }
+            if (maxAwaitTime == null || maxAwaitTime.isNegative() || maxAwaitTime.isZero()) {
+                throw new IllegalArgumentException("maxAwaitTime must be positive");
+            }
+            return new ChangeStreamSource(this);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ai.fluxion.sample.streaming.mongo;
+
+import java.util.Optional;
+
+/**
+ * Durable home for change-stream resume tokens, keyed by a stream id so
+ * several sources can share one store.
+ */
+public interface CheckpointStore {
+
+    Optional<String> load(String streamId);
+
+    /** Replaces the stored token; must be atomic so a crash leaves the old or the new token. */
+    void save(String streamId, String token);
+}
@@ -0,0 +1,44 @@
+package ai.fluxion.sample.streaming.mongo;
+
+import java.util.Map;
+
+/**
+ * Reads typed values from the option maps that configure the sample's
+ * connectors, using the same keys and value forms as
+ * {@code ConnectorConfig} and {@code SourceConnectorConfig} options.
+ */
+final class ConnectorOptions {
+
+    private ConnectorOptions() {
+    }
+
+    static String required(Map<String, Object> options, String key) {
+        Object value = options.get(key);
+        if (value == null || value.toString().isBlank()) {
+            throw new IllegalArgumentException("Missing required option '" + key + "'");
+        }
+        return value.toString();
+    }
+
+    static String string(Map<String, Object> options, String key, String defaultValue) {
+        Object value = options.get(key);
+        return value == null ? defaultValue : value.toString();
+    }
+
+    static int positiveInt(Map<String, Object> options, String key, int defaultValue) {
+        Object value = options.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        int parsed;
+        try {
+            parsed = value instanceof Number number ? Math.toIntExact(number.longValue()) : Integer.parseInt(value.toString());
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new IllegalArgumentException("Option '" + key + "' must be an integer: " + value, e);
+        }
+        if (parsed <= 0) {
+            throw new IllegalArgumentException("Option '" + key + "' must be positive: " + value);
+        }
+        return parsed;
+    }
+}
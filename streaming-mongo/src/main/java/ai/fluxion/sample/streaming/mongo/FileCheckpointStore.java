@@ -0,0 +1,56 @@
+package ai.fluxion.sample.streaming.mongo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Keeps each stream's resume token in {@code <directory>/<streamId>.token}.
+ * Tokens are written to a temporary file and moved into place atomically.
+ */
+public final class FileCheckpointStore implements CheckpointStore {
+
+    private final Path directory;
+
+    public FileCheckpointStore(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public Optional<String> load(String streamId) {
+        Path file = file(streamId);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Files.readString(file, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read checkpoint " + file, e);
+        }
+    }
+
+    @Override
+    public void save(String streamId, String token) {
+        Path file = file(streamId);
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                Files.writeString(temporary, token, StandardCharsets.UTF_8);
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write checkpoint " + file, e);
+        }
+    }
+
+    private Path file(String streamId) {
+        return directory.resolve(streamId.replaceAll("[^A-Za-z0-9._-]", "_") + ".token");
+    }
+}
@@ -0,0 +1,367 @@
+package ai.fluxion.sample.streaming.mongo;
+
+import ai.fluxion.core.model.Document;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Upsert sink that buffers documents and writes them with one unordered
+ * {@code bulkWrite} per batch instead of one round trip per document. A
+ * batch is written once it holds {@code bulkMaxDocuments} distinct keys or
+ * its oldest document has waited {@code bulkLingerMs}. Several updates to
+ * the same key within a batch collapse into the latest one; documents
+ * without the key field are inserted as they are.
+ *
+ * <p>A failed {@code bulkWrite} keeps the batch buffered, minus any models
+ * the server reports as written, and the next flush retries it. Write
+ * failures from a linger flush are reported by the next {@link #write}. Pass
+ * {@code this::write} as the pipeline's sink.
+ *
+ * <p>Only write errors that can succeed on a later attempt, such as a
+ * primary stepping down, stay buffered. A document the server rejects for
+ * good, for example by a validator or a unique index on another field, goes
+ * to the {@link #onRejected} handler and counts as done. Without a handler
+ * the sink fails: every later call throws, and nothing after the rejected
+ * batch is acknowledged.
+ *
+ * <p>Documents from a {@link ChangeStreamSource} are written without their
+ * {@link ChangeStreamSource#RESUME_TOKEN_FIELD}; once a batch is fully written
+ * every token it carried goes to the {@link #onAcknowledged} listener, in the
+ * order the documents arrived.
+ */
+public final class MongoBulkSink implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoBulkSink.class);
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+    private static final ReplaceOptions UPSERT = new ReplaceOptions().upsert(true);
+    private static final int DUPLICATE_KEY = 11000;
+    // Server error codes of write errors that a later attempt can clear.
+    private static final Set<Integer> RETRYABLE_CODES = Set.of(
+            6, 7, 50, 89, 91, 112, 189, 262, 9001, 10107, 11600, 11602, 13435, 13436);
+
+    private final MongoCollection<org.bson.Document> collection;
+    private final MongoClient ownedClient;
+    private final String keyField;
+    private final int maxBatchDocuments;
+    private final long lingerNanos;
+    private final ScheduledExecutorService lingerTimer;
+    private final Map<Object, WriteModel<org.bson.Document>> keyed = new LinkedHashMap<>();
+    private final List<WriteModel<org.bson.Document>> unkeyed = new ArrayList<>();
+    private final LongAdder bulkWrites = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private long oldestBuffered;
+    private final List<String> bufferedTokens = new ArrayList<>();
+    private Consumer<String> acknowledged = token -> { };
+    private Consumer<RejectedWrite> rejectionHandler;
+    private RuntimeException failure;
+    private MongoBulkWriteException unhandledRejection;
+
+    public MongoBulkSink(MongoCollection<org.bson.Document> collection,
+                         String keyField,
+                         int maxBatchDocuments,
+                         Duration linger) {
+        this(collection, null, keyField, maxBatchDocuments, linger);
+    }
+
+    private MongoBulkSink(MongoCollection<org.bson.Document> collection,
+                          MongoClient ownedClient,
+                          String keyField,
+                          int maxBatchDocuments,
+                          Duration linger) {
+        if (maxBatchDocuments <= 0) {
+            throw new IllegalArgumentException("maxBatchDocuments must be positive");
+        }
+        if (linger.isNegative()) {
+            throw new IllegalArgumentException("linger must not be negative");
+        }
+        this.collection = collection;
+        this.ownedClient = ownedClient;
+        this.keyField = keyField;
+        this.maxBatchDocuments = maxBatchDocuments;
+        this.lingerNanos = linger.toNanos();
+        if (lingerNanos > 0) {
+            this.lingerTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "fluxion-mongo-bulk-linger");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(1_000_000L, lingerNanos / 2);
+            lingerTimer.scheduleWithFixedDelay(this::flushIfLingered, period, period, TimeUnit.NANOSECONDS);
+        } else {
+            this.lingerTimer = null;
+        }
+    }
+
+    /**
+     * Creates a sink from {@code mongodb} sink connector options:
+     * {@code connectionString}, {@code database}, {@code collection},
+     * {@code mode} (only {@code upsert}), {@code keyField} (default
+     * {@code _id}), {@code bulkMaxDocuments} (default 500) and
+     * {@code bulkLingerMs} (default 100). When {@code rejectedCollection} is
+     * set, permanently rejected documents are inserted there with their error
+     * code and message. The sink owns and closes its client.
+     */
+    public static MongoBulkSink fromOptions(Map<String, Object> options) {
+        String mode = ConnectorOptions.string(options, "mode", "upsert");
+        if (!"upsert".equals(mode)) {
+            throw new IllegalArgumentException("MongoBulkSink only supports mode 'upsert', got '" + mode + "'");
+        }
+        String database = ConnectorOptions.required(options, "database");
+        String collection = ConnectorOptions.required(options, "collection");
+        String keyField = ConnectorOptions.string(options, "keyField", "_id");
+        int maxBatchDocuments = ConnectorOptions.positiveInt(options, "bulkMaxDocuments", 500);
+        int lingerMs = ConnectorOptions.positiveInt(options, "bulkLingerMs", 100);
+        String rejectedCollection = ConnectorOptions.string(options, "rejectedCollection", null);
+        MongoClient client = MongoClients.create(ConnectorOptions.required(options, "connectionString"));
+        MongoBulkSink sink = new MongoBulkSink(client.getDatabase(database).getCollection(collection), client,
+                keyField, maxBatchDocuments, Duration.ofMillis(lingerMs));
+        if (rejectedCollection != null) {
+            MongoCollection<org.bson.Document> deadLetters = client.getDatabase(database).getCollection(rejectedCollection);
+            sink.onRejected(rejection -> deadLetters.insertOne(new org.bson.Document("document", rejection.document())
+                    .append("code", rejection.code())
+                    .append("message", rejection.message())));
+        }
+        return sink;
+    }
+
+    /**
+     * Receives each resume token of a fully written batch, including those
+     * of updates collapsed into a later one, typically {@link ChangeStreamSource#acknowledge}. Called while the sink
+     * is locked, from the writing thread or the linger timer.
+     */
+    public synchronized MongoBulkSink onAcknowledged(Consumer<String> acknowledged) {
+        this.acknowledged = acknowledged;
+        return this;
+    }
+
+    /**
+     * Receives each document the server rejected with a non-retryable error,
+     * typically to store it in a dead-letter collection. Called while the sink
+     * is locked, before the batch's tokens are acknowledged; a handler that
+     * throws leaves the document buffered for the next flush.
+     */
+    public synchronized MongoBulkSink onRejected(Consumer<RejectedWrite> rejectionHandler) {
+        this.rejectionHandler = rejectionHandler;
+        return this;
+    }
+
+    public synchronized void write(List<Document> documents) {
+        throwIfFailed();
+        for (Document document : documents) {
+            org.bson.Document bson = new org.bson.Document(document.getData());
+            if (bson.remove(ChangeStreamSource.RESUME_TOKEN_FIELD) instanceof String token) {
+                bufferedTokens.add(token);
+            }
+            Object key = bson.get(keyField);
+            if (buffered() == 0) {
+                oldestBuffered = System.nanoTime();
+            }
+            if (key == null) {
+                unkeyed.add(new InsertOneModel<>(bson));
+            } else if (keyed.put(key, new ReplaceOneModel<>(Filters.eq(keyField, key), bson, UPSERT)) != null) {
+                collapsed.increment();
+            }
+            if (buffered() >= maxBatchDocuments) {
+                flushBuffered();
+            }
+        }
+        if (lingerTimer == null) {
+            flushBuffered();
+        }
+    }
+
+    /** Writes whatever is buffered now. */
+    public synchronized void flush() {
+        throwIfFailed();
+        flushBuffered();
+    }
+
+    public long bulkWrites() {
+        return bulkWrites.sum();
+    }
+
+    /** Write models sent to MongoDB. */
+    public long written() {
+        return written.sum();
+    }
+
+    /** Updates replaced by a later update to the same key before being written. */
+    public long collapsed() {
+        return collapsed.sum();
+    }
+
+    /** Documents handed to the {@link #onRejected} handler. */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            if (lingerTimer != null) {
+                lingerTimer.shutdownNow();
+            }
+            if (ownedClient != null) {
+                ownedClient.close();
+            }
+        }
+    }
+
+    private int buffered() {
+        return keyed.size() + unkeyed.size();
+    }
+
+    private void flushBuffered() {
+        if (buffered() == 0) {
+            return;
+        }
+        List<WriteModel<org.bson.Document>> models = new ArrayList<>(buffered());
+        models.addAll(keyed.values());
+        models.addAll(unkeyed);
+        try {
+            collection.bulkWrite(models, UNORDERED);
+            written.add(models.size());
+        } catch (MongoBulkWriteException e) {
+            if (retainFailed(e) > 0) {
+                throw e;
+            }
+        }
+        keyed.clear();
+        unkeyed.clear();
+        bulkWrites.increment();
+        if (!bufferedTokens.isEmpty()) {
+            List<String> tokens = List.copyOf(bufferedTokens);
+            bufferedTokens.clear();
+            tokens.forEach(acknowledged);
+        }
+    }
+
+    /**
+     * Drops the models an unordered bulk write did apply, hands the ones it
+     * rejected for good to the {@link #onRejected} handler and returns how
+     * many remain to retry. An insert rejected as a duplicate key was applied
+     * by an earlier attempt and is dropped as well. When the write concern
+     * failed, nothing is known to be durable and every model that was not
+     * rejected stays buffered.
+     */
+    private int retainFailed(MongoBulkWriteException e) {
+        Map<Integer, BulkWriteError> permanent = new HashMap<>();
+        Set<Integer> retry = new HashSet<>();
+        for (BulkWriteError error : e.getWriteErrors()) {
+            boolean replayedInsert = error.getIndex() >= keyed.size() && error.getCode() == DUPLICATE_KEY;
+            if (RETRYABLE_CODES.contains(error.getCode())) {
+                retry.add(error.getIndex());
+            } else if (!replayedInsert) {
+                permanent.put(error.getIndex(), error);
+            }
+        }
+        if (!permanent.isEmpty() && rejectionHandler == null) {
+            LOGGER.error("Bulk write rejected {} documents permanently and no rejection handler is set",
+                    permanent.size());
+            unhandledRejection = e;
+            return buffered();
+        }
+        boolean concernFailed = e.getWriteConcernError() != null;
+        int applied = 0;
+        int index = 0;
+        for (Iterator<WriteModel<org.bson.Document>> buffered = keyed.values().iterator(); buffered.hasNext(); index++) {
+            applied += settle(buffered, index, permanent, retry, concernFailed);
+        }
+        for (Iterator<WriteModel<org.bson.Document>> buffered = unkeyed.iterator(); buffered.hasNext(); index++) {
+            applied += settle(buffered, index, permanent, retry, concernFailed);
+        }
+        written.add(applied);
+        return buffered();
+    }
+
+    /** Removes the next model unless it must be retried; returns 1 when it was applied. */
+    private int settle(Iterator<WriteModel<org.bson.Document>> buffered,
+                       int index,
+                       Map<Integer, BulkWriteError> permanent,
+                       Set<Integer> retry,
+                       boolean concernFailed) {
+        WriteModel<org.bson.Document> model = buffered.next();
+        BulkWriteError error = permanent.get(index);
+        if (error != null) {
+            rejectionHandler.accept(new RejectedWrite(document(model), error.getCode(), error.getMessage()));
+            rejected.increment();
+            buffered.remove();
+            return 0;
+        }
+        if (retry.contains(index) || concernFailed) {
+            return 0;
+        }
+        buffered.remove();
+        return 1;
+    }
+
+    private static org.bson.Document document(WriteModel<org.bson.Document> model) {
+        return model instanceof ReplaceOneModel<org.bson.Document> replace
+                ? replace.getReplacement()
+                : ((InsertOneModel<org.bson.Document>) model).getDocument();
+    }
+
+    private synchronized void flushIfLingered() {
+        if (failure != null || unhandledRejection != null || buffered() == 0 || System.nanoTime() - oldestBuffered < lingerNanos) {
+            return;
+        }
+        try {
+            flushBuffered();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Lingered bulk write failed", e);
+            failure = e;
+        }
+    }
+
+    private void throwIfFailed() {
+        if (unhandledRejection != null) {
+            throw new IllegalStateException("A bulk write was rejected and no rejection handler is set",
+                    unhandledRejection);
+        }
+        RuntimeException failed = failure;
+        if (failed != null) {
+            failure = null;
+            throw new IllegalStateException("A previous bulk write failed", failed);
+        }
+    }
+
+    /**
+     * A document the server will not accept however often it is retried.
+     *
+     * @param document the document as the sink would have written it
+     * @param code     the server error code
+     * @param message  the server error message
+     */
+    public record RejectedWrite(org.bson.Document document, int code, String message) {
+    }
+}
@@ -1,25 +1,23 @@
 package ai.fluxion.sample.streaming.mongo;
 
-import ai.fluxion.core.engine.connectors.ConnectorConfig;
-import ai.fluxion.core.engine.connectors.ConnectorFactory;
-import ai.fluxion.core.engine.connectors.SourceConnectorConfig;
-import ai.fluxion.core.engine.connectors.SourceConnectorContext;
 import ai.fluxion.core.engine.streaming.StreamingContext;
 import ai.fluxion.core.engine.streaming.StreamingErrorPolicy;
 import ai.fluxion.core.engine.streaming.StreamingPipelineExecutor;
 import ai.fluxion.core.engine.streaming.StreamingRuntimeConfig;
-import ai.fluxion.core.engine.streaming.StreamingSink;
-import ai.fluxion.core.engine.streaming.StreamingSource;
 import ai.fluxion.core.model.Stage;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
 import org.bson.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testcontainers.containers.MongoDBContainer;
 import org.testcontainers.utility.DockerImageName;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +25,14 @@ import java.util.Map;
 /**
  * Starts a MongoDB Testcontainer and streams change events from one collection
  * into another, mirroring the change-stream E2E test.
+ *
+ * <p>The sink batches upserts into unordered bulk writes, collapsing repeated
+ * updates to one {@code _id}, and the source checkpoints the resume tokens
+ * the sink has written to a file so a second run resumes instead of
+ * re-reading the stream. Documents the server rejects for good are stored
+ * in {@code rejected_orders} instead of stalling the checkpoint, and events
+ * the {@code $match} filters out are settled by {@link ChangeStreamPipeline}
+ * for the same reason.
  */
 public final class MongoStreamingSample {
 
@@ -55,22 +61,25 @@ public final class MongoStreamingSample {
                 dst.drop();
             }
 
-            SourceConnectorConfig sourceConfig = SourceConnectorConfig.builder("mongodb")
-                    .option("connectionString", replicaSetUri)
-                    .option("database", database)
-                    .option("collection", sourceCollection)
-                    .option("queueCapacity", 32)
-                    .option("maxBatchSize", 64)
-                    .option("fullDocument", "update_lookup")
-                    .build();
-
-            ConnectorConfig sinkConfig = ConnectorConfig.builder("mongodb", ConnectorConfig.Kind.SINK)
-                    .option("connectionString", replicaSetUri)
-                    .option("database", database)
-                    .option("collection", sinkCollection)
-                    .option("mode", "upsert")
-                    .option("keyField", "_id")
-                    .build();
+            Path checkpoints = Files.createTempDirectory("fluxion-mongo-checkpoints");
+            Map<String, Object> sourceOptions = Map.of(
+                    "connectionString", replicaSetUri,
+                    "database", database,
+                    "collection", sourceCollection,
+                    "maxBatchSize", 64,
+                    "fullDocument", "update_lookup",
+                    "checkpointEvery", 1,
+                    "checkpointDirectory", checkpoints.toString());
+
+            Map<String, Object> sinkOptions = Map.of(
+                    "connectionString", replicaSetUri,
+                    "database", database,
+                    "collection", sinkCollection,
+                    "mode", "upsert",
+                    "keyField", "_id",
+                    "bulkMaxDocuments", 500,
+                    "bulkLingerMs", 50,
+                    "rejectedCollection", "rejected_orders");
 
             StreamingRuntimeConfig runtimeConfig = StreamingRuntimeConfig.builder()
                     .directHandoff(false)
@@ -79,32 +88,46 @@ public final class MongoStreamingSample {
                     .build();
 
             StreamingContext context = new StreamingContext();
-            StreamingSource source = ConnectorFactory.createSource(sourceConfig, SourceConnectorContext.from(context));
-            StreamingSink sink = ConnectorFactory.createSink(sinkConfig);
+            MongoBulkSink sink = MongoBulkSink.fromOptions(sinkOptions);
+            ChangeStreamSource source = ChangeStreamSource.fromOptions(sourceOptions).build();
 
             StreamingPipelineExecutor executor = new StreamingPipelineExecutor(64, runtimeConfig, StreamingErrorPolicy.failFast());
-            List<Stage> stages = List.of(new Stage(Map.of("$set", Map.of("status", "processed"))));
+            List<Stage> stages = List.of(
+                    new Stage(Map.of("$match", Map.of("tenant", Map.of("$ne", "internal")))),
+                    new Stage(Map.of("$set", Map.of("status", "processed"))));
+            // The $match drops events; the pipeline settles their tokens so the checkpoint still advances.
+            ChangeStreamPipeline pipeline = new ChangeStreamPipeline(source, executor, stages, sink);
 
-            Thread worker = Thread.ofVirtual().start(() -> executor.processStream(source, stages, sink, context));
+            Thread worker = Thread.ofVirtual().start(() -> pipeline.run(context));
 
             try (MongoClient client = MongoClients.create(replicaSetUri)) {
                 MongoCollection<Document> src = client.getDatabase(database).getCollection(sourceCollection);
                 src.insertMany(List.of(
                         new Document("_id", "order-1").append("amount", 42).append("tenant", "alpha"),
-                        new Document("_id", "order-2").append("amount", 17).append("tenant", "beta")
+                        new Document("_id", "order-2").append("amount", 17).append("tenant", "beta"),
+                        new Document("_id", "order-3").append("amount", 5).append("tenant", "internal")
                 ));
+                // Successive updates to one order usually land in one bulk write as a single upsert.
+                for (int amount = 43; amount <= 45; amount++) {
+                    src.updateOne(Filters.eq("_id", "order-1"), Updates.set("amount", amount));
+                }
 
                 MongoCollection<Document> dst = client.getDatabase(database).getCollection(sinkCollection);
                 long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
-                while (System.nanoTime() < deadline && dst.countDocuments() < 2) {
+                while (System.nanoTime() < deadline
+                        && (dst.countDocuments() < 2 || dst.countDocuments(Filters.eq("amount", 45)) == 0)) {
                     Thread.sleep(200);
                 }
 
                 dst.find().forEach(doc -> LOGGER.info("Processed document: {}", doc.toJson()));
+                LOGGER.info("{} change events written with {} bulk writes, {} updates collapsed, {} rejected, "
+                                + "{} checkpoints in {}",
+                        source.events(), sink.bulkWrites(), sink.collapsed(), sink.rejected(), source.checkpoints(),
+                        checkpoints);
             } finally {
                 source.cancel();
-                sink.close();
                 worker.join(Duration.ofSeconds(5));
+                sink.close();
             }
         }
         System.exit(0);
@@ -0,0 +1,248 @@
+package ai.fluxion.sample.streaming.mongo;
+
+import ai.fluxion.core.engine.streaming.StreamingContext;
+import ai.fluxion.core.engine.streaming.StreamingErrorPolicy;
+import ai.fluxion.core.engine.streaming.StreamingPipelineExecutor;
+import ai.fluxion.core.engine.streaming.StreamingRuntimeConfig;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.util.DocumentParser;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks which resume tokens {@link ChangeStreamSource} saves: only the last
+ * token before the first event still in flight, however out of order the
+ * sink acknowledges, and only every {@code checkpointEvery} advances. A
+ * stored token is where the stream resumes. Events a
+ * {@link ChangeStreamPipeline} filters out or folds together do not hold the
+ * position back.
+ */
+class ChangeStreamSourceTest {
+
+    private final RecordingStore store = new RecordingStore();
+    private final List<BsonDocument> resumedAfter = new ArrayList<>();
+    private ChangeStreamSource current;
+
+    @Test
+    void savesOnlyTheHighestContiguousWrittenToken() {
+        ChangeStreamSource source = source(1);
+        emit(source, "8263A1", "8263A2", "8263A3", "8263A4");
+
+        source.acknowledge("8263A3");
+        assertEquals(List.of(), store.saved, "8263A1 and 8263A2 are still in flight");
+        source.acknowledge("8263A1");
+        source.acknowledge("8263A1");
+        source.acknowledge("8263A9");
+        source.acknowledge("8263A2");
+        source.acknowledge("8263A4");
+
+        assertEquals(List.of(token("8263A1"), token("8263A3"), token("8263A4")), store.saved);
+        assertEquals(3, source.checkpoints());
+    }
+
+    @Test
+    void treatsSkippedEventsAsWritten() {
+        ChangeStreamSource source = source(1);
+
+        assertNull(source.track("8263A1", null));
+        assertEquals(List.of(token("8263A1")), store.saved);
+        emit(source, "8263A2");
+        assertNull(source.track("8263A3", null));
+        source.acknowledge("8263A2");
+
+        assertEquals(List.of(token("8263A1"), token("8263A3")), store.saved);
+        assertEquals(2, source.skipped());
+    }
+
+    @Test
+    void savesEveryCheckpointEveryAdvances() {
+        ChangeStreamSource source = source(2);
+        emit(source, "8263A1", "8263A2", "8263A3", "8263A4", "8263A5");
+
+        source.acknowledge("8263A1");
+        assertEquals(List.of(), store.saved);
+        source.acknowledge("8263A3");
+        source.acknowledge("8263A2");
+        source.acknowledge("8263A5");
+        source.acknowledge("8263A4");
+
+        assertEquals(List.of(token("8263A3")), store.saved);
+    }
+
+    @Test
+    void resumesAfterTheStoredToken() {
+        store.tokens.put("orders", token("8263A5"));
+        ChangeStreamSource source = source(1);
+
+        assertFalse(source.iterator().hasNext());
+        source.acknowledge("8263A4");
+        emit(source, "8263A6");
+        source.acknowledge("8263A6");
+
+        assertEquals(List.of(BsonDocument.parse(token("8263A5"))), resumedAfter);
+        assertEquals(List.of(token("8263A6")), store.saved);
+    }
+
+    @Test
+    void settlesTheTokensOfEventsAMatchDrops() {
+        ChangeStreamSource source = source(1);
+        List<Document> batch = List.of(
+                source.track("8263A1", order("order-1", "paid")),
+                source.track("8263A2", order("order-2", "internal")),
+                source.track("8263A3", order("order-3", "paid")),
+                source.track("8263A4", order("order-4", "internal")));
+        List<Object> written = new ArrayList<>();
+
+        pipeline(source, written, """
+                [
+                  {"$match": {"status": "paid"}}
+                ]
+                """).process(batch, new StreamingContext());
+
+        assertEquals(List.of("order-1", "order-3"), written);
+        assertEquals(List.of(token("8263A1"), token("8263A3"), token("8263A4")), store.saved);
+    }
+
+    @Test
+    void settlesFoldedTokensOnlyOnceTheGroupsAreWritten() {
+        ChangeStreamSource source = source(1);
+        List<Document> batch = List.of(
+                source.track("8263A1", order("order-1", "paid")),
+                source.track("8263A2", order("order-2", "open")),
+                source.track("8263A3", order("order-3", "paid")));
+        List<Object> written = new ArrayList<>();
+
+        pipeline(source, written, """
+                [
+                  {"$group": {"_id": "$status", "orders": {"$sum": 1}}}
+                ]
+                """).process(batch, new StreamingContext());
+
+        assertEquals(Set.of("paid", "open"), Set.copyOf(written));
+        assertEquals(token("8263A3"), store.saved.get(store.saved.size() - 1));
+    }
+
+    private static void emit(ChangeStreamSource source, String... tokens) {
+        for (String token : tokens) {
+            Document emitted = source.track(token, new org.bson.Document("_id", token));
+            assertEquals(token, emitted.get(ChangeStreamSource.RESUME_TOKEN_FIELD));
+        }
+    }
+
+    private ChangeStreamSource source(int checkpointEvery) {
+        current = ChangeStreamSource.builder(collection())
+                .checkpointStore(store)
+                .checkpointId("orders")
+                .checkpointEvery(checkpointEvery)
+                .build();
+        return current;
+    }
+
+    /**
+     * A pipeline into a sink that writes every batch at once to a collection
+     * recording the {@code _id} of each upsert.
+     */
+    @SuppressWarnings("unchecked")
+    private static ChangeStreamPipeline pipeline(ChangeStreamSource source, List<Object> written, String stages) {
+        MongoCollection<org.bson.Document> collection = (MongoCollection<org.bson.Document>) Proxy.newProxyInstance(
+                MongoCollection.class.getClassLoader(),
+                new Class<?>[] {MongoCollection.class},
+                (proxy, method, args) -> {
+                    if ("bulkWrite".equals(method.getName())) {
+                        for (WriteModel<org.bson.Document> model : (List<WriteModel<org.bson.Document>>) args[0]) {
+                            written.add(((ReplaceOneModel<org.bson.Document>) model).getReplacement().get("_id"));
+                        }
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        StreamingPipelineExecutor executor = new StreamingPipelineExecutor(64,
+                StreamingRuntimeConfig.builder().build(), StreamingErrorPolicy.failFast());
+        return new ChangeStreamPipeline(source, executor, DocumentParser.getStagesFromJsonArray(stages),
+                new MongoBulkSink(collection, "_id", 500, Duration.ZERO));
+    }
+
+    private static org.bson.Document order(String id, String status) {
+        return new org.bson.Document("_id", id).append("status", status);
+    }
+
+    private static String token(String data) {
+        return new BsonDocument("_data", new BsonString(data)).toJson();
+    }
+
+    /**
+     * A collection whose change stream records {@code resumeAfter} and has no
+     * events; the first empty poll cancels the source so iteration ends.
+     */
+    @SuppressWarnings("unchecked")
+    private MongoCollection<org.bson.Document> collection() {
+        MongoChangeStreamCursor<?> cursor = (MongoChangeStreamCursor<?>) Proxy.newProxyInstance(
+                MongoChangeStreamCursor.class.getClassLoader(),
+                new Class<?>[] {MongoChangeStreamCursor.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "tryNext" -> {
+                        current.cancel();
+                        yield null;
+                    }
+                    case "close" -> null;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        Object watch = Proxy.newProxyInstance(
+                ChangeStreamIterable.class.getClassLoader(),
+                new Class<?>[] {ChangeStreamIterable.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "batchSize", "fullDocument", "maxAwaitTime" -> proxy;
+                    case "resumeAfter" -> {
+                        resumedAfter.add((BsonDocument) args[0]);
+                        yield proxy;
+                    }
+                    case "cursor" -> cursor;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        return (MongoCollection<org.bson.Document>) Proxy.newProxyInstance(
+                MongoCollection.class.getClassLoader(),
+                new Class<?>[] {MongoCollection.class},
+                (proxy, method, args) -> {
+                    if ("watch".equals(method.getName()) && (args == null || args.length == 0)) {
+                        return watch;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static final class RecordingStore implements CheckpointStore {
+
+        private final Map<String, String> tokens = new HashMap<>();
+        private final List<String> saved = new ArrayList<>();
+
+        @Override
+        public Optional<String> load(String streamId) {
+            return Optional.ofNullable(tokens.get(streamId));
+        }
+
+        @Override
+        public void save(String streamId, String token) {
+            tokens.put(streamId, token);
+            saved.add(token);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ai.fluxion.sample.streaming.mongo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that resume tokens survive a new store instance, as after a restart,
+ * and that replacing a token leaves no temporary files behind.
+ */
+class FileCheckpointStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void latestTokenIsReadBackByANewStore() throws IOException {
+        FileCheckpointStore store = new FileCheckpointStore(directory);
+        assertEquals(Optional.empty(), store.load("fluxion.input_orders"));
+
+        store.save("fluxion.input_orders", "{\"_data\": \"8263A1\"}");
+        store.save("fluxion.input_orders", "{\"_data\": \"8263A2\"}");
+
+        assertEquals(Optional.of("{\"_data\": \"8263A2\"}"),
+                new FileCheckpointStore(directory).load("fluxion.input_orders"));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package ai.fluxion.sample.streaming.mongo;
+
+import ai.fluxion.core.model.Document;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoSocketReadException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.WriteConcernError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives {@link MongoBulkSink} against a stand-in collection that records
+ * each {@code bulkWrite}, so batching, collapsing, linger flushes, retries
+ * of failed writes and resume-token acknowledgements can be checked without
+ * a running mongod.
+ */
+class MongoBulkSinkTest {
+
+    private final List<List<WriteModel<org.bson.Document>>> bulkWrites = Collections.synchronizedList(new ArrayList<>());
+    private final List<RuntimeException> failures = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void collapsesRepeatedKeysAndWritesFullBatchesUnordered() {
+        try (MongoBulkSink sink = new MongoBulkSink(recordingCollection(), "_id", 3, Duration.ZERO)) {
+            sink.write(List.of(
+                    order("order-1", 1),
+                    order("order-2", 1),
+                    order("order-1", 2),
+                    order("order-1", 3),
+                    order("order-3", 1),
+                    order("order-4", 1)));
+
+            assertEquals(2, bulkWrites.size());
+            List<WriteModel<org.bson.Document>> first = bulkWrites.get(0);
+            assertEquals(3, first.size());
+            ReplaceOneModel<org.bson.Document> latest = assertInstanceOf(ReplaceOneModel.class, first.get(0));
+            assertEquals(3, latest.getReplacement().get("amount"));
+            assertTrue(latest.getReplaceOptions().isUpsert());
+            assertEquals(1, bulkWrites.get(1).size());
+            assertEquals(2, sink.collapsed());
+            assertEquals(4, sink.written());
+        }
+    }
+
+    @Test
+    void lingerFlushesPartialBatches() throws InterruptedException {
+        try (MongoBulkSink sink = new MongoBulkSink(recordingCollection(), "_id", 500, Duration.ofMillis(20))) {
+            Map<String, Object> unkeyed = new LinkedHashMap<>();
+            unkeyed.put("amount", 7);
+            sink.write(List.of(order("order-1", 1), new Document(unkeyed)));
+            assertTrue(bulkWrites.isEmpty());
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (bulkWrites.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+
+            assertFalse(bulkWrites.isEmpty());
+            assertEquals(2, bulkWrites.get(0).size());
+            assertInstanceOf(InsertOneModel.class, bulkWrites.get(0).get(1));
+        }
+    }
+
+    @Test
+    void keepsAFailedBatchAndRetriesItOnTheNextFlush() {
+        try (MongoBulkSink sink = new MongoBulkSink(recordingCollection(), "_id", 500, Duration.ZERO)) {
+            failures.add(new MongoSocketReadException("connection reset", new ServerAddress()));
+
+            assertThrows(MongoSocketReadException.class,
+                    () -> sink.write(List.of(order("order-1", 1), order("order-2", 1))));
+            sink.write(List.of(order("order-3", 1)));
+
+            assertEquals(2, bulkWrites.size());
+            assertEquals(List.of("order-1", "order-2"), ids(bulkWrites.get(0)));
+            assertEquals(List.of("order-1", "order-2", "order-3"), ids(bulkWrites.get(1)));
+            assertEquals(3, sink.written());
+        }
+    }
+
+    @Test
+    void retriesOnlyTheModelsAPartialBulkWriteRejected() {
+        try (MongoBulkSink sink = new MongoBulkSink(recordingCollection(), "_id", 500, Duration.ZERO)) {
+            Map<String, Object> unkeyed = new LinkedHashMap<>();
+            unkeyed.put("amount", 7);
+            // order-2 hit a transient error; the insert at index 2 was applied before.
+            failures.add(new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+                    List.of(new BulkWriteError(91, "shutdown in progress", new BsonDocument(), 1),
+                            new BulkWriteError(11000, "duplicate key", new BsonDocument(), 2)),
+                    null, new ServerAddress(), Set.of()));
+
+            assertThrows(MongoBulkWriteException.class,
+                    () -> sink.write(List.of(order("order-1", 1), order("order-2", 1), new Document(unkeyed))));
+            sink.flush();
+
+            assertEquals(List.of("order-2"), ids(bulkWrites.get(1)));
+            assertEquals(3, sink.written());
+        }
+    }
+
+    @Test
+    void handsPermanentRejectionsToTheHandlerAndAcknowledgesTheBatch() {
+        List<MongoBulkSink.RejectedWrite> rejections = new ArrayList<>();
+        List<String> acknowledged = new ArrayList<>();
+        try (MongoBulkSink sink = new MongoBulkSink(recordingCollection(), "_id", 500, Duration.ZERO)) {
+            sink.onRejected(rejections::add).onAcknowledged(acknowledged::add);
+            // order-1 fails validation for good, order-2 hits a step-down and is retried.
+            failures.add(new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+                    List.of(new BulkWriteError(121, "Document failed validation", new BsonDocument(), 0),
+                            new BulkWriteError(189, "primary stepped down", new BsonDocument(), 1)),
+                    null, new ServerAddress(), Set.of()));
+
+            assertThrows(MongoBulkWriteException.class,
+                    () -> sink.write(List.of(tokened("order-1", "8263A1"), tokened("order-2", "8263A2"))));
+            assertEquals(List.of(), acknowledged);
+            sink.flush();
+
+            assertEquals(1, rejections.size());
+            assertEquals(121, rejections.get(0).code());
+            assertEquals("order-1", rejections.get(0).document().get("_id"));
+            assertEquals(List.of("order-2"), ids(bulkWrites.get(1)));
+            assertEquals(List.of("8263A1", "8263A2"), acknowledged);
+            assertEquals(1, sink.rejected());
+            assertEquals(1, sink.written());
+        }
+    }
+
+    @Test
+    void failsForGoodOnAPermanentRejectionWithoutAHandler() {
+        MongoBulkSink sink = new MongoBulkSink(recordingCollection(), "_id", 500, Duration.ZERO);
+        failures.add(new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+                List.of(new BulkWriteError(11000, "duplicate key on reference", new BsonDocument(), 0)),
+                null, new ServerAddress(), Set.of()));
+
+        assertThrows(MongoBulkWriteException.class, () -> sink.write(List.of(order("order-1", 1))));
+        assertThrows(IllegalStateException.class, () -> sink.write(List.of(order("order-2", 1))));
+        assertThrows(IllegalStateException.class, sink::close);
+
+        assertEquals(1, bulkWrites.size());
+        assertEquals(0, sink.written());
+    }
+
+    @Test
+    void keepsTheWholeBatchWhenTheWriteConcernFailed() {
+        try (MongoBulkSink sink = new MongoBulkSink(recordingCollection(), "_id", 500, Duration.ZERO)) {
+            failures.add(new MongoBulkWriteException(BulkWriteResult.unacknowledged(), List.of(),
+                    new WriteConcernError(64, "UnsatisfiableWriteConcern", "waiting for replication timed out",
+                            new BsonDocument()),
+                    new ServerAddress(), Set.of()));
+
+            assertThrows(MongoBulkWriteException.class,
+                    () -> sink.write(List.of(order("order-1", 1), order("order-2", 1))));
+            sink.flush();
+
+            assertEquals(List.of("order-1", "order-2"), ids(bulkWrites.get(1)));
+            assertEquals(2, sink.written());
+        }
+    }
+
+    @Test
+    void acknowledgesEveryTokenOfAWrittenBatchWithoutStoringIt() {
+        List<String> acknowledged = new ArrayList<>();
+        try (MongoBulkSink sink = new MongoBulkSink(recordingCollection(), "_id", 500, Duration.ZERO)) {
+            sink.onAcknowledged(acknowledged::add);
+            failures.add(new MongoSocketReadException("connection reset", new ServerAddress()));
+
+            assertThrows(MongoSocketReadException.class,
+                    () -> sink.write(List.of(tokened("order-1", "8263A2"), tokened("order-2", "8263A1"))));
+            assertEquals(List.of(), acknowledged, "nothing is written yet");
+
+            sink.write(List.of(tokened("order-3", "8263A3")));
+            assertEquals(List.of("8263A2", "8263A1", "8263A3"), acknowledged);
+
+            sink.write(List.of(order("order-4", 1)));
+            assertEquals(3, acknowledged.size(), "a batch without tokens acknowledges nothing");
+            for (List<WriteModel<org.bson.Document>> models : bulkWrites) {
+                for (WriteModel<org.bson.Document> model : models) {
+                    ReplaceOneModel<org.bson.Document> replace = assertInstanceOf(ReplaceOneModel.class, model);
+                    assertNull(replace.getReplacement().get(ChangeStreamSource.RESUME_TOKEN_FIELD));
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private MongoCollection<org.bson.Document> recordingCollection() {
+        return (MongoCollection<org.bson.Document>) Proxy.newProxyInstance(
+                MongoCollection.class.getClassLoader(),
+                new Class<?>[] {MongoCollection.class},
+                (proxy, method, args) -> {
+                    if ("bulkWrite".equals(method.getName()) && args.length == 2
+                            && args[1] instanceof BulkWriteOptions options) {
+                        assertFalse(options.isOrdered());
+                        bulkWrites.add(new ArrayList<>((List<WriteModel<org.bson.Document>>) args[0]));
+                        if (!failures.isEmpty()) {
+                            throw failures.remove(0);
+                        }
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static List<Object> ids(List<WriteModel<org.bson.Document>> models) {
+        List<Object> ids = new ArrayList<>();
+        for (WriteModel<org.bson.Document> model : models) {
+            if (model instanceof ReplaceOneModel<org.bson.Document> replace) {
+                ids.add(replace.getReplacement().get("_id"));
+            }
+        }
+        return ids;
+    }
+
+    private static Document tokened(String id, String token) {
+        Map<String, Object> data = new LinkedHashMap<>(order(id, 1).getData());
+        data.put(ChangeStreamSource.RESUME_TOKEN_FIELD, token);
+        return new Document(data);
+    }
+
+    private static Document order(String id, int amount) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("_id", id);
+        data.put("amount", amount);
+        return new Document(data);
+    }
+}
@@ -0,0 +1,166 @@
+package ai.fluxion.sample.streaming.mongo;
+
+import ai.fluxion.core.model.Document;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the sink and the source against a real single-node replica set:
+ * rejections come from the server's own unique index, and a second source
+ * resumes from the token the first one checkpointed. Skipped when Docker is
+ * not available.
+ */
+class MongoContainerTest {
+
+    private static MongoDBContainer mongo;
+    private static MongoClient client;
+
+    private MongoCollection<org.bson.Document> input;
+    private MongoCollection<org.bson.Document> output;
+
+    @BeforeAll
+    static void startMongo() {
+        assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Docker is not available");
+        mongo = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+        mongo.start();
+        client = MongoClients.create(mongo.getReplicaSetUrl());
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        if (client != null) {
+            client.close();
+        }
+        if (mongo != null) {
+            mongo.stop();
+        }
+    }
+
+    @BeforeEach
+    void dropCollections() {
+        input = client.getDatabase("fluxion").getCollection("input_orders");
+        output = client.getDatabase("fluxion").getCollection("output_orders");
+        input.drop();
+        output.drop();
+    }
+
+    @Test
+    void deadLettersWhatAUniqueIndexRejectsAndAcknowledgesTheBatch() {
+        output.createIndex(Indexes.ascending("reference"), new IndexOptions().unique(true));
+        List<MongoBulkSink.RejectedWrite> rejections = new ArrayList<>();
+        List<String> acknowledged = new ArrayList<>();
+        try (MongoBulkSink sink = new MongoBulkSink(output, "_id", 500, Duration.ZERO)) {
+            sink.onRejected(rejections::add).onAcknowledged(acknowledged::add);
+
+            sink.write(List.of(order("order-1", "R-1", "8263A1"), order("order-2", "R-1", "8263A2")));
+
+            assertEquals(1, rejections.size());
+            assertEquals(11000, rejections.get(0).code());
+            assertEquals("order-2", rejections.get(0).document().get("_id"));
+            assertEquals(List.of("8263A1", "8263A2"), acknowledged);
+            assertEquals(1, sink.rejected());
+            assertEquals(1, output.countDocuments());
+        }
+    }
+
+    @Test
+    void failsForGoodWhenARejectionHasNoHandler() {
+        output.createIndex(Indexes.ascending("reference"), new IndexOptions().unique(true));
+        MongoBulkSink sink = new MongoBulkSink(output, "_id", 500, Duration.ZERO);
+
+        assertThrows(RuntimeException.class,
+                () -> sink.write(List.of(order("order-1", "R-1", null), order("order-2", "R-1", null))));
+
+        assertThrows(IllegalStateException.class, () -> sink.write(List.of(order("order-3", "R-3", null))));
+        assertThrows(IllegalStateException.class, sink::flush);
+        assertThrows(IllegalStateException.class, sink::close);
+    }
+
+    @Test
+    void resumesAfterTheLastWrittenEvent(@TempDir Path checkpoints) throws InterruptedException {
+        FileCheckpointStore store = new FileCheckpointStore(checkpoints);
+        try (MongoBulkSink sink = new MongoBulkSink(output, "_id", 500, Duration.ZERO)) {
+            ChangeStreamSource source = source(store);
+            sink.onAcknowledged(source::acknowledge);
+            // Opening the cursor before inserting keeps the inserts inside the stream.
+            Iterator<Document> events = source.iterator();
+            Thread reader = Thread.ofVirtual().start(() -> events.forEachRemaining(document -> sink.write(List.of(document))));
+
+            input.insertMany(List.of(
+                    new org.bson.Document("_id", "order-1").append("reference", "R-1"),
+                    new org.bson.Document("_id", "order-2").append("reference", "R-2")));
+            awaitTrue(() -> source.checkpoints() >= 2);
+            source.cancel();
+            reader.join(Duration.ofSeconds(10).toMillis());
+        }
+
+        input.insertOne(new org.bson.Document("_id", "order-3").append("reference", "R-3"));
+        ChangeStreamSource resumed = source(store);
+        List<Object> ids = Collections.synchronizedList(new ArrayList<>());
+        Thread reader = Thread.ofVirtual().start(() -> {
+            Iterator<Document> events = resumed.iterator();
+            while (events.hasNext()) {
+                ids.add(events.next().get("_id"));
+            }
+        });
+        awaitTrue(() -> !ids.isEmpty());
+        resumed.cancel();
+        reader.join(Duration.ofSeconds(10).toMillis());
+
+        assertEquals("order-3", ids.get(0));
+        assertEquals(1, output.countDocuments(Filters.eq("reference", "R-2")));
+    }
+
+    private ChangeStreamSource source(CheckpointStore store) {
+        return ChangeStreamSource.builder(input)
+                .checkpointStore(store)
+                .checkpointId("orders")
+                .maxAwaitTime(Duration.ofMillis(100))
+                .build();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(50);
+        }
+    }
+
+    private static Document order(String id, String reference, String token) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("_id", id);
+        data.put("reference", reference);
+        if (token != null) {
+            data.put(ChangeStreamSource.RESUME_TOKEN_FIELD, token);
+        }
+        return new Document(data);
+    }
+}
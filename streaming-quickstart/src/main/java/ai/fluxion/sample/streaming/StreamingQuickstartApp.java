@@ -7,20 +7,55 @@ import ai.fluxion.core.engine.streaming.StreamingRuntimeConfig;
 import ai.fluxion.core.model.Document;
 import ai.fluxion.core.model.Stage;
 import ai.fluxion.core.util.DocumentParser;
+import ai.fluxion.sample.streaming.adaptive.AdaptiveBatchingConfig;
+import ai.fluxion.sample.streaming.adaptive.AdaptiveStreamingRunner;
+import ai.fluxion.sample.streaming.partition.PartitionKey;
+import ai.fluxion.sample.streaming.partition.PartitionedStreamingRunner;
+import ai.fluxion.sample.streaming.retry.DeadLetterLog;
+import ai.fluxion.sample.streaming.retry.RetryConfig;
+import ai.fluxion.sample.streaming.retry.RetryingStreamingRunner;
+import ai.fluxion.sample.streaming.telemetry.InstrumentedStreamingRunner;
+import ai.fluxion.sample.streaming.telemetry.PipelineTelemetry;
+import io.opentelemetry.exporter.logging.LoggingMetricExporter;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Demonstrates the in-memory streaming executor by wiring an iterable source,
  * running aggregation stages, and logging emitted batches alongside stage metrics.
+ * Pass {@code --adaptive} to size micro-batches of a per-document pipeline
+ * from a latency target instead of a fixed {@code microBatchSize}, or {@code --partitioned} to spread the
+ * {@code $group} state across partitions keyed by {@code $status}, or
+ * {@code --telemetry} to record batch and sink latency histograms, document
+ * counts and allocated bytes and export them through OpenTelemetry next to
+ * the executor's stage metrics, or
+ * {@code --retry} to retry the records a sink rejects off the worker,
+ * dead-letter those that keep failing and replay them afterwards.
  */
 public final class StreamingQuickstartApp {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(StreamingQuickstartApp.class);
 
+    // Runners that cut the stream where timing or failures fall only take
+    // stages that handle one document at a time, so these modes have no $group.
+    private static final String PER_DOCUMENT_STAGES = """
+            [
+              {"$match": {"status": "PAID"}},
+              {"$addFields": {"channel": "web"}}
+            ]
+            """;
+
     public static void main(String[] args) throws Exception {
         List<Document> events = DocumentParser.getDocumentsFromJsonArray("""
                 [
@@ -42,6 +77,26 @@ public final class StreamingQuickstartApp {
                 ]
                 """);
 
+        StreamingErrorPolicy errorPolicy = StreamingErrorPolicy.builder()
+                .maxRetries(2)
+                .build();
+        StreamingContext context = new StreamingContext(null, Map.of("tenantId", "demo"), "orders-stream");
+
+        List<String> options = Arrays.asList(args);
+        if (options.contains("--adaptive")) {
+            AdaptiveBatchingConfig adaptiveConfig = AdaptiveBatchingConfig.builder()
+                    .targetLatency(Duration.ofMillis(50))
+                    .initialBatchSize(2)
+                    .maxBatchSize(256)
+                    .build();
+            AdaptiveStreamingRunner runner = new AdaptiveStreamingRunner(adaptiveConfig, errorPolicy);
+            runner.processStream(events, PER_DOCUMENT_STAGES, StreamingQuickstartApp::log, context);
+
+            LOGGER.info("Stage metrics: {}", context.metrics().snapshot());
+            LOGGER.info("Adaptive batching: {}", runner.controller().snapshot());
+            return;
+        }
+
         StreamingRuntimeConfig config = StreamingRuntimeConfig.builder()
                 .microBatchSize(2)
                 .queueCapacity(64)
@@ -49,19 +104,92 @@ public final class StreamingQuickstartApp {
                 .directHandoff(true)
                 .build();
 
-        StreamingErrorPolicy errorPolicy = StreamingErrorPolicy.builder()
-                .maxRetries(2)
-                .build();
+        if (options.contains("--telemetry")) {
+            runWithTelemetry(events, stages, config, errorPolicy);
+            return;
+        }
 
-        StreamingPipelineExecutor executor = new StreamingPipelineExecutor(64, config, errorPolicy);
-        StreamingContext context = new StreamingContext(null, Map.of("tenantId", "demo"), "orders-stream");
+        if (options.contains("--retry")) {
+            runWithRetries(events, config, errorPolicy);
+            return;
+        }
 
-        executor.processStream(events, stages, documents -> {
-            for (Document doc : documents) {
-                LOGGER.info("Streaming output: {}", doc);
+        if (options.contains("--partitioned")) {
+            PartitionedStreamingRunner runner = new PartitionedStreamingRunner(
+                    PartitionKey.field("$status"), 4, 64, 64, config, errorPolicy);
+            List<StreamingContext> partitions = runner.processStream(events, stages,
+                    StreamingQuickstartApp::log, Map.of("tenantId", "demo"), "orders-stream");
+
+            for (int i = 0; i < partitions.size(); i++) {
+                LOGGER.info("Partition {} stage metrics: {}", i, partitions.get(i).metrics().snapshot());
             }
-        }, context);
+            return;
+        }
+
+        StreamingPipelineExecutor executor = new StreamingPipelineExecutor(64, config, errorPolicy);
+        executor.processStream(events, stages, StreamingQuickstartApp::log, context);
 
         LOGGER.info("Stage metrics: {}", context.metrics().snapshot());
     }
+
+    private static void runWithTelemetry(List<Document> events,
+                                         List<Stage> stages,
+                                         StreamingRuntimeConfig config,
+                                         StreamingErrorPolicy errorPolicy) {
+        PeriodicMetricReader reader = PeriodicMetricReader.builder(LoggingMetricExporter.create())
+                .setInterval(Duration.ofSeconds(10))
+                .build();
+        // Closing the provider runs a final collection, so the logging
+        // exporter prints the metrics even for this short stream.
+        try (SdkMeterProvider meterProvider = SdkMeterProvider.builder().registerMetricReader(reader).build()) {
+            PipelineTelemetry telemetry = PipelineTelemetry.create(
+                    meterProvider.get("ai.fluxion.sample.streaming"), "orders-stream");
+            InstrumentedStreamingRunner runner = new InstrumentedStreamingRunner(64, config, errorPolicy, telemetry);
+            StreamingContext context = runner.processStream(events, stages,
+                    StreamingQuickstartApp::log, Map.of("tenantId", "demo"), "orders-stream");
+
+            LOGGER.info("Stage metrics: {}", context.metrics().snapshot());
+            LOGGER.info("Pipeline telemetry: {}", telemetry.snapshot());
+        }
+    }
+
+    private static void runWithRetries(List<Document> events,
+                                       StreamingRuntimeConfig config,
+                                       StreamingErrorPolicy errorPolicy) throws IOException, InterruptedException {
+        RetryConfig retryConfig = RetryConfig.builder()
+                .maxAttempts(3)
+                .initialBackoff(Duration.ofMillis(20))
+                .build();
+        // Until the replay the sink rejects orders over 200, standing in for
+        // a downstream limit that is raised later.
+        AtomicBoolean limited = new AtomicBoolean(true);
+        Path logFile = Files.createTempFile("orders-stream", ".dlq");
+        try (DeadLetterLog deadLetters = DeadLetterLog.open(logFile)) {
+            RetryingStreamingRunner runner = new RetryingStreamingRunner(2, config, errorPolicy, retryConfig, deadLetters);
+            StreamingContext context = new StreamingContext(null, Map.of("tenantId", "demo"), "orders-stream");
+            runner.processStream(events, PER_DOCUMENT_STAGES, batch -> {
+                if (limited.get() && batch.stream().anyMatch(order -> ((Number) order.get("total")).doubleValue() > 200)) {
+                    throw new IllegalStateException("Order total over the downstream limit");
+                }
+                log(batch);
+            }, context);
+            LOGGER.info("Stage metrics: {}", context.metrics().snapshot());
+            LOGGER.info("Retries: {}; dead letters pending: {}", runner.stats(), deadLetters.pending().size());
+
+            limited.set(false);
+            StreamingPipelineExecutor replayExecutor = new StreamingPipelineExecutor(64, config, errorPolicy);
+            int replayed = deadLetters.replay(replayExecutor, DocumentParser.getStagesFromJsonArray(PER_DOCUMENT_STAGES),
+                    StreamingQuickstartApp::log,
+                    new StreamingContext(null, Map.of("tenantId", "demo"), "orders-replay"));
+            LOGGER.info("Replayed {} dead letters", replayed);
+        } finally {
+            Files.deleteIfExists(logFile);
+        }
+    }
+
+    private static void log(List<Document> documents) {
+        for (Document doc : documents) {
+            LOGGER.info("Streaming output: {}", doc);
+        }
+    }
 }
@@ -0,0 +1,117 @@
+package ai.fluxion.sample.streaming.adaptive;
+
+import ai.fluxion.sample.streaming.runner.Batching;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * AIMD controller for micro-batch size and flush interval. After every batch
+ * it estimates the p99 batch latency over a sliding window; when that exceeds
+ * the target it halves the batch size, and while a backlog
+ * is building with latency headroom left it grows the batch size by a
+ * quarter. The flush interval is capped by whatever headroom the target
+ * leaves after processing time.
+ *
+ * <p>Each change clears the window, and the size is held for
+ * {@link AdaptiveBatchingConfig#cooldownBatches()} batches before it can
+ * change again, so a decision is never based on latencies measured at a size
+ * that has already been abandoned.
+ */
+public final class AdaptiveBatchController implements Batching {
+
+    private static final double GROWTH_HEADROOM = 0.8;
+
+    private final AdaptiveBatchingConfig config;
+    private final long[] latencies;
+    private final long[] sorted;
+    private int samples;
+    private int next;
+
+    private volatile int batchSize;
+    private volatile long flushIntervalNanos;
+    private volatile long p99Nanos;
+    private volatile long increases;
+    private volatile long decreases;
+
+    public AdaptiveBatchController(AdaptiveBatchingConfig config) {
+        this.config = config;
+        this.latencies = new long[config.latencyWindow()];
+        this.sorted = new long[config.latencyWindow()];
+        this.batchSize = config.initialBatchSize();
+        this.flushIntervalNanos = config.maxFlushInterval().toNanos();
+    }
+
+    @Override
+    public int batchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public long flushIntervalNanos() {
+        return flushIntervalNanos;
+    }
+
+    /**
+     * Records one processed batch. Must be called from a single thread.
+     *
+     * @param latencyNanos time from the batch's first record being enqueued by
+     *                     the source until the sink returned
+     * @param queueDepth   records still waiting when the batch completed
+     */
+    @Override
+    public void onBatch(int size, long latencyNanos, int queueDepth) {
+        latencies[next] = latencyNanos;
+        next = (next + 1) % latencies.length;
+        samples = Math.min(samples + 1, latencies.length);
+        long p99 = percentile99();
+        p99Nanos = p99;
+
+        long target = config.targetLatency().toNanos();
+        int current = batchSize;
+        if (samples >= config.cooldownBatches()) {
+            if (p99 > target && current > config.minBatchSize()) {
+                batchSize = Math.max(config.minBatchSize(), current / 2);
+                decreases++;
+                clearWindow();
+            } else if (p99 < target * GROWTH_HEADROOM && queueDepth >= current && size >= current
+                    && current < config.maxBatchSize()) {
+                batchSize = Math.min(config.maxBatchSize(), current + Math.max(1, current / 4));
+                increases++;
+                clearWindow();
+            }
+        }
+
+        long headroom = Math.max(0, target - p99);
+        flushIntervalNanos = Math.max(config.minFlushInterval().toNanos(),
+                Math.min(config.maxFlushInterval().toNanos(), headroom / 2));
+    }
+
+    private void clearWindow() {
+        samples = 0;
+        next = 0;
+    }
+
+    private long percentile99() {
+        System.arraycopy(latencies, 0, sorted, 0, samples);
+        Arrays.sort(sorted, 0, samples);
+        int index = (int) Math.ceil(samples * 0.99) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    /**
+     * Current controller state, suitable for logging next to
+     * {@code StreamingContext.metrics().snapshot()}.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("batchSize", batchSize);
+        snapshot.put("flushIntervalMs", flushIntervalNanos / 1_000_000.0);
+        snapshot.put("p99LatencyMs", p99Nanos / 1_000_000.0);
+        snapshot.put("targetLatencyMs", config.targetLatency().toMillis());
+        snapshot.put("increases", increases);
+        snapshot.put("decreases", decreases);
+        return snapshot;
+    }
+}
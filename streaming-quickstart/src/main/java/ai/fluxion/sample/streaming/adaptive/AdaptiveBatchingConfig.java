@@ -0,0 +1,152 @@
+package ai.fluxion.sample.streaming.adaptive;
+
+import java.time.Duration;
+
+/**
+ * Bounds and target for {@link AdaptiveBatchController}. The controller keeps
+ * the micro-batch size and flush interval inside these limits while steering
+ * the observed p99 batch latency towards {@link #targetLatency()}.
+ */
+public final class AdaptiveBatchingConfig {
+
+    private final Duration targetLatency;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final int initialBatchSize;
+    private final Duration minFlushInterval;
+    private final Duration maxFlushInterval;
+    private final int queueCapacity;
+    private final int latencyWindow;
+    private final int cooldownBatches;
+
+    private AdaptiveBatchingConfig(Builder builder) {
+        if (builder.minBatchSize < 1 || builder.maxBatchSize < builder.minBatchSize) {
+            throw new IllegalArgumentException("Batch size bounds must satisfy 1 <= min <= max");
+        }
+        if (builder.cooldownBatches < 1 || builder.latencyWindow < builder.cooldownBatches) {
+            throw new IllegalArgumentException("Latency window must satisfy 1 <= cooldownBatches <= latencyWindow");
+        }
+        this.targetLatency = builder.targetLatency;
+        this.minBatchSize = builder.minBatchSize;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.initialBatchSize = Math.max(builder.minBatchSize, Math.min(builder.maxBatchSize, builder.initialBatchSize));
+        this.minFlushInterval = builder.minFlushInterval;
+        this.maxFlushInterval = builder.maxFlushInterval;
+        this.queueCapacity = builder.queueCapacity;
+        this.latencyWindow = builder.latencyWindow;
+        this.cooldownBatches = builder.cooldownBatches;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Duration targetLatency() {
+        return targetLatency;
+    }
+
+    public int minBatchSize() {
+        return minBatchSize;
+    }
+
+    public int maxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int initialBatchSize() {
+        return initialBatchSize;
+    }
+
+    public Duration minFlushInterval() {
+        return minFlushInterval;
+    }
+
+    public Duration maxFlushInterval() {
+        return maxFlushInterval;
+    }
+
+    public int queueCapacity() {
+        return queueCapacity;
+    }
+
+    public int latencyWindow() {
+        return latencyWindow;
+    }
+
+    public int cooldownBatches() {
+        return cooldownBatches;
+    }
+
+    public static final class Builder {
+
+        private Duration targetLatency = Duration.ofMillis(50);
+        private int minBatchSize = 1;
+        private int maxBatchSize = 1024;
+        private int initialBatchSize = 32;
+        private Duration minFlushInterval = Duration.ofMillis(1);
+        private Duration maxFlushInterval = Duration.ofMillis(25);
+        private int queueCapacity = 4096;
+        private int latencyWindow = 128;
+        private int cooldownBatches = 8;
+
+        private Builder() {
+        }
+
+        /** Desired p99 latency of a micro-batch, from first enqueued record to sink. */
+        public Builder targetLatency(Duration targetLatency) {
+            this.targetLatency = targetLatency;
+            return this;
+        }
+
+        public Builder minBatchSize(int minBatchSize) {
+            this.minBatchSize = minBatchSize;
+            return this;
+        }
+
+        public Builder maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        public Builder initialBatchSize(int initialBatchSize) {
+            this.initialBatchSize = initialBatchSize;
+            return this;
+        }
+
+        public Builder minFlushInterval(Duration minFlushInterval) {
+            this.minFlushInterval = minFlushInterval;
+            return this;
+        }
+
+        public Builder maxFlushInterval(Duration maxFlushInterval) {
+            this.maxFlushInterval = maxFlushInterval;
+            return this;
+        }
+
+        /** Capacity of the buffer between the source and the batcher. */
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /** Number of recent batches the p99 estimate is computed over. */
+        public Builder latencyWindow(int latencyWindow) {
+            this.latencyWindow = latencyWindow;
+            return this;
+        }
+
+        /**
+         * Number of batches the controller observes after changing the batch
+         * size before it may change it again. The latency window is cleared at
+         * every change, so these batches are all measured at the new size.
+         */
+        public Builder cooldownBatches(int cooldownBatches) {
+            this.cooldownBatches = cooldownBatches;
+            return this;
+        }
+
+        public AdaptiveBatchingConfig build() {
+            return new AdaptiveBatchingConfig(this);
+        }
+    }
+}
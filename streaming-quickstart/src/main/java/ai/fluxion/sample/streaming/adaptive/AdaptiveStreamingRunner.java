@@ -0,0 +1,80 @@
+package ai.fluxion.sample.streaming.adaptive;
+
+import ai.fluxion.core.engine.streaming.StreamingContext;
+import ai.fluxion.core.engine.streaming.StreamingErrorPolicy;
+import ai.fluxion.core.engine.streaming.StreamingPipelineExecutor;
+import ai.fluxion.core.engine.streaming.StreamingRuntimeConfig;
+import ai.fluxion.core.engine.streaming.StreamingSink;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.sample.streaming.runner.MicroBatchRunner;
+import ai.fluxion.sample.streaming.runner.PerDocumentStages;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a stream through {@link StreamingPipelineExecutor} with micro-batches
+ * sized by an {@link AdaptiveBatchController}. A {@link MicroBatchRunner}
+ * stamps each record as it is enqueued, cuts a batch once it reaches the
+ * controller's current size or its flush interval has elapsed since the first
+ * record arrived, hands it to the executor, and feeds the latency from that
+ * arrival to the sink returning, and the remaining queue depth, back to the
+ * controller. Time spent waiting in the queue therefore counts against the
+ * latency target.
+ *
+ * <p>Each micro-batch is a separate {@code processStream} call, and where the
+ * batches are cut depends on timing. Only per-document stages give the same
+ * output whatever the cuts, so the pipeline is checked by
+ * {@link PerDocumentStages} and a stage such as {@code $group} is rejected;
+ * aggregate the output downstream, or run stateful pipelines through
+ * {@link ai.fluxion.sample.streaming.partition.PartitionedStreamingRunner},
+ * whose streams keep their state. Every batch runs on one executor sized for
+ * the largest batch, so a new batch size creates no threads or queues.
+ */
+public final class AdaptiveStreamingRunner {
+
+    private final AdaptiveBatchingConfig config;
+    private final AdaptiveBatchController controller;
+    private final StreamingPipelineExecutor executor;
+
+    public AdaptiveStreamingRunner(AdaptiveBatchingConfig config, StreamingErrorPolicy errorPolicy) {
+        this.config = config;
+        this.controller = new AdaptiveBatchController(config);
+        StreamingRuntimeConfig runtimeConfig = StreamingRuntimeConfig.builder()
+                .microBatchSize(config.maxBatchSize())
+                .queueCapacity(Math.max(64, config.maxBatchSize()))
+                .sourceQueueCapacity(4)
+                .directHandoff(true)
+                .build();
+        this.executor = new StreamingPipelineExecutor(config.maxBatchSize(), runtimeConfig, errorPolicy);
+    }
+
+    public AdaptiveBatchController controller() {
+        return controller;
+    }
+
+    /**
+     * Streams {@code source} through the stages of {@code stagesJson} and
+     * blocks until every batch has reached the sink.
+     *
+     * @throws IllegalArgumentException if a stage needs more than one document at a time
+     */
+    public void processStream(Iterable<Document> source,
+                              String stagesJson,
+                              StreamingSink sink,
+                              StreamingContext context) throws InterruptedException {
+        List<Stage> stages = PerDocumentStages.parse(stagesJson);
+        MicroBatchRunner.builder()
+                .name("adaptive")
+                .batching(controller)
+                .queueCapacity(config.queueCapacity())
+                .processor(batch -> {
+                    List<Document> output = new ArrayList<>();
+                    executor.processStream(batch, stages, output::addAll, context);
+                    return output;
+                })
+                .build()
+                .run(source, sink);
+    }
+}
@@ -0,0 +1,58 @@
+package ai.fluxion.sample.streaming.partition;
+
+import ai.fluxion.core.model.Document;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Extracts the value records are routed on. Records with equal keys always
+ * land on the same partition, so any stage whose state is keyed by a function
+ * of the partition key (for example {@code $group} on {@code _id: "$tenant"}
+ * when partitioning by {@code $tenant}) sees every record for its groups.
+ */
+@FunctionalInterface
+public interface PartitionKey {
+
+    Object extract(Document document);
+
+    /**
+     * Routes on a field path expression such as {@code $tenant} or
+     * {@code $customer.region}. Missing fields route as {@code null}.
+     */
+    static PartitionKey field(String expression) {
+        Objects.requireNonNull(expression, "expression");
+        if (!expression.startsWith("$") || expression.length() == 1) {
+            throw new IllegalArgumentException("Partition key must be a field path such as $tenant: " + expression);
+        }
+        String[] path = expression.substring(1).split("\\.");
+        return document -> {
+            Object value = document.get(path[0]);
+            for (int i = 1; i < path.length && value != null; i++) {
+                value = value instanceof Map<?, ?> map ? map.get(path[i]) : null;
+            }
+            return value;
+        };
+    }
+
+    /**
+     * Routes on an arbitrary function, e.g. a Kafka record key the source
+     * copied into the document.
+     */
+    static PartitionKey of(Function<Document, ?> extractor) {
+        Objects.requireNonNull(extractor, "extractor");
+        return extractor::apply;
+    }
+
+    /**
+     * Maps a key onto {@code [0, partitions)}. Numbers hash by numeric value
+     * so {@code 1}, {@code 1L} and {@code 1.0} share a partition, matching how
+     * {@code $group} compares them.
+     */
+    static int partitionOf(Object key, int partitions) {
+        int hash = key instanceof Number number ? Double.hashCode(number.doubleValue()) : Objects.hashCode(key);
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, partitions);
+    }
+}
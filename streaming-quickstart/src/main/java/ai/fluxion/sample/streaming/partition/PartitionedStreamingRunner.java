@@ -0,0 +1,165 @@
+package ai.fluxion.sample.streaming.partition;
+
+import ai.fluxion.core.engine.streaming.StreamingContext;
+import ai.fluxion.core.engine.streaming.StreamingErrorPolicy;
+import ai.fluxion.core.engine.streaming.StreamingPipelineExecutor;
+import ai.fluxion.core.engine.streaming.StreamingRuntimeConfig;
+import ai.fluxion.core.engine.streaming.StreamingSink;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.sample.streaming.runner.WorkerGroup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Runs a pipeline across {@code N} partitions so stateful stages scale past a
+ * single ordered path. The calling thread hash-routes each record by its
+ * {@link PartitionKey} into a bounded per-partition queue; every partition is
+ * drained by its own thread running one long-lived
+ * {@link StreamingPipelineExecutor#processStream} over that queue with its own
+ * {@link StreamingContext}, so {@code $group} and other stateful stages keep
+ * their state for the whole stream and hold only that partition's share of
+ * the keys. Routing on the grouping key therefore gives every key its full
+ * total from exactly one partition.
+ *
+ * <p>A partition is consumed by exactly one thread in arrival order, so
+ * records sharing a key are processed and emitted in source order. Records
+ * with different keys may interleave arbitrarily. Keep
+ * {@code workerThreadPoolSize} at its default in the per-partition config;
+ * parallelism comes from the partitions themselves.
+ *
+ * <p>The sink is shared and invoked concurrently from partition threads, so it
+ * must be thread-safe.
+ *
+ * <p>If any partition fails, or the source or key extraction throws, routing
+ * stops, the remaining partitions are interrupted and nothing more they emit
+ * reaches the sink, so a cancelled partition never flushes the partial state
+ * of a stage such as {@code $group}. The first failure is rethrown to the
+ * caller.
+ */
+public final class PartitionedStreamingRunner {
+
+    private static final Document END_OF_PARTITION = new Document(Map.of());
+
+    private final PartitionKey partitionKey;
+    private final int partitions;
+    private final int microBatchSize;
+    private final int queueCapacity;
+    private final StreamingRuntimeConfig runtimeConfig;
+    private final StreamingErrorPolicy errorPolicy;
+
+    public PartitionedStreamingRunner(PartitionKey partitionKey,
+                                      int partitions,
+                                      int microBatchSize,
+                                      int queueCapacity,
+                                      StreamingRuntimeConfig runtimeConfig,
+                                      StreamingErrorPolicy errorPolicy) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("partitions must be >= 1");
+        }
+        if (microBatchSize < 1) {
+            throw new IllegalArgumentException("microBatchSize must be >= 1");
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be >= 1");
+        }
+        this.partitionKey = partitionKey;
+        this.partitions = partitions;
+        this.microBatchSize = microBatchSize;
+        this.queueCapacity = queueCapacity;
+        this.runtimeConfig = runtimeConfig;
+        this.errorPolicy = errorPolicy;
+    }
+
+    /**
+     * Streams {@code source} through {@code stages} on every partition and
+     * blocks until all partitions have drained.
+     *
+     * @return the per-partition contexts, indexed by partition, so callers
+     *         can inspect each partition's stage metrics
+     */
+    public List<StreamingContext> processStream(Iterable<Document> source,
+                                                List<Stage> stages,
+                                                StreamingSink sink,
+                                                Map<String, Object> variables,
+                                                String pipelineId) throws InterruptedException {
+        List<BlockingQueue<Document>> queues = new ArrayList<>(partitions);
+        List<StreamingContext> contexts = new ArrayList<>(partitions);
+        WorkerGroup group = new WorkerGroup("Partitioned pipeline " + pipelineId);
+        StreamingSink gated = group.gate(sink);
+
+        for (int i = 0; i < partitions; i++) {
+            BlockingQueue<Document> queue = new ArrayBlockingQueue<>(queueCapacity);
+            Map<String, Object> partitionVariables = new LinkedHashMap<>(variables);
+            partitionVariables.put("partition", i);
+            StreamingContext context = new StreamingContext(null, partitionVariables, pipelineId + "-p" + i);
+            StreamingPipelineExecutor executor = new StreamingPipelineExecutor(microBatchSize, runtimeConfig, errorPolicy);
+            queues.add(queue);
+            contexts.add(context);
+            group.start(Thread.ofPlatform().name(pipelineId + "-partition-" + i), "Partition " + i,
+                    () -> executor.processStream(drain(queue), stages, gated, context));
+        }
+
+        try {
+            for (Document document : source) {
+                Object key = partitionKey.extract(document);
+                if (!group.offer(queues.get(PartitionKey.partitionOf(key, partitions)), document)) {
+                    break;
+                }
+            }
+        } catch (InterruptedException | RuntimeException | Error e) {
+            group.fail(e);
+            throw e;
+        } finally {
+            for (BlockingQueue<Document> queue : queues) {
+                group.offer(queue, END_OF_PARTITION);
+            }
+            group.await();
+        }
+        group.rethrow();
+        return Collections.unmodifiableList(contexts);
+    }
+
+    private static Iterable<Document> drain(BlockingQueue<Document> queue) {
+        return () -> new Iterator<>() {
+            private Document next;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !done) {
+                    try {
+                        Document taken = queue.take();
+                        if (taken == END_OF_PARTITION) {
+                            done = true;
+                        } else {
+                            next = taken;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        done = true;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Document next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Document current = next;
+                next = null;
+                return current;
+            }
+        };
+    }
+}
@@ -0,0 +1,269 @@
+package ai.fluxion.sample.streaming.retry;
+
+import ai.fluxion.core.engine.streaming.StreamingContext;
+import ai.fluxion.core.engine.streaming.StreamingPipelineExecutor;
+import ai.fluxion.core.engine.streaming.StreamingSink;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Local append-only log of records that ran out of retries. Appends go
+ * through a memory-mapped region of the file, so writing a dead letter is a
+ * copy into the page cache with no system call, and the region is remapped
+ * further along the file as it fills. A record is safe from a crash of the
+ * JVM once {@link #append} returns; {@link #flush()} forces it to the device
+ * so it also survives losing the machine.
+ *
+ * <p>The file starts with a header holding the replay cursor, followed by
+ * records framed as {@code [length][crc32c][json]}. The JSON carries the
+ * document, the last error, the attempt count and the failure time, so
+ * field values come back as JSON types. On open the records are scanned up
+ * to the first empty or torn frame, and appends continue from there.
+ * {@link #replay} feeds every record past the cursor back through
+ * {@link StreamingPipelineExecutor#processStream} and moves the cursor only
+ * once that run completes, so a failed replay can be repeated.
+ */
+public final class DeadLetterLog implements AutoCloseable {
+
+    private static final int MAGIC = 0x46584446;
+    private static final int HEADER_BYTES = 16;
+    private static final int FRAME_BYTES = 8;
+    private static final int DEFAULT_REGION_BYTES = 1 << 20;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> ENTRY = new TypeReference<>() {
+    };
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final int regionBytes;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long end;
+    private long appended;
+
+    private DeadLetterLog(Path path, FileChannel channel, int regionBytes) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.regionBytes = regionBytes;
+        boolean created = channel.size() == 0;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        if (created) {
+            header.putInt(0, MAGIC).putInt(4, 1).putLong(8, HEADER_BYTES);
+            header.force();
+        } else if (header.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a dead-letter log");
+        }
+        this.end = scan(replayCursor());
+        map(end, regionBytes);
+    }
+
+    public static DeadLetterLog open(Path path) throws IOException {
+        return open(path, DEFAULT_REGION_BYTES);
+    }
+
+    /**
+     * @param regionBytes bytes mapped at a time; a record larger than this
+     *                    gets a region of its own
+     */
+    public static DeadLetterLog open(Path path, int regionBytes) throws IOException {
+        if (regionBytes < FRAME_BYTES) {
+            throw new IllegalArgumentException("regionBytes must be >= " + FRAME_BYTES);
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new DeadLetterLog(path, channel, regionBytes);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    /** Records appended through this instance since it was opened. */
+    public synchronized long appended() {
+        return appended;
+    }
+
+    public void append(Document document, Throwable error, int attempts) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("failedAt", System.currentTimeMillis());
+        entry.put("attempts", attempts);
+        entry.put("error", String.valueOf(error));
+        entry.put("document", document.getData());
+        byte[] json;
+        try {
+            json = MAPPER.writeValueAsBytes(entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot encode dead letter " + document, e);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(json);
+        write(json, (int) crc.getValue());
+    }
+
+    private synchronized void write(byte[] json, int crc) {
+        int size = FRAME_BYTES + json.length;
+        try {
+            if (end + size > regionStart + region.capacity()) {
+                region.force();
+                map(end, Math.max(regionBytes, size));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot grow dead-letter log " + path, e);
+        }
+        int offset = (int) (end - regionStart);
+        region.put(offset + FRAME_BYTES, json);
+        region.putInt(offset + 4, crc);
+        // The length goes in last: a frame whose length is still zero ends the log.
+        region.putInt(offset, json.length);
+        end += size;
+        appended++;
+    }
+
+    /** Forces appended records to the storage device. */
+    public synchronized void flush() {
+        region.force();
+    }
+
+    /** Records past the replay cursor, oldest first. */
+    public List<DeadLetter> pending() {
+        long from;
+        long to;
+        synchronized (this) {
+            from = replayCursor();
+            to = end;
+        }
+        List<DeadLetter> letters = new ArrayList<>();
+        try {
+            long position = from;
+            while (position < to) {
+                DeadLetter letter = read(position);
+                if (letter == null) {
+                    break;
+                }
+                letters.add(letter);
+                position = letter.next();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read dead-letter log " + path, e);
+        }
+        return letters;
+    }
+
+    /**
+     * Streams the pending records through {@code stages} into {@code sink}
+     * and, once that succeeds, marks them replayed.
+     *
+     * @return the number of records replayed
+     */
+    public int replay(StreamingPipelineExecutor executor,
+                      List<Stage> stages,
+                      StreamingSink sink,
+                      StreamingContext context) {
+        List<DeadLetter> letters = pending();
+        if (letters.isEmpty()) {
+            return 0;
+        }
+        executor.processStream(letters.stream().map(DeadLetter::document).toList(), stages, sink, context);
+        synchronized (this) {
+            header.putLong(8, letters.get(letters.size() - 1).next());
+            header.force();
+        }
+        return letters.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        region.force();
+        channel.close();
+    }
+
+    private long replayCursor() {
+        return header.getLong(8);
+    }
+
+    private void map(long start, int size) throws IOException {
+        region = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+        regionStart = start;
+    }
+
+    /** Returns the end of the last intact record at or after {@code from}. */
+    private long scan(long from) throws IOException {
+        long position = Math.max(HEADER_BYTES, from);
+        for (DeadLetter letter = read(position); letter != null; letter = read(position)) {
+            position = letter.next();
+        }
+        return position;
+    }
+
+    private DeadLetter read(long position) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_BYTES);
+        if (readFully(frame, position) < FRAME_BYTES) {
+            return null;
+        }
+        int length = frame.getInt(0);
+        if (length <= 0 || position + FRAME_BYTES + length > channel.size()) {
+            return null;
+        }
+        ByteBuffer json = ByteBuffer.allocate(length);
+        if (readFully(json, position + FRAME_BYTES) < length) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(json.array());
+        if ((int) crc.getValue() != frame.getInt(4)) {
+            return null;
+        }
+        Map<String, Object> entry = MAPPER.readValue(json.array(), ENTRY);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> data = (Map<String, Object>) entry.get("document");
+        return new DeadLetter(position, position + FRAME_BYTES + length, new Document(data),
+                String.valueOf(entry.get("error")), ((Number) entry.get("attempts")).intValue(),
+                Instant.ofEpochMilli(((Number) entry.get("failedAt")).longValue()));
+    }
+
+    private int readFully(ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * One dead-lettered record; {@code offset} and {@code next} are its
+     * bounds in the log.
+     */
+    public record DeadLetter(long offset, long next, Document document, String error, int attempts, Instant failedAt) {
+    }
+}
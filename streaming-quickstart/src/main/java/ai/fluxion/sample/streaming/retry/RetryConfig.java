@@ -0,0 +1,192 @@
+package ai.fluxion.sample.streaming.retry;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Backoff schedule for {@link RetryingStreamingRunner}. A failed record is
+ * attempted again after {@link #initialBackoff()}, each further wait is
+ * {@link #multiplier()} times the previous one up to {@link #maxBackoff()},
+ * and every wait is shortened by a random share of up to {@link #jitter()}
+ * so records that failed together do not retry in lockstep. A record still
+ * failing after {@link #maxAttempts()} attempts, the first one included, is
+ * dead-lettered. At most {@link #maxPendingRetries()} records wait for a retry
+ * or a dead-letter write at once, and at most {@link #maxPendingBatches()}
+ * failing micro-batches wait to be split; beyond that the worker waits for one
+ * to finish, so a burst of failures slows the stream instead of filling memory.
+ * A failing batch of at most {@link #recordByRecordThreshold()} records is retried
+ * one record at a time rather than split further.
+ */
+public final class RetryConfig {
+
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final double multiplier;
+    private final double jitter;
+    private final int retryThreads;
+    private final int maxPendingRetries;
+    private final int maxPendingBatches;
+    private final int recordByRecordThreshold;
+
+    private RetryConfig(Builder builder) {
+        if (builder.maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be >= 1");
+        }
+        if (builder.initialBackoff.isNegative() || builder.maxBackoff.compareTo(builder.initialBackoff) < 0) {
+            throw new IllegalArgumentException("Backoff bounds must satisfy 0 <= initial <= max");
+        }
+        if (builder.multiplier < 1.0) {
+            throw new IllegalArgumentException("multiplier must be >= 1");
+        }
+        if (builder.jitter < 0.0 || builder.jitter > 1.0) {
+            throw new IllegalArgumentException("jitter must be between 0 and 1");
+        }
+        if (builder.retryThreads < 1) {
+            throw new IllegalArgumentException("retryThreads must be >= 1");
+        }
+        if (builder.maxPendingRetries < 1) {
+            throw new IllegalArgumentException("maxPendingRetries must be >= 1");
+        }
+        if (builder.maxPendingBatches < 1) {
+            throw new IllegalArgumentException("maxPendingBatches must be >= 1");
+        }
+        if (builder.recordByRecordThreshold < 1) {
+            throw new IllegalArgumentException("recordByRecordThreshold must be >= 1");
+        }
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoff = builder.initialBackoff;
+        this.maxBackoff = builder.maxBackoff;
+        this.multiplier = builder.multiplier;
+        this.jitter = builder.jitter;
+        this.retryThreads = builder.retryThreads;
+        this.maxPendingRetries = builder.maxPendingRetries;
+        this.maxPendingBatches = builder.maxPendingBatches;
+        this.recordByRecordThreshold = builder.recordByRecordThreshold;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    public Duration initialBackoff() {
+        return initialBackoff;
+    }
+
+    public Duration maxBackoff() {
+        return maxBackoff;
+    }
+
+    public double multiplier() {
+        return multiplier;
+    }
+
+    public double jitter() {
+        return jitter;
+    }
+
+    public int retryThreads() {
+        return retryThreads;
+    }
+
+    public int maxPendingRetries() {
+        return maxPendingRetries;
+    }
+
+    public int maxPendingBatches() {
+        return maxPendingBatches;
+    }
+
+    public int recordByRecordThreshold() {
+        return recordByRecordThreshold;
+    }
+
+    /** Wait before attempt {@code attempt + 1}, given that {@code attempt} attempts have failed. */
+    long backoffNanos(int attempt) {
+        double backoff = initialBackoff.toNanos() * Math.pow(multiplier, attempt - 1);
+        double capped = Math.min(backoff, maxBackoff.toNanos());
+        return (long) (capped * (1.0 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    public static final class Builder {
+
+        private int maxAttempts = 5;
+        private Duration initialBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(30);
+        private double multiplier = 2.0;
+        private double jitter = 0.2;
+        private int retryThreads = 2;
+        private int maxPendingRetries = 10_000;
+        private int maxPendingBatches = 16;
+        private int recordByRecordThreshold = 4;
+
+        private Builder() {
+        }
+
+        /** Attempts per record, including the first one on the worker. */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Builder initialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+            return this;
+        }
+
+        public Builder maxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        public Builder multiplier(double multiplier) {
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /** Largest share of a wait that is randomly cut, between 0 and 1. */
+        public Builder jitter(double jitter) {
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * Timer threads that run retries, and as many threads that split
+         * failing micro-batches, so neither holds up the worker.
+         */
+        public Builder retryThreads(int retryThreads) {
+            this.retryThreads = retryThreads;
+            return this;
+        }
+
+        /** Records that may wait for a retry at once before the worker blocks. */
+        public Builder maxPendingRetries(int maxPendingRetries) {
+            this.maxPendingRetries = maxPendingRetries;
+            return this;
+        }
+
+        /** Failing micro-batches that may wait to be split at once before the worker blocks. */
+        public Builder maxPendingBatches(int maxPendingBatches) {
+            this.maxPendingBatches = maxPendingBatches;
+            return this;
+        }
+
+        /**
+         * Largest failing batch that is retried one record at a time; larger
+         * ones are split in halves first. Up to 4 records this costs no more
+         * runs than halving; {@code 1} always bisects.
+         */
+        public Builder recordByRecordThreshold(int recordByRecordThreshold) {
+            this.recordByRecordThreshold = recordByRecordThreshold;
+            return this;
+        }
+
+        public RetryConfig build() {
+            return new RetryConfig(this);
+        }
+    }
+}
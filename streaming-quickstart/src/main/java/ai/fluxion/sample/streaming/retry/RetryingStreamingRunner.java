@@ -0,0 +1,324 @@
+package ai.fluxion.sample.streaming.retry;
+
+import ai.fluxion.core.engine.streaming.StreamingContext;
+import ai.fluxion.core.engine.streaming.StreamingErrorPolicy;
+import ai.fluxion.core.engine.streaming.StreamingPipelineExecutor;
+import ai.fluxion.core.engine.streaming.StreamingRuntimeConfig;
+import ai.fluxion.core.engine.streaming.StreamingSink;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.sample.streaming.runner.Batching;
+import ai.fluxion.sample.streaming.runner.MicroBatchRunner;
+import ai.fluxion.sample.streaming.runner.PerDocumentStages;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streams documents through a {@link StreamingPipelineExecutor} in
+ * micro-batches without letting a failing record hold up the rest. The
+ * micro-batches are cut by a {@link MicroBatchRunner} and each is run by one
+ * {@code processStream} call with the stream's {@link StreamingContext}, so
+ * the executor's runtime config, error policy and stage metrics apply to
+ * every run, first attempts and retries alike. When running a batch, or
+ * writing its output, throws, the worker hands the batch to an isolation
+ * thread and moves
+ * on to the next micro-batch. There the batch is split in halves and each
+ * half run and written again, recursively, and a failing part of at most
+ * {@link RetryConfig#recordByRecordThreshold()} records is run one record at a
+ * time, until the failing records are left on their own. Each of them is
+ * handed to a timer that retries it with exponential backoff on
+ * its own threads. A record that fails {@link RetryConfig#maxAttempts()}
+ * times is appended to the {@link DeadLetterLog}, from which
+ * {@link DeadLetterLog#replay} can feed it back through the streaming
+ * executor once the cause is fixed.
+ *
+ * <p>The worker never runs a sub-batch, waits for a backoff or a dead-letter
+ * write, only for room when {@link RetryConfig#maxPendingBatches()} failing
+ * batches or {@link RetryConfig#maxPendingRetries()} records are already
+ * waiting. Bisecting pins {@code k} failing records in a batch of {@code n}
+ * with about {@code 2k log2(n / k)} extra sub-batch runs, so a lone failure
+ * in a large batch costs a handful of runs rather than one per record. Near
+ * the bottom halving stops paying off: a failing part of four records takes
+ * as many runs to search one record at a time, and fewer when more than one
+ * of them fails. The healthy records of a failing batch and the retried
+ * records reach the sink later and out of order, and a sink that fails half
+ * way through a write sees the successful part again; the sink is called from
+ * the worker, the isolation threads and the retry threads, one call at a
+ * time.
+ *
+ * <p>Halves and retries run their records apart from the rest of their
+ * batch, so the pipeline is checked by {@link PerDocumentStages} and a stage
+ * such as {@code $group}, whose output would depend on which records failed,
+ * is rejected.
+ */
+public final class RetryingStreamingRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryingStreamingRunner.class);
+
+    private final StreamingPipelineExecutor executor;
+    private final int microBatchSize;
+    private final RetryConfig config;
+    private final DeadLetterLog deadLetters;
+    private final LongAdder splitRuns = new LongAdder();
+    private final LongAdder isolated = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+
+    public RetryingStreamingRunner(int microBatchSize,
+                                   StreamingRuntimeConfig runtimeConfig,
+                                   StreamingErrorPolicy errorPolicy,
+                                   RetryConfig config,
+                                   DeadLetterLog deadLetters) {
+        if (microBatchSize <= 0) {
+            throw new IllegalArgumentException("microBatchSize must be > 0");
+        }
+        this.executor = new StreamingPipelineExecutor(microBatchSize, runtimeConfig, errorPolicy);
+        this.microBatchSize = microBatchSize;
+        this.config = config;
+        this.deadLetters = deadLetters;
+    }
+
+    /** Counts since this runner was created. */
+    public Stats stats() {
+        return new Stats(splitRuns.sum(), isolated.sum(), retries.sum(), recovered.sum(), deadLettered.sum());
+    }
+
+    /**
+     * Streams {@code source} through the stages of {@code stagesJson} and
+     * blocks until every record has reached the sink or the dead-letter log.
+     *
+     * @throws IllegalArgumentException if a stage needs more than one document at a time
+     */
+    public void processStream(Iterable<Document> source,
+                              String stagesJson,
+                              StreamingSink sink,
+                              StreamingContext context) throws InterruptedException {
+        Run run = new Run(PerDocumentStages.parse(stagesJson), sink, context);
+        try {
+            MicroBatchRunner.builder()
+                    .name("retrying")
+                    .batching(Batching.fixed(microBatchSize))
+                    .queueCapacity(2 * microBatchSize)
+                    .processor(run::execute)
+                    .failureHandler(run::isolateFailures)
+                    .build()
+                    .run(source, run::writeLocked);
+            run.awaitRetries();
+            deadLetters.flush();
+        } finally {
+            run.isolator.shutdownNow();
+            run.timer.shutdownNow();
+        }
+        run.rethrowFailure();
+    }
+
+    /** State of one {@link #processStream} call. */
+    private final class Run {
+
+        private final List<Stage> stages;
+        private final StreamingSink sink;
+        private final StreamingContext context;
+        private final Object sinkLock = new Object();
+        // Failing batches not yet split and isolated records not yet
+        // recovered or dead-lettered, plus one for the worker until it has
+        // finished routing.
+        private final AtomicLong outstanding = new AtomicLong(1);
+        private final CountDownLatch drained = new CountDownLatch(1);
+        private final Semaphore batchSlots = new Semaphore(config.maxPendingBatches());
+        private final Semaphore retrySlots = new Semaphore(config.maxPendingRetries());
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        private final ExecutorService isolator;
+        private final ScheduledExecutorService timer;
+
+        Run(List<Stage> stages, StreamingSink sink, StreamingContext context) {
+            this.stages = stages;
+            this.sink = sink;
+            this.context = context;
+            this.isolator = Executors.newFixedThreadPool(config.retryThreads(),
+                    Thread.ofPlatform().daemon().name("streaming-isolate-", 0).factory());
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(config.retryThreads(),
+                    Thread.ofPlatform().daemon().name("streaming-retry-", 0).factory());
+            scheduler.setRemoveOnCancelPolicy(true);
+            this.timer = scheduler;
+        }
+
+        List<Document> execute(List<Document> batch) {
+            List<Document> output = new ArrayList<>();
+            executor.processStream(batch, stages, output::addAll, context);
+            return output;
+        }
+
+        void writeLocked(List<Document> output) {
+            synchronized (sinkLock) {
+                sink.write(output);
+            }
+        }
+
+        /**
+         * Called on the worker when running or writing a whole micro-batch
+         * failed: the batch is handed to an isolation thread, which splits it
+         * until the records that fail, in the stages or in the sink, are
+         * pinned, and writes the rest. A failure of that isolation or of a
+         * dead-letter write fails the run.
+         */
+        void isolateFailures(List<Document> batch, RuntimeException error) {
+            rethrowFailure();
+            try {
+                batchSlots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while handing off a failing batch", e);
+            }
+            outstanding.incrementAndGet();
+            List<Document> failing = new ArrayList<>(batch);
+            isolator.execute(() -> {
+                try {
+                    if (failing.size() == 1) {
+                        isolate(failing.get(0), error);
+                    } else {
+                        split(failing);
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    batchSlots.release();
+                    arrive();
+                }
+            });
+        }
+
+        /** Runs each record of a small failing batch alone, or each half of a larger one. */
+        private void split(List<Document> records) {
+            if (records.size() <= config.recordByRecordThreshold()) {
+                for (int i = 0; i < records.size(); i++) {
+                    bisect(records.subList(i, i + 1));
+                }
+                return;
+            }
+            int middle = records.size() / 2;
+            bisect(records.subList(0, middle));
+            bisect(records.subList(middle, records.size()));
+        }
+
+        private void bisect(List<Document> records) {
+            splitRuns.increment();
+            try {
+                runAndWrite(new ArrayList<>(records));
+            } catch (RuntimeException e) {
+                if (records.size() == 1) {
+                    isolate(records.get(0), e);
+                    return;
+                }
+                split(records);
+            }
+        }
+
+        /**
+         * Hands {@code document} to the timer, first waiting for a retry slot
+         * when {@link RetryConfig#maxPendingRetries()} records are pending.
+         * Only isolation threads wait here; the timer threads free the slots.
+         */
+        private void isolate(Document document, RuntimeException error) {
+            try {
+                retrySlots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a retry slot", e);
+            }
+            isolated.increment();
+            outstanding.incrementAndGet();
+            failed(document, 1, error);
+        }
+
+        private void runAndWrite(List<Document> batch) {
+            List<Document> output = execute(batch);
+            if (!output.isEmpty()) {
+                writeLocked(output);
+            }
+        }
+
+        /**
+         * Schedules the next attempt for {@code document}, or its
+         * dead-lettering; either way the caller only enqueues a task.
+         */
+        private void failed(Document document, int attempts, RuntimeException error) {
+            if (attempts >= config.maxAttempts()) {
+                timer.execute(() -> deadLetter(document, attempts, error));
+                return;
+            }
+            timer.schedule(() -> retry(document, attempts + 1), config.backoffNanos(attempts), TimeUnit.NANOSECONDS);
+        }
+
+        private void deadLetter(Document document, int attempts, RuntimeException error) {
+            try {
+                deadLetters.append(document, error, attempts);
+                deadLettered.increment();
+                LOGGER.debug("Dead-lettered record after {} attempts: {}", attempts, error.toString());
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                settle();
+            }
+        }
+
+        private void retry(Document document, int attempt) {
+            retries.increment();
+            try {
+                runAndWrite(new ArrayList<>(List.of(document)));
+            } catch (RuntimeException e) {
+                failed(document, attempt, e);
+                return;
+            }
+            recovered.increment();
+            settle();
+        }
+
+        /** Marks an isolated record as recovered or dead-lettered. */
+        private void settle() {
+            retrySlots.release();
+            arrive();
+        }
+
+        private void arrive() {
+            if (outstanding.decrementAndGet() == 0) {
+                drained.countDown();
+            }
+        }
+
+        void awaitRetries() throws InterruptedException {
+            arrive();
+            drained.await();
+        }
+
+        void rethrowFailure() {
+            RuntimeException error = failure.get();
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    /**
+     * @param splitRuns    sub-batch and single-record runs made while splitting failing micro-batches
+     * @param isolated     records pinned down by splitting failing micro-batches
+     * @param retries      retry attempts made on the timer threads
+     * @param recovered    isolated records that later succeeded
+     * @param deadLettered records appended to the dead-letter log
+     */
+    public record Stats(long splitRuns, long isolated, long retries, long recovered, long deadLettered) {
+    }
+}
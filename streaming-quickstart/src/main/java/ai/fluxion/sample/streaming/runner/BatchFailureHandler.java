@@ -0,0 +1,23 @@
+package ai.fluxion.sample.streaming.runner;
+
+import ai.fluxion.core.model.Document;
+
+import java.util.List;
+
+/**
+ * Decides what happens when processing a micro-batch, or writing its output,
+ * throws. Called on the batcher thread; returning carries on with the next
+ * batch, throwing fails the whole run.
+ */
+@FunctionalInterface
+public interface BatchFailureHandler {
+
+    void onFailure(List<Document> batch, RuntimeException error);
+
+    /** Fails the run with the batch's error. */
+    static BatchFailureHandler failRun() {
+        return (batch, error) -> {
+            throw error;
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package ai.fluxion.sample.streaming.runner;
+
+import ai.fluxion.core.model.Document;
+
+import java.util.List;
+
+/**
+ * Runs one micro-batch through a pipeline and returns the output that
+ * {@link MicroBatchRunner} then writes to the sink. It is only called from
+ * the runner's batcher thread, one batch at a time.
+ */
+@FunctionalInterface
+public interface BatchProcessor {
+
+    List<Document> process(List<Document> batch);
+}
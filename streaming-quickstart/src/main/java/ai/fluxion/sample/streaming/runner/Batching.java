@@ -0,0 +1,59 @@
+package ai.fluxion.sample.streaming.runner;
+
+import java.time.Duration;
+
+/**
+ * Decides where {@link MicroBatchRunner} cuts micro-batches: a batch closes
+ * once it holds {@link #batchSize()} records or {@link #flushIntervalNanos()}
+ * has passed since its first record was enqueued, whichever comes first.
+ * Both are read again for every batch, so an implementation may adjust them
+ * from what {@link #onBatch} reports.
+ *
+ * <p>{@link #onBatch} is called on the runner's batcher thread.
+ */
+public interface Batching {
+
+    int batchSize();
+
+    long flushIntervalNanos();
+
+    /**
+     * Records one completed batch.
+     *
+     * @param latencyNanos time from the batch's first record being enqueued
+     *                     until its output was written
+     * @param queueDepth   records still waiting in the queue when it completed
+     */
+    default void onBatch(int size, long latencyNanos, int queueDepth) {
+    }
+
+    /** Batches of {@code size}, cut early only by the end of the stream. */
+    static Batching fixed(int size) {
+        return fixed(size, Long.MAX_VALUE);
+    }
+
+    /** Batches of {@code size}, cut early once {@code flushInterval} has passed. */
+    static Batching fixed(int size, Duration flushInterval) {
+        return fixed(size, flushInterval.toNanos());
+    }
+
+    private static Batching fixed(int size, long flushIntervalNanos) {
+        if (size < 1) {
+            throw new IllegalArgumentException("batch size must be >= 1");
+        }
+        if (flushIntervalNanos <= 0) {
+            throw new IllegalArgumentException("flush interval must be > 0");
+        }
+        return new Batching() {
+            @Override
+            public int batchSize() {
+                return size;
+            }
+
+            @Override
+            public long flushIntervalNanos() {
+                return flushIntervalNanos;
+            }
+        };
+    }
+}
@@ -0,0 +1,183 @@
+package ai.fluxion.sample.streaming.runner;
+
+import ai.fluxion.core.engine.streaming.StreamingSink;
+import ai.fluxion.core.model.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The pump, micro-batch and sink loop shared by the batching runners in this
+ * sample. The calling thread iterates the source, stamps each record with the
+ * time it was enqueued and puts it on a bounded queue, blocking while the
+ * queue is full. One batcher thread drains the queue, cuts micro-batches as
+ * its {@link Batching} says, runs them through the {@link BatchProcessor},
+ * writes the output to the sink and reports the latency from the first
+ * record's arrival back to the {@link Batching}. Time spent waiting in the
+ * queue therefore counts as batch latency.
+ *
+ * <p>Records are processed and written in source order, one batch at a time.
+ *
+ * <p>When processing or writing a batch throws, the {@link BatchFailureHandler}
+ * decides whether the run carries on. If it does not, or the source throws,
+ * enqueueing stops, the batcher is interrupted and nothing more reaches the
+ * sink. The first failure is rethrown to the caller.
+ */
+public final class MicroBatchRunner {
+
+    private static final Arrival END_OF_STREAM = new Arrival(new Document(Map.of()), 0L);
+
+    private final String name;
+    private final Batching batching;
+    private final BatchProcessor processor;
+    private final BatchFailureHandler failureHandler;
+    private final int queueCapacity;
+
+    private MicroBatchRunner(Builder builder) {
+        if (builder.queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be >= 1");
+        }
+        this.name = builder.name;
+        this.batching = Objects.requireNonNull(builder.batching, "batching");
+        this.processor = Objects.requireNonNull(builder.processor, "processor");
+        this.failureHandler = builder.failureHandler;
+        this.queueCapacity = builder.queueCapacity;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Streams {@code source} through the processor and blocks until the
+     * batcher has drained.
+     */
+    public void run(Iterable<Document> source, StreamingSink sink) throws InterruptedException {
+        BlockingQueue<Arrival> queue = new ArrayBlockingQueue<>(queueCapacity);
+        WorkerGroup group = new WorkerGroup("Runner " + name);
+        Batcher batcher = new Batcher(queue, group.gate(sink));
+        group.start(Thread.ofVirtual().name(name + "-batcher"), "Batcher", batcher);
+
+        try {
+            for (Document document : source) {
+                if (!group.offer(queue, new Arrival(document, System.nanoTime()))) {
+                    break;
+                }
+            }
+        } catch (InterruptedException | RuntimeException | Error e) {
+            group.fail(e);
+            throw e;
+        } finally {
+            group.offer(queue, END_OF_STREAM);
+            group.await();
+        }
+        group.rethrow();
+    }
+
+    /** Drains the queue on the batcher thread. */
+    private final class Batcher implements Runnable {
+
+        private final BlockingQueue<Arrival> queue;
+        private final StreamingSink sink;
+
+        Batcher(BlockingQueue<Arrival> queue, StreamingSink sink) {
+            this.queue = queue;
+            this.sink = sink;
+        }
+
+        @Override
+        public void run() {
+            try {
+                boolean ended = false;
+                while (!ended) {
+                    Arrival first = queue.take();
+                    if (first == END_OF_STREAM) {
+                        break;
+                    }
+                    int limit = batching.batchSize();
+                    long flushInterval = batching.flushIntervalNanos();
+                    List<Document> batch = new ArrayList<>(limit);
+                    batch.add(first.document());
+                    while (batch.size() < limit) {
+                        long remaining = flushInterval - (System.nanoTime() - first.enqueuedNanos());
+                        Arrival next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        if (next == END_OF_STREAM) {
+                            ended = true;
+                            break;
+                        }
+                        batch.add(next.document());
+                    }
+                    deliver(batch);
+                    batching.onBatch(batch.size(), System.nanoTime() - first.enqueuedNanos(), queue.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void deliver(List<Document> batch) {
+            try {
+                List<Document> output = processor.process(batch);
+                if (!output.isEmpty()) {
+                    sink.write(output);
+                }
+            } catch (RuntimeException e) {
+                failureHandler.onFailure(batch, e);
+            }
+        }
+    }
+
+    private record Arrival(Document document, long enqueuedNanos) {
+    }
+
+    public static final class Builder {
+
+        private String name = "micro-batch";
+        private Batching batching;
+        private BatchProcessor processor;
+        private BatchFailureHandler failureHandler = BatchFailureHandler.failRun();
+        private int queueCapacity = 1024;
+
+        private Builder() {
+        }
+
+        /** Used in thread names and failure messages. */
+        public Builder name(String name) {
+            this.name = Objects.requireNonNull(name, "name");
+            return this;
+        }
+
+        public Builder batching(Batching batching) {
+            this.batching = batching;
+            return this;
+        }
+
+        public Builder processor(BatchProcessor processor) {
+            this.processor = processor;
+            return this;
+        }
+
+        public Builder failureHandler(BatchFailureHandler failureHandler) {
+            this.failureHandler = Objects.requireNonNull(failureHandler, "failureHandler");
+            return this;
+        }
+
+        /** Records the queue holds before the source side blocks. */
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public MicroBatchRunner build() {
+            return new MicroBatchRunner(this);
+        }
+    }
+}
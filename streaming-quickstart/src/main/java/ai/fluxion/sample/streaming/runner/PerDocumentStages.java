@@ -0,0 +1,54 @@
+package ai.fluxion.sample.streaming.runner;
+
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.core.util.DocumentParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parses pipelines for runners that cut the stream into batches whose
+ * boundaries depend on timing or on failures. Only stages that turn each
+ * document into zero or more documents without looking at any other give the
+ * same output however the stream is cut, so every other stage, such as
+ * {@code $group} or {@code $sort}, is rejected.
+ */
+public final class PerDocumentStages {
+
+    private static final Set<String> OPERATORS = Set.of(
+            "$match", "$project", "$addFields", "$set", "$unset", "$unwind", "$replaceRoot", "$replaceWith");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<List<Map<String, Object>>> STAGES = new TypeReference<>() {
+    };
+
+    private PerDocumentStages() {
+    }
+
+    /**
+     * Parses {@code stagesJson}, a JSON array of stages.
+     *
+     * @throws IllegalArgumentException if a stage needs more than one document at a time
+     */
+    public static List<Stage> parse(String stagesJson) {
+        List<Map<String, Object>> stages;
+        try {
+            stages = MAPPER.readValue(stagesJson, STAGES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot parse pipeline", e);
+        }
+        for (Map<String, Object> stage : stages) {
+            for (String operator : stage.keySet()) {
+                if (!OPERATORS.contains(operator)) {
+                    throw new IllegalArgumentException(
+                            operator + " needs more than one document; only per-document stages can run in batches");
+                }
+            }
+        }
+        return DocumentParser.getStagesFromJsonArray(stagesJson);
+    }
+}
@@ -0,0 +1,133 @@
+package ai.fluxion.sample.streaming.runner;
+
+import ai.fluxion.core.engine.streaming.StreamingSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The threads of one run of a queue-fed runner and the first failure among
+ * them. The {@link MicroBatchRunner} and the partitioned runner both feed
+ * bounded queues from the calling thread and drain them on worker threads;
+ * this class holds what they share: enqueueing with backpressure that gives
+ * up once the run has failed, gating the sink so nothing reaches it after a
+ * failure, waiting for the workers while cancelling them on the first
+ * failure, and rethrowing that failure to the caller.
+ *
+ * <p>A group is used for a single run and is not reusable.
+ */
+public final class WorkerGroup {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkerGroup.class);
+
+    private static final long POLL_MILLIS = 10;
+
+    private final String name;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final List<Thread> workers = new ArrayList<>();
+
+    public WorkerGroup(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Starts {@code task} on a thread from {@code threads}. Anything it throws
+     * fails the run; {@code worker} names it in the log.
+     */
+    public void start(Thread.Builder threads, String worker, Runnable task) {
+        workers.add(threads.start(() -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                fail(e);
+                LOGGER.warn("{} of {} failed", worker, name, e);
+            }
+        }));
+    }
+
+    /** Records {@code error} unless an earlier failure has been recorded. */
+    public void fail(Throwable error) {
+        failure.compareAndSet(null, error);
+    }
+
+    public boolean failed() {
+        return failure.get() != null;
+    }
+
+    /** {@code sink}, dropping every batch written once the run has failed. */
+    public StreamingSink gate(StreamingSink sink) {
+        return batch -> {
+            if (failure.get() == null) {
+                sink.write(batch);
+            }
+        };
+    }
+
+    /**
+     * Enqueues with backpressure, giving up once the run has failed so the
+     * caller never blocks on a queue whose worker has stopped.
+     *
+     * @return {@code false} if the run failed before {@code item} was queued
+     */
+    public <T> boolean offer(BlockingQueue<T> queue, T item) throws InterruptedException {
+        while (failure.get() == null) {
+            if (queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Waits for every worker to finish, interrupting all of them as soon as
+     * the run has failed so none keeps draining its queue. If the caller is
+     * interrupted that fails the run, and the workers are still awaited.
+     */
+    public void await() throws InterruptedException {
+        boolean cancelled = false;
+        InterruptedException interrupted = null;
+        for (Thread worker : workers) {
+            while (true) {
+                try {
+                    if (worker.join(Duration.ofMillis(POLL_MILLIS))) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = e;
+                    fail(e);
+                }
+                if (!cancelled && failure.get() != null) {
+                    workers.forEach(Thread::interrupt);
+                    cancelled = true;
+                }
+            }
+        }
+        if (interrupted != null) {
+            throw interrupted;
+        }
+    }
+
+    /**
+     * Rethrows the first failure: unchecked throwables as they are, anything
+     * else wrapped in an {@link IllegalStateException}. Returns if the run
+     * did not fail.
+     */
+    public void rethrow() {
+        Throwable error = failure.get();
+        if (error instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        if (error instanceof Error fatal) {
+            throw fatal;
+        }
+        if (error != null) {
+            throw new IllegalStateException(name + " failed", error);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package ai.fluxion.sample.streaming.telemetry;
+
+import ai.fluxion.core.engine.streaming.StreamingContext;
+import ai.fluxion.core.engine.streaming.StreamingErrorPolicy;
+import ai.fluxion.core.engine.streaming.StreamingPipelineExecutor;
+import ai.fluxion.core.engine.streaming.StreamingRuntimeConfig;
+import ai.fluxion.core.engine.streaming.StreamingSink;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams documents through a {@link StreamingPipelineExecutor} while
+ * recording {@link PipelineTelemetry}.
+ *
+ * <p>Either way the runner makes one {@code processStream} call over all
+ * stages on the caller's thread, exactly as calling the executor directly
+ * would, so stateful stages keep their state for the whole stream and the
+ * executor's threads and queues are the only ones involved. With telemetry
+ * disabled it adds no wrapper, clock read or check per document.
+ *
+ * <p>With telemetry enabled the source and the sink are wrapped. Each
+ * document read counts once; each output batch records the time from the
+ * pipeline reading its first document after the previous output, the time
+ * the sink took to write it, and what the emitting thread allocated since its
+ * previous batch. The JVM does not track allocation for virtual threads, so
+ * a batch emitted on one reports none. Per-stage counts, timings and queue
+ * depths are the executor's own, kept in the stream's {@link StreamingContext}
+ * and exported from there when the SDK collects. Recording costs a volatile
+ * read and a counter increment per document and a few clock and counter reads
+ * per batch.
+ */
+public final class InstrumentedStreamingRunner {
+
+    private final StreamingPipelineExecutor executor;
+    private final PipelineTelemetry telemetry;
+
+    public InstrumentedStreamingRunner(int microBatchSize,
+                                       StreamingRuntimeConfig runtimeConfig,
+                                       StreamingErrorPolicy errorPolicy,
+                                       PipelineTelemetry telemetry) {
+        if (microBatchSize < 1) {
+            throw new IllegalArgumentException("microBatchSize must be >= 1");
+        }
+        this.executor = new StreamingPipelineExecutor(microBatchSize, runtimeConfig, errorPolicy);
+        this.telemetry = telemetry == null ? PipelineTelemetry.disabled() : telemetry;
+    }
+
+    public PipelineTelemetry telemetry() {
+        return telemetry;
+    }
+
+    /**
+     * Streams {@code source} through {@code stages} into {@code sink} and
+     * blocks until the stream has ended.
+     *
+     * @return the context the stream ran with, so callers can inspect the
+     *         executor's stage metrics
+     */
+    public StreamingContext processStream(Iterable<Document> source,
+                                          List<Stage> stages,
+                                          StreamingSink sink,
+                                          Map<String, Object> variables,
+                                          String pipelineId) {
+        StreamingContext context = new StreamingContext(null, variables, pipelineId);
+        if (!telemetry.enabled()) {
+            executor.processStream(source, stages, sink, context);
+            return context;
+        }
+        Probe probe = new Probe(telemetry);
+        telemetry.bind(context);
+        try {
+            executor.processStream(probe.source(source), stages, probe.sink(sink), context);
+        } finally {
+            telemetry.unbind(context);
+        }
+        return context;
+    }
+
+    /**
+     * Times one stream. The source side runs on whichever thread the executor
+     * reads with; the sink side on the thread that emits output batches, which
+     * is the one whose allocation is counted.
+     */
+    private static final class Probe {
+
+        private final PipelineTelemetry telemetry;
+        // Zero while the pipeline has read nothing since its last output.
+        private final AtomicLong started = new AtomicLong();
+        private Thread allocator;
+        private long allocatedSeen = -1;
+
+        Probe(PipelineTelemetry telemetry) {
+            this.telemetry = telemetry;
+        }
+
+        Iterable<Document> source(Iterable<Document> documents) {
+            return () -> {
+                Iterator<Document> iterator = documents.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Document next() {
+                        Document document = iterator.next();
+                        if (started.get() == 0) {
+                            started.compareAndSet(0, System.nanoTime());
+                        }
+                        telemetry.recordInput();
+                        return document;
+                    }
+                };
+            };
+        }
+
+        StreamingSink sink(StreamingSink sink) {
+            return batch -> {
+                long begin = started.getAndSet(0);
+                long allocated = -1;
+                long now = telemetry.threadAllocatedBytes();
+                if (allocator == Thread.currentThread() && allocatedSeen >= 0 && now >= 0) {
+                    allocated = now - allocatedSeen;
+                }
+                long emitted = System.nanoTime();
+                sink.write(batch);
+                telemetry.recordBatch(begin == 0 ? emitted : begin, emitted, System.nanoTime(), allocated,
+                        batch.size());
+                // Restart the allocation count once the batch is written, so
+                // the sink's own allocation is not charged to the pipeline.
+                allocator = Thread.currentThread();
+                allocatedSeen = telemetry.threadAllocatedBytes();
+            };
+        }
+    }
+}
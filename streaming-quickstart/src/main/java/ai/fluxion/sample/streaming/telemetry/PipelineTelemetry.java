@@ -0,0 +1,296 @@
+package ai.fluxion.sample.streaming.telemetry;
+
+import ai.fluxion.core.engine.streaming.StreamingContext;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.ObservableDoubleMeasurement;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hot-path metrics for one streaming pipeline, exported through an
+ * OpenTelemetry {@link Meter}.
+ *
+ * <p>Recording is lock-free: the latency of each output batch and of writing
+ * it to the sink go to HdrHistogram {@link Recorder}s, whose writers are
+ * wait-free, and counters to {@link LongAdder}s. Nothing is pushed to
+ * OpenTelemetry while recording; the observable instruments registered here
+ * read the recorders when the SDK collects, so the exporter interval, not the
+ * document rate, sets the export cost. Latency percentiles cover the interval
+ * since the previous collection.
+ *
+ * <p>Per-stage figures come from the executor itself: while a stream runs,
+ * its {@link StreamingContext} is bound here and every numeric entry of
+ * {@code context.metrics().snapshot()}, among them the executor's stage
+ * counts and timings and its queue depths, is exported as
+ * {@code fluxion.stage.metric}, read only when the SDK collects.
+ *
+ * <p>{@link #disabled()} returns an instance whose {@link #enabled()} is
+ * {@code false}; callers check it once and skip every clock and allocation
+ * read, so a disabled pipeline does no instrumentation work at all.
+ */
+public final class PipelineTelemetry implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelineTelemetry.class);
+
+    private static final AttributeKey<String> PIPELINE = AttributeKey.stringKey("pipeline");
+    private static final AttributeKey<String> METRIC = AttributeKey.stringKey("metric");
+    private static final AttributeKey<String> QUANTILE = AttributeKey.stringKey("quantile");
+    private static final double[] QUANTILES = {50.0, 90.0, 99.0, 99.9};
+    private static final String[] QUANTILE_NAMES = {"p50", "p90", "p99", "p999", "max"};
+
+    private static final PipelineTelemetry DISABLED = new PipelineTelemetry();
+
+    private final boolean enabled;
+    private final String pipeline;
+    private final Attributes attributes;
+    private final Latency batchLatency;
+    private final Latency sinkLatency;
+    private final LongAdder documentsIn = new LongAdder();
+    private final LongAdder documentsOut = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final List<AutoCloseable> instruments = new ArrayList<>();
+    private final com.sun.management.ThreadMXBean threads;
+    private volatile StreamingContext context;
+
+    private PipelineTelemetry() {
+        this.enabled = false;
+        this.pipeline = "";
+        this.attributes = Attributes.empty();
+        this.batchLatency = null;
+        this.sinkLatency = null;
+        this.threads = null;
+    }
+
+    private PipelineTelemetry(Meter meter, String pipeline) {
+        this.enabled = true;
+        this.pipeline = pipeline;
+        this.attributes = Attributes.of(PIPELINE, pipeline);
+        this.batchLatency = new Latency(attributes);
+        this.sinkLatency = new Latency(attributes);
+        this.threads = allocationCounter();
+        register(meter);
+    }
+
+    /** Telemetry that records nothing; the default for every runner. */
+    public static PipelineTelemetry disabled() {
+        return DISABLED;
+    }
+
+    /** Registers the pipeline's instruments on {@code meter}. */
+    public static PipelineTelemetry create(Meter meter, String pipeline) {
+        if (meter == null) {
+            throw new IllegalArgumentException("meter must not be null");
+        }
+        if (pipeline == null || pipeline.isBlank()) {
+            throw new IllegalArgumentException("pipeline must not be blank");
+        }
+        return new PipelineTelemetry(meter, pipeline);
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Bytes allocated so far by the calling thread, or {@code -1} when the JVM
+     * does not track per-thread allocation or the caller is a virtual thread.
+     * Only differences taken on one thread are meaningful.
+     */
+    public long threadAllocatedBytes() {
+        return threads == null ? -1 : threads.getCurrentThreadAllocatedBytes();
+    }
+
+    /** Counts one document read from the source. */
+    public void recordInput() {
+        if (enabled) {
+            documentsIn.increment();
+        }
+    }
+
+    /**
+     * Records one output batch: the pipeline read its first document after
+     * the previous output at {@code startNanos} and emitted it at
+     * {@code emittedNanos}, the sink had written it by {@code writtenNanos},
+     * and {@code allocated} is what the emitting thread allocated since its
+     * previous batch, or a negative value when that is unknown.
+     */
+    public void recordBatch(long startNanos, long emittedNanos, long writtenNanos, long allocated, int documents) {
+        if (!enabled) {
+            return;
+        }
+        batchLatency.recorder.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(emittedNanos - startNanos)));
+        sinkLatency.recorder.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(writtenNanos - emittedNanos)));
+        documentsOut.add(documents);
+        if (allocated >= 0) {
+            allocatedBytes.add(allocated);
+        }
+    }
+
+    /** Exports the stage metrics of {@code context} until {@link #unbind}. */
+    public void bind(StreamingContext context) {
+        if (enabled) {
+            this.context = context;
+        }
+    }
+
+    public void unbind(StreamingContext context) {
+        if (this.context == context) {
+            this.context = null;
+        }
+    }
+
+    /** Cumulative totals since the telemetry was created, for logging. */
+    public Snapshot snapshot() {
+        if (!enabled) {
+            return new Snapshot(0, 0, 0, 0, 0, 0, 0, 0);
+        }
+        Histogram batches = batchLatency.cumulative();
+        Histogram writes = sinkLatency.cumulative();
+        return new Snapshot(
+                batches.getTotalCount(),
+                documentsIn.sum(),
+                documentsOut.sum(),
+                allocatedBytes.sum(),
+                batches.getValueAtPercentile(50.0),
+                batches.getValueAtPercentile(99.0),
+                batches.getMaxValue(),
+                writes.getValueAtPercentile(99.0));
+    }
+
+    @Override
+    public void close() {
+        for (AutoCloseable instrument : instruments) {
+            try {
+                instrument.close();
+            } catch (Exception e) {
+                LOGGER.warn("Failed to close instrument for pipeline {}", pipeline, e);
+            }
+        }
+        instruments.clear();
+        context = null;
+    }
+
+    private void register(Meter meter) {
+        instruments.add(meter.gaugeBuilder("fluxion.pipeline.latency")
+                .setDescription("Time from reading a batch's first document to emitting it, over the last collection interval")
+                .setUnit("us")
+                .buildWithCallback(batchLatency::observe));
+        instruments.add(meter.gaugeBuilder("fluxion.pipeline.sink.latency")
+                .setDescription("Time the sink took to write a batch, over the last collection interval")
+                .setUnit("us")
+                .buildWithCallback(sinkLatency::observe));
+        instruments.add(meter.counterBuilder("fluxion.pipeline.batches")
+                .setDescription("Batches written to the sink")
+                .buildWithCallback(measurement -> measurement.record(batchLatency.count(), attributes)));
+        instruments.add(meter.counterBuilder("fluxion.pipeline.documents.in")
+                .setDescription("Documents read from the source")
+                .buildWithCallback(measurement -> measurement.record(documentsIn.sum(), attributes)));
+        instruments.add(meter.counterBuilder("fluxion.pipeline.documents.out")
+                .setDescription("Documents written to the sink")
+                .buildWithCallback(measurement -> measurement.record(documentsOut.sum(), attributes)));
+        instruments.add(meter.counterBuilder("fluxion.pipeline.allocated")
+                .setDescription("Heap bytes allocated by the thread emitting output batches")
+                .setUnit("By")
+                .buildWithCallback(measurement -> measurement.record(allocatedBytes.sum(), attributes)));
+        instruments.add(meter.gaugeBuilder("fluxion.stage.metric")
+                .setDescription("Numeric stage metrics of the executor's StreamingContext")
+                .buildWithCallback(this::observeStages));
+    }
+
+    private void observeStages(ObservableDoubleMeasurement measurement) {
+        StreamingContext bound = context;
+        if (bound != null) {
+            observe(measurement, "", bound.metrics().snapshot());
+        }
+    }
+
+    /** Records every number in {@code value}, named by its path of map keys. */
+    private void observe(ObservableDoubleMeasurement measurement, String path, Object value) {
+        if (value instanceof Number number) {
+            measurement.record(number.doubleValue(), attributes.toBuilder().put(METRIC, path).build());
+        } else if (value instanceof Map<?, ?> map) {
+            map.forEach((key, entry) -> observe(measurement, path.isEmpty() ? String.valueOf(key) : path + "." + key, entry));
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()
+                && bean.isThreadAllocatedMemoryEnabled()) {
+            return bean;
+        }
+        LOGGER.info("Per-thread allocation is not available; fluxion.pipeline.allocated stays at zero");
+        return null;
+    }
+
+    /** Totals since the telemetry was created; latencies are in microseconds. */
+    public record Snapshot(long batches,
+                           long documentsIn,
+                           long documentsOut,
+                           long allocatedBytes,
+                           long p50Micros,
+                           long p99Micros,
+                           long maxMicros,
+                           long sinkP99Micros) {
+    }
+
+    /**
+     * Recorder plus the histograms only the collecting side touches. The
+     * recorder's interval is moved into {@code pending} for the exporter and
+     * into {@code total} for {@link #snapshot()}, so neither reader steals
+     * samples from the other.
+     */
+    private static final class Latency {
+        private final Attributes[] quantiles;
+        private final Recorder recorder = new Recorder(3);
+        private final Histogram pending = new Histogram(3);
+        private final Histogram total = new Histogram(3);
+        private Histogram recycled;
+
+        private Latency(Attributes attributes) {
+            this.quantiles = new Attributes[QUANTILE_NAMES.length];
+            for (int i = 0; i < quantiles.length; i++) {
+                quantiles[i] = attributes.toBuilder().put(QUANTILE, QUANTILE_NAMES[i]).build();
+            }
+        }
+
+        private synchronized void pull() {
+            recycled = recorder.getIntervalHistogram(recycled);
+            pending.add(recycled);
+            total.add(recycled);
+        }
+
+        synchronized void observe(ObservableDoubleMeasurement measurement) {
+            pull();
+            if (pending.getTotalCount() == 0) {
+                return;
+            }
+            for (int i = 0; i < QUANTILES.length; i++) {
+                measurement.record(pending.getValueAtPercentile(QUANTILES[i]), quantiles[i]);
+            }
+            measurement.record(pending.getMaxValue(), quantiles[QUANTILES.length]);
+            pending.reset();
+        }
+
+        synchronized Histogram cumulative() {
+            pull();
+            return total.copy();
+        }
+
+        synchronized long count() {
+            pull();
+            return total.getTotalCount();
+        }
+    }
+}
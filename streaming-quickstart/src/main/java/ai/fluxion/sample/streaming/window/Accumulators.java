@@ -0,0 +1,273 @@
+package ai.fluxion.sample.streaming.window;
+
+import ai.fluxion.core.model.Document;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Constant-space {@code $group} accumulators that fold one value at a time
+ * and can merge with a peer, which session windows need when an event
+ * bridges two sessions.
+ *
+ * <p>They follow the executor's {@code $group}: {@code $count} is
+ * {@code $sum: 1}; {@code $sum} ignores non-numbers, stays an
+ * {@code Integer} while every value is one and the total fits, becomes a
+ * {@code Long} on a long value or int overflow and a {@code Double} once a
+ * non-integral value arrives, adding in arrival order; {@code $avg} is a
+ * double or {@code null}; {@code $min} and {@code $max} skip {@code null}
+ * and order values of different types by the BSON type order.
+ * {@code WindowedAggregatorTest} checks them against the executor's
+ * {@code $group} on mixed-type input.
+ */
+final class Accumulators {
+
+    private Accumulators() {
+    }
+
+    interface Accumulator {
+
+        void add(Object value);
+
+        void merge(Accumulator other);
+
+        Object result();
+    }
+
+    /** One named output field, e.g. {@code revenue: {$sum: "$total"}}. */
+    static final class Spec {
+
+        private final String field;
+        private final String operator;
+        private final Object constant;
+        private final String[] path;
+
+        Spec(String field, String operator, Object expression) {
+            switch (operator) {
+                case "$sum", "$avg", "$min", "$max", "$count" -> {
+                }
+                default -> throw new IllegalArgumentException(
+                        "Unsupported window accumulator " + operator + " for field " + field);
+            }
+            this.field = field;
+            this.operator = operator;
+            boolean fieldPath = expression instanceof String text && text.startsWith("$");
+            this.path = fieldPath ? FieldPaths.parse((String) expression) : null;
+            this.constant = fieldPath ? null : expression;
+        }
+
+        String field() {
+            return field;
+        }
+
+        Accumulator create() {
+            return switch (operator) {
+                case "$sum" -> new Sum();
+                case "$avg" -> new Avg();
+                case "$min" -> new Extreme(false);
+                case "$max" -> new Extreme(true);
+                default -> new Count();
+            };
+        }
+
+        Object argument(Document document) {
+            return path == null ? constant : FieldPaths.resolve(document, path);
+        }
+    }
+
+    private static final class Count implements Accumulator {
+        private long count;
+
+        @Override
+        public void add(Object value) {
+            count++;
+        }
+
+        @Override
+        public void merge(Accumulator other) {
+            count += ((Count) other).count;
+        }
+
+        @Override
+        public Object result() {
+            return count == (int) count ? (Object) (int) count : (Object) count;
+        }
+    }
+
+    /** Keeps an exact integer total until a non-integral value or a long overflow arrives. */
+    private static final class Sum implements Accumulator {
+        private long longTotal;
+        private double doubleTotal;
+        private boolean wide;
+        private boolean floating;
+
+        @Override
+        public void add(Object value) {
+            if (!(value instanceof Number number)) {
+                return;
+            }
+            if (!floating && isIntegral(number)) {
+                try {
+                    longTotal = Math.addExact(longTotal, number.longValue());
+                    wide |= number instanceof Long;
+                    return;
+                } catch (ArithmeticException e) {
+                    toFloating();
+                }
+            }
+            toFloating();
+            doubleTotal += number.doubleValue();
+        }
+
+        @Override
+        public void merge(Accumulator other) {
+            Sum peer = (Sum) other;
+            if (peer.floating) {
+                add(peer.doubleTotal);
+                return;
+            }
+            boolean widened = wide || peer.wide;
+            add(peer.longTotal);
+            wide = widened;
+        }
+
+        @Override
+        public Object result() {
+            if (floating) {
+                return doubleTotal;
+            }
+            return !wide && longTotal == (int) longTotal ? (Object) (int) longTotal : (Object) longTotal;
+        }
+
+        private void toFloating() {
+            if (!floating) {
+                floating = true;
+                doubleTotal = longTotal;
+            }
+        }
+    }
+
+    private static final class Avg implements Accumulator {
+        private double total;
+        private long count;
+
+        @Override
+        public void add(Object value) {
+            if (value instanceof Number number) {
+                total += number.doubleValue();
+                count++;
+            }
+        }
+
+        @Override
+        public void merge(Accumulator other) {
+            Avg peer = (Avg) other;
+            total += peer.total;
+            count += peer.count;
+        }
+
+        @Override
+        public Object result() {
+            return count == 0 ? null : total / count;
+        }
+    }
+
+    private static final class Extreme implements Accumulator {
+        private final boolean max;
+        private Object current;
+
+        private Extreme(boolean max) {
+            this.max = max;
+        }
+
+        @Override
+        public void add(Object value) {
+            if (value == null) {
+                return;
+            }
+            if (current == null) {
+                current = value;
+                return;
+            }
+            Integer comparison = compare(value, current);
+            if (comparison != null && (max ? comparison > 0 : comparison < 0)) {
+                current = value;
+            }
+        }
+
+        @Override
+        public void merge(Accumulator other) {
+            add(((Extreme) other).current);
+        }
+
+        @Override
+        public Object result() {
+            return current;
+        }
+
+        /**
+         * BSON order: numbers, strings, documents, arrays, booleans, dates.
+         * Returns {@code null} for values it cannot order, which keep the
+         * current extreme.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static Integer compare(Object left, Object right) {
+            int order = Integer.compare(rank(left), rank(right));
+            if (order != 0) {
+                return order;
+            }
+            if (left instanceof Number a && right instanceof Number b) {
+                if (isIntegral(a) && isIntegral(b)) {
+                    return Long.compare(a.longValue(), b.longValue());
+                }
+                double x = a.doubleValue();
+                double y = b.doubleValue();
+                // NaN is the smallest number; -0.0 and 0.0 are equal.
+                if (Double.isNaN(x) || Double.isNaN(y)) {
+                    return Boolean.compare(!Double.isNaN(x), !Double.isNaN(y));
+                }
+                return x < y ? -1 : (x > y ? 1 : 0);
+            }
+            if (left instanceof Date || left instanceof Instant) {
+                return Long.compare(epochMillis(left), epochMillis(right));
+            }
+            if (left instanceof Comparable comparable && left.getClass() == right.getClass()) {
+                return comparable.compareTo(right);
+            }
+            return null;
+        }
+
+        private static int rank(Object value) {
+            if (value instanceof Number) {
+                return 1;
+            }
+            if (value instanceof String) {
+                return 2;
+            }
+            if (value instanceof Map<?, ?>) {
+                return 3;
+            }
+            if (value instanceof Collection<?>) {
+                return 4;
+            }
+            if (value instanceof Boolean) {
+                return 6;
+            }
+            if (value instanceof Date || value instanceof Instant) {
+                return 7;
+            }
+            return 5;
+        }
+
+        private static long epochMillis(Object value) {
+            return value instanceof Date date ? date.getTime() : ((Instant) value).toEpochMilli();
+        }
+    }
+
+    static boolean isIntegral(Number number) {
+        return number instanceof Long || number instanceof Integer
+                || number instanceof Short || number instanceof Byte;
+    }
+}
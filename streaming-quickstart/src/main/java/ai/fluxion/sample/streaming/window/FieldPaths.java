@@ -0,0 +1,24 @@
+package ai.fluxion.sample.streaming.window;
+
+import ai.fluxion.core.model.Document;
+
+import java.util.Map;
+
+/** Resolves {@code $a.b.c} field paths against a document and its nested maps. */
+final class FieldPaths {
+
+    private FieldPaths() {
+    }
+
+    static String[] parse(String expression) {
+        return expression.substring(1).split("\\.");
+    }
+
+    static Object resolve(Document document, String[] path) {
+        Object value = document.get(path[0]);
+        for (int i = 1; i < path.length && value != null; i++) {
+            value = value instanceof Map<?, ?> map ? map.get(path[i]) : null;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,86 @@
+package ai.fluxion.sample.streaming.window;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Event-time window shape: fixed non-overlapping (tumbling), fixed
+ * overlapping (hopping), or per-key activity sessions closed by an idle gap.
+ */
+public final class WindowSpec {
+
+    public enum Type {
+        TUMBLING,
+        HOPPING,
+        SESSION
+    }
+
+    private final Type type;
+    private final long sizeMillis;
+    private final long advanceMillis;
+    private final long gapMillis;
+
+    private WindowSpec(Type type, long sizeMillis, long advanceMillis, long gapMillis) {
+        this.type = type;
+        this.sizeMillis = sizeMillis;
+        this.advanceMillis = advanceMillis;
+        this.gapMillis = gapMillis;
+    }
+
+    public static WindowSpec tumbling(Duration size) {
+        long millis = positiveMillis(size, "size");
+        return new WindowSpec(Type.TUMBLING, millis, millis, 0);
+    }
+
+    /**
+     * Windows of {@code size} starting every {@code advance}; an event falls
+     * into {@code size / advance} windows.
+     */
+    public static WindowSpec hopping(Duration size, Duration advance) {
+        long sizeMillis = positiveMillis(size, "size");
+        long advanceMillis = positiveMillis(advance, "advance");
+        if (advanceMillis > sizeMillis) {
+            throw new IllegalArgumentException("advance must not exceed size");
+        }
+        return new WindowSpec(Type.HOPPING, sizeMillis, advanceMillis, 0);
+    }
+
+    /** Sessions per group key that close once no event arrives for {@code gap}. */
+    public static WindowSpec session(Duration gap) {
+        return new WindowSpec(Type.SESSION, 0, 0, positiveMillis(gap, "gap"));
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    public long sizeMillis() {
+        return sizeMillis;
+    }
+
+    public long advanceMillis() {
+        return advanceMillis;
+    }
+
+    public long gapMillis() {
+        return gapMillis;
+    }
+
+    private static long positiveMillis(Duration duration, String name) {
+        Objects.requireNonNull(duration, name);
+        long millis = duration.toMillis();
+        if (millis <= 0) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return millis;
+    }
+
+    @Override
+    public String toString() {
+        return switch (type) {
+            case TUMBLING -> "tumbling(" + sizeMillis + "ms)";
+            case HOPPING -> "hopping(" + sizeMillis + "ms, every " + advanceMillis + "ms)";
+            case SESSION -> "session(gap " + gapMillis + "ms)";
+        };
+    }
+}
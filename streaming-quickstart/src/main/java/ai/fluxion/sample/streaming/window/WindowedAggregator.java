@@ -0,0 +1,452 @@
+package ai.fluxion.sample.streaming.window;
+
+import ai.fluxion.core.engine.streaming.StreamingSink;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.sample.streaming.window.Accumulators.Accumulator;
+import ai.fluxion.sample.streaming.window.Accumulators.Spec;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Event-time windowed {@code $group} for unbounded streams. Each incoming
+ * document is folded into constant-space accumulators for every window it
+ * belongs to and then discarded, so state is proportional to open windows
+ * times distinct group keys rather than to the number of events.
+ *
+ * <p>The watermark trails the highest event time seen by the allowed
+ * lateness. After each batch every window whose end is at or before the
+ * watermark is emitted as one document per group key and its state is
+ * dropped immediately; events that only belong to already-closed windows are
+ * counted as late and skipped.
+ *
+ * <p>Place it after the stateless stages of a pipeline, either by calling
+ * {@link #process(List)} on each emitted batch or by wrapping a downstream
+ * consumer with {@link #asSink(Consumer)}. Call {@link #flush()} when a finite
+ * source ends to emit the windows that are still open.
+ */
+public final class WindowedAggregator {
+
+    private final WindowSpec window;
+    private final String timeField;
+    private final String[] timePath;
+    private final Object groupBy;
+    private final String[] groupPath;
+    private final long allowedLatenessMillis;
+    private final List<Spec> accumulators;
+
+    /** Tumbling and hopping state: window start to per-group accumulators. */
+    private final TreeMap<Long, Map<Object, Accumulator[]>> windows = new TreeMap<>();
+    /** Session state: group key to its open sessions ordered by start. */
+    private final Map<Object, TreeMap<Long, Session>> sessionsByKey = new HashMap<>();
+    /** Open sessions ordered by the time they expire, so closing is a prefix scan. */
+    private final TreeMap<Long, Set<Session>> sessionsByExpiry = new TreeMap<>();
+
+    private long maxEventTime = Long.MIN_VALUE;
+    private long watermark = Long.MIN_VALUE;
+    private long openGroups;
+    private long lateEvents;
+    private long invalidEvents;
+
+    private WindowedAggregator(Builder builder) {
+        this.window = builder.window;
+        this.timeField = builder.timeField;
+        this.timePath = FieldPaths.parse(builder.timeField);
+        this.groupBy = builder.groupBy;
+        this.groupPath = builder.groupBy instanceof String path && path.startsWith("$")
+                ? FieldPaths.parse(path)
+                : null;
+        this.allowedLatenessMillis = builder.allowedLateness.toMillis();
+        this.accumulators = List.copyOf(builder.accumulators);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builds an aggregator from a {@code $window} stage body that wraps a
+     * {@code $group} specification, e.g.
+     * <pre>{@code
+     * {"timeField": "$timestamp",
+     *  "tumbling": {"size": 60000},
+     *  "allowedLateness": 5000,
+     *  "group": {"_id": "$status", "count": {"$count": {}}, "revenue": {"$sum": "$total"}}}
+     * }</pre>
+     * Durations are milliseconds; use {@code hopping: {size, advance}} or
+     * {@code session: {gap}} for the other window shapes.
+     */
+    public static WindowedAggregator fromSpecification(Map<String, Object> specification) {
+        Builder builder = builder();
+        if (specification.get("timeField") instanceof String field) {
+            builder.timeField(field);
+        }
+        if (specification.get("allowedLateness") instanceof Number lateness) {
+            builder.allowedLateness(Duration.ofMillis(lateness.longValue()));
+        }
+        if (specification.get("tumbling") instanceof Map<?, ?> tumbling) {
+            builder.window(WindowSpec.tumbling(millis(tumbling, "size")));
+        } else if (specification.get("hopping") instanceof Map<?, ?> hopping) {
+            builder.window(WindowSpec.hopping(millis(hopping, "size"), millis(hopping, "advance")));
+        } else if (specification.get("session") instanceof Map<?, ?> session) {
+            builder.window(WindowSpec.session(millis(session, "gap")));
+        }
+        if (!(specification.get("group") instanceof Map<?, ?> group)) {
+            throw new IllegalArgumentException("$window requires a group specification");
+        }
+        for (Map.Entry<?, ?> entry : group.entrySet()) {
+            String field = String.valueOf(entry.getKey());
+            if ("_id".equals(field)) {
+                builder.groupBy(entry.getValue());
+            } else if (entry.getValue() instanceof Map<?, ?> accumulator && accumulator.size() == 1) {
+                Map.Entry<?, ?> operator = accumulator.entrySet().iterator().next();
+                builder.accumulator(field, String.valueOf(operator.getKey()), operator.getValue());
+            } else {
+                throw new IllegalArgumentException("Group field " + field + " must be a single accumulator");
+            }
+        }
+        return builder.build();
+    }
+
+    private static Duration millis(Map<?, ?> specification, String key) {
+        if (!(specification.get(key) instanceof Number value)) {
+            throw new IllegalArgumentException("$window requires a numeric " + key + " in milliseconds");
+        }
+        return Duration.ofMillis(value.longValue());
+    }
+
+    /**
+     * Folds a batch into window state, advances the watermark and returns
+     * the documents of every window that closed as a result.
+     */
+    public synchronized List<Document> process(List<Document> batch) {
+        for (Document document : batch) {
+            long eventTime;
+            try {
+                eventTime = eventTime(document);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                invalidEvents++;
+                continue;
+            }
+            Object key = groupKey(document);
+            if (window.type() == WindowSpec.Type.SESSION) {
+                addToSession(key, eventTime, document);
+            } else {
+                addToWindows(key, eventTime, document);
+            }
+            maxEventTime = Math.max(maxEventTime, eventTime);
+        }
+        if (maxEventTime != Long.MIN_VALUE) {
+            watermark = Math.max(watermark, maxEventTime - allowedLatenessMillis);
+        }
+        return closeUpTo(watermark);
+    }
+
+    /** Emits and frees every open window, e.g. when a finite source ends. */
+    public synchronized List<Document> flush() {
+        return closeUpTo(Long.MAX_VALUE);
+    }
+
+    /**
+     * Adapts the aggregator into a streaming sink that forwards closed
+     * windows to {@code downstream}.
+     */
+    public StreamingSink asSink(Consumer<List<Document>> downstream) {
+        return documents -> {
+            List<Document> closed = process(documents);
+            if (!closed.isEmpty()) {
+                downstream.accept(closed);
+            }
+        };
+    }
+
+    /** Number of (window, group key) accumulator sets currently held. */
+    public synchronized long openGroups() {
+        return openGroups;
+    }
+
+    public synchronized long lateEvents() {
+        return lateEvents;
+    }
+
+    public synchronized long invalidEvents() {
+        return invalidEvents;
+    }
+
+    public synchronized Instant watermark() {
+        return watermark == Long.MIN_VALUE ? null : Instant.ofEpochMilli(watermark);
+    }
+
+    private void addToWindows(Object key, long eventTime, Document document) {
+        long size = window.sizeMillis();
+        long advance = window.advanceMillis();
+        long lastStart = Math.floorDiv(eventTime, advance) * advance;
+        boolean accepted = false;
+        for (long start = lastStart; start > eventTime - size; start -= advance) {
+            if (start + size <= watermark) {
+                break;
+            }
+            Map<Object, Accumulator[]> groups = windows.computeIfAbsent(start, ignored -> new HashMap<>());
+            Accumulator[] state = groups.get(key);
+            if (state == null) {
+                state = newState();
+                groups.put(key, state);
+                openGroups++;
+            }
+            fold(state, document);
+            accepted = true;
+        }
+        if (!accepted) {
+            lateEvents++;
+        }
+    }
+
+    private void addToSession(Object key, long eventTime, Document document) {
+        long gap = window.gapMillis();
+        TreeMap<Long, Session> sessions = sessionsByKey.computeIfAbsent(key, ignored -> new TreeMap<>());
+        // Sessions of one key are disjoint and ordered, so the ones this event
+        // touches are a contiguous run ending at the last start before t + gap.
+        List<Session> touched = new ArrayList<>(2);
+        for (Session session : sessions.headMap(eventTime + gap, false).descendingMap().values()) {
+            if (session.last + gap <= eventTime) {
+                break;
+            }
+            touched.add(session);
+        }
+        if (touched.isEmpty()) {
+            if (eventTime + gap <= watermark) {
+                lateEvents++;
+                if (sessions.isEmpty()) {
+                    sessionsByKey.remove(key);
+                }
+                return;
+            }
+            Session created = new Session(key, eventTime, newState());
+            sessions.put(eventTime, created);
+            index(created);
+            openGroups++;
+            fold(created.state, document);
+            return;
+        }
+
+        Session target = touched.get(0);
+        unindex(target);
+        sessions.remove(target.start);
+        for (int i = 1; i < touched.size(); i++) {
+            Session merged = touched.get(i);
+            unindex(merged);
+            sessions.remove(merged.start);
+            for (int a = 0; a < target.state.length; a++) {
+                target.state[a].merge(merged.state[a]);
+            }
+            target.start = Math.min(target.start, merged.start);
+            target.last = Math.max(target.last, merged.last);
+            openGroups--;
+        }
+        target.start = Math.min(target.start, eventTime);
+        target.last = Math.max(target.last, eventTime);
+        sessions.put(target.start, target);
+        index(target);
+        fold(target.state, document);
+    }
+
+    private List<Document> closeUpTo(long limit) {
+        List<Document> closed = new ArrayList<>();
+        if (window.type() == WindowSpec.Type.SESSION) {
+            while (!sessionsByExpiry.isEmpty() && sessionsByExpiry.firstKey() <= limit) {
+                for (Session session : sessionsByExpiry.pollFirstEntry().getValue()) {
+                    TreeMap<Long, Session> sessions = sessionsByKey.get(session.key);
+                    sessions.remove(session.start);
+                    if (sessions.isEmpty()) {
+                        sessionsByKey.remove(session.key);
+                    }
+                    openGroups--;
+                    closed.add(output(session.key, session.start, session.last + window.gapMillis(), session.state));
+                }
+            }
+            return closed;
+        }
+        long size = window.sizeMillis();
+        while (!windows.isEmpty() && windows.firstKey() + size <= limit) {
+            Map.Entry<Long, Map<Object, Accumulator[]>> entry = windows.pollFirstEntry();
+            long start = entry.getKey();
+            for (Map.Entry<Object, Accumulator[]> group : entry.getValue().entrySet()) {
+                closed.add(output(group.getKey(), start, start + size, group.getValue()));
+            }
+            openGroups -= entry.getValue().size();
+        }
+        return closed;
+    }
+
+    private Document output(Object key, long start, long end, Accumulator[] state) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("_id", key);
+        data.put("windowStart", Instant.ofEpochMilli(start).toString());
+        data.put("windowEnd", Instant.ofEpochMilli(end).toString());
+        for (int i = 0; i < state.length; i++) {
+            data.put(accumulators.get(i).field(), state[i].result());
+        }
+        return new Document(data);
+    }
+
+    private Accumulator[] newState() {
+        Accumulator[] state = new Accumulator[accumulators.size()];
+        for (int i = 0; i < state.length; i++) {
+            state[i] = accumulators.get(i).create();
+        }
+        return state;
+    }
+
+    private void fold(Accumulator[] state, Document document) {
+        for (int i = 0; i < state.length; i++) {
+            state[i].add(accumulators.get(i).argument(document));
+        }
+    }
+
+    private void index(Session session) {
+        sessionsByExpiry.computeIfAbsent(session.last + window.gapMillis(), ignored -> new LinkedHashSet<>())
+                .add(session);
+    }
+
+    private void unindex(Session session) {
+        long expiry = session.last + window.gapMillis();
+        Set<Session> bucket = sessionsByExpiry.get(expiry);
+        if (bucket != null && bucket.remove(session) && bucket.isEmpty()) {
+            sessionsByExpiry.remove(expiry);
+        }
+    }
+
+    private Object groupKey(Document document) {
+        Object key = groupPath == null ? groupBy : FieldPaths.resolve(document, groupPath);
+        // Match $group, which treats 1, 1L and 1.0 as the same key.
+        if (key instanceof Number number && !(number instanceof Long)) {
+            double value = number.doubleValue();
+            if (value == Math.rint(value) && !Double.isInfinite(value)) {
+                return (long) value;
+            }
+            return value;
+        }
+        return key;
+    }
+
+    private long eventTime(Document document) {
+        Object value = FieldPaths.resolve(document, timePath);
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value instanceof Instant instant) {
+            return instant.toEpochMilli();
+        }
+        if (value instanceof Date date) {
+            return date.getTime();
+        }
+        if (value instanceof String text) {
+            return Instant.parse(text).toEpochMilli();
+        }
+        throw new IllegalArgumentException("Missing event time in " + timeField);
+    }
+
+    /** Identity-compared, so two sessions with equal bounds never collide in an index bucket. */
+    private static final class Session {
+        private final Object key;
+        private final Accumulator[] state;
+        private long start;
+        private long last;
+
+        private Session(Object key, long start, Accumulator[] state) {
+            this.key = key;
+            this.start = start;
+            this.last = start;
+            this.state = state;
+        }
+    }
+
+    public static final class Builder {
+
+        private WindowSpec window;
+        private String timeField;
+        private Object groupBy;
+        private Duration allowedLateness = Duration.ZERO;
+        private final List<Spec> accumulators = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder window(WindowSpec window) {
+            this.window = window;
+            return this;
+        }
+
+        /**
+         * Field path holding the event time as epoch millis, an
+         * {@link Instant}, a {@link Date} or an ISO-8601 string.
+         */
+        public Builder timeField(String timeField) {
+            this.timeField = timeField;
+            return this;
+        }
+
+        /** {@code $group}-style {@code _id}: a field path or a constant. */
+        public Builder groupBy(Object groupBy) {
+            this.groupBy = groupBy;
+            return this;
+        }
+
+        /** How far behind the newest event a window stays open for stragglers. */
+        public Builder allowedLateness(Duration allowedLateness) {
+            this.allowedLateness = allowedLateness;
+            return this;
+        }
+
+        public Builder count(String field) {
+            return accumulator(field, "$count", null);
+        }
+
+        public Builder sum(String field, Object expression) {
+            return accumulator(field, "$sum", expression);
+        }
+
+        public Builder avg(String field, String expression) {
+            return accumulator(field, "$avg", expression);
+        }
+
+        public Builder min(String field, String expression) {
+            return accumulator(field, "$min", expression);
+        }
+
+        public Builder max(String field, String expression) {
+            return accumulator(field, "$max", expression);
+        }
+
+        public Builder accumulator(String field, String operator, Object expression) {
+            if ("_id".equals(field) || "windowStart".equals(field) || "windowEnd".equals(field)) {
+                throw new IllegalArgumentException("Accumulator field " + field + " is reserved");
+            }
+            accumulators.add(new Spec(field, operator, expression));
+            return this;
+        }
+
+        public WindowedAggregator build() {
+            Objects.requireNonNull(window, "window");
+            if (timeField == null || !timeField.startsWith("$") || timeField.length() == 1) {
+                throw new IllegalArgumentException("timeField must be a field path such as $timestamp");
+            }
+            if (allowedLateness.isNegative()) {
+                throw new IllegalArgumentException("allowedLateness must not be negative");
+            }
+            return new WindowedAggregator(this);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package ai.fluxion.sample.streaming.adaptive;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Feeds {@link AdaptiveBatchController} fixed latencies and queue depths and
+ * checks each decision: the batch size halves once a full cooldown of batches
+ * misses the target, grows only with a backlog and headroom, stays within its
+ * bounds, and is never steered by latencies measured at an abandoned size.
+ */
+class AdaptiveBatchControllerTest {
+
+    private static final long FAST = millis(2);
+    private static final long SLOW = millis(20);
+
+    private final AdaptiveBatchingConfig config = AdaptiveBatchingConfig.builder()
+            .targetLatency(Duration.ofMillis(10))
+            .minBatchSize(1)
+            .maxBatchSize(64)
+            .initialBatchSize(16)
+            .minFlushInterval(Duration.ofMillis(1))
+            .maxFlushInterval(Duration.ofMillis(25))
+            .latencyWindow(16)
+            .cooldownBatches(4)
+            .build();
+
+    @Test
+    void halvesTheBatchSizeOnceACooldownOfBatchesMissesTheTarget() {
+        AdaptiveBatchController controller = new AdaptiveBatchController(config);
+
+        feed(controller, 3, SLOW, 0);
+        assertEquals(16, controller.batchSize());
+
+        feed(controller, 1, SLOW, 0);
+        assertEquals(8, controller.batchSize());
+        assertEquals(1L, controller.snapshot().get("decreases"));
+    }
+
+    @Test
+    void ignoresLatenciesMeasuredBeforeTheLastChange() {
+        AdaptiveBatchController controller = new AdaptiveBatchController(config);
+        feed(controller, 4, SLOW, 0);
+        assertEquals(8, controller.batchSize());
+
+        // Without a backlog the size should now hold; stale slow samples in
+        // the window would keep halving it down to the minimum.
+        feed(controller, 40, FAST, 0);
+
+        assertEquals(8, controller.batchSize());
+        assertEquals(1L, controller.snapshot().get("decreases"));
+        assertEquals(0L, controller.snapshot().get("increases"));
+    }
+
+    @Test
+    void growsOnlyWhileFullBatchesLeaveABacklog() {
+        AdaptiveBatchController controller = new AdaptiveBatchController(config);
+
+        feed(controller, 8, FAST, 15);
+        assertEquals(16, controller.batchSize(), "queue shallower than a batch");
+        for (int i = 0; i < 8; i++) {
+            controller.onBatch(10, FAST, 100);
+        }
+        assertEquals(16, controller.batchSize(), "batches cut by the flush interval");
+
+        feed(controller, 1, FAST, 100);
+        assertEquals(20, controller.batchSize());
+        feed(controller, 3, FAST, 100);
+        assertEquals(20, controller.batchSize(), "still cooling down");
+        feed(controller, 1, FAST, 100);
+        assertEquals(25, controller.batchSize());
+    }
+
+    @Test
+    void keepsTheBatchSizeWithinItsBounds() {
+        AdaptiveBatchController shrinking = new AdaptiveBatchController(config);
+        feed(shrinking, 100, SLOW, 0);
+        assertEquals(1, shrinking.batchSize());
+        assertEquals(4L, shrinking.snapshot().get("decreases"));
+
+        AdaptiveBatchController growing = new AdaptiveBatchController(config);
+        feed(growing, 100, FAST, 1_000);
+        assertEquals(64, growing.batchSize());
+    }
+
+    @Test
+    void capsTheFlushIntervalByHalfTheRemainingHeadroom() {
+        AdaptiveBatchController controller = new AdaptiveBatchController(config);
+
+        controller.onBatch(16, millis(6), 0);
+        assertEquals(millis(2), controller.flushIntervalNanos());
+
+        controller.onBatch(16, SLOW, 0);
+        assertEquals(millis(1), controller.flushIntervalNanos());
+    }
+
+    @Test
+    void rejectsACooldownLongerThanTheLatencyWindow() {
+        AdaptiveBatchingConfig.Builder builder = AdaptiveBatchingConfig.builder()
+                .latencyWindow(4)
+                .cooldownBatches(5);
+        assertThrows(IllegalArgumentException.class, builder::build);
+    }
+
+    /** Records {@code batches} full batches at the controller's current size. */
+    private static void feed(AdaptiveBatchController controller, int batches, long latencyNanos, int queueDepth) {
+        for (int i = 0; i < batches; i++) {
+            controller.onBatch(controller.batchSize(), latencyNanos, queueDepth);
+        }
+    }
+
+    private static long millis(long millis) {
+        return Duration.ofMillis(millis).toNanos();
+    }
+}
@@ -0,0 +1,79 @@
+package ai.fluxion.sample.streaming.adaptive;
+
+import ai.fluxion.core.engine.streaming.StreamingContext;
+import ai.fluxion.core.engine.streaming.StreamingErrorPolicy;
+import ai.fluxion.core.model.Document;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Streams orders through an adaptive runner whose batch size moves while it
+ * runs: every per-document result must arrive in order, and a pipeline whose
+ * result would depend on where the batches were cut is rejected up front.
+ */
+class AdaptiveStreamingRunnerTest {
+
+    private final AdaptiveBatchingConfig config = AdaptiveBatchingConfig.builder()
+            .targetLatency(Duration.ofMillis(5))
+            .minBatchSize(1)
+            .maxBatchSize(64)
+            .initialBatchSize(2)
+            .build();
+
+    @Test
+    void deliversEveryPerDocumentResultInOrder() throws InterruptedException {
+        AdaptiveStreamingRunner runner = new AdaptiveStreamingRunner(config, StreamingErrorPolicy.failFast());
+        List<Document> output = new ArrayList<>();
+
+        runner.processStream(orders(5_000), """
+                [
+                  {"$match": {"status": "PAID"}},
+                  {"$addFields": {"channel": "web"}}
+                ]
+                """, output::addAll, context());
+
+        assertEquals(2_500, output.size());
+        for (int i = 0; i < output.size(); i++) {
+            assertEquals("O-" + 2 * i, output.get(i).get("orderId"));
+            assertEquals("web", output.get(i).get("channel"));
+        }
+    }
+
+    @Test
+    void rejectsStagesThatDependOnTheBatchBoundaries() {
+        AdaptiveStreamingRunner runner = new AdaptiveStreamingRunner(config, StreamingErrorPolicy.failFast());
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> runner.processStream(
+                orders(10), """
+                        [
+                          {"$match": {"status": "PAID"}},
+                          {"$group": {"_id": "$status", "count": {"$sum": 1}}}
+                        ]
+                        """, batch -> { }, context()));
+        assertTrue(error.getMessage().startsWith("$group"), error.getMessage());
+    }
+
+    private static StreamingContext context() {
+        return new StreamingContext(null, Map.of("tenantId", "test"), "orders-stream");
+    }
+
+    private static List<Document> orders(int count) {
+        List<Document> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("orderId", "O-" + i);
+            data.put("status", i % 2 == 0 ? "PAID" : "PENDING");
+            orders.add(new Document(data));
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,171 @@
+package ai.fluxion.sample.streaming.partition;
+
+import ai.fluxion.core.engine.streaming.StreamingErrorPolicy;
+import ai.fluxion.core.engine.streaming.StreamingRuntimeConfig;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.core.util.DocumentParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Streams tenants' events across partitions and checks that each tenant's
+ * events reach the sink in source order in micro-batches no larger than
+ * configured, that a {@code $group} keyed like the partitions keeps its state
+ * across micro-batches and emits every key's full total, and that when the
+ * run fails the failure reaches the caller while the cancelled partitions
+ * flush none of their partial groups.
+ */
+class PartitionedStreamingRunnerTest {
+
+    private static final int MICRO_BATCH_SIZE = 4;
+
+    private final StreamingRuntimeConfig runtimeConfig = StreamingRuntimeConfig.builder()
+            .microBatchSize(MICRO_BATCH_SIZE)
+            .queueCapacity(64)
+            .build();
+
+    @Test
+    void keepsEachKeyInSourceOrder() throws InterruptedException {
+        List<Stage> stages = DocumentParser.getStagesFromJsonArray("""
+                [
+                  {"$addFields": {"processed": true}}
+                ]
+                """);
+        List<Document> events = new ArrayList<>();
+        for (int sequence = 0; sequence < 500; sequence++) {
+            for (int tenant = 0; tenant < 10; tenant++) {
+                events.add(event("t" + tenant, sequence));
+            }
+        }
+        List<List<Document>> batches = Collections.synchronizedList(new ArrayList<>());
+
+        runner(4).processStream(events, stages, batches::add, Map.of(), "ordered");
+
+        Map<Object, List<Integer>> sequences = new LinkedHashMap<>();
+        synchronized (batches) {
+            for (List<Document> batch : batches) {
+                assertTrue(batch.size() <= MICRO_BATCH_SIZE, () -> "batch of " + batch.size());
+                for (Document document : batch) {
+                    assertEquals(true, document.get("processed"));
+                    sequences.computeIfAbsent(document.get("tenant"), ignored -> new ArrayList<>())
+                            .add(((Number) document.get("sequence")).intValue());
+                }
+            }
+        }
+        assertEquals(10, sequences.size());
+        List<Integer> expected = IntStream.range(0, 500).boxed().toList();
+        sequences.forEach((tenant, received) -> assertEquals(expected, received, () -> "order of " + tenant));
+    }
+
+    @Test
+    void groupsEachKeyAcrossEveryMicroBatchOfItsPartition() throws InterruptedException {
+        List<Stage> stages = DocumentParser.getStagesFromJsonArray("""
+                [
+                  {"$group": {"_id": "$tenant", "count": {"$sum": 1}}}
+                ]
+                """);
+        List<Document> events = new ArrayList<>();
+        for (int sequence = 0; sequence < 500; sequence++) {
+            for (int tenant = 0; tenant < 10; tenant++) {
+                events.add(event("t" + tenant, sequence));
+            }
+        }
+        List<Document> groups = Collections.synchronizedList(new ArrayList<>());
+
+        runner(4).processStream(events, stages, groups::addAll, Map.of(), "grouped");
+
+        Map<Object, Integer> counts = new LinkedHashMap<>();
+        synchronized (groups) {
+            for (Document group : groups) {
+                assertNull(counts.put(group.get("_id"), ((Number) group.get("count")).intValue()),
+                        () -> "group " + group.get("_id") + " emitted twice");
+            }
+        }
+        assertEquals(10, counts.size());
+        counts.forEach((tenant, count) -> assertEquals(500, count, () -> "count of " + tenant));
+    }
+
+    @Test
+    void propagatesAFailureWithoutFlushingCancelledPartitions() {
+        List<Stage> stages = DocumentParser.getStagesFromJsonArray("""
+                [
+                  {"$group": {"_id": "$tenant", "count": {"$sum": 1}}}
+                ]
+                """);
+        String healthy = "t0";
+        String poison = "poison";
+        PartitionKey key = document -> {
+            if (poison.equals(document.get("tenant"))) {
+                throw new IllegalStateException("cannot route " + poison);
+            }
+            return document.get("tenant");
+        };
+        List<Document> groups = Collections.synchronizedList(new ArrayList<>());
+        PartitionedStreamingRunner runner = new PartitionedStreamingRunner(key, 2, MICRO_BATCH_SIZE, 64,
+                runtimeConfig, StreamingErrorPolicy.failFast());
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> runner.processStream(events(healthy, poison), stages, groups::addAll, Map.of(), "failing"));
+
+        assertEquals("cannot route " + poison, failure.getMessage());
+        // The healthy partition's stream was cancelled before it ended, so its
+        // group is partial and must not reach the sink.
+        assertTrue(groups.isEmpty(), () -> "flushed partial groups " + groups);
+    }
+
+    @Test
+    void rejectsANonPositiveMicroBatchSize() {
+        assertThrows(IllegalArgumentException.class, () -> new PartitionedStreamingRunner(
+                PartitionKey.field("$tenant"), 2, 0, 64, runtimeConfig, StreamingErrorPolicy.failFast()));
+    }
+
+    private PartitionedStreamingRunner runner(int partitions) {
+        return new PartitionedStreamingRunner(PartitionKey.field("$tenant"), partitions, MICRO_BATCH_SIZE, 64,
+                runtimeConfig, StreamingErrorPolicy.failFast());
+    }
+
+    /**
+     * Two healthy events, then one micro-batch worth of poison events, then
+     * healthy events for as long as the runner keeps routing. The runner must
+     * stop on the failure long before the source runs out.
+     */
+    private static Iterable<Document> events(String healthy, String poison) {
+        return () -> new Iterator<>() {
+            private int produced;
+
+            @Override
+            public boolean hasNext() {
+                assertFalse(produced == 10_000_000, "the runner kept routing after a partition failed");
+                return true;
+            }
+
+            @Override
+            public Document next() {
+                int sequence = produced++;
+                boolean poisoned = sequence >= 2 && sequence < 2 + MICRO_BATCH_SIZE;
+                return event(poisoned ? poison : healthy, sequence);
+            }
+        };
+    }
+
+    private static Document event(String tenant, int sequence) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("tenant", tenant);
+        event.put("sequence", sequence);
+        return new Document(event);
+    }
+}
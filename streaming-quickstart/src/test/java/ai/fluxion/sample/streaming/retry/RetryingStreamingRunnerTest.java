@@ -0,0 +1,249 @@
+package ai.fluxion.sample.streaming.retry;
+
+import ai.fluxion.core.engine.streaming.StreamingContext;
+import ai.fluxion.core.engine.streaming.StreamingErrorPolicy;
+import ai.fluxion.core.engine.streaming.StreamingPipelineExecutor;
+import ai.fluxion.core.engine.streaming.StreamingRuntimeConfig;
+import ai.fluxion.core.engine.streaming.StreamingSink;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.util.DocumentParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Streams orders into a sink that rejects every batch holding a poison
+ * record and, for a while, one flaky record. Healthy records must all arrive,
+ * the flaky one after its retries, and the poison ones must end up in the
+ * dead-letter log, survive a reopen, and come back through a replay. With
+ * only a few retry slots the worker waits for room instead of queueing every
+ * failure. With one record in a hundred poisoned the worker must write each
+ * micro-batch once and leave every split run to the isolation threads. A
+ * pipeline with a {@code $group} is rejected.
+ */
+class RetryingStreamingRunnerTest {
+
+    private static final String STAGES = """
+            [
+              {"$addFields": {"processed": true}}
+            ]
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void isolatesFailingRecordsAndDeadLettersThoseThatKeepFailing() throws Exception {
+        Path logFile = directory.resolve("orders.dlq");
+        RetryConfig config = RetryConfig.builder()
+                .maxAttempts(3)
+                .initialBackoff(Duration.ofMillis(1))
+                .maxBackoff(Duration.ofMillis(5))
+                .build();
+        List<Document> delivered = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger flakySoloWrites = new AtomicInteger();
+        StreamingSink sink = batch -> {
+            for (Document document : batch) {
+                if (Boolean.TRUE.equals(document.get("poison"))) {
+                    throw new IllegalStateException("poison record " + document.get("orderId"));
+                }
+                // Fails with its batch and on its first two attempts alone.
+                if (Boolean.TRUE.equals(document.get("flaky"))
+                        && (batch.size() > 1 || flakySoloWrites.incrementAndGet() < 3)) {
+                    throw new IllegalStateException("flaky record " + document.get("orderId"));
+                }
+            }
+            delivered.addAll(batch);
+        };
+
+        try (DeadLetterLog deadLetters = DeadLetterLog.open(logFile, 4 * 1024)) {
+            RetryingStreamingRunner runner = runner(64, config, deadLetters);
+            runner.processStream(orders(2_000), STAGES, sink, context());
+
+            assertEquals(1_980, delivered.size());
+            assertEquals(expectedIds(2_000), ids(delivered));
+            assertTrue(delivered.stream().allMatch(document -> Boolean.TRUE.equals(document.get("processed"))));
+
+            RetryingStreamingRunner.Stats stats = runner.stats();
+            assertEquals(21, stats.isolated());
+            assertEquals(1, stats.recovered());
+            assertEquals(20, stats.deadLettered());
+            assertEquals(20 * 2 + 2, stats.retries());
+        }
+
+        try (DeadLetterLog reopened = DeadLetterLog.open(logFile, 4 * 1024)) {
+            List<DeadLetterLog.DeadLetter> pending = reopened.pending();
+            assertEquals(20, pending.size());
+            assertTrue(pending.stream().allMatch(letter -> letter.attempts() == 3
+                    && letter.error().contains("poison record")));
+
+            List<Document> replayed = Collections.synchronizedList(new ArrayList<>());
+            StreamingPipelineExecutor executor = new StreamingPipelineExecutor(16,
+                    StreamingRuntimeConfig.builder().microBatchSize(16).build(), StreamingErrorPolicy.failFast());
+            int count = reopened.replay(executor, DocumentParser.getStagesFromJsonArray(STAGES), replayed::addAll,
+                    new StreamingContext(null, Map.of(), "orders-replay"));
+
+            assertEquals(20, count);
+            assertEquals(poisonIds(2_000), ids(replayed));
+            assertTrue(reopened.pending().isEmpty());
+        }
+
+        try (DeadLetterLog reopened = DeadLetterLog.open(logFile)) {
+            assertTrue(reopened.pending().isEmpty());
+        }
+    }
+
+    @Test
+    void waitsForARetrySlotWhenTooManyRecordsArePending() throws Exception {
+        RetryConfig config = RetryConfig.builder()
+                .maxAttempts(2)
+                .initialBackoff(Duration.ofMillis(2))
+                .maxBackoff(Duration.ofMillis(2))
+                .maxPendingRetries(2)
+                .build();
+        AtomicInteger pendingPeak = new AtomicInteger();
+        List<Document> delivered = Collections.synchronizedList(new ArrayList<>());
+        StreamingSink sink = batch -> {
+            for (Document document : batch) {
+                if (Boolean.TRUE.equals(document.get("poison"))) {
+                    throw new IllegalStateException("poison record " + document.get("orderId"));
+                }
+            }
+            delivered.addAll(batch);
+        };
+
+        try (DeadLetterLog deadLetters = DeadLetterLog.open(directory.resolve("bounded.dlq"), 4 * 1024)) {
+            RetryingStreamingRunner runner = runner(64, config, deadLetters);
+            runner.processStream(orders(1_000), STAGES, batch -> {
+                RetryingStreamingRunner.Stats stats = runner.stats();
+                pendingPeak.accumulateAndGet((int) (stats.isolated() - stats.recovered() - stats.deadLettered()),
+                        Math::max);
+                sink.write(batch);
+            }, context());
+
+            assertEquals(990, delivered.size());
+            assertEquals(10, runner.stats().deadLettered());
+            assertTrue(pendingPeak.get() <= 2, () -> "peak pending " + pendingPeak.get());
+        }
+    }
+
+    @Test
+    void splitsFailingBatchesOffTheWorkerWithOnePercentPoison() throws Exception {
+        RetryConfig config = RetryConfig.builder().maxAttempts(1).build();
+        int count = 20_000;
+        int microBatchSize = 64;
+        LongAdder workerWrites = new LongAdder();
+        LongAdder isolationWrites = new LongAdder();
+        LongAdder delivered = new LongAdder();
+        StreamingSink sink = batch -> {
+            if (Thread.currentThread().getName().startsWith("streaming-isolate-")) {
+                isolationWrites.increment();
+            } else {
+                workerWrites.increment();
+            }
+            for (Document document : batch) {
+                if (Boolean.TRUE.equals(document.get("poison"))) {
+                    throw new IllegalStateException("poison record " + document.get("orderId"));
+                }
+            }
+            delivered.add(batch.size());
+        };
+
+        try (DeadLetterLog deadLetters = DeadLetterLog.open(directory.resolve("poisoned.dlq"), 64 * 1024)) {
+            RetryingStreamingRunner runner = runner(microBatchSize, config, deadLetters);
+            runner.processStream(orders(count), STAGES, sink, context());
+
+            RetryingStreamingRunner.Stats stats = runner.stats();
+            assertEquals(count - count / 100, delivered.sum());
+            assertEquals(count / 100, stats.deadLettered());
+            // The worker writes every micro-batch once, failing or not, and nothing else.
+            assertEquals((count + microBatchSize - 1) / microBatchSize, workerWrites.sum());
+            assertEquals(stats.splitRuns(), isolationWrites.sum());
+            // A poisoned micro-batch of 64 costs two runs per halving down to 4 records, then one per record.
+            assertTrue(stats.splitRuns() <= (count / 100) * 12L, () -> "split runs " + stats.splitRuns());
+        }
+    }
+
+    @Test
+    void rejectsStagesThatDependOnWhichRecordsFailed() throws Exception {
+        try (DeadLetterLog deadLetters = DeadLetterLog.open(directory.resolve("grouped.dlq"), 4 * 1024)) {
+            RetryingStreamingRunner runner = runner(64, RetryConfig.builder().build(), deadLetters);
+
+            IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                    () -> runner.processStream(orders(10), """
+                            [{"$group": {"_id": "$status", "count": {"$sum": 1}}}]
+                            """, batch -> {
+                    }, context()));
+            assertTrue(error.getMessage().startsWith("$group"), error.getMessage());
+        }
+    }
+
+    private static RetryingStreamingRunner runner(int microBatchSize, RetryConfig config, DeadLetterLog deadLetters) {
+        StreamingRuntimeConfig runtimeConfig = StreamingRuntimeConfig.builder().microBatchSize(microBatchSize).build();
+        return new RetryingStreamingRunner(microBatchSize, runtimeConfig, StreamingErrorPolicy.failFast(), config,
+                deadLetters);
+    }
+
+    private static StreamingContext context() {
+        return new StreamingContext(null, Map.of(), "orders-stream");
+    }
+
+    private static List<Document> orders(int count) {
+        List<Document> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("orderId", "O-" + i);
+            data.put("status", i % 2 == 0 ? "PAID" : "PENDING");
+            data.put("total", (long) (i % 100));
+            if (i % 100 == 42) {
+                data.put("poison", true);
+            }
+            if (i == 7) {
+                data.put("flaky", true);
+            }
+            orders.add(new Document(data));
+        }
+        return orders;
+    }
+
+    private static Set<String> expectedIds(int count) {
+        Set<String> ids = new TreeSet<>();
+        for (int i = 0; i < count; i++) {
+            if (i % 100 != 42) {
+                ids.add("O-" + i);
+            }
+        }
+        return ids;
+    }
+
+    private static Set<String> poisonIds(int count) {
+        Set<String> ids = new TreeSet<>();
+        for (int i = 42; i < count; i += 100) {
+            ids.add("O-" + i);
+        }
+        return ids;
+    }
+
+    private static Set<String> ids(List<Document> documents) {
+        synchronized (documents) {
+            return documents.stream().map(document -> (String) document.get("orderId"))
+                    .collect(Collectors.toCollection(TreeSet::new));
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package ai.fluxion.sample.streaming.runner;
+
+import ai.fluxion.core.model.Document;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives {@link MicroBatchRunner} directly: batches close on size or on the
+ * flush interval counted from the first record's arrival, a failure handler
+ * that returns lets the run carry on, and a failure that does not is
+ * rethrown once the source has stopped.
+ */
+class MicroBatchRunnerTest {
+
+    @Test
+    void cutsBatchesBySizeAndReportsLatencyFromArrival() throws InterruptedException {
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        Batching batching = new Batching() {
+            @Override
+            public int batchSize() {
+                return 4;
+            }
+
+            @Override
+            public long flushIntervalNanos() {
+                return TimeUnit.SECONDS.toNanos(10);
+            }
+
+            @Override
+            public void onBatch(int size, long latencyNanos, int queueDepth) {
+                latencies.add(latencyNanos);
+            }
+        };
+        List<List<Document>> written = new ArrayList<>();
+
+        MicroBatchRunner.builder()
+                .batching(batching)
+                .processor(batch -> {
+                    sleep(20);
+                    return batch;
+                })
+                .build()
+                .run(documents(10), written::add);
+
+        assertEquals(List.of(4, 4, 2), written.stream().map(List::size).toList());
+        // The third batch waited in the queue while the first two ran.
+        assertEquals(3, latencies.size());
+        assertTrue(latencies.get(2) >= TimeUnit.MILLISECONDS.toNanos(55), () -> "latency " + latencies.get(2));
+    }
+
+    @Test
+    void flushesOnceTheIntervalSinceTheFirstArrivalHasPassed() throws InterruptedException {
+        List<List<Document>> written = new ArrayList<>();
+        Iterable<Document> slow = () -> new Iterator<>() {
+            private int produced;
+
+            @Override
+            public boolean hasNext() {
+                return produced < 3;
+            }
+
+            @Override
+            public Document next() {
+                if (produced == 2) {
+                    sleep(300);
+                }
+                return document(produced++);
+            }
+        };
+
+        MicroBatchRunner.builder()
+                .batching(Batching.fixed(100, Duration.ofMillis(50)))
+                .processor(batch -> batch)
+                .build()
+                .run(slow, written::add);
+
+        assertEquals(List.of(2, 1), written.stream().map(List::size).toList());
+    }
+
+    @Test
+    void carriesOnWhenTheFailureHandlerReturns() throws InterruptedException {
+        List<Document> written = new ArrayList<>();
+        List<List<Document>> failed = new ArrayList<>();
+
+        MicroBatchRunner.builder()
+                .batching(Batching.fixed(2))
+                .processor(batch -> {
+                    if (batch.stream().anyMatch(document -> document.get("id").equals(3))) {
+                        throw new IllegalStateException("bad batch");
+                    }
+                    return batch;
+                })
+                .failureHandler((batch, error) -> failed.add(batch))
+                .build()
+                .run(documents(6), written::addAll);
+
+        assertEquals(List.of(0, 1, 4, 5), written.stream().map(document -> document.get("id")).toList());
+        assertEquals(1, failed.size());
+    }
+
+    @Test
+    void rethrowsAFailureAndStopsReadingTheSource() {
+        IllegalStateException failure = new IllegalStateException("sink down");
+        Iterable<Document> endless = () -> new Iterator<>() {
+            private int produced;
+
+            @Override
+            public boolean hasNext() {
+                return produced < 10_000_000;
+            }
+
+            @Override
+            public Document next() {
+                return document(produced++);
+            }
+        };
+
+        MicroBatchRunner runner = MicroBatchRunner.builder()
+                .batching(Batching.fixed(8))
+                .queueCapacity(16)
+                .processor(batch -> batch)
+                .build();
+
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> runner.run(endless, batch -> {
+            throw failure;
+        })));
+    }
+
+    private static List<Document> documents(int count) {
+        List<Document> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            documents.add(document(i));
+        }
+        return documents;
+    }
+
+    private static Document document(int id) {
+        return new Document(new LinkedHashMap<>(Map.of("id", id)));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package ai.fluxion.sample.streaming.telemetry;
+
+import ai.fluxion.core.engine.streaming.StreamingErrorPolicy;
+import ai.fluxion.core.engine.streaming.StreamingRuntimeConfig;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.core.util.DocumentParser;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.testing.exporter.InMemoryMetricReader;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Streams orders through an instrumented runner, collects through an
+ * in-memory OpenTelemetry reader, and checks the document counts, batch and
+ * sink latency percentiles and the export of the executor's stage metrics
+ * while a stream runs; stateful stages must keep their state for the whole
+ * stream, and a disabled runner must produce the same output without
+ * recording anything.
+ */
+class InstrumentedStreamingRunnerTest {
+
+    private static final AttributeKey<String> QUANTILE = AttributeKey.stringKey("quantile");
+
+    private final List<Stage> stages = DocumentParser.getStagesFromJsonArray("""
+            [
+              {"$match": {"status": "PAID"}},
+              {"$group": {"_id": "$status", "count": {"$sum": 1}}}
+            ]
+            """);
+    private final List<Stage> stateless = DocumentParser.getStagesFromJsonArray("""
+            [
+              {"$match": {"status": "PAID"}},
+              {"$addFields": {"channel": "web"}}
+            ]
+            """);
+
+    @Test
+    void exportsDocumentCountsAndBatchLatencies() {
+        InMemoryMetricReader reader = InMemoryMetricReader.create();
+        try (SdkMeterProvider meterProvider = SdkMeterProvider.builder().registerMetricReader(reader).build();
+             PipelineTelemetry telemetry = PipelineTelemetry.create(meterProvider.get("test"), "orders")) {
+            InstrumentedStreamingRunner runner = runner(telemetry);
+            List<Document> output = new ArrayList<>();
+            runner.processStream(orders(1_000), stateless, output::addAll, Map.of("tenantId", "test"), "orders-stream");
+
+            assertEquals(500, output.size());
+            Collection<MetricData> metrics = reader.collectAllMetrics();
+            assertEquals(1_000L, total(metrics, "fluxion.pipeline.documents.in"));
+            assertEquals(500L, total(metrics, "fluxion.pipeline.documents.out"));
+            assertTrue(total(metrics, "fluxion.pipeline.batches") >= 5);
+            for (String latency : List.of("fluxion.pipeline.latency", "fluxion.pipeline.sink.latency")) {
+                Set<String> quantiles = find(metrics, latency).getDoubleGaugeData().getPoints().stream()
+                        .map(point -> point.getAttributes().get(QUANTILE))
+                        .collect(Collectors.toSet());
+                assertEquals(Set.of("p50", "p90", "p99", "p999", "max"), quantiles, latency);
+            }
+            find(metrics, "fluxion.pipeline.allocated");
+
+            PipelineTelemetry.Snapshot snapshot = telemetry.snapshot();
+            assertEquals(1_000, snapshot.documentsIn());
+            assertEquals(500, snapshot.documentsOut());
+        }
+    }
+
+    @Test
+    void keepsGroupStateForTheWholeStream() {
+        try (SdkMeterProvider meterProvider = SdkMeterProvider.builder().build();
+             PipelineTelemetry telemetry = PipelineTelemetry.create(meterProvider.get("test"), "orders")) {
+            List<Document> output = new ArrayList<>();
+            runner(telemetry).processStream(orders(1_000), stages, output::addAll,
+                    Map.of("tenantId", "test"), "orders-stream");
+
+            assertEquals(1, output.size());
+            assertEquals(500, ((Number) output.get(0).get("count")).longValue());
+            assertEquals(1, telemetry.snapshot().documentsOut());
+        }
+    }
+
+    @Test
+    void exportsStageMetricsOnlyWhileTheStreamRuns() throws InterruptedException {
+        InMemoryMetricReader reader = InMemoryMetricReader.create();
+        try (SdkMeterProvider meterProvider = SdkMeterProvider.builder().registerMetricReader(reader).build();
+             PipelineTelemetry telemetry = PipelineTelemetry.create(meterProvider.get("test"), "orders")) {
+            InstrumentedStreamingRunner runner = runner(telemetry);
+            CountDownLatch writing = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Thread run = Thread.ofPlatform().start(() -> runner.processStream(orders(1_000), stateless, batch -> {
+                writing.countDown();
+                await(release);
+            }, Map.of("tenantId", "test"), "orders-stream"));
+
+            assertTrue(writing.await(10, TimeUnit.SECONDS));
+            // Reads the bound context's metrics while the executor is still running.
+            reader.collectAllMetrics();
+            release.countDown();
+            run.join();
+
+            assertTrue(reader.collectAllMetrics().stream().noneMatch(metric -> metric.getName().equals("fluxion.stage.metric")
+                    && !metric.getDoubleGaugeData().getPoints().isEmpty()));
+        }
+    }
+
+    @Test
+    void rethrowsASinkFailure() {
+        try (SdkMeterProvider meterProvider = SdkMeterProvider.builder().build();
+             PipelineTelemetry telemetry = PipelineTelemetry.create(meterProvider.get("test"), "orders")) {
+            InstrumentedStreamingRunner runner = runner(telemetry);
+            IllegalStateException rejected = new IllegalStateException("sink is down");
+
+            IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                    () -> runner.processStream(orders(10_000), stages, batch -> {
+                        throw rejected;
+                    }, Map.of("tenantId", "test"), "orders-stream"));
+
+            assertSame(rejected, thrown);
+        }
+    }
+
+    @Test
+    void disabledTelemetryRecordsNothing() {
+        InstrumentedStreamingRunner runner = runner(PipelineTelemetry.disabled());
+        List<Document> output = new ArrayList<>();
+        runner.processStream(orders(1_000), stages, output::addAll, Map.of("tenantId", "test"), "orders-stream");
+
+        assertEquals(500, output.stream().mapToLong(document -> ((Number) document.get("count")).longValue()).sum());
+        assertFalse(runner.telemetry().enabled());
+        assertEquals(0, runner.telemetry().snapshot().documentsIn());
+    }
+
+    private static InstrumentedStreamingRunner runner(PipelineTelemetry telemetry) {
+        StreamingRuntimeConfig config = StreamingRuntimeConfig.builder()
+                .microBatchSize(100)
+                .queueCapacity(256)
+                .sourceQueueCapacity(16)
+                .directHandoff(true)
+                .build();
+        return new InstrumentedStreamingRunner(100, config, StreamingErrorPolicy.failFast(), telemetry);
+    }
+
+    private static long total(Collection<MetricData> metrics, String name) {
+        return find(metrics, name).getLongSumData().getPoints().stream()
+                .mapToLong(point -> point.getValue())
+                .sum();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static MetricData find(Collection<MetricData> metrics, String name) {
+        return metrics.stream()
+                .filter(metric -> metric.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("metric " + name + " was not exported"));
+    }
+
+    private static List<Document> orders(int count) {
+        List<Document> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("orderId", "O-" + i);
+            data.put("status", i % 2 == 0 ? "PAID" : "PENDING");
+            orders.add(new Document(data));
+        }
+        return orders;
+    }
+}
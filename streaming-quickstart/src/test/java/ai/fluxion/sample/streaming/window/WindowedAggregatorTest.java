@@ -0,0 +1,255 @@
+package ai.fluxion.sample.streaming.window;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.engine.streaming.StreamingContext;
+import ai.fluxion.core.engine.streaming.StreamingErrorPolicy;
+import ai.fluxion.core.engine.streaming.StreamingPipelineExecutor;
+import ai.fluxion.core.engine.streaming.StreamingRuntimeConfig;
+import ai.fluxion.core.engine.streaming.StreamingSink;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exercises tumbling, hopping and session windows on hand-built batches,
+ * streams events through a {@link StreamingPipelineExecutor} into
+ * {@link WindowedAggregator#asSink} to show that window state stays bounded,
+ * and checks the accumulators against the executor's {@code $group}.
+ */
+class WindowedAggregatorTest {
+
+    private static final Object MISSING = new Object();
+
+    @Test
+    void tumblingWindowsEmitOnceTheWatermarkPassesTheirEnd() {
+        WindowedAggregator aggregator = WindowedAggregator.builder()
+                .window(WindowSpec.tumbling(Duration.ofSeconds(10)))
+                .timeField("$ts")
+                .groupBy("$status")
+                .count("count")
+                .sum("revenue", "$total")
+                .avg("avgTotal", "$total")
+                .min("minTotal", "$total")
+                .max("maxTotal", "$total")
+                .build();
+
+        List<Document> first = aggregator.process(List.of(
+                order(1_000, "PAID", 10),
+                order(4_000, "PAID", 30),
+                order(9_000, "PENDING", 5)));
+        assertTrue(first.isEmpty());
+        assertEquals(2, aggregator.openGroups());
+
+        List<Document> closed = aggregator.process(List.of(order(10_000, "PAID", 7)));
+        assertEquals(2, closed.size());
+        Document paid = find(closed, "PAID");
+        assertEquals(2, paid.get("count"));
+        assertEquals(40, paid.get("revenue"));
+        assertEquals(20.0, paid.get("avgTotal"));
+        assertEquals(10, paid.get("minTotal"));
+        assertEquals(30, paid.get("maxTotal"));
+        assertEquals("1970-01-01T00:00:00Z", paid.get("windowStart"));
+        assertEquals("1970-01-01T00:00:10Z", paid.get("windowEnd"));
+        assertEquals(1, aggregator.openGroups());
+
+        aggregator.process(List.of(order(2_000, "PAID", 99)));
+        assertEquals(1, aggregator.lateEvents());
+
+        List<Document> rest = aggregator.flush();
+        assertEquals(1, rest.size());
+        assertEquals(7, rest.get(0).get("revenue"));
+        assertEquals(0, aggregator.openGroups());
+    }
+
+    @Test
+    void hoppingWindowsCountAnEventInEveryOverlappingWindow() {
+        WindowedAggregator aggregator = WindowedAggregator.builder()
+                .window(WindowSpec.hopping(Duration.ofSeconds(10), Duration.ofSeconds(5)))
+                .timeField("$ts")
+                .groupBy("all")
+                .count("count")
+                .build();
+
+        aggregator.process(List.of(order(7_000, "PAID", 1)));
+        List<Document> windows = aggregator.flush();
+
+        assertEquals(2, windows.size());
+        assertEquals("1970-01-01T00:00:00Z", windows.get(0).get("windowStart"));
+        assertEquals("1970-01-01T00:00:05Z", windows.get(1).get("windowStart"));
+        assertEquals(1, windows.get(1).get("count"));
+    }
+
+    @Test
+    void sessionWindowsMergeWhenAnEventBridgesTheGap() {
+        Map<String, Object> specification = new LinkedHashMap<>();
+        specification.put("timeField", "$ts");
+        specification.put("session", Map.of("gap", 5_000));
+        specification.put("allowedLateness", 10_000);
+        specification.put("group", Map.of(
+                "_id", "$status",
+                "revenue", Map.of("$sum", "$total")));
+        WindowedAggregator aggregator = WindowedAggregator.fromSpecification(specification);
+
+        aggregator.process(List.of(
+                order(0, "PAID", 1),
+                order(8_000, "PAID", 2)));
+        assertEquals(2, aggregator.openGroups());
+
+        aggregator.process(List.of(order(4_000, "PAID", 4)));
+        assertEquals(1, aggregator.openGroups());
+
+        List<Document> closed = aggregator.process(List.of(order(30_000, "PAID", 8)));
+        assertEquals(1, closed.size());
+        assertEquals(7, closed.get(0).get("revenue"));
+        assertEquals("1970-01-01T00:00:00Z", closed.get(0).get("windowStart"));
+        assertEquals("1970-01-01T00:00:13Z", closed.get(0).get("windowEnd"));
+    }
+
+    @Test
+    void stateStaysBoundedThroughAStreamingPipeline() {
+        int tenants = 50;
+        long events = 200_000;
+        WindowedAggregator aggregator = WindowedAggregator.builder()
+                .window(WindowSpec.tumbling(Duration.ofSeconds(1)))
+                .timeField("$ts")
+                .groupBy("$tenant")
+                .allowedLateness(Duration.ofSeconds(2))
+                .count("count")
+                .sum("revenue", "$total")
+                .max("maxTotal", "$total")
+                .build();
+        List<Document> windows = new ArrayList<>();
+        StreamingSink windowed = aggregator.asSink(windows::addAll);
+        AtomicLong peakGroups = new AtomicLong();
+        StreamingPipelineExecutor executor = new StreamingPipelineExecutor(1_000,
+                StreamingRuntimeConfig.builder().microBatchSize(1_000).build(), StreamingErrorPolicy.failFast());
+
+        // One event per millisecond of event time, so 200 seconds of stream
+        // time flow through 1-second windows.
+        executor.processStream(events(events, tenants),
+                List.of(new Stage(Map.of("$match", Map.of("total", Map.of("$gte", 0))))),
+                batch -> {
+                    windowed.write(batch);
+                    peakGroups.accumulateAndGet(aggregator.openGroups(), Math::max);
+                },
+                new StreamingContext(null, Map.of(), "windows"));
+        windows.addAll(aggregator.flush());
+
+        long counted = windows.stream().mapToLong(window -> ((Number) window.get("count")).longValue()).sum();
+        assertEquals(events, counted);
+        assertEquals(events / 1_000 * tenants, windows.size());
+        // Open windows never exceed (lateness / size + 2) windows per tenant.
+        assertTrue(peakGroups.get() <= 4L * tenants, "open groups peaked at " + peakGroups);
+        assertEquals(0, aggregator.openGroups());
+        assertEquals(0, aggregator.lateEvents());
+    }
+
+    @Test
+    void accumulatesLikeTheExecutorsGroup() {
+        List<Document> events = new ArrayList<>();
+        Map<String, List<Object>> values = new LinkedHashMap<>();
+        values.put("ints", List.of(1, 2, 3));
+        values.put("longs", List.of(1, 2L));
+        values.put("fractions", List.of(1, 2.5, 3L));
+        values.put("strings", Arrays.asList("b", 1, "a", null));
+        values.put("types", List.of(true, List.of(1), Map.of("a", 1), "z", 5, 7.5));
+        values.put("absent", Arrays.asList(null, MISSING));
+        long ts = 0;
+        for (Map.Entry<String, List<Object>> group : values.entrySet()) {
+            for (Object value : group.getValue()) {
+                Map<String, Object> data = new LinkedHashMap<>();
+                data.put("ts", ts++);
+                data.put("key", group.getKey());
+                if (value != MISSING) {
+                    data.put("v", value);
+                }
+                events.add(new Document(data));
+            }
+        }
+        Map<String, Object> group = new LinkedHashMap<>();
+        group.put("_id", "$key");
+        group.put("count", Map.of("$sum", 1));
+        group.put("total", Map.of("$sum", "$v"));
+        group.put("mean", Map.of("$avg", "$v"));
+        group.put("low", Map.of("$min", "$v"));
+        group.put("high", Map.of("$max", "$v"));
+        Map<String, Object> specification = new LinkedHashMap<>();
+        specification.put("timeField", "$ts");
+        specification.put("tumbling", Map.of("size", 60_000));
+        specification.put("group", group);
+        WindowedAggregator aggregator = WindowedAggregator.fromSpecification(specification);
+
+        List<Document> expected = new PipelineExecutor().execute(copies(events),
+                List.of(new Stage(Map.of("$group", group))), Map.of());
+        aggregator.process(copies(events));
+        List<Document> actual = aggregator.flush();
+
+        assertEquals(values.size(), actual.size());
+        for (Document window : actual) {
+            Document reference = find(expected, (String) window.get("_id"));
+            for (String field : List.of("count", "total", "mean", "low", "high")) {
+                assertEquals(describe(reference.get(field)), describe(window.get(field)),
+                        field + " of " + window.get("_id"));
+            }
+        }
+    }
+
+    private static Iterable<Document> events(long count, int tenants) {
+        return () -> new Iterator<>() {
+            private long next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Document next() {
+                long ts = next++;
+                Map<String, Object> data = new LinkedHashMap<>();
+                data.put("ts", ts);
+                data.put("tenant", "tenant-" + (ts % tenants));
+                data.put("total", (int) (ts % 100));
+                return new Document(data);
+            }
+        };
+    }
+
+    private static List<Document> copies(List<Document> documents) {
+        List<Document> copies = new ArrayList<>(documents.size());
+        documents.forEach(document -> copies.add(new Document(new LinkedHashMap<>(document.getData()))));
+        return copies;
+    }
+
+    /** The value with its Java type, so {@code 6} and {@code 6L} differ. */
+    private static String describe(Object value) {
+        return value == null ? "null" : value + ":" + value.getClass().getSimpleName();
+    }
+
+    private static Document order(long ts, String status, int total) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("ts", ts);
+        data.put("status", status);
+        data.put("total", total);
+        return new Document(data);
+    }
+
+    private static Document find(List<Document> documents, String id) {
+        return documents.stream()
+                .filter(document -> id.equals(document.get("_id")))
+                .findFirst()
+                .orElseThrow();
+    }
+}
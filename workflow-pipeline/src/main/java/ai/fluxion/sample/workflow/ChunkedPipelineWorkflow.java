@@ -0,0 +1,35 @@
+package ai.fluxion.sample.workflow;
+
+import io.temporal.workflow.WorkflowInterface;
+import io.temporal.workflow.WorkflowMethod;
+
+import java.util.List;
+import java.util.Map;
+
+/** Runs a pipeline over stored input chunks as parallel activities. */
+@WorkflowInterface
+public interface ChunkedPipelineWorkflow {
+
+    @WorkflowMethod
+    Result run(Job job);
+
+    /**
+     * @param chunks              references of the input chunks, in input order
+     * @param maxConcurrentChunks chunk activities in flight at once
+     */
+    record Job(String stagesJson,
+               Map<String, Object> variables,
+               List<String> chunks,
+               int maxConcurrentChunks,
+               int checkpointEvery,
+               long chunkTimeoutMillis,
+               long heartbeatTimeoutMillis,
+               int maxAttempts) {
+    }
+
+    /**
+     * @param outputs references of the output parts, in input order
+     */
+    record Result(List<String> outputs, long documentsIn, long documentsOut) {
+    }
+}
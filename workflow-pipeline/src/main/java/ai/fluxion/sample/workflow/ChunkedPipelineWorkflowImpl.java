@@ -0,0 +1,70 @@
+package ai.fluxion.sample.workflow;
+
+import ai.fluxion.sample.workflow.PipelineChunkActivities.ChunkResult;
+import ai.fluxion.sample.workflow.PipelineChunkActivities.ChunkTask;
+import io.temporal.activity.ActivityOptions;
+import io.temporal.common.RetryOptions;
+import io.temporal.workflow.Async;
+import io.temporal.workflow.Promise;
+import io.temporal.workflow.Workflow;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts one activity per chunk, waiting for any running chunk to complete
+ * whenever {@link Job#maxConcurrentChunks()} are in flight, then collects the
+ * output references in chunk order. If a chunk fails, the chunks already
+ * started are left to finish before the workflow fails, so that no output is
+ * stored once it has closed. Only references pass through the history, so
+ * its size depends on the number of chunks, not on the data; jobs with many
+ * thousands of chunks should be split across workflows.
+ */
+public final class ChunkedPipelineWorkflowImpl implements ChunkedPipelineWorkflow {
+
+    @Override
+    public Result run(Job job) {
+        PipelineChunkActivities activities = Workflow.newActivityStub(PipelineChunkActivities.class,
+                ActivityOptions.newBuilder()
+                        .setStartToCloseTimeout(Duration.ofMillis(job.chunkTimeoutMillis()))
+                        .setHeartbeatTimeout(Duration.ofMillis(job.heartbeatTimeoutMillis()))
+                        .setRetryOptions(RetryOptions.newBuilder()
+                                .setMaximumAttempts(job.maxAttempts())
+                                .build())
+                        .build());
+
+        List<Promise<ChunkResult>> results = new ArrayList<>(job.chunks().size());
+        List<Promise<?>> running = new ArrayList<>(job.maxConcurrentChunks());
+        List<String> outputs = new ArrayList<>();
+        long documentsIn = 0;
+        long documentsOut = 0;
+        try {
+            for (String chunk : job.chunks()) {
+                if (running.size() == job.maxConcurrentChunks()) {
+                    Promise.anyOf(running).get();
+                    running.removeIf(Promise::isCompleted);
+                }
+                Promise<ChunkResult> result = Async.function(activities::runChunk,
+                        new ChunkTask(chunk, job.stagesJson(), job.variables(), job.checkpointEvery()));
+                results.add(result);
+                running.add(result);
+            }
+
+            for (Promise<ChunkResult> result : results) {
+                ChunkResult chunk = result.get();
+                outputs.addAll(chunk.outputs());
+                documentsIn += chunk.documentsIn();
+                documentsOut += chunk.documentsOut();
+            }
+        } catch (RuntimeException e) {
+            // Let the chunks already started finish before failing, so none
+            // of them stores output after the client has cleaned up.
+            for (Promise<ChunkResult> result : results) {
+                result.exceptionally(failure -> null).get();
+            }
+            throw e;
+        }
+        return new Result(outputs, documentsIn, documentsOut);
+    }
+}
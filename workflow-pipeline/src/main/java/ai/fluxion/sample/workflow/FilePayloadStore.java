@@ -0,0 +1,109 @@
+package ai.fluxion.sample.workflow;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Keeps each payload in {@code <directory>/<reference>.payload} as
+ * length-prefixed records. Payloads are written to a temporary file and
+ * moved into place atomically. A shared file system stands in for the
+ * object store a deployment would use.
+ */
+public final class FilePayloadStore implements PayloadStore {
+
+    private final Path directory;
+
+    public FilePayloadStore(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void put(String reference, List<byte[]> records) {
+        Path file = file(reference);
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                    for (byte[] record : records) {
+                        out.writeInt(record.length);
+                        out.write(record);
+                    }
+                }
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write payload " + file, e);
+        }
+    }
+
+    @Override
+    public List<byte[]> get(String reference) {
+        Path file = file(reference);
+        List<byte[]> records = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return records;
+                }
+                records.add(in.readNBytes(length));
+            }
+        } catch (NoSuchFileException e) {
+            throw new IllegalStateException("No payload stored under " + reference, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read payload " + file, e);
+        }
+    }
+
+    @Override
+    public void delete(String reference) {
+        Path file = file(reference);
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete payload " + file, e);
+        }
+    }
+
+    @Override
+    public void deleteAll(String prefix) {
+        String name = fileName(prefix);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String fileName = file.getFileName().toString();
+                if (fileName.startsWith(name) && fileName.endsWith(".payload")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing was ever stored.
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete payloads " + directory.resolve(name) + "*", e);
+        }
+    }
+
+    private Path file(String reference) {
+        return directory.resolve(fileName(reference) + ".payload");
+    }
+
+    private static String fileName(String reference) {
+        return reference.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
@@ -0,0 +1,50 @@
+package ai.fluxion.sample.workflow;
+
+import ai.fluxion.core.model.Document;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/** Encodes documents as one JSON object per payload record. */
+final class PayloadCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> DATA = new TypeReference<>() {
+    };
+
+    private PayloadCodec() {
+    }
+
+    static byte[] encode(Document document) {
+        try {
+            return MAPPER.writeValueAsBytes(document.getData());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot encode document " + document, e);
+        }
+    }
+
+    static List<byte[]> encode(List<Document> documents) {
+        List<byte[]> records = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            records.add(encode(document));
+        }
+        return records;
+    }
+
+    static List<Document> decode(List<byte[]> records) {
+        List<Document> documents = new ArrayList<>(records.size());
+        try {
+            for (byte[] record : records) {
+                documents.add(new Document(MAPPER.readValue(record, DATA)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot decode payload record", e);
+        }
+        return documents;
+    }
+}
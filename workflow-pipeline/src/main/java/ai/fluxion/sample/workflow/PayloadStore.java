@@ -0,0 +1,25 @@
+package ai.fluxion.sample.workflow;
+
+import java.util.List;
+
+/**
+ * Holds chunk inputs and outputs outside the workflow history, which only
+ * carries their references. Workers and the client that starts a job must
+ * see the same store.
+ */
+public interface PayloadStore {
+
+    /**
+     * Stores {@code records} under {@code reference}, replacing any earlier
+     * value; must be atomic so a retried activity can safely write the same
+     * reference again.
+     */
+    void put(String reference, List<byte[]> records);
+
+    List<byte[]> get(String reference);
+
+    void delete(String reference);
+
+    /** Deletes every payload whose reference starts with {@code prefix}. */
+    void deleteAll(String prefix);
+}
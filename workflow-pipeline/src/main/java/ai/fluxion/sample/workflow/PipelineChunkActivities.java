@@ -0,0 +1,36 @@
+package ai.fluxion.sample.workflow;
+
+import io.temporal.activity.ActivityInterface;
+import io.temporal.activity.ActivityMethod;
+
+import java.util.List;
+import java.util.Map;
+
+/** Runs the pipeline over one stored chunk of the input. */
+@ActivityInterface
+public interface PipelineChunkActivities {
+
+    @ActivityMethod
+    ChunkResult runChunk(ChunkTask task);
+
+    /**
+     * @param input           reference of the chunk in the {@link PayloadStore}
+     * @param stagesJson      pipeline as a JSON array of stages
+     * @param checkpointEvery documents run between two heartbeats
+     */
+    record ChunkTask(String input, String stagesJson, Map<String, Object> variables, int checkpointEvery) {
+    }
+
+    /**
+     * @param outputs references of the output parts, in input order
+     */
+    record ChunkResult(List<String> outputs, int documentsIn, int documentsOut) {
+    }
+
+    /**
+     * Heartbeat details: the documents before {@code nextOffset} have run
+     * and their output is stored under {@code outputs}.
+     */
+    record Checkpoint(int nextOffset, List<String> outputs, int documentsOut) {
+    }
+}
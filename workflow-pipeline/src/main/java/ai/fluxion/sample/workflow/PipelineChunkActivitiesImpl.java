@@ -0,0 +1,72 @@
+package ai.fluxion.sample.workflow;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.model.Stage;
+import ai.fluxion.core.util.DocumentParser;
+import io.temporal.activity.Activity;
+import io.temporal.activity.ActivityExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a chunk {@link PipelineChunkActivities.ChunkTask#checkpointEvery()}
+ * documents at a time, storing each part's output and heartbeating a
+ * {@link PipelineChunkActivities.Checkpoint} after it. A retried attempt
+ * reads the last checkpoint from its heartbeat details and resumes after
+ * it instead of starting the chunk over.
+ *
+ * <p>Heartbeats reach the server throttled, so after a worker crash the
+ * retry may resume from an older checkpoint and run some parts again.
+ * Output references are derived from the chunk reference and the part
+ * index, so a part that runs twice overwrites its earlier output rather than
+ * leaving a duplicate. Each part must finish within the heartbeat timeout.
+ */
+public final class PipelineChunkActivitiesImpl implements PipelineChunkActivities {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelineChunkActivitiesImpl.class);
+
+    private final PipelineExecutor executor;
+    private final PayloadStore store;
+
+    public PipelineChunkActivitiesImpl(PipelineExecutor executor, PayloadStore store) {
+        this.executor = executor;
+        this.store = store;
+    }
+
+    @Override
+    public ChunkResult runChunk(ChunkTask task) {
+        ActivityExecutionContext context = Activity.getExecutionContext();
+        Checkpoint checkpoint = context.getHeartbeatDetails(Checkpoint.class)
+                .orElse(new Checkpoint(0, List.of(), 0));
+        if (checkpoint.nextOffset() > 0) {
+            LOGGER.info("Resuming chunk {} at document {}", task.input(), checkpoint.nextOffset());
+        }
+
+        List<byte[]> records = store.get(task.input());
+        List<Stage> stages = DocumentParser.getStagesFromJsonArray(task.stagesJson());
+        List<String> outputs = new ArrayList<>(checkpoint.outputs());
+        int documentsOut = checkpoint.documentsOut();
+        for (int offset = checkpoint.nextOffset(); offset < records.size(); offset += task.checkpointEvery()) {
+            int end = Math.min(records.size(), offset + task.checkpointEvery());
+            List<Document> output = executor.execute(
+                    PayloadCodec.decode(records.subList(offset, end)), stages, task.variables());
+            if (!output.isEmpty()) {
+                String reference = outputPrefix(task.input()) + outputs.size();
+                store.put(reference, PayloadCodec.encode(output));
+                outputs.add(reference);
+                documentsOut += output.size();
+            }
+            context.heartbeat(new Checkpoint(end, List.copyOf(outputs), documentsOut));
+        }
+        return new ChunkResult(outputs, records.size(), documentsOut);
+    }
+
+    /** The start of the references of every output part of {@code chunk}. */
+    static String outputPrefix(String chunk) {
+        return chunk + ".out-";
+    }
+}
@@ -0,0 +1,150 @@
+package ai.fluxion.sample.workflow;
+
+import java.time.Duration;
+
+/**
+ * Chunking and activity settings for {@link WorkflowPipelineRunner}. A chunk
+ * closes once it holds {@link #maxChunkDocuments()} documents or adding the
+ * next one would take it past {@link #maxChunkBytes()} of encoded JSON; a
+ * single larger document gets a chunk of its own.
+ */
+public final class WorkflowPipelineConfig {
+
+    private final String taskQueue;
+    private final int maxChunkDocuments;
+    private final long maxChunkBytes;
+    private final int maxConcurrentChunks;
+    private final int checkpointEvery;
+    private final Duration chunkTimeout;
+    private final Duration heartbeatTimeout;
+    private final int maxAttempts;
+
+    private WorkflowPipelineConfig(Builder builder) {
+        if (builder.taskQueue == null || builder.taskQueue.isBlank()) {
+            throw new IllegalArgumentException("taskQueue must not be blank");
+        }
+        if (builder.maxChunkDocuments <= 0 || builder.maxChunkBytes <= 0) {
+            throw new IllegalArgumentException("Chunk bounds must be > 0");
+        }
+        if (builder.maxConcurrentChunks <= 0) {
+            throw new IllegalArgumentException("maxConcurrentChunks must be > 0");
+        }
+        if (builder.checkpointEvery <= 0) {
+            throw new IllegalArgumentException("checkpointEvery must be > 0");
+        }
+        if (!builder.heartbeatTimeout.isPositive() || builder.chunkTimeout.compareTo(builder.heartbeatTimeout) < 0) {
+            throw new IllegalArgumentException("Timeouts must satisfy 0 < heartbeat <= chunk");
+        }
+        if (builder.maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be >= 1");
+        }
+        this.taskQueue = builder.taskQueue;
+        this.maxChunkDocuments = builder.maxChunkDocuments;
+        this.maxChunkBytes = builder.maxChunkBytes;
+        this.maxConcurrentChunks = builder.maxConcurrentChunks;
+        this.checkpointEvery = builder.checkpointEvery;
+        this.chunkTimeout = builder.chunkTimeout;
+        this.heartbeatTimeout = builder.heartbeatTimeout;
+        this.maxAttempts = builder.maxAttempts;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String taskQueue() {
+        return taskQueue;
+    }
+
+    public int maxChunkDocuments() {
+        return maxChunkDocuments;
+    }
+
+    public long maxChunkBytes() {
+        return maxChunkBytes;
+    }
+
+    public int maxConcurrentChunks() {
+        return maxConcurrentChunks;
+    }
+
+    public int checkpointEvery() {
+        return checkpointEvery;
+    }
+
+    public Duration chunkTimeout() {
+        return chunkTimeout;
+    }
+
+    public Duration heartbeatTimeout() {
+        return heartbeatTimeout;
+    }
+
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    public static final class Builder {
+
+        private String taskQueue = "fluxion-pipeline";
+        private int maxChunkDocuments = 10_000;
+        private long maxChunkBytes = 4L << 20;
+        private int maxConcurrentChunks = 8;
+        private int checkpointEvery = 500;
+        private Duration chunkTimeout = Duration.ofMinutes(10);
+        private Duration heartbeatTimeout = Duration.ofSeconds(30);
+        private int maxAttempts = 5;
+
+        private Builder() {
+        }
+
+        public Builder taskQueue(String taskQueue) {
+            this.taskQueue = taskQueue;
+            return this;
+        }
+
+        public Builder maxChunkDocuments(int maxChunkDocuments) {
+            this.maxChunkDocuments = maxChunkDocuments;
+            return this;
+        }
+
+        public Builder maxChunkBytes(long maxChunkBytes) {
+            this.maxChunkBytes = maxChunkBytes;
+            return this;
+        }
+
+        /** Chunk activities a job keeps in flight; size the worker's activity slots to match. */
+        public Builder maxConcurrentChunks(int maxConcurrentChunks) {
+            this.maxConcurrentChunks = maxConcurrentChunks;
+            return this;
+        }
+
+        /** Documents run between two checkpoints; a retry redoes at most this many per chunk. */
+        public Builder checkpointEvery(int checkpointEvery) {
+            this.checkpointEvery = checkpointEvery;
+            return this;
+        }
+
+        /** Limit on a single attempt at one chunk. */
+        public Builder chunkTimeout(Duration chunkTimeout) {
+            this.chunkTimeout = chunkTimeout;
+            return this;
+        }
+
+        /** Time without a checkpoint after which an attempt counts as lost. */
+        public Builder heartbeatTimeout(Duration heartbeatTimeout) {
+            this.heartbeatTimeout = heartbeatTimeout;
+            return this;
+        }
+
+        /** Attempts per chunk, including the first one. */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public WorkflowPipelineConfig build() {
+            return new WorkflowPipelineConfig(this);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package ai.fluxion.sample.workflow;
+
+import ai.fluxion.core.engine.streaming.StreamingSink;
+import ai.fluxion.core.model.Document;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.temporal.client.WorkflowClient;
+import io.temporal.client.WorkflowFailedException;
+import io.temporal.client.WorkflowOptions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs a pipeline over a large input as a {@link ChunkedPipelineWorkflow}
+ * instead of one long {@code PipelineExecutor.execute} call. The input is
+ * split into size-bounded chunks written to the {@link PayloadStore}, the
+ * workflow runs the chunks as parallel activities that checkpoint as they
+ * go, and the output parts are read back and written to the sink in input
+ * order. A failure costs a retry of the affected chunk from its last
+ * checkpoint rather than a restart of the whole job.
+ *
+ * <p>Chunks run independently, so the pipeline may only hold stages that
+ * work one document at a time; a {@code $group} or {@code $sort} over the
+ * output belongs in a separate step.
+ */
+public final class WorkflowPipelineRunner {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<List<Map<String, Object>>> STAGES = new TypeReference<>() {
+    };
+    // Operators that map each document on its own, so running them chunk by
+    // chunk and concatenating the parts equals running them over the whole input.
+    private static final Set<String> PER_DOCUMENT_OPERATORS = Set.of(
+            "$match", "$project", "$addFields", "$set", "$unset", "$unwind", "$replaceRoot", "$replaceWith");
+
+    private final WorkflowClient client;
+    private final PayloadStore store;
+    private final WorkflowPipelineConfig config;
+
+    public WorkflowPipelineRunner(WorkflowClient client, PayloadStore store, WorkflowPipelineConfig config) {
+        this.client = client;
+        this.store = store;
+        this.config = config;
+    }
+
+    /**
+     * Runs {@code stagesJson} over {@code input} as the workflow
+     * {@code jobId} and blocks until every output part has reached the sink.
+     * Input chunks are deleted once the workflow has closed, and output parts
+     * once they are written, or together with the chunks if the workflow
+     * failed. If this call fails before the workflow closes, for instance
+     * because the client lost the server, the workflow may still be running,
+     * so its chunks are left under {@code <jobId>.chunk-*} for it to finish
+     * with.
+     */
+    public ChunkedPipelineWorkflow.Result execute(String jobId,
+                                                  Iterable<Document> input,
+                                                  String stagesJson,
+                                                  Map<String, Object> variables,
+                                                  StreamingSink sink) {
+        requirePerDocumentStages(stagesJson);
+        List<String> chunks = writeChunks(jobId, input);
+        ChunkedPipelineWorkflow workflow = client.newWorkflowStub(ChunkedPipelineWorkflow.class,
+                WorkflowOptions.newBuilder()
+                        .setWorkflowId(jobId)
+                        .setTaskQueue(config.taskQueue())
+                        .build());
+        ChunkedPipelineWorkflow.Result result;
+        try {
+            result = workflow.run(new ChunkedPipelineWorkflow.Job(
+                    stagesJson,
+                    variables,
+                    chunks,
+                    config.maxConcurrentChunks(),
+                    config.checkpointEvery(),
+                    config.chunkTimeout().toMillis(),
+                    config.heartbeatTimeout().toMillis(),
+                    config.maxAttempts()));
+        } catch (WorkflowFailedException e) {
+            // The workflow has closed, so no activity reads the chunks or
+            // writes their output any more. Parts of the chunks that did
+            // finish are not in any result, so they go by prefix.
+            for (String chunk : chunks) {
+                store.delete(chunk);
+                store.deleteAll(PipelineChunkActivitiesImpl.outputPrefix(chunk));
+            }
+            throw e;
+        }
+        chunks.forEach(store::delete);
+        for (String output : result.outputs()) {
+            sink.write(PayloadCodec.decode(store.get(output)));
+            store.delete(output);
+        }
+        return result;
+    }
+
+    private List<String> writeChunks(String jobId, Iterable<Document> input) {
+        List<String> chunks = new ArrayList<>();
+        List<byte[]> chunk = new ArrayList<>();
+        long bytes = 0;
+        for (Document document : input) {
+            byte[] record = PayloadCodec.encode(document);
+            if (!chunk.isEmpty()
+                    && (chunk.size() == config.maxChunkDocuments() || bytes + record.length > config.maxChunkBytes())) {
+                chunks.add(writeChunk(jobId, chunks.size(), chunk));
+                chunk = new ArrayList<>();
+                bytes = 0;
+            }
+            chunk.add(record);
+            bytes += record.length;
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(writeChunk(jobId, chunks.size(), chunk));
+        }
+        return chunks;
+    }
+
+    private String writeChunk(String jobId, int index, List<byte[]> records) {
+        String reference = "%s.chunk-%05d".formatted(jobId, index);
+        store.put(reference, records);
+        return reference;
+    }
+
+    private static void requirePerDocumentStages(String stagesJson) {
+        List<Map<String, Object>> stages;
+        try {
+            stages = MAPPER.readValue(stagesJson, STAGES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot parse pipeline", e);
+        }
+        for (Map<String, Object> stage : stages) {
+            for (String operator : stage.keySet()) {
+                if (!PER_DOCUMENT_OPERATORS.contains(operator)) {
+                    throw new IllegalArgumentException(
+                            operator + " needs the whole input; only per-document stages can run in chunks");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ai.fluxion.sample.workflow;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import io.temporal.testing.TestEnvironmentOptions;
+import io.temporal.testing.TestWorkflowEnvironment;
+import io.temporal.worker.Worker;
+import io.temporal.worker.WorkerOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Enriches a batch of orders through {@link WorkflowPipelineRunner} on the
+ * Temporal in-process test server, so no external service is needed. The
+ * worker and the client share a {@link FilePayloadStore} in a temp directory;
+ * against a real cluster the worker would run in its own process and the
+ * store would be shared storage.
+ */
+public final class WorkflowPipelineSample {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkflowPipelineSample.class);
+
+    private static final String STAGES = """
+            [
+              {"$match": {"status": "PAID"}},
+              {"$addFields": {"amount": "$total", "enriched": true}}
+            ]
+            """;
+
+    private WorkflowPipelineSample() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path payloads = Files.createTempDirectory("fluxion-workflow-payloads");
+        PayloadStore store = new FilePayloadStore(payloads);
+        WorkflowPipelineConfig config = WorkflowPipelineConfig.builder()
+                .maxChunkDocuments(2_500)
+                .maxConcurrentChunks(4)
+                .checkpointEvery(250)
+                .build();
+
+        // Chunks heartbeat in real time, so the server clock must not skip ahead.
+        TestWorkflowEnvironment environment = TestWorkflowEnvironment.newInstance(TestEnvironmentOptions.newBuilder()
+                .setUseTimeskipping(false)
+                .build());
+        try {
+            Worker worker = environment.newWorker(config.taskQueue(), WorkerOptions.newBuilder()
+                    .setMaxConcurrentActivityExecutionSize(config.maxConcurrentChunks())
+                    .build());
+            worker.registerWorkflowImplementationTypes(ChunkedPipelineWorkflowImpl.class);
+            worker.registerActivitiesImplementations(new PipelineChunkActivitiesImpl(new PipelineExecutor(), store));
+            environment.start();
+
+            WorkflowPipelineRunner runner = new WorkflowPipelineRunner(environment.getWorkflowClient(), store, config);
+            AtomicLong delivered = new AtomicLong();
+            ChunkedPipelineWorkflow.Result result = runner.execute("orders-enrichment", orders(20_000), STAGES,
+                    Map.of("tenantId", "demo"), batch -> {
+                        if (delivered.getAndAdd(batch.size()) == 0) {
+                            LOGGER.info("First output: {}", batch.get(0));
+                        }
+                    });
+
+            LOGGER.info("Ran {} documents in {} output parts; {} documents delivered",
+                    result.documentsIn(), result.outputs().size(), delivered.get());
+        } finally {
+            environment.close();
+        }
+    }
+
+    private static List<Document> orders(int count) {
+        List<Document> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("orderId", "O-" + i);
+            data.put("status", i % 4 == 0 ? "PENDING" : "PAID");
+            data.put("total", (double) (i % 500));
+            orders.add(new Document(data));
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,169 @@
+package ai.fluxion.sample.workflow;
+
+import ai.fluxion.core.engine.PipelineExecutor;
+import ai.fluxion.core.model.Document;
+import ai.fluxion.core.util.DocumentParser;
+import io.temporal.client.WorkflowFailedException;
+import io.temporal.testing.TestEnvironmentOptions;
+import io.temporal.testing.TestWorkflowEnvironment;
+import io.temporal.worker.Worker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs chunked jobs on the in-process test server. One output write fails
+ * once half way through a chunk: the job must still produce exactly the
+ * in-memory result, and the retry must resume from the last checkpoint
+ * rather than rerun the parts already stored. Another write fails on every
+ * attempt, failing its job. Every stored payload is gone once the job
+ * returns or fails.
+ */
+class WorkflowPipelineRunnerTest {
+
+    private static final String STAGES = """
+            [
+              {"$match": {"status": "PAID"}},
+              {"$addFields": {"enriched": true}}
+            ]
+            """;
+    private static final String FAILING_PART = "orders.chunk-00001.out-4";
+    private static final String BROKEN_PART = "broken.chunk-00001.out-2";
+
+    @TempDir
+    Path directory;
+
+    private final Map<String, AtomicInteger> writes = new ConcurrentHashMap<>();
+    private TestWorkflowEnvironment environment;
+    private WorkflowPipelineRunner runner;
+
+    @BeforeEach
+    void startWorker() {
+        PayloadStore files = new FilePayloadStore(directory);
+        PayloadStore store = new PayloadStore() {
+            @Override
+            public void put(String reference, List<byte[]> records) {
+                int write = writes.computeIfAbsent(reference, key -> new AtomicInteger()).incrementAndGet();
+                if (write == 1 && reference.equals(FAILING_PART) || reference.equals(BROKEN_PART)) {
+                    throw new IllegalStateException("Storage unavailable");
+                }
+                files.put(reference, records);
+            }
+
+            @Override
+            public List<byte[]> get(String reference) {
+                return files.get(reference);
+            }
+
+            @Override
+            public void delete(String reference) {
+                files.delete(reference);
+            }
+
+            @Override
+            public void deleteAll(String prefix) {
+                files.deleteAll(prefix);
+            }
+        };
+        WorkflowPipelineConfig config = WorkflowPipelineConfig.builder()
+                .maxChunkDocuments(1_000)
+                .maxConcurrentChunks(2)
+                .checkpointEvery(100)
+                .maxAttempts(3)
+                .build();
+
+        // Chunks heartbeat in real time, so the server clock must not skip
+        // ahead past their heartbeat timeout while they run.
+        environment = TestWorkflowEnvironment.newInstance(TestEnvironmentOptions.newBuilder()
+                .setUseTimeskipping(false)
+                .build());
+        Worker worker = environment.newWorker(config.taskQueue());
+        worker.registerWorkflowImplementationTypes(ChunkedPipelineWorkflowImpl.class);
+        worker.registerActivitiesImplementations(new PipelineChunkActivitiesImpl(new PipelineExecutor(), store));
+        environment.start();
+        runner = new WorkflowPipelineRunner(environment.getWorkflowClient(), store, config);
+    }
+
+    @AfterEach
+    void stopWorker() {
+        environment.close();
+    }
+
+    @Test
+    void retriedChunkResumesFromItsLastCheckpoint() throws Exception {
+        List<Document> input = orders(4_000);
+        List<Document> delivered = new ArrayList<>();
+
+        ChunkedPipelineWorkflow.Result result = runner.execute("orders", input, STAGES, Map.of(), delivered::addAll);
+
+        List<Document> expected = new PipelineExecutor().execute(
+                input, DocumentParser.getStagesFromJsonArray(STAGES), Map.of());
+        assertEquals(data(expected), data(delivered));
+        assertEquals(4_000, result.documentsIn());
+        assertEquals(expected.size(), result.documentsOut());
+
+        assertEquals(2, writes.get(FAILING_PART).get());
+        for (int part = 0; part < 4; part++) {
+            assertEquals(1, writes.get("orders.chunk-00001.out-" + part).get());
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void failedJobLeavesNoPayloads() throws Exception {
+        assertThrows(WorkflowFailedException.class, () -> runner.execute(
+                "broken", orders(2_000), STAGES, Map.of(), batch -> {
+                }));
+
+        assertEquals(3, writes.get(BROKEN_PART).get());
+        // Parts of both chunks were stored before the job failed.
+        assertTrue(writes.containsKey("broken.chunk-00000.out-9"));
+        assertTrue(writes.containsKey("broken.chunk-00001.out-1"));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void rejectsStagesThatNeedTheWholeInput() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> runner.execute(
+                "orders-by-status", orders(10), """
+                        [{"$group": {"_id": "$status", "orders": {"$sum": 1}}}]
+                        """, Map.of(), batch -> {
+                }));
+        assertTrue(error.getMessage().startsWith("$group"));
+    }
+
+    private static List<Document> orders(int count) {
+        List<Document> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("orderId", "O-" + i);
+            data.put("status", i % 4 == 0 ? "PENDING" : "PAID");
+            data.put("total", i % 500);
+            orders.add(new Document(data));
+        }
+        return orders;
+    }
+
+    private static List<Map<String, Object>> data(List<Document> documents) {
+        return documents.stream().map(Document::getData).toList();
+    }
+}